@@ -0,0 +1,130 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} implementation that wraps another input stream and returns at most a fixed number of bytes from it,
+ * which is useful for serving a range of a larger stream. Closing this stream closes the wrapped stream.
+ */
+public class BoundedInputStream extends InputStream {
+    private final InputStream stream;
+    private long remaining;
+
+    /**
+     * Create a stream that returns at most <code>length</code> bytes from the supplied stream.
+     * 
+     * @param stream the stream that is to be wrapped; may not be null
+     * @param length the maximum number of bytes that can be read; may not be negative
+     */
+    public BoundedInputStream( InputStream stream,
+                               long length ) {
+        CheckArg.isNotNull(stream, "stream");
+        CheckArg.isNonNegative(length, "length");
+        this.stream = stream;
+        this.remaining = length;
+    }
+
+    /**
+     * Create a stream over a range of the supplied stream, by skipping over the content that precedes the range and returning at
+     * most <code>length</code> bytes. If the supplied stream ends before the offset, the resulting stream is empty. The supplied
+     * stream is closed if it cannot be positioned.
+     * 
+     * @param stream the stream over the full content; may not be null
+     * @param offset the number of bytes to skip; may not be negative
+     * @param length the maximum number of bytes that can be read; may not be negative
+     * @return the stream over the range; never null
+     * @throws IOException if the supplied stream could not be positioned
+     */
+    public static BoundedInputStream range( InputStream stream,
+                                            long offset,
+                                            long length ) throws IOException {
+        CheckArg.isNotNull(stream, "stream");
+        CheckArg.isNonNegative(offset, "offset");
+        boolean positioned = false;
+        try {
+            long remaining = offset;
+            while (remaining > 0L) {
+                long skipped = stream.skip(remaining);
+                if (skipped <= 0L) {
+                    // Either the end of the stream was reached or the stream doesn't skip, so fall back to reading ...
+                    if (stream.read() == -1) break;
+                    skipped = 1L;
+                }
+                remaining -= skipped;
+            }
+            BoundedInputStream result = new BoundedInputStream(stream, length);
+            positioned = true;
+            return result;
+        } finally {
+            if (!positioned) stream.close();
+        }
+    }
+
+    /**
+     * Get the number of bytes that can still be read from this stream, assuming the wrapped stream is long enough.
+     * 
+     * @return the number of remaining bytes; never negative
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0L) return -1;
+        int result = stream.read();
+        if (result != -1) --remaining;
+        return result;
+    }
+
+    @Override
+    public int read( byte[] b,
+                     int off,
+                     int len ) throws IOException {
+        if (remaining <= 0L) return -1;
+        int n = stream.read(b, off, (int)Math.min(len, remaining));
+        if (n > 0) remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException {
+        long skipped = stream.skip(Math.min(n, remaining));
+        if (skipped > 0L) remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int)Math.min(stream.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
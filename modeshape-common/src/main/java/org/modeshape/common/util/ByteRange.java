@@ -0,0 +1,165 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.common.util;
+
+import org.modeshape.common.annotation.Immutable;
+
+/**
+ * A single range of bytes within some content, as requested by an HTTP <code>Range</code> header. Only single byte ranges are
+ * supported; {@link #parse(String, long)} ignores any other value (including multiple ranges), so that the full content is
+ * served.
+ */
+@Immutable
+public final class ByteRange {
+
+    /**
+     * The unit of the ranges, used in the <code>Range</code>, <code>Content-Range</code> and <code>Accept-Ranges</code> headers.
+     */
+    public static final String UNIT = "bytes";
+
+    /**
+     * The range returned by {@link #parse(String, long)} when the requested range lies outside of the content.
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1L, -1L);
+
+    /**
+     * Parse the value of an HTTP <code>Range</code> header.
+     *
+     * @param header the value of the header; may be null
+     * @param size the size of the content
+     * @return the range, {@link #UNSATISFIABLE} if the range is outside of the content, or null if the full content should be
+     *         served
+     */
+    public static ByteRange parse( String header,
+                                   long size ) {
+        if (header == null || !header.startsWith(UNIT + "=") || header.indexOf(',') != -1) {
+            return null;
+        }
+        String spec = header.substring(UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.length() == 0) {
+                // A suffix range, with the number of bytes at the end of the content ...
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0L) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0L, size - suffixLength);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.length() == 0 ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+                if (end < start) {
+                    return start >= size ? UNSATISFIABLE : null;
+                }
+            }
+            return start < size ? new ByteRange(start, end) : UNSATISFIABLE;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the value of the <code>Content-Range</code> header for a response that cannot satisfy the requested range.
+     *
+     * @param size the size of the content
+     * @return the header value; never null
+     */
+    public static String unsatisfiableContentRange( long size ) {
+        return UNIT + " */" + size;
+    }
+
+    private final long first;
+    private final long last;
+
+    private ByteRange( long first,
+                       long last ) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Get the position of the first byte in this range.
+     *
+     * @return the zero-based offset of the first byte
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * Get the position of the last byte in this range.
+     *
+     * @return the zero-based offset of the last byte, inclusive
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * Get the number of bytes in this range.
+     *
+     * @return the length of this range
+     */
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * Get the value of the <code>Content-Range</code> header for a response that serves this range.
+     *
+     * @param size the size of the whole content
+     * @return the header value; never null
+     */
+    public String getContentRange( long size ) {
+        return UNIT + " " + first + "-" + last + "/" + size;
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCode.compute(first, last);
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (obj == this) return true;
+        if (obj instanceof ByteRange) {
+            ByteRange that = (ByteRange)obj;
+            return this.first == that.first && this.last == that.last;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return this == UNSATISFIABLE ? "<unsatisfiable>" : first + "-" + last;
+    }
+}
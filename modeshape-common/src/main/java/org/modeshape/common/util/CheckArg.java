@@ -212,6 +212,24 @@ public final class CheckArg {
 
     // ########################## long METHODS ###################################
 
+    /**
+     * Check that the argument is less than or equal to the supplied value
+     * 
+     * @param argument The argument
+     * @param lessThanOrEqualToValue the value that is to be used to check the value
+     * @param name The name of the argument
+     * @throws IllegalArgumentException If argument is not less than or equal to the supplied value
+     */
+    public static void isLessThanOrEqualTo( long argument,
+                                            long lessThanOrEqualToValue,
+                                            String name ) {
+        if (argument > lessThanOrEqualToValue) {
+            throw new IllegalArgumentException(CommonI18n.argumentMustBeLessThanOrEqualTo.text(name,
+                                                                                               argument,
+                                                                                               lessThanOrEqualToValue));
+        }
+    }
+
     /**
      * Check that the argument is non-negative (>=0).
      * 
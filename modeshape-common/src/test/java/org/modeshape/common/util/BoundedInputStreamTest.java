@@ -0,0 +1,62 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.common.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import org.junit.Test;
+
+public class BoundedInputStreamTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @Test
+    public void shouldReadRangeOfStream() throws Exception {
+        assertThat(read(BoundedInputStream.range(new ByteArrayInputStream(CONTENT), 2, 5)), is("23456"));
+        assertThat(read(BoundedInputStream.range(new ByteArrayInputStream(CONTENT), 0, 100)), is("0123456789"));
+    }
+
+    @Test
+    public void shouldReadRangeOfStreamThatDoesNotSkip() throws Exception {
+        InputStream stream = new FilterInputStream(new ByteArrayInputStream(CONTENT)) {
+            @Override
+            public long skip( long n ) {
+                return 0L;
+            }
+        };
+        assertThat(read(BoundedInputStream.range(stream, 7, 2)), is("78"));
+    }
+
+    @Test
+    public void shouldReturnEmptyRangeWhenOffsetIsBeyondEndOfStream() throws Exception {
+        assertThat(read(BoundedInputStream.range(new ByteArrayInputStream(CONTENT), 20, 5)), is(""));
+    }
+
+    protected String read( InputStream stream ) throws Exception {
+        return new String(IoUtil.readBytes(stream));
+    }
+}
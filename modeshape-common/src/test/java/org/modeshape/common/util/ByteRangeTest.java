@@ -0,0 +1,80 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.common.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void shouldParseRangeWithFirstAndLastPositions() {
+        assertRange(ByteRange.parse("bytes=0-9", 100), 0, 9);
+        assertRange(ByteRange.parse("bytes=50-500", 100), 50, 99);
+    }
+
+    @Test
+    public void shouldParseRangeWithOnlyFirstPosition() {
+        assertRange(ByteRange.parse("bytes=90-", 100), 90, 99);
+    }
+
+    @Test
+    public void shouldParseSuffixRange() {
+        assertRange(ByteRange.parse("bytes=-10", 100), 90, 99);
+        assertRange(ByteRange.parse("bytes=-1000", 100), 0, 99);
+    }
+
+    @Test
+    public void shouldReturnUnsatisfiableRangeWhenRangeIsOutsideOfContent() {
+        assertThat(ByteRange.parse("bytes=100-", 100), is(sameInstance(ByteRange.UNSATISFIABLE)));
+        assertThat(ByteRange.parse("bytes=-0", 100), is(sameInstance(ByteRange.UNSATISFIABLE)));
+        assertThat(ByteRange.unsatisfiableContentRange(100), is("bytes */100"));
+    }
+
+    @Test
+    public void shouldIgnoreMissingMultipleOrInvalidRanges() {
+        assertThat(ByteRange.parse(null, 100), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=0-9,20-29", 100), is(nullValue()));
+        assertThat(ByteRange.parse("items=0-9", 100), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=a-b", 100), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=9-0", 100), is(nullValue()));
+    }
+
+    @Test
+    public void shouldComputeLengthAndContentRange() {
+        ByteRange range = ByteRange.parse("bytes=1-5", 100);
+        assertThat(range.getLength(), is(5L));
+        assertThat(range.getContentRange(100), is("bytes 1-5/100"));
+    }
+
+    protected void assertRange( ByteRange range,
+                                long first,
+                                long last ) {
+        assertThat(range.getFirst(), is(first));
+        assertThat(range.getLast(), is(last));
+    }
+}
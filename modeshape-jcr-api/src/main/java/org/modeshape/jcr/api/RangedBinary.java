@@ -0,0 +1,75 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import javax.jcr.RepositoryException;
+
+/**
+ * An extension of the ModeShape {@link Binary} interface, with methods to read ranges of the content without streaming through
+ * all of the preceding bytes. Binary values obtained from a ModeShape repository implement this interface; applications should
+ * check for it (e.g., with <code>instanceof</code>) before using these methods.
+ */
+public interface RangedBinary extends Binary {
+
+    /**
+     * Get a stream over a range of the content. Unlike {@link #getStream()}, implementations position the stream directly at the
+     * requested offset whenever the underlying storage allows random access, so reading the tail of a large value does not
+     * require reading (or skipping) all of the preceding bytes.
+     * <p>
+     * As with {@link #getStream()}, the caller is responsible for closing the returned stream.
+     * </p>
+     * 
+     * @param offset the zero-based offset of the first byte in the range; must be non-negative
+     * @param length the maximum number of bytes in the range; must be non-negative
+     * @return the stream containing at most <code>length</code> bytes of the content starting at <code>offset</code>; never
+     *         null but possibly empty if the offset is at or beyond the end of the content
+     * @throws RepositoryException if an error occurs.
+     */
+    public InputStream getStream( long offset,
+                                  long length ) throws RepositoryException;
+
+    /**
+     * Transfer a range of the content into the supplied channel. Implementations backed by files use
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}, which allows the operating system to
+     * move the bytes straight from the file into the target (e.g., a socket) without copying them through the Java heap.
+     * <p>
+     * The supplied channel is not closed by this method.
+     * </p>
+     * 
+     * @param position the zero-based offset of the first byte to transfer; must be non-negative
+     * @param count the maximum number of bytes to transfer; must be non-negative
+     * @param target the channel into which the content is to be written; may not be null
+     * @return the number of bytes that were transferred, which is less than <code>count</code> only if the end of the content was
+     *         reached
+     * @throws IOException if there is a problem reading the binary content or writing to the channel
+     * @throws RepositoryException if an error occurs.
+     */
+    public long transferTo( long position,
+                            long count,
+                            WritableByteChannel target ) throws IOException, RepositoryException;
+
+}
@@ -29,7 +29,18 @@ public enum DurationMetric {
      * instances are strings containing the sequencer name and the input and output paths.
      */
     SEQUENCER_EXECUTION_TIME("sequencer-execution-time", "Sequencing duration",
-                             "The metric measuring how long sequencers take to run and save the changes.");
+                             "The metric measuring how long sequencers take to run and save the changes."),
+    /**
+     * The metric that captures the duration of reindexing operations. Note that the payload of the {@link DurationActivity}
+     * instances are strings containing the workspace name and the path of the reindexed content.
+     */
+    REINDEXING_TIME("reindexing-time", "Reindexing duration", "The metric measuring how long it takes to reindex content."),
+    /**
+     * The metric that captures the duration of text extractions. Note that the payload of the {@link DurationActivity} instances
+     * are strings containing the key and the MIME type of the binary value.
+     */
+    TEXT_EXTRACTION_TIME("text-extraction-time", "Text extraction duration",
+                         "The metric measuring how long it takes to extract and store the text of binary values.");
 
     private static final Map<String, DurationMetric> BY_LITERAL;
     private static final Map<String, DurationMetric> BY_NAME;
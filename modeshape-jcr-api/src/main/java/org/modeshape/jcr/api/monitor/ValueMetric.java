@@ -84,7 +84,36 @@ public enum ValueMetric {
     /**
      * The metric that records the number of nodes that were sequenced.
      */
-    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window.");
+    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window."),
+    /**
+     * The metric that records the number of nodes that have been found while reindexing but have yet to be indexed.
+     */
+    REINDEXING_QUEUE_SIZE("reindexing-queue-size", true, "Reindexing queue size",
+                          "The number of nodes at the end of the window that have been found but have yet to be reindexed."),
+    /**
+     * The metric that records the number of nodes that were reindexed.
+     */
+    REINDEXED_COUNT("reindexed-count", false, "Reindexed nodes", "The number of nodes that were reindexed during the window."),
+    /**
+     * The metric that records the number of binary values whose text has yet to be extracted.
+     */
+    TEXT_EXTRACTION_QUEUE_SIZE("text-extraction-queue-size", true, "Text extraction queue size",
+                               "The number of binary values at the end of the window whose text has yet to be extracted."),
+    /**
+     * The metric that records the number of times that nodes were found in the workspace node caches.
+     */
+    NODE_CACHE_HIT_COUNT("node-cache-hit-count", false, "Node cache hits",
+                         "The number of times nodes were found in the workspace node caches during the window."),
+    /**
+     * The metric that records the number of times that nodes were not found in the workspace node caches.
+     */
+    NODE_CACHE_MISS_COUNT("node-cache-miss-count", false, "Node cache misses",
+                          "The number of times nodes were not found in the workspace node caches during the window."),
+    /**
+     * The metric that records the number of nodes that were evicted from the workspace node caches.
+     */
+    NODE_CACHE_EVICTION_COUNT("node-cache-eviction-count", false, "Node cache evictions",
+                              "The number of nodes that were evicted from the workspace node caches during the window.");
 
     private static final Map<String, ValueMetric> BY_LITERAL;
     private static final Map<String, ValueMetric> BY_NAME;
@@ -0,0 +1,224 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.connector.filesystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.infinispan.schematic.Schematic;
+import org.infinispan.schematic.document.Document;
+import org.infinispan.schematic.document.Json;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.SecureHash.Algorithm;
+import org.modeshape.jcr.value.BinaryKey;
+
+/**
+ * A cache of the SHA-1 hashes of the files exposed by a {@link FileSystemConnector}, so that the content of a file is read only
+ * when its hash is first needed or after the file has changed. Each entry records the size and last-modified time of the file
+ * when the hash was computed, and an entry is used only while both still match the file; checking an entry therefore costs only
+ * a <code>stat</code> of the file.
+ * <p>
+ * The most recently used entries are kept in memory. When the connector stores extra properties in sidecar files, the entries
+ * are also persisted in sidecar files (see {@link #DEFAULT_EXTENSION}) so that they survive restarts.
+ * </p>
+ */
+class ContentHashCache {
+
+    public static final String DEFAULT_EXTENSION = ".modeshape.sha1";
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final String SIZE = "size";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String SHA1 = "sha1";
+
+    private static final Logger LOGGER = Logger.getLogger(ContentHashCache.class);
+
+    private final boolean persistent;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Create a new cache.
+     *
+     * @param persistent true if the hashes should also be stored in sidecar files next to the hashed files, or false if they
+     *        should only be kept in memory
+     * @param capacity the maximum number of entries kept in memory
+     */
+    protected ContentHashCache( boolean persistent,
+                                final int capacity ) {
+        this.persistent = persistent;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the regular expression that matches the names of the sidecar files in which this cache persists its entries, so that
+     * the connector can hide them.
+     *
+     * @return the pattern, or null if this cache is not {@link #ContentHashCache(boolean, int) persistent} and therefore never
+     *         writes sidecar files
+     */
+    protected String getExclusionPattern() {
+        return persistent ? "(.+)" + Pattern.quote(DEFAULT_EXTENSION) + "$" : null;
+    }
+
+    /**
+     * Get the key (the SHA-1 hash of the content) for the supplied file, computing the hash only if no valid entry for the file
+     * is cached.
+     *
+     * @param file the file; may not be null
+     * @return the key of the file's content; never null
+     * @throws IOException if there is an error reading the file
+     * @throws NoSuchAlgorithmException if the SHA-1 algorithm is not available
+     */
+    public BinaryKey keyFor( File file ) throws IOException, NoSuchAlgorithmException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Entry entry = null;
+        synchronized (entries) {
+            entry = entries.get(path);
+        }
+        if (entry != null && entry.matches(size, lastModified)) return entry.key;
+
+        if (persistent) {
+            entry = read(sidecarFile(file));
+            if (entry != null && entry.matches(size, lastModified)) {
+                cache(path, entry);
+                return entry.key;
+            }
+        }
+
+        // Otherwise we have to read the file ...
+        entry = new Entry(size, lastModified, new BinaryKey(SecureHash.getHash(Algorithm.SHA_1, file)));
+
+        // Record the hash only if the file did not change while we were reading it ...
+        if (entry.matches(file.length(), file.lastModified())) {
+            cache(path, entry);
+            if (persistent) write(sidecarFile(file), entry);
+        }
+        return entry.key;
+    }
+
+    /**
+     * Remove any cached hash for the supplied file. This should be called whenever the connector changes, moves or removes the
+     * file.
+     *
+     * @param file the file; may not be null
+     */
+    public void remove( File file ) {
+        synchronized (entries) {
+            entries.remove(file.getAbsolutePath());
+        }
+        if (persistent) {
+            File sidecarFile = sidecarFile(file);
+            if (sidecarFile.exists()) sidecarFile.delete();
+        }
+    }
+
+    private void cache( String path,
+                        Entry entry ) {
+        synchronized (entries) {
+            entries.put(path, entry);
+        }
+    }
+
+    protected File sidecarFile( File file ) {
+        return new File(file.getAbsolutePath() + DEFAULT_EXTENSION);
+    }
+
+    protected Entry read( File sidecarFile ) {
+        if (!sidecarFile.exists()) return null;
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(sidecarFile);
+            Document document = Json.read(stream);
+            String sha1 = document.getString(SHA1);
+            if (sha1 == null) return null;
+            return new Entry(document.getLong(SIZE, -1L), document.getLong(LAST_MODIFIED, -1L), new BinaryKey(sha1));
+        } catch (IOException e) {
+            // The sidecar is just an optimization, so simply recompute the hash ...
+            LOGGER.debug(e, "Unable to read the content hash in '{0}'", sidecarFile);
+            return null;
+        } finally {
+            close(stream);
+        }
+    }
+
+    protected void write( File sidecarFile,
+                          Entry entry ) {
+        OutputStream stream = null;
+        try {
+            stream = new FileOutputStream(sidecarFile);
+            Json.write(Schematic.newDocument(SIZE, entry.size, LAST_MODIFIED, entry.lastModified, SHA1, entry.key.toString()),
+                       stream);
+        } catch (IOException e) {
+            LOGGER.debug(e, "Unable to write the content hash to '{0}'", sidecarFile);
+        } finally {
+            close(stream);
+        }
+    }
+
+    private static void close( Closeable stream ) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    protected static final class Entry {
+        protected final long size;
+        protected final long lastModified;
+        protected final BinaryKey key;
+
+        protected Entry( long size,
+                         long lastModified,
+                         BinaryKey key ) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.key = key;
+        }
+
+        protected boolean matches( long size,
+                                   long lastModified ) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+}
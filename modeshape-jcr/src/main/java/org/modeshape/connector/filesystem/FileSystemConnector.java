@@ -30,15 +30,17 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URL;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 import javax.jcr.NamespaceRegistry;
 import javax.jcr.RepositoryException;
 import org.infinispan.schematic.document.Document;
+import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.common.util.IoUtil;
-import org.modeshape.common.util.SecureHash;
-import org.modeshape.common.util.SecureHash.Algorithm;
 import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.RepositoryConfiguration;
@@ -47,13 +49,19 @@ import org.modeshape.jcr.api.nodetype.NodeTypeManager;
 import org.modeshape.jcr.cache.DocumentStoreException;
 import org.modeshape.jcr.federation.NoExtraPropertiesStorage;
 import org.modeshape.jcr.federation.spi.Connector;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSet;
 import org.modeshape.jcr.federation.spi.DocumentChanges;
 import org.modeshape.jcr.federation.spi.DocumentReader;
 import org.modeshape.jcr.federation.spi.DocumentWriter;
+import org.modeshape.jcr.federation.spi.PageKey;
+import org.modeshape.jcr.federation.spi.PageWriter;
+import org.modeshape.jcr.federation.spi.Pageable;
+import org.modeshape.jcr.mimetype.MimeTypeDetector;
 import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.BinaryValue;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.Property;
+import org.modeshape.jcr.value.binary.ExternalBinaryValue;
 import org.modeshape.jcr.value.binary.UrlBinaryValue;
 
 /**
@@ -69,13 +77,25 @@ import org.modeshape.jcr.value.binary.UrlBinaryValue;
  * <code>false</code> by default.</li>
  * <li><strong><code>extraPropertyStorage</code></strong> - An optional string flag that specifies how this source handles "extra"
  * properties that are not stored via file system attributes. See {@link #extraPropertiesStorage} for details. By default, extra
- * properties are stored in the same Infinispan cache that the repository uses.</li>
+ * properties are stored in the same Infinispan cache that the repository uses. When extra properties are stored in sidecar
+ * files and the source is not read-only, the SHA-1 hashes of the files' content are also cached in sidecar files.</li>
  * <li><strong><code>exclusionPattern</code></strong> - Optional property that specifies a regular expression that is used to
  * determine which files and folders in the underlying file system are not exposed through this connector. Files and folders with
  * a name that matches the provided regular expression will <i>not</i> be exposed by this source.</li>
  * <li><strong><code>inclusionPattern</code></strong> - Optional property that specifies a regular expression that is used to
  * determine which files and folders in the underlying file system are exposed through this connector. Files and folders with a
  * name that matches the provided regular expression will be exposed by this source.</li>
+ * <li><strong><code>pageSize</code></strong> - Optional property that specifies the maximum number of children of a folder that
+ * are included in the folder's document or in each subsequent page of children. The default is {@value #DEFAULT_PAGE_SIZE}.</li>
+ * <li><strong><code>watchForChanges</code></strong> - Optional boolean flag that specifies whether this source should watch the
+ * files and folders it has exposed and notify the repository when they are changed or removed by something other than this
+ * connector. Such sources never go stale, so unless a <code>cacheTtlSeconds</code> is configured their documents are cached
+ * without expiration. This is <code>false</code> by default.</li>
+ * <li><strong><code>watchIntervalSeconds</code></strong> - Optional property that specifies how often, in seconds, the watched
+ * files and folders are checked for changes. The default is {@value #DEFAULT_WATCH_INTERVAL_SECONDS}.</li>
+ * <li><strong><code>maxWatchedFiles</code></strong> - Optional property that specifies the maximum number of files and folders
+ * that are watched at once. Only the most recently read are watched, and the others are no longer cached indefinitely. The
+ * default is {@value #DEFAULT_MAX_WATCHED_FILES}.</li>
  * </ul>
  * Inclusion and exclusion patterns can be used separately or in combination. For example, consider these cases:
  * <table cellspacing="0" cellpadding="1" border="1">
@@ -104,7 +124,7 @@ import org.modeshape.jcr.value.binary.UrlBinaryValue;
  * </tr>
  * </table>
  */
-public class FileSystemConnector extends Connector {
+public class FileSystemConnector extends Connector implements Pageable {
 
     private static final String FILE_SEPARATOR = System.getProperty("file.separator");
     private static final String DELIMITER = "/";
@@ -128,6 +148,16 @@ public class FileSystemConnector extends Connector {
     private static final String EXTRA_PROPERTIES_LEGACY = "legacy";
     private static final String EXTRA_PROPERTIES_NONE = "none";
 
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+    protected static final int DEFAULT_WATCH_INTERVAL_SECONDS = 2;
+    protected static final int DEFAULT_MAX_WATCHED_FILES = 10000;
+    private static final int LISTING_CACHE_SIZE = 16;
+    /**
+     * Some file systems record modification times only to the second (or even to 2 seconds), so a folder may be changed again
+     * without changing its modification time for up to this many milliseconds after it was modified.
+     */
+    private static final long LISTING_MIN_AGE_MILLIS = 2000L;
+
     /**
      * The string path for a {@link File} object that represents the top-level directory accessed by this connector. This is set
      * via reflection and is required for this connector.
@@ -189,6 +219,57 @@ public class FileSystemConnector extends Connector {
      */
     private String extraPropertiesStorage;
 
+    /**
+     * The cache of the SHA-1 hashes of the files' content, which is created in the
+     * {@link #initialize(NamespaceRegistry, NodeTypeManager)} method.
+     */
+    private ContentHashCache contentHashes;
+
+    /**
+     * The maximum number of children of a folder that are included in the folder's document and in each subsequent page of
+     * children. This is set via reflection and defaults to {@value #DEFAULT_PAGE_SIZE}.
+     */
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * The sorted names of the children of the most recently listed folders, keyed by the folders' absolute paths, so that
+     * reading the successive pages of a large folder does not require listing the folder each time.
+     */
+    private final Map<String, FolderListing> listings = new LinkedHashMap<String, FolderListing>(LISTING_CACHE_SIZE, 0.75f,
+                                                                                                 true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, FolderListing> eldest ) {
+            return size() > LISTING_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * A boolean flag that specifies whether this connector should watch the files and folders it has exposed, and notify the
+     * repository when they are changed or removed by something other than this connector. This is set via reflection and
+     * defaults to "<code>false</code>".
+     */
+    private boolean watchForChanges = false;
+
+    /**
+     * The number of seconds between successive checks of the watched files and folders. This is set via reflection and defaults
+     * to {@value #DEFAULT_WATCH_INTERVAL_SECONDS}.
+     */
+    private int watchIntervalSeconds = DEFAULT_WATCH_INTERVAL_SECONDS;
+
+    /**
+     * The maximum number of files and folders that are watched at once. This is set via reflection and defaults to
+     * {@value #DEFAULT_MAX_WATCHED_FILES}.
+     */
+    private int maxWatchedFiles = DEFAULT_MAX_WATCHED_FILES;
+
+    /**
+     * The watcher, which is created in the {@link #initialize(NamespaceRegistry, NodeTypeManager)} method only if
+     * {@link #watchForChanges} is set.
+     */
+    private FileSystemWatcher watcher;
+
     private NamespaceRegistry registry;
 
     @Override
@@ -218,18 +299,43 @@ public class FileSystemConnector extends Connector {
         if (inclusionPattern != null) filenameFilter.setInclusionPattern(exclusionPattern);
 
         // Set up the extra properties storage ...
+        boolean sidecars = false;
         if (EXTRA_PROPERTIES_JSON.equalsIgnoreCase(extraPropertiesStorage)) {
             JsonSidecarExtraPropertyStore store = new JsonSidecarExtraPropertyStore(this, translator());
             setExtraPropertiesStore(store);
             filenameFilter.setExtraPropertiesExclusionPattern(store.getExclusionPattern());
+            sidecars = true;
         } else if (EXTRA_PROPERTIES_LEGACY.equalsIgnoreCase(extraPropertiesStorage)) {
             LegacySidecarExtraPropertyStore store = new LegacySidecarExtraPropertyStore(this);
             setExtraPropertiesStore(store);
             filenameFilter.setExtraPropertiesExclusionPattern(store.getExclusionPattern());
+            sidecars = true;
         } else if (EXTRA_PROPERTIES_NONE.equalsIgnoreCase(extraPropertiesStorage)) {
             setExtraPropertiesStore(new NoExtraPropertiesStorage(this));
         }
         // otherwise use the default extra properties storage
+
+        // Set up the cache of content hashes, persisting them next to the files if we're already writing sidecar files ...
+        contentHashes = new ContentHashCache(sidecars && !readonly, ContentHashCache.DEFAULT_CAPACITY);
+        filenameFilter.setContentHashesExclusionPattern(contentHashes.getExclusionPattern());
+
+        if (pageSize < 1) pageSize = DEFAULT_PAGE_SIZE;
+
+        // Start watching for changes, if needed ...
+        if (watchForChanges) {
+            if (watchIntervalSeconds < 1) watchIntervalSeconds = DEFAULT_WATCH_INTERVAL_SECONDS;
+            if (maxWatchedFiles < 1) maxWatchedFiles = DEFAULT_MAX_WATCHED_FILES;
+            watcher = new FileSystemWatcher(this, watchIntervalSeconds, maxWatchedFiles);
+            watcher.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdown();
+            watcher = null;
+        }
     }
 
     /**
@@ -241,6 +347,15 @@ public class FileSystemConnector extends Connector {
         return registry;
     }
 
+    /**
+     * Create a new change set that can be used to notify the repository of external changes.
+     * 
+     * @return the new change set; never null
+     */
+    ConnectorChangeSet changeSet() {
+        return newConnectorChangeSet();
+    }
+
     /**
      * Utility method for determining if the supplied identifier is for the "jcr:content" child node of a file. * Subclasses may
      * override this method to change the format of the identifiers, but in that case should also override the
@@ -324,11 +439,9 @@ public class FileSystemConnector extends Connector {
      * @param file the file; may not be null
      * @return the BinaryValue; never null
      */
-    protected BinaryValue binaryFor( File file ) {
+    protected ExternalBinaryValue binaryFor( File file ) {
         try {
-            byte[] sha1 = SecureHash.getHash(Algorithm.SHA_1, file);
-            BinaryKey key = new BinaryKey(sha1);
-            return createBinaryValue(key, file);
+            return createBinaryValue(file);
         } catch (RuntimeException e) {
             throw e;
         } catch (Throwable e) {
@@ -338,17 +451,18 @@ public class FileSystemConnector extends Connector {
 
     /**
      * Utility method to create a {@link BinaryValue} object for the given file. Subclasses should rarely override this method,
-     * since the {@link UrlBinaryValue} will be applicable in most situations.
+     * since the {@link UrlBinaryValue} will be applicable in most situations. The returned value does not read the file's
+     * content until its content or its SHA-1 hash is actually needed, and obtains the hash from this connector's cache of
+     * content hashes whenever the file has not changed since the hash was last computed.
      * 
-     * @param key the binary key; never null
      * @param file the file for which the {@link BinaryValue} is to be created; never null
      * @return the binary value; never null
      * @throws IOException if there is an error creating the value
      */
-    protected BinaryValue createBinaryValue( BinaryKey key,
-                                             File file ) throws IOException {
+    protected ExternalBinaryValue createBinaryValue( File file ) throws IOException {
         URL content = createUrlForFile(file);
-        return new UrlBinaryValue(key, content, file.getTotalSpace(), file.getName(), getMimeTypeDetector());
+        return new FileBinaryValue(idFor(file), getSourceName(), content, file, file.getName(), getMimeTypeDetector(),
+                                   contentHashes);
     }
 
     /**
@@ -438,16 +552,13 @@ public class FileSystemConnector extends Connector {
             writer.setPrimaryType(NT_FOLDER);
             writer.addProperty(JCR_CREATED, factories().getDateFactory().create(file.lastModified()));
             writer.addProperty(JCR_CREATED_BY, null); // ignored
-            for (File child : file.listFiles(filenameFilter)) {
-                // Only include as a child if we can access and read the file. Permissions might prevent us from
-                // reading the file, and the file might not exist if it is a broken symlink (see MODE-1768 for details).
-                if (child.exists() && child.canRead() && (child.isFile() || child.isDirectory())) {
-                    // We use identifiers that contain the file/directory name ...
-                    String childName = child.getName();
-                    String childId = isRoot ? DELIMITER + childName : id + DELIMITER + childName;
-                    writer.addChild(childId, childName);
-                }
-            }
+            // Include only the first page of children ...
+            writeChildren(writer, id, file, 0);
+        }
+        if (watcher != null) {
+            watcher.watch(id, file);
+            // The watcher will tell the repository when the document changes, so it can be cached indefinitely ...
+            if (getCacheTtlSeconds() == null) writer.setCacheTtlSeconds(-1);
         }
         // Set the reference to the parent ...
         String parentId = idFor(parentFile);
@@ -466,6 +577,90 @@ public class FileSystemConnector extends Connector {
         return writer.document();
     }
 
+    @Override
+    public Document getChildren( PageKey pageKey ) {
+        String id = pageKey.getParentId();
+        File folder = fileFor(id);
+        if (isExcluded(folder) || !folder.isDirectory()) return null;
+        Integer offset = pageKey.getOffsetInt();
+        if (offset == null) return null;
+        PageWriter writer = newPageDocument(pageKey);
+        writeChildren(writer, id, folder, offset.intValue());
+        return writer.document();
+    }
+
+    /**
+     * Write to the supplied writer the page of the folder's children that starts at the given offset, and a reference to the next
+     * page (if there is one). Only the children in the page are checked for accessibility, so writing a page of a large folder
+     * never requires a <code>stat</code> of every child.
+     * 
+     * @param writer the writer for the folder's document or page document; may not be null
+     * @param id the identifier of the folder; may not be null
+     * @param folder the folder; may not be null
+     * @param offset the index of the first child in the page
+     */
+    protected void writeChildren( PageWriter writer,
+                                  String id,
+                                  File folder,
+                                  int offset ) {
+        boolean isRoot = isRoot(id);
+        String[] childNames = childNamesOf(folder);
+        int end = Math.min(childNames.length, offset + pageSize);
+        for (int i = offset; i < end; ++i) {
+            String childName = childNames[i];
+            File child = new File(folder, childName);
+            // Only include as a child if we can access and read the file. Permissions might prevent us from
+            // reading the file, and the file might not exist if it is a broken symlink (see MODE-1768 for details).
+            if (child.exists() && child.canRead() && (child.isFile() || child.isDirectory())) {
+                // We use identifiers that contain the file/directory name ...
+                String childId = isRoot ? DELIMITER + childName : id + DELIMITER + childName;
+                writer.addChild(childId, childName);
+            }
+        }
+        if (end < childNames.length) {
+            writer.addPage(id, end, pageSize, childNames.length);
+        }
+    }
+
+    /**
+     * Get the sorted names of the (non-excluded) children of the supplied folder. The names are listed only when the folder has
+     * been modified since they were last listed, so that the successive pages of a folder are computed from the same listing.
+     * A folder that was modified within the last {@link #LISTING_MIN_AGE_MILLIS} is always listed, since it could have been
+     * modified again without changing its modification time.
+     * 
+     * @param folder the folder; may not be null
+     * @return the sorted names; never null
+     */
+    protected String[] childNamesOf( File folder ) {
+        String path = folder.getAbsolutePath();
+        long lastModified = folder.lastModified();
+        boolean cacheable = System.currentTimeMillis() - lastModified >= LISTING_MIN_AGE_MILLIS;
+        if (cacheable) {
+            synchronized (listings) {
+                FolderListing listing = listings.get(path);
+                if (listing != null && listing.lastModified == lastModified) return listing.names;
+            }
+        }
+        String[] names = folder.list(filenameFilter);
+        if (names == null) names = new String[0];
+        Arrays.sort(names);
+        synchronized (listings) {
+            if (cacheable) {
+                listings.put(path, new FolderListing(lastModified, names));
+            } else {
+                listings.remove(path);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public ExternalBinaryValue getBinaryValue( String id ) {
+        File file = fileFor(id);
+        if (!file.isFile() || isExcluded(file)) return null;
+        return binaryFor(file);
+    }
+
     @Override
     public String getDocumentId( String path ) {
         String id = path; // this connector treats the ID as the path
@@ -477,11 +672,17 @@ public class FileSystemConnector extends Connector {
     public boolean removeDocument( String id ) {
         File file = fileFor(id);
         checkWritable(id, file);
-        // Remove the extra properties at the old location ...
+        // Remove the extra properties and the content hash at the old location ...
         extraPropertiesStore().removeProperties(id);
+        contentHashes.remove(file);
         // Now remove the file (if it is there) ...
         if (!file.exists()) return false;
         FileUtil.delete(file); // recursive delete
+        if (watcher != null) {
+            watcher.unwatch(id);
+            watcher.unwatch(id + JCR_CONTENT_SUFFIX);
+            watcher.refresh(idFor(file.getParentFile()), file.getParentFile());
+        }
         return true;
     }
 
@@ -515,12 +716,14 @@ public class FileSystemConnector extends Connector {
                 BinaryValue binary = factories().getBinaryFactory().create(content.getFirstValue());
                 OutputStream ostream = new BufferedOutputStream(new FileOutputStream(file));
                 IoUtil.write(binary.getStream(), ostream);
+                contentHashes.remove(file);
                 if (!NT_RESOURCE.equals(primaryType)) {
                     // This is the "jcr:content" child, but the primary type is non-standard so record it as an extra property
                     extraProperties.add(properties.get(JcrLexicon.PRIMARY_TYPE));
                 }
             }
             extraProperties.save();
+            refreshWatched(id);
         } catch (RepositoryException e) {
             throw new DocumentStoreException(id, e);
         } catch (IOException e) {
@@ -544,6 +747,7 @@ public class FileSystemConnector extends Connector {
             // The node has a new parent (via the 'update' method), meaning it was moved ...
             File newParent = fileFor(newParentId);
             File newFile = new File(newParent, file.getName());
+            contentHashes.remove(file);
             file.renameTo(newFile);
             if (!parent.exists()) {
                 parent.mkdirs(); // in case they were removed since we created them ...
@@ -583,16 +787,79 @@ public class FileSystemConnector extends Connector {
                 BinaryValue binary = factories().getBinaryFactory().create(content.getFirstValue());
                 OutputStream ostream = new BufferedOutputStream(new FileOutputStream(file));
                 IoUtil.write(binary.getStream(), ostream);
+                contentHashes.remove(file);
                 if (!NT_RESOURCE.equals(primaryType)) {
                     // This is the "jcr:content" child, but the primary type is non-standard so record it as an extra property
                     extraProperties.add(properties.get(JcrLexicon.PRIMARY_TYPE));
                 }
             }
             extraProperties.save();
+            refreshWatched(id);
         } catch (RepositoryException e) {
             throw new DocumentStoreException(id, e);
         } catch (IOException e) {
             throw new DocumentStoreException(id, e);
         }
     }
+
+    /**
+     * Record the current state of the supplied file (and its parent folder) in the watcher, so that the changes made by this
+     * connector are not reported as external changes.
+     * 
+     * @param id the identifier of the document that was stored; may not be null
+     */
+    private void refreshWatched( String id ) {
+        if (watcher == null) return;
+        File file = fileFor(id);
+        watcher.refresh(id, file);
+        if (isContentNode(id)) watcher.refresh(idFor(file), file);
+        if (isRoot(id)) return;
+        File parent = file.getParentFile();
+        watcher.refresh(idFor(parent), parent);
+    }
+
+    protected static final class FolderListing {
+        protected final long lastModified;
+        protected final String[] names;
+
+        protected FolderListing( long lastModified,
+                                 String[] names ) {
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+    }
+
+    /**
+     * The {@link UrlBinaryValue} for a file, which obtains its SHA-1 hash from the connector's {@link ContentHashCache}.
+     */
+    protected static class FileBinaryValue extends UrlBinaryValue {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private transient ContentHashCache contentHashes;
+
+        protected FileBinaryValue( String id,
+                                   String sourceName,
+                                   URL content,
+                                   File file,
+                                   String nameHint,
+                                   MimeTypeDetector mimeTypeDetector,
+                                   ContentHashCache contentHashes ) {
+            super(id, sourceName, content, file.length(), nameHint, mimeTypeDetector);
+            this.file = file;
+            this.contentHashes = contentHashes;
+        }
+
+        @Override
+        protected BinaryKey computeKey() {
+            if (contentHashes == null) return super.computeKey();
+            try {
+                return contentHashes.keyFor(file);
+            } catch (NoSuchAlgorithmException e) {
+                throw new SystemFailureException(e);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
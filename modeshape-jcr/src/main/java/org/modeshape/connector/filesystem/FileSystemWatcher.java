@@ -0,0 +1,218 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.connector.filesystem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.modeshape.common.util.NamedThreadFactory;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSet;
+
+/**
+ * A component that periodically checks the files and directories whose documents a {@link FileSystemConnector} has returned, and
+ * publishes a {@link ConnectorChangeSet} describing those that have since been changed or removed by something other than the
+ * connector. Adding or removing an entry in a directory changes the directory's last-modified time, so watching a directory also
+ * detects new and removed children. Checking an entry costs only a <code>stat</code> of the file.
+ * <p>
+ * Only the most recently read documents are watched, so that the memory used and the number of files checked in each poll are
+ * bounded. When a document is no longer watched, it is reported as changed in the next poll; the repository then drops its
+ * cached copy (which would otherwise never expire) and reading it again starts watching it again.
+ * </p>
+ * <p>
+ * The files are polled rather than watched with a <code>java.nio.file.WatchService</code>, since ModeShape still runs on Java 6.
+ * </p>
+ */
+class FileSystemWatcher implements Runnable {
+
+    private static final long REMOVED = -1L;
+
+    private final FileSystemConnector connector;
+    private final long intervalInSeconds;
+    private final Map<String, Long> lastModifiedById;
+    private final Set<String> evictedIds = new HashSet<String>();
+    private ScheduledExecutorService executor;
+
+    protected FileSystemWatcher( FileSystemConnector connector,
+                                 long intervalInSeconds,
+                                 final int maxWatched ) {
+        this.connector = connector;
+        this.intervalInSeconds = intervalInSeconds;
+        this.lastModifiedById = new LinkedHashMap<String, Long>(Math.min(maxWatched, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Long> eldest ) {
+                if (size() <= maxWatched) return false;
+                evictedIds.add(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    protected synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("modeshape-fs-watcher-"
+                                                                                     + connector.getSourceName()));
+        executor.scheduleWithFixedDelay(this, intervalInSeconds, intervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    protected synchronized void shutdown() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+        synchronized (lastModifiedById) {
+            lastModifiedById.clear();
+            evictedIds.clear();
+        }
+    }
+
+    /**
+     * Start watching the file or directory for the document with the supplied identifier, recording its current state.
+     * 
+     * @param id the document identifier; may not be null
+     * @param file the corresponding file or directory; may not be null
+     */
+    public void watch( String id,
+                       File file ) {
+        long lastModified = lastModified(file);
+        synchronized (lastModifiedById) {
+            evictedIds.remove(id);
+            lastModifiedById.put(id, lastModified);
+        }
+    }
+
+    /**
+     * Record the current state of the file or directory for the document with the supplied identifier, if it is being watched.
+     * The connector calls this after changing the file itself, so that the change is not reported as an external change.
+     * 
+     * @param id the document identifier; may not be null
+     * @param file the corresponding file or directory; may not be null
+     */
+    public void refresh( String id,
+                         File file ) {
+        long lastModified = lastModified(file);
+        synchronized (lastModifiedById) {
+            if (lastModifiedById.containsKey(id)) {
+                lastModifiedById.put(id, lastModified);
+            }
+        }
+    }
+
+    /**
+     * Stop watching the file or directory for the document with the supplied identifier.
+     * 
+     * @param id the document identifier; may not be null
+     */
+    public void unwatch( String id ) {
+        synchronized (lastModifiedById) {
+            lastModifiedById.remove(id);
+            evictedIds.remove(id);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Copy the watched entries, so that the files are checked without holding the lock ...
+            Map<String, Long> watched;
+            List<String> evicted;
+            synchronized (lastModifiedById) {
+                watched = new HashMap<String, Long>(lastModifiedById);
+                evicted = new ArrayList<String>(evictedIds);
+                evictedIds.clear();
+            }
+            ConnectorChangeSet changes = null;
+            for (String id : evicted) {
+                // No longer watched, so the repository must not keep caching the document ...
+                if (changes == null) changes = connector.changeSet();
+                changes.nodeChanged(id);
+            }
+            for (Map.Entry<String, Long> entry : watched.entrySet()) {
+                String id = entry.getKey();
+                File file = connector.fileFor(id);
+                long lastModified = lastModified(file);
+                if (lastModified == entry.getValue().longValue()) continue;
+                if (!update(id, entry.getValue(), lastModified)) continue; // changed or unwatched by the connector meanwhile
+                if (changes == null) changes = connector.changeSet();
+                if (lastModified == REMOVED) {
+                    if (connector.isRoot(id)) continue;
+                    String parentId = connector.isContentNode(id) ? connector.idFor(file) : connector.idFor(file.getParentFile());
+                    changes.nodeRemoved(id, parentId);
+                } else {
+                    changes.nodeChanged(id);
+                }
+            }
+            if (changes != null) changes.publish();
+        } catch (Throwable t) {
+            // Log the problem, but don't let it stop the next checks ...
+            connector.getLogger().debug(t, "Error while checking for changes in the files of source '{0}'",
+                                        connector.getSourceName());
+        }
+    }
+
+    /**
+     * Record the new state of a watched entry, but only if the entry has not been changed since it was checked.
+     * 
+     * @param id the document identifier; may not be null
+     * @param expected the last-modified time that was checked
+     * @param lastModified the new last-modified time, or {@link #REMOVED} if the file no longer exists
+     * @return true if the entry was updated, or false if it has since been changed or is no longer watched
+     */
+    private boolean update( String id,
+                            Long expected,
+                            long lastModified ) {
+        synchronized (lastModifiedById) {
+            if (!expected.equals(lastModifiedById.get(id))) return false;
+            if (lastModified == REMOVED) {
+                lastModifiedById.remove(id);
+            } else {
+                lastModifiedById.put(id, lastModified);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Get the number of documents that are currently watched.
+     * 
+     * @return the number of watched documents
+     */
+    int watchedCount() {
+        synchronized (lastModifiedById) {
+            return lastModifiedById.size();
+        }
+    }
+
+    private static long lastModified( File file ) {
+        return file.exists() ? file.lastModified() : REMOVED;
+    }
+}
@@ -13,6 +13,7 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
     private Pattern inclusion;
     private Pattern exclusion;
     private Pattern extraPropertiesExclusion;
+    private Pattern contentHashesExclusion;
 
     public void setExclusionPattern( String exclusionPattern ) {
         this.exclusionPattern = exclusionPattern;
@@ -31,6 +32,14 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
         }
     }
 
+    public void setContentHashesExclusionPattern( String exclusionPattern ) {
+        if (exclusionPattern == null) {
+            this.contentHashesExclusion = null;
+        } else {
+            this.contentHashesExclusion = Pattern.compile(exclusionPattern);
+        }
+    }
+
     public void setInclusionPattern( String inclusionPattern ) {
         this.inclusionPattern = inclusionPattern;
         if (inclusionPattern == null) {
@@ -55,12 +64,14 @@ class InclusionExclusionFilenameFilter implements java.io.FilenameFilter {
             // Include unless it matches an exclusion ...
             if (exclusionPattern != null && exclusion.matcher(string).matches()) return false;
             if (extraPropertiesExclusion != null && extraPropertiesExclusion.matcher(string).matches()) return false;
+            if (contentHashesExclusion != null && contentHashesExclusion.matcher(string).matches()) return false;
             return true;
         }
         // Include ONLY if it matches the inclusion AND not matched by the exclusions ...
         if (!inclusion.matcher(string).matches()) return false;
         if (exclusionPattern != null && exclusion.matcher(string).matches()) return false;
         if (extraPropertiesExclusion != null && extraPropertiesExclusion.matcher(string).matches()) return false;
+        if (contentHashesExclusion != null && contentHashesExclusion.matcher(string).matches()) return false;
         return true;
     }
 }
\ No newline at end of file
@@ -89,6 +89,7 @@ import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.NodeNotFoundInParentException;
 import org.modeshape.jcr.cache.PropertyTypeUtil;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.NamespaceRegistry;
 import org.modeshape.jcr.value.Path;
@@ -3414,5 +3415,17 @@ abstract class AbstractJcrNode extends AbstractJcrItem implements Node {
                 return null;
             }
         }
+
+        @Override
+        public void prefetch( List<ChildReference> refs ) {
+            NodeCache workspaceCache = session.cache().getWorkspace();
+            if (workspaceCache instanceof WorkspaceCache) {
+                List<NodeKey> keys = new ArrayList<NodeKey>(refs.size());
+                for (ChildReference ref : refs) {
+                    keys.add(ref.getKey());
+                }
+                ((WorkspaceCache)workspaceCache).prefetch(keys);
+            }
+        }
     }
 }
@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.zip.GZIPInputStream;
 import org.infinispan.schematic.document.Document;
 import org.infinispan.schematic.document.DocumentSequence;
@@ -45,6 +47,7 @@ public final class BackupDocumentReader {
 
     public static final String GZIP_EXTENSION = BackupDocumentWriter.GZIP_EXTENSION;
     public static final String DOCUMENTS_EXTENSION = BackupDocumentWriter.DOCUMENTS_EXTENSION;
+    public static final Charset CHARSET = BackupDocumentWriter.CHARSET;
 
     private final File parentDirectory;
     private final String filenamePrefix;
@@ -79,7 +82,7 @@ public final class BackupDocumentReader {
                         // No more files to read ...
                         return null;
                     }
-                    documents = Json.readMultiple(stream);
+                    documents = Json.readMultiple(new InputStreamReader(stream, CHARSET));
                 }
                 try {
                     Document doc = documents.nextDocument();
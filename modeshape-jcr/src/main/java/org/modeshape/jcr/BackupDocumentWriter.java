@@ -23,11 +23,14 @@
  */
 package org.modeshape.jcr;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.zip.GZIPOutputStream;
 import org.infinispan.schematic.document.Document;
 import org.infinispan.schematic.document.Json;
@@ -45,11 +48,16 @@ public final class BackupDocumentWriter {
     public static final String GZIP_EXTENSION = ".gz";
     public static final String DOCUMENTS_EXTENSION = ".bin";
 
+    /**
+     * The character set used to write the documents, regardless of the platform's default character set.
+     */
+    public static final Charset CHARSET = Charset.forName("UTF-8");
+
     private final File parentDirectory;
     private final String filenamePrefix;
     private final boolean compress;
     protected final long maxDocumentsPerFile;
-    protected OutputStream stream;
+    protected Writer stream;
     protected long count = 0L;
     protected long totalCount = 0L;
     protected long fileCount = 0L;
@@ -95,11 +103,11 @@ public final class BackupDocumentWriter {
                 currentFile = new File(parentDirectory, filename);
                 OutputStream fileStream = new FileOutputStream(currentFile);
                 if (compress) fileStream = new GZIPOutputStream(fileStream);
-                stream = new BufferedOutputStream(fileStream);
+                stream = new BufferedWriter(new OutputStreamWriter(fileStream, CHARSET));
             }
             Json.write(document, stream);
             // Need to append a non-consumable character so that we can read multiple JSON documents per file
-            stream.write((byte)'\n');
+            stream.write('\n');
         } catch (IOException e) {
             problems.addError(JcrI18n.problemsWritingDocumentToBackup, currentFile.getAbsolutePath(), e.getMessage());
         }
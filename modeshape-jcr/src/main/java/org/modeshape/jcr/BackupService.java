@@ -32,14 +32,18 @@ import org.infinispan.schematic.document.Document;
 import org.infinispan.schematic.document.EditableArray;
 import org.infinispan.schematic.document.EditableDocument;
 import org.infinispan.schematic.document.Json;
+import org.modeshape.common.SystemFailureException;
+import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.collection.Problems;
-import org.modeshape.common.collection.SimpleProblems;
+import org.modeshape.common.collection.ThreadSafeProblems;
 import org.modeshape.common.i18n.I18n;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.NamedThreadFactory;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.InfinispanUtil.Sequence;
 import org.modeshape.jcr.JcrRepository.RunningState;
 import org.modeshape.jcr.cache.NodeKey;
@@ -56,8 +60,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -66,9 +83,19 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
  * A service used to generate backups from content and restore repository content from backups.
+ * <p>
+ * Backups and restores can use multiple threads: the documents are partitioned by key, and each partition is written to (and
+ * read from) its own sequence of files, while the binary values are copied concurrently. Each backup also records a
+ * <i>checkpoint</i> containing a hash of each document, sorted by key, so that a later <i>incremental</i> backup can stream
+ * through the checkpoint alongside the (sorted) keys of the current documents and write only those documents that have changed
+ * since that backup, plus only those binary values that are not already in one of the backups upon which it is based. Restoring
+ * an incremental backup first restores the backups on which it is based.
+ * </p>
  */
 public class BackupService {
 
@@ -77,9 +104,14 @@ public class BackupService {
     protected static final String CHANGED_AREA_DIR_NAME = "changes";
     protected static final String BINARY_AREA_DIR_NAME = "binaries";
     protected static final String DOCUMENTS_FILENAME_PREFIX = "documents";
+    protected static final String CHECKPOINT_FILENAME_PREFIX = "checkpoint";
+    protected static final String REMOVED_FILENAME_PREFIX = "removed";
     protected static final String SUMMARY_FILE_NAME = "summary_of_changes.json";
+    protected static final String INCREMENTAL_FILE_NAME = "incremental_backup.json";
     protected static final String BINARY_EXTENSION = ".bin";
+    protected static final String PARTITION_SEPARATOR = "-";
     protected static final int NUM_CHARS_IN_FILENAME_SUFFIX = 6;
+    protected static final int QUEUE_CAPACITY = 1000;
 
     /**
      * By default, 100K nodes will be exported to a single backup file. So, if each node requied about 200 bytes (compressed), the
@@ -87,11 +119,20 @@ public class BackupService {
      */
     public static final long DEFAULT_NUMBER_OF_DOCUMENTS_IN_BACKUP_FILES = 100000L;
     public static final boolean DEFAULT_COMPRESS = true;
+    public static final int DEFAULT_PARALLELISM = 1;
 
     protected static class FieldName {
         public static final String UNUSED_BINARY_KEYS = "unusedBinaryKeys";
+        public static final String PREVIOUS_BACKUP = "previousBackup";
+        public static final String KEY = "key";
+        public static final String HASH = "hash";
     }
 
+    /**
+     * The marker placed on the queues used by the workers to signal that there is no more work.
+     */
+    protected static final Object END_OF_QUEUE = new Object();
+
     private final RunningState runningState;
     private final LocalDocumentStore documentStore;
     private final BinaryStore binaryStore;
@@ -136,8 +177,34 @@ public class BackupService {
     public org.modeshape.jcr.api.Problems backupRepository( File backupDirectory,
                                                             long documentsPerFile,
                                                             boolean compress ) throws RepositoryException {
+        return backupRepository(backupDirectory, null, documentsPerFile, compress, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Start asynchronously backing up the repository, optionally writing only those documents and binary values that have
+     * changed since a previous backup.
+     * 
+     * @param backupDirectory the directory on the file system into which the backup should be placed; this directory should
+     *        typically not exist
+     * @param previousBackupDirectory the directory containing the previous backup upon which this backup is to be based, or null
+     *        if a full backup is to be made
+     * @param documentsPerFile the maximum number of documents to place within a single backup file; must be positive
+     * @param compress true if the backup files should be compressed, or false otherwise
+     * @param parallelism the number of threads used to write the documents and to copy the binary values; must be positive
+     * @return the problems that occurred during the backup process
+     * @throws RepositoryException if the backup operation cannot be run
+     */
+    public org.modeshape.jcr.api.Problems backupRepository( File backupDirectory,
+                                                            File previousBackupDirectory,
+                                                            long documentsPerFile,
+                                                            boolean compress,
+                                                            int parallelism ) throws RepositoryException {
         // Create the activity ...
-        final BackupActivity backupActivity = createBackupActivity(backupDirectory, documentsPerFile, compress);
+        final BackupActivity backupActivity = createBackupActivity(backupDirectory,
+                                                                   previousBackupDirectory,
+                                                                   documentsPerFile,
+                                                                   compress,
+                                                                   parallelism);
 
         // Run the backup and return the problems ...
         return new JcrProblems(backupActivity.execute());
@@ -153,13 +220,28 @@ public class BackupService {
      */
     public org.modeshape.jcr.api.Problems restoreRepository( final JcrRepository repository,
                                                              final File backupDirectory ) throws RepositoryException {
+        return restoreRepository(repository, backupDirectory, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Start asynchronously restoring the repository.
+     * 
+     * @param repository the JCR repository to be backed up; may not be null
+     * @param backupDirectory the directory on the file system that contains the backup; this directory obviously must exist
+     * @param parallelism the number of threads used to read the documents and to restore the binary values; must be positive
+     * @return the problems that occurred during the restore process
+     * @throws RepositoryException if the restoration operation cannot be run
+     */
+    public org.modeshape.jcr.api.Problems restoreRepository( final JcrRepository repository,
+                                                             final File backupDirectory,
+                                                             int parallelism ) throws RepositoryException {
         final String backupLocString = backupDirectory.getAbsolutePath();
         LOGGER.debug("Beginning restore of '{0}' repository from {1}", repository.getName(), backupLocString);
         // Put the repository into the 'restoring' state ...
         repository.prepareToRestore();
 
         // Create the activity ...
-        final RestoreActivity restoreActivity = createRestoreActivity(backupDirectory);
+        final RestoreActivity restoreActivity = createRestoreActivity(backupDirectory, parallelism);
 
         org.modeshape.jcr.api.Problems problems = new JcrProblems(restoreActivity.execute());
         if (!problems.hasProblems()) {
@@ -189,7 +271,29 @@ public class BackupService {
     public BackupActivity createBackupActivity( File backupDirectory,
                                                 long documentsPerFile,
                                                 boolean compress ) {
-        return new BackupActivity(backupDirectory, documentStore, binaryStore, repositoryCache, documentsPerFile, compress);
+        return createBackupActivity(backupDirectory, null, documentsPerFile, compress, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Create a new {@link BackupActivity activity} instance that can back up the content of the repository as it exists at the
+     * time the activity is executed.
+     * 
+     * @param backupDirectory the directory on the file system into which the backup should be placed; this directory should
+     *        typically not exist
+     * @param previousBackupDirectory the directory containing the previous backup upon which the backup is to be based, or null
+     *        if a full backup is to be made
+     * @param documentsPerFile the maximum number of documents to place within a single backup file; must be positive
+     * @param compress true if the backup files should be compressed, or false otherwise
+     * @param parallelism the number of threads used to write the documents and to copy the binary values; must be positive
+     * @return the backup activity; never null
+     */
+    public BackupActivity createBackupActivity( File backupDirectory,
+                                                File previousBackupDirectory,
+                                                long documentsPerFile,
+                                                boolean compress,
+                                                int parallelism ) {
+        return new BackupActivity(backupDirectory, previousBackupDirectory, documentStore, binaryStore, repositoryCache,
+                                  documentsPerFile, compress, parallelism);
     }
 
     /**
@@ -200,7 +304,63 @@ public class BackupService {
      * @return the restore activity; never null
      */
     public RestoreActivity createRestoreActivity( File backupDirectory ) {
-        return new RestoreActivity(backupDirectory, documentStore, binaryStore, repositoryCache);
+        return createRestoreActivity(backupDirectory, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Create a new {@link RestoreActivity activity} instance that can restore the content of the repository to the state as it
+     * exists in the specified backup directory.
+     * 
+     * @param backupDirectory the directory on the file system that contains the backup; this directory obviously must exist
+     * @param parallelism the number of threads used to read the documents and to restore the binary values; must be positive
+     * @return the restore activity; never null
+     */
+    public RestoreActivity createRestoreActivity( File backupDirectory,
+                                                  int parallelism ) {
+        return new RestoreActivity(backupDirectory, documentStore, binaryStore, repositoryCache, parallelism);
+    }
+
+    /**
+     * Get the prefix of the names of the files holding the documents of the given partition.
+     * 
+     * @param prefix the prefix of the names of the files; may not be null
+     * @param partition the zero-based partition number
+     * @return the prefix for the partition's files; never null
+     */
+    protected static String partitionPrefix( String prefix,
+                                             int partition ) {
+        // The first partition uses the same names as backups written by a single thread ...
+        return partition == 0 ? prefix : prefix + PARTITION_SEPARATOR + partition;
+    }
+
+    /**
+     * Find the prefixes of the names of all sequences of files in the given directory that were written with the supplied
+     * prefix, including those written for the different partitions.
+     * 
+     * @param directory the directory; may not be null
+     * @param prefix the prefix of the names of the files; may not be null
+     * @return the prefixes of the file sequences, sorted; never null but possibly empty
+     */
+    protected static List<String> filenamePrefixes( File directory,
+                                                    String prefix ) {
+        List<String> prefixes = new ArrayList<String>();
+        File[] files = directory.listFiles();
+        if (files == null) return prefixes;
+        String firstSuffix = "_" + StringUtil.justifyRight("1", NUM_CHARS_IN_FILENAME_SUFFIX, '0')
+                             + BackupDocumentWriter.DOCUMENTS_EXTENSION;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(BackupDocumentWriter.GZIP_EXTENSION)) {
+                name = name.substring(0, name.length() - BackupDocumentWriter.GZIP_EXTENSION.length());
+            }
+            if (!name.endsWith(firstSuffix)) continue;
+            String filenamePrefix = name.substring(0, name.length() - firstSuffix.length());
+            if (filenamePrefix.equals(prefix) || filenamePrefix.startsWith(prefix + PARTITION_SEPARATOR)) {
+                prefixes.add(filenamePrefix);
+            }
+        }
+        Collections.sort(prefixes);
+        return prefixes;
     }
 
     /**
@@ -214,13 +374,16 @@ public class BackupService {
         protected final File binaryDirectory;
         protected final org.modeshape.jcr.cache.document.LocalDocumentStore documentStore;
         protected final BinaryStore binaryStore;
-        protected final SimpleProblems problems;
+        protected final Problems problems;
+        protected final int parallelism;
         private final String backupLocation;
 
         protected Activity( File backupDirectory,
                             org.modeshape.jcr.cache.document.LocalDocumentStore documentStore,
                             BinaryStore binaryStore,
-                            RepositoryCache repositoryCache ) {
+                            RepositoryCache repositoryCache,
+                            int parallelism ) {
+            CheckArg.isPositive(parallelism, "parallelism");
             this.backupDirectory = backupDirectory;
             this.changeDirectory = new File(this.backupDirectory, CHANGED_AREA_DIR_NAME);
             this.binaryDirectory = new File(this.backupDirectory, BINARY_AREA_DIR_NAME);
@@ -228,7 +391,9 @@ public class BackupService {
             this.documentStore = documentStore;
             this.binaryStore = binaryStore;
             this.repositoryCache = repositoryCache;
-            this.problems = new SimpleProblems();
+            this.parallelism = parallelism;
+            // The problems are recorded by all of the activity's threads ...
+            this.problems = new ThreadSafeProblems();
         }
 
         /**
@@ -245,6 +410,111 @@ public class BackupService {
         protected final String backupLocation() {
             return backupLocation;
         }
+
+        protected final ExecutorService createWorkers( String poolName ) {
+            return Executors.newFixedThreadPool(parallelism, new NamedThreadFactory(poolName));
+        }
+
+        /**
+         * Put an item onto a queue consumed by the activity's workers, waiting while the queue is full. Since a worker that has
+         * failed no longer takes items from its queue, this stops waiting as soon as any worker has failed.
+         * 
+         * @param queue the queue; may not be null
+         * @param item the item; may not be null
+         * @param workerFailed the flag that a worker sets when it fails; may not be null
+         * @return true if the item was added to the queue, or false if a worker has failed
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        protected final boolean enqueue( BlockingQueue<Object> queue,
+                                         Object item,
+                                         AtomicBoolean workerFailed ) throws InterruptedException {
+            while (!queue.offer(item, 1L, TimeUnit.SECONDS)) {
+                if (workerFailed.get()) return false;
+            }
+            return !workerFailed.get();
+        }
+
+        protected final void awaitTermination( ExecutorService workers ) throws InterruptedException {
+            workers.shutdown();
+            while (!workers.awaitTermination(1L, TimeUnit.SECONDS)) {
+                LOGGER.debug("Waiting for the workers of the backup activity for '{0}' repository at {1}",
+                             repositoryName(),
+                             backupLocation());
+            }
+        }
+
+        /**
+         * Determine the chain of backups that ends with the supplied backup, which for an incremental backup includes all of the
+         * backups upon which it is based.
+         * 
+         * @param lastBackup the directory of the last backup in the chain; may not be null
+         * @return the backup directories, ordered from the full backup to the supplied backup, or null if a backup cannot be
+         *         found
+         */
+        protected List<File> backupChain( File lastBackup ) {
+            LinkedList<File> backups = new LinkedList<File>();
+            File backup = resolvePath(lastBackup, lastBackup.getAbsolutePath());
+            while (backup != null) {
+                if (backups.isEmpty() && !backup.isDirectory()) {
+                    problems.addError(JcrI18n.fileMustExistAndBeReadable, backup.getAbsolutePath());
+                    return null;
+                }
+                if (!backup.isDirectory() || backups.contains(backup)) {
+                    problems.addError(JcrI18n.previousBackupCannotBeFound,
+                                      backups.getFirst().getAbsolutePath(),
+                                      backup.getAbsolutePath());
+                    return null;
+                }
+                backups.addFirst(backup);
+                Document incremental = readIncrementalSummary(backup);
+                String previous = incremental != null ? incremental.getString(FieldName.PREVIOUS_BACKUP) : null;
+                backup = previous != null ? resolvePath(backup, previous) : null;
+            }
+            return backups;
+        }
+
+        protected Document readIncrementalSummary( File backup ) {
+            File file = new File(backup, INCREMENTAL_FILE_NAME);
+            if (!file.exists()) return null;
+            try {
+                InputStream stream = new FileInputStream(file);
+                try {
+                    return Json.read(stream, BackupDocumentReader.CHARSET);
+                } finally {
+                    stream.close();
+                }
+            } catch (Throwable t) {
+                problems.addError(JcrI18n.problemsReadingBackupSummary, file.getAbsolutePath(), t.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Get the file in which the binary value with the supplied key is stored within a backup's binary area.
+     * 
+     * @param binaryDirectory the binary area of the backup; may not be null
+     * @param sha1 the binary key; may not be null
+     * @return the file; never null
+     */
+    protected static File binaryFile( File binaryDirectory,
+                                      String sha1 ) {
+        // Use directories for the first three segments from the binary key, where each segment is two characters ...
+        File first = new File(binaryDirectory, sha1.substring(0, 2));
+        File second = new File(first, sha1.substring(2, 4));
+        File third = new File(second, sha1.substring(4, 6));
+        return new File(third, sha1 + BINARY_EXTENSION);
+    }
+
+    /**
+     * Get the files in the supplied directory.
+     * 
+     * @param directory the directory; may not be null
+     * @return the files, which is empty if the directory does not exist or cannot be read; never null
+     */
+    protected static File[] filesIn( File directory ) {
+        File[] files = directory.listFiles();
+        return files != null ? files : new File[0];
     }
 
     /**
@@ -256,19 +526,30 @@ public class BackupService {
         private final BackupObserver observer;
         protected final ExecutorService changedDocumentWorker;
         protected final BlockingQueue<NodeKey> changedDocumentQueue;
+        private final File previousBackupDirectory;
         private final long documentsPerFile;
         private final boolean compress;
-        private BackupDocumentWriter contentWriter;
+        private BackupDocumentWriter[] contentWriters;
+        private BackupDocumentWriter[] checkpointWriters;
         private BackupDocumentWriter changesWriter;
+        private BackupDocumentWriter changesCheckpointWriter;
+        private BackupDocumentWriter removedWriter;
+        private List<File> previousBackups;
+        private List<String> previousCheckpointPrefixes;
+        private Set<String> previousChangedKeys;
+        private final Set<String> removedDuringBackup = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
         protected BackupActivity( File backupDirectory,
+                                  File previousBackupDirectory,
                                   org.modeshape.jcr.cache.document.LocalDocumentStore documentStore,
                                   BinaryStore binaryStore,
                                   RepositoryCache repositoryCache,
                                   long documentsPerFile,
-                                  boolean compress ) {
-            super(backupDirectory, documentStore, binaryStore, repositoryCache);
+                                  boolean compress,
+                                  int parallelism ) {
+            super(backupDirectory, documentStore, binaryStore, repositoryCache, parallelism);
             CheckArg.isPositive(documentsPerFile, "documentsPerFile");
+            this.previousBackupDirectory = previousBackupDirectory;
             this.documentsPerFile = documentsPerFile;
             this.compress = compress;
             this.changedDocumentQueue = new LinkedBlockingQueue<NodeKey>();
@@ -303,19 +584,96 @@ public class BackupService {
             return true;
         }
 
-        protected void writeToContentArea( SchematicEntry document ) {
-            contentWriter.write(document.asDocument());
+        /**
+         * Prepare to read the checkpoint of the previous backup, which records the hashes of the documents that need not be
+         * written if they have not changed since that backup was made. Only the keys of the documents that were changed while
+         * the previous backup was being made (which are few, and have no hashes) are read into memory; the rest of the
+         * checkpoint is {@link CheckpointReader streamed} while the documents are written.
+         * 
+         * @return true if the checkpoint can be read, or false if there was a problem
+         */
+        protected boolean readPreviousCheckpoint() {
+            previousBackups = backupChain(previousBackupDirectory);
+            if (previousBackups == null) return false;
+            previousCheckpointPrefixes = filenamePrefixes(previousBackupDirectory, CHECKPOINT_FILENAME_PREFIX);
+            if (previousCheckpointPrefixes.isEmpty()) {
+                problems.addError(JcrI18n.previousBackupHasNoCheckpoint,
+                                  repositoryName(),
+                                  backupLocation(),
+                                  previousBackupDirectory.getAbsolutePath());
+                return false;
+            }
+            previousChangedKeys = new HashSet<String>();
+            File changes = new File(previousBackupDirectory, CHANGED_AREA_DIR_NAME);
+            BackupDocumentReader reader = new BackupDocumentReader(changes, CHECKPOINT_FILENAME_PREFIX, problems);
+            try {
+                while (true) {
+                    Document entry = reader.read();
+                    if (entry == null) break;
+                    String key = entry.getString(FieldName.KEY);
+                    if (key != null) previousChangedKeys.add(key);
+                }
+            } finally {
+                reader.close();
+            }
+            LOGGER.debug("Read {0} keys of documents changed while the backup at {1} was being made",
+                         previousChangedKeys.size(),
+                         previousBackupDirectory.getAbsolutePath());
+            return true;
+        }
+
+        /**
+         * Determine whether the binary value with the supplied key was written to any of the backups upon which this backup is
+         * based.
+         * 
+         * @param key the binary key; may not be null
+         * @return true if the binary value is in one of the previous backups, or false otherwise
+         */
+        protected boolean isInPreviousBackup( BinaryKey key ) {
+            if (previousBackups == null) return false;
+            for (File backup : previousBackups) {
+                if (binaryFile(new File(backup, BINARY_AREA_DIR_NAME), key.toString()).exists()) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Write the document with the supplied key to the content area, unless the document has not changed since the previous
+         * backup. This method is called only by the thread that writes the supplied partition, in the order of the keys.
+         * 
+         * @param partition the partition to which the document belongs
+         * @param key the key of the document; may not be null
+         * @param previousHash the hash of the document recorded in the checkpoint of the previous backup, or null if the document
+         *        must be written
+         */
+        protected void writeToContentArea( int partition,
+                                           String key,
+                                           String previousHash ) {
+            SchematicEntry entry = documentStore.get(key);
+            // A document removed since the keys were obtained is recorded as removed by the observer ...
+            if (entry == null) return;
+            Document document = entry.asDocument();
+            String hash = hashOf(document);
+            if (previousHash == null || !previousHash.equals(hash)) {
+                contentWriters[partition].write(document);
+            }
+            checkpointWriters[partition].write(Schematic.newDocument(FieldName.KEY, key, FieldName.HASH, hash));
+        }
+
+        /**
+         * Record that the document with the supplied key was removed since the previous backup. This method is called only by
+         * the thread that reads the keys of the documents.
+         * 
+         * @param key the key of the document; may not be null
+         */
+        protected void writeRemoved( String key ) {
+            removedWriter.write(Schematic.newDocument(FieldName.KEY, key));
         }
 
         protected void writeToContentArea( BinaryKey key,
                                            InputStream binaryContent ) {
-            String sha1 = key.toString();
-            // Create directories for the first three segments from the binary key, where each segment is two characters ...
-            File first = new File(binaryDirectory, sha1.substring(0, 2));
-            File second = new File(first, sha1.substring(2, 4));
-            File third = new File(second, sha1.substring(4, 6));
-            third.mkdirs();
-            File file = new File(third, sha1 + BINARY_EXTENSION);
+            File file = binaryFile(binaryDirectory, key.toString());
+            file.getParentFile().mkdirs();
 
             try {
                 FileOutputStream outputStream = new FileOutputStream(file);
@@ -330,6 +688,35 @@ public class BackupService {
             }
         }
 
+        protected void writeToChangedArea( NodeKey key ) {
+            SchematicEntry entry = documentStore.get(key.toString());
+            if (entry != null) {
+                writeToChangedArea(entry);
+                removedDuringBackup.remove(key.toString());
+            } else {
+                // The document was removed after it may have been written to the content area ...
+                removedDuringBackup.add(key.toString());
+            }
+            // Record the key without a hash, so that the next incremental backup always writes (or removes) it ...
+            changesCheckpointWriter.write(Schematic.newDocument(FieldName.KEY, key.toString()));
+        }
+
+        /**
+         * Write the keys of the documents that were removed while this backup was being made, so that they are removed after the
+         * documents in the content area are restored.
+         */
+        protected void writeRemovedToChangedArea() {
+            BackupDocumentWriter writer = new BackupDocumentWriter(changeDirectory, REMOVED_FILENAME_PREFIX, documentsPerFile,
+                                                                   compress, problems);
+            try {
+                for (String key : removedDuringBackup) {
+                    writer.write(Schematic.newDocument(FieldName.KEY, key));
+                }
+            } finally {
+                writer.close();
+            }
+        }
+
         protected void writeToChangedArea( SchematicEntry document ) {
             LOGGER.debug("Writing document to change area of backup for {0} repository at {1}",
                          repositoryName(),
@@ -348,16 +735,246 @@ public class BackupService {
                 for (BinaryKey key : unusedBinaries) {
                     if (key != null) keys.add(key.toString());
                 }
-                OutputStream outputStream = new FileOutputStream(file);
+                writeDocument(doc, file);
+            } catch (Throwable t) {
+                problems.addError(JcrI18n.problemsWritingDocumentToBackup, file.getAbsolutePath(), t.getMessage());
+            }
+        }
+
+        protected void writeIncrementalSummary() {
+            LOGGER.debug("Writing summary of incremental backup for {0} repository at {1}", repositoryName(), backupLocation());
+            File file = new File(backupDirectory, INCREMENTAL_FILE_NAME);
+            try {
+                EditableDocument doc = Schematic.newDocument();
+                // Record the previous backup relative to this one, so that the backups can be moved together ...
+                doc.setString(FieldName.PREVIOUS_BACKUP, relativePath(backupDirectory, previousBackupDirectory));
+                writeDocument(doc, file);
+            } catch (Throwable t) {
+                problems.addError(JcrI18n.problemsWritingDocumentToBackup, file.getAbsolutePath(), t.getMessage());
+            }
+        }
+
+        private void writeDocument( Document doc,
+                                    File file ) throws IOException {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), BackupDocumentWriter.CHARSET);
+            try {
+                Json.write(doc, writer);
+                writer.flush();
+            } finally {
+                writer.close();
+            }
+        }
+
+        protected final int partitionFor( String key ) {
+            return (key.hashCode() & Integer.MAX_VALUE) % parallelism;
+        }
+
+        /**
+         * Write all of the documents in the repository in the order of their keys, using a separate thread (and separate files) for
+         * each partition of the keys. Since each partition's checkpoint is therefore sorted, the checkpoint of the previous backup
+         * can be streamed alongside the keys to find the previous hash of each document and the documents that have since been
+         * removed.
+         * 
+         * @return the number of documents that were written
+         * @throws Exception if there is a problem obtaining the keys of the documents
+         */
+        protected long writeDocuments() throws Exception {
+            ExecutorService writers = createWorkers("modeshape-backup-documents");
+            final AtomicBoolean writerFailed = new AtomicBoolean(false);
+            List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>(parallelism);
+            for (int i = 0; i != parallelism; ++i) {
+                final int partition = i;
+                final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+                queues.add(queue);
+                writers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Object key = null;
+                        try {
+                            while (true) {
+                                key = queue.take();
+                                if (key == END_OF_QUEUE) break;
+                                try {
+                                    DocumentToWrite document = (DocumentToWrite)key;
+                                    writeToContentArea(partition, document.key, document.previousHash);
+                                } catch (RuntimeException e) {
+                                    problems.addError(e, JcrI18n.problemsWritingDocumentToBackup, key, e.getMessage());
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.interrupted();
+                        } catch (Throwable t) {
+                            // This writer can no longer take keys from its queue, so stop the backup ...
+                            writerFailed.set(true);
+                            problems.addError(t, JcrI18n.problemsWritingDocumentToBackup, key, t.getMessage());
+                        }
+                    }
+                });
+            }
+            boolean completed = false;
+            CheckpointReader previous = null;
+            if (previousCheckpointPrefixes != null) {
+                previous = new CheckpointReader(previousBackupDirectory, previousCheckpointPrefixes, problems);
+            }
+            try {
+                // All of the keys are already held in memory, so sorting them costs only a reference per key ...
+                List<String> keys = new ArrayList<String>();
+                Sequence<String> sequence = InfinispanUtil.getAllKeys(documentStore.localCache());
+                while (true) {
+                    String key = sequence.next();
+                    if (key == null) break;
+                    keys.add(key);
+                }
+                Collections.sort(keys);
+                boolean enqueued = true;
+                for (String key : keys) {
+                    String previousHash = previous != null ? previousHashOf(key, previous) : null;
+                    if (previous != null && !previous.isSorted()) {
+                        problems.addError(JcrI18n.previousBackupCheckpointIsNotSorted,
+                                          repositoryName(),
+                                          backupLocation(),
+                                          previousBackupDirectory.getAbsolutePath());
+                        enqueued = false;
+                        break;
+                    }
+                    if (!enqueue(queues.get(partitionFor(key)), new DocumentToWrite(key, previousHash), writerFailed)) {
+                        enqueued = false;
+                        break;
+                    }
+                }
+                if (enqueued) {
+                    if (previous != null) writeRemaining(previous);
+                    for (BlockingQueue<Object> queue : queues) {
+                        if (!enqueue(queue, END_OF_QUEUE, writerFailed)) break;
+                    }
+                    completed = !writerFailed.get();
+                }
+            } finally {
                 try {
-                    Json.write(doc, outputStream);
-                    outputStream.flush();
+                    if (previous != null) previous.close();
                 } finally {
-                    outputStream.close();
+                    if (completed) {
+                        awaitTermination(writers);
+                    } else {
+                        writers.shutdownNow();
+                    }
                 }
-            } catch (Throwable t) {
-                problems.addError(JcrI18n.problemsWritingDocumentToBackup, file.getAbsolutePath(), t.getMessage());
             }
+            long count = 0L;
+            for (BackupDocumentWriter writer : contentWriters) {
+                count += writer.getDocumentCount();
+            }
+            return count;
+        }
+
+        /**
+         * Find the hash recorded in the previous backup's checkpoint for the document with the supplied key, recording as removed
+         * all of the documents in that checkpoint whose keys precede the supplied key. This must be called in the order of the
+         * keys.
+         * 
+         * @param key the key of the document; may not be null
+         * @param previous the reader of the previous backup's checkpoint; may not be null
+         * @return the previous hash, or null if the document was not in the previous backup or must be written
+         */
+        private String previousHashOf( String key,
+                                       CheckpointReader previous ) {
+            String previousHash = null;
+            while (previous.key() != null) {
+                int comparison = previous.key().compareTo(key);
+                if (comparison > 0) break;
+                if (comparison == 0) {
+                    previousHash = previous.hash();
+                } else {
+                    // There is no longer a document with the previous key ...
+                    previousChangedKeys.remove(previous.key());
+                    writeRemoved(previous.key());
+                }
+                previous.next();
+            }
+            // The documents changed while the previous backup was made have no hashes and are always written ...
+            if (previousChangedKeys.remove(key)) previousHash = null;
+            return previousHash;
+        }
+
+        /**
+         * Record as removed all of the documents in the previous backup whose keys follow the last key of the current documents,
+         * plus all of the documents that were changed while the previous backup was made and that no longer exist.
+         * 
+         * @param previous the reader of the previous backup's checkpoint; may not be null
+         */
+        private void writeRemaining( CheckpointReader previous ) {
+            while (previous.key() != null) {
+                previousChangedKeys.remove(previous.key());
+                writeRemoved(previous.key());
+                previous.next();
+            }
+            for (String key : previousChangedKeys) {
+                writeRemoved(key);
+            }
+            previousChangedKeys.clear();
+        }
+
+        /**
+         * Copy the supplied binary values, unless they were included in one of the previous backups, using multiple threads.
+         * 
+         * @param binaryKeys the keys of the binary values to be copied; may not be null
+         * @return the number of binary values that were copied
+         * @throws InterruptedException if the thread is interrupted while waiting for the binary values to be copied
+         */
+        protected long writeBinaries( Iterable<BinaryKey> binaryKeys ) throws InterruptedException {
+            final AtomicLong counter = new AtomicLong();
+            final AtomicBoolean copierFailed = new AtomicBoolean(false);
+            final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+            ExecutorService copiers = createWorkers("modeshape-backup-binaries");
+            for (int i = 0; i != parallelism; ++i) {
+                copiers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        BinaryKey binaryKey = null;
+                        try {
+                            while (true) {
+                                Object item = queue.take();
+                                if (item == END_OF_QUEUE) break;
+                                binaryKey = (BinaryKey)item;
+                                try {
+                                    writeToContentArea(binaryKey, binaryStore.getInputStream(binaryKey));
+                                    counter.incrementAndGet();
+                                } catch (BinaryStoreException e) {
+                                    problems.addError(JcrI18n.problemsWritingBinaryToBackup,
+                                                      binaryKey,
+                                                      backupLocation(),
+                                                      e.getMessage());
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.interrupted();
+                        } catch (Throwable t) {
+                            // This copier can no longer take keys from the queue, so stop the backup ...
+                            copierFailed.set(true);
+                            problems.addError(t, JcrI18n.problemsWritingBinaryToBackup, binaryKey, backupLocation(),
+                                              t.getMessage());
+                        }
+                    }
+                });
+            }
+            boolean completed = false;
+            try {
+                for (BinaryKey binaryKey : binaryKeys) {
+                    if (binaryKey == null || isInPreviousBackup(binaryKey)) continue;
+                    if (!enqueue(queue, binaryKey, copierFailed)) break;
+                }
+                for (int i = 0; i != parallelism; ++i) {
+                    if (!enqueue(queue, END_OF_QUEUE, copierFailed)) break;
+                }
+                completed = !copierFailed.get();
+            } finally {
+                if (completed) {
+                    awaitTermination(copiers);
+                } else {
+                    copiers.shutdownNow();
+                }
+            }
+            return counter.get();
         }
 
         @Override
@@ -365,12 +982,27 @@ public class BackupService {
             // initialize the area on disk where we'll be writing ...
             if (!initializeAreaOnDisk()) return problems;
 
+            // read the checkpoint of the backup upon which this backup is based ...
+            if (previousBackupDirectory != null && !readPreviousCheckpoint()) return problems;
+
             LOGGER.debug("Starting backup of '{0}' repository into {1}", repositoryName(), backupLocation());
 
-            this.contentWriter = new BackupDocumentWriter(backupDirectory, DOCUMENTS_FILENAME_PREFIX, documentsPerFile, compress,
-                                                          problems);
+            this.contentWriters = new BackupDocumentWriter[parallelism];
+            this.checkpointWriters = new BackupDocumentWriter[parallelism];
+            for (int i = 0; i != parallelism; ++i) {
+                this.contentWriters[i] = new BackupDocumentWriter(backupDirectory,
+                                                                  partitionPrefix(DOCUMENTS_FILENAME_PREFIX, i),
+                                                                  documentsPerFile, compress, problems);
+                this.checkpointWriters[i] = new BackupDocumentWriter(backupDirectory,
+                                                                     partitionPrefix(CHECKPOINT_FILENAME_PREFIX, i),
+                                                                     documentsPerFile, compress, problems);
+            }
             this.changesWriter = new BackupDocumentWriter(changeDirectory, DOCUMENTS_FILENAME_PREFIX, documentsPerFile, compress,
                                                           problems);
+            this.changesCheckpointWriter = new BackupDocumentWriter(changeDirectory, CHECKPOINT_FILENAME_PREFIX,
+                                                                    documentsPerFile, compress, problems);
+            this.removedWriter = new BackupDocumentWriter(backupDirectory, REMOVED_FILENAME_PREFIX, documentsPerFile, compress,
+                                                          problems);
             long numBinaryValues = 0L;
 
             try {
@@ -388,8 +1020,7 @@ public class BackupService {
                                 NodeKey key = changedDocumentQueue.poll(1L, TimeUnit.SECONDS);
                                 if (key != null) {
                                     // Write out the document to the changed area ...
-                                    SchematicEntry entry = documentStore.get(key.toString());
-                                    writeToChangedArea(entry);
+                                    writeToChangedArea(key);
                                 }
                             }
                         } catch (InterruptedException e) {
@@ -402,8 +1033,7 @@ public class BackupService {
                             NodeKey key = changedDocumentQueue.poll();
                             if (key != null) {
                                 // Write out the document to the changed area ...
-                                SchematicEntry entry = documentStore.get(key.toString());
-                                writeToChangedArea(entry);
+                                writeToChangedArea(key);
                             }
                         }
                         changesLatch.countDown();
@@ -418,25 +1048,18 @@ public class BackupService {
 
                 try {
                     // PHASE 1:
-                    // Perform the backup of the repository cache content ...
-                    int counter = 0;
-                    Sequence<String> sequence = InfinispanUtil.getAllKeys(documentStore.localCache());
-                    while (true) {
-                        String key = sequence.next();
-                        if (key == null) break;
-                        SchematicEntry entry = documentStore.get(key);
-                        if (entry != null) {
-                            writeToContentArea(entry);
-                            ++counter;
-                        }
-                    }
+                    // Perform the backup of the repository cache content, using one thread per partition ...
+                    long counter = writeDocuments();
                     LOGGER.debug("Wrote {0} documents to {1}", counter, backupDirectory.getAbsolutePath());
 
                     // PHASE 2:
                     // Write out the repository metadata document (which may have not changed) ...
-                    NodeKey metadataKey = repositoryCache.getRepositoryMetadataDocumentKey();
-                    SchematicEntry entry = documentStore.get(metadataKey.toString());
-                    writeToContentArea(entry);
+                    String metadataKey = repositoryCache.getRepositoryMetadataDocumentKey().toString();
+                    SchematicEntry entry = documentStore.get(metadataKey);
+                    contentWriters[partitionFor(metadataKey)].write(entry.asDocument());
+
+                    // Record the backup upon which this backup is based ...
+                    if (previousBackupDirectory != null) writeIncrementalSummary();
                 } catch (Exception e) {
                     I18n msg = JcrI18n.problemObtainingDocumentsToBackup;
                     this.problems.addError(msg, repositoryName(), backupLocation(), e.getMessage());
@@ -453,18 +1076,10 @@ public class BackupService {
                 }
 
                 // PHASE 3:
-                // Perform the backup of the binary store ...
+                // Perform the backup of the binary store, copying the binary values concurrently ...
                 try {
-                    int counter = 0;
-                    for (BinaryKey binaryKey : binaryStore.getAllBinaryKeys()) {
-                        try {
-                            writeToContentArea(binaryKey, binaryStore.getInputStream(binaryKey));
-                            ++counter;
-                        } catch (BinaryStoreException e) {
-                            problems.addError(JcrI18n.problemsWritingBinaryToBackup, binaryKey, backupLocation(), e.getMessage());
-                        }
-                    }
-                    LOGGER.debug("Wrote {0} binary values to {1}", counter, binaryDirectory.getAbsolutePath());
+                    numBinaryValues = writeBinaries(binaryStore.getAllBinaryKeys());
+                    LOGGER.debug("Wrote {0} binary values to {1}", numBinaryValues, binaryDirectory.getAbsolutePath());
                 } catch (BinaryStoreException e) {
                     I18n msg = JcrI18n.problemsGettingBinaryKeysFromBinaryStore;
                     problems.addError(msg, repositoryName(), backupLocation(), e.getMessage());
@@ -472,28 +1087,26 @@ public class BackupService {
 
                 // PHASE 4:
                 // Write all of the binary files that were added during the changes made while we worked ...
-                int counter = 0;
-                for (BinaryKey binaryKey : observer.getUsedBinaryKeys()) {
-                    try {
-                        writeToContentArea(binaryKey, binaryStore.getInputStream(binaryKey));
-                        ++counter;
-                    } catch (BinaryStoreException e) {
-                        problems.addError(JcrI18n.problemsWritingBinaryToBackup, binaryKey, backupLocation(), e.getMessage());
-                    }
-                }
+                long counter = writeBinaries(observer.getUsedBinaryKeys());
+                numBinaryValues += counter;
                 LOGGER.debug("Wrote {0} recent binary values to {1}", counter, binaryDirectory.getAbsolutePath());
 
                 // PHASE 5:
                 // And now write all binary keys for the binaries that were recorded as unused by the observer ...
                 writeToChangedArea(observer.getUnusedBinaryKeys());
 
-                // Wait for the changes to be written
+                // Wait for the changes to be written, and then record the documents that were removed ...
                 changesLatch.await(30, TimeUnit.SECONDS);
+                writeRemovedToChangedArea();
 
+                long numDocuments = changesWriter.getDocumentCount();
+                for (BackupDocumentWriter writer : contentWriters) {
+                    numDocuments += writer.getDocumentCount();
+                }
                 LOGGER.debug("Completed backup of '{0}' repository into {1} (contains {2} nodes and {3} binary values)",
                              repositoryName(),
                              backupLocation(),
-                             contentWriter.getDocumentCount() + changesWriter.getDocumentCount(),
+                             numDocuments,
                              numBinaryValues);
 
             } catch (InterruptedException e) {
@@ -506,13 +1119,23 @@ public class BackupService {
                 // PHASE 5:
                 // Close all open writers ...
                 try {
-                    contentWriter.close();
+                    for (BackupDocumentWriter writer : contentWriters) {
+                        writer.close();
+                    }
+                    for (BackupDocumentWriter writer : checkpointWriters) {
+                        writer.close();
+                    }
                 } finally {
-                    contentWriter = null;
+                    contentWriters = null;
+                    checkpointWriters = null;
                     try {
                         changesWriter.close();
+                        changesCheckpointWriter.close();
+                        removedWriter.close();
                     } finally {
                         changesWriter = null;
+                        changesCheckpointWriter = null;
+                        removedWriter = null;
                     }
                 }
             }
@@ -521,6 +1144,198 @@ public class BackupService {
         }
     }
 
+    /**
+     * The key of a document to be written by a backup, along with the hash of the document in the previous backup.
+     */
+    @Immutable
+    protected static final class DocumentToWrite {
+        protected final String key;
+        protected final String previousHash;
+
+        protected DocumentToWrite( String key,
+                                   String previousHash ) {
+            this.key = key;
+            this.previousHash = previousHash;
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * A reader of the documents' entries in a backup's checkpoint, in the order of their keys. Each partition of the checkpoint
+     * is sorted by key, so the partitions are merged while they are read and only the current entry of each partition is held in
+     * memory.
+     */
+    @NotThreadSafe
+    protected static final class CheckpointReader {
+        private final BackupDocumentReader[] readers;
+        private final String[] keys;
+        private final String[] hashes;
+        private int current = -1;
+        private boolean sorted = true;
+
+        protected CheckpointReader( File directory,
+                                    List<String> prefixes,
+                                    Problems problems ) {
+            int numPartitions = prefixes.size();
+            this.readers = new BackupDocumentReader[numPartitions];
+            this.keys = new String[numPartitions];
+            this.hashes = new String[numPartitions];
+            for (int i = 0; i != numPartitions; ++i) {
+                readers[i] = new BackupDocumentReader(directory, prefixes.get(i), problems);
+                advance(i);
+            }
+            selectCurrent();
+        }
+
+        /**
+         * Get the key of the current entry.
+         * 
+         * @return the key, or null if there are no more entries
+         */
+        public String key() {
+            return current != -1 ? keys[current] : null;
+        }
+
+        /**
+         * Get the document hash of the current entry.
+         * 
+         * @return the hash, or null if there are no more entries
+         */
+        public String hash() {
+            return current != -1 ? hashes[current] : null;
+        }
+
+        /**
+         * Move to the next entry.
+         */
+        public void next() {
+            if (current == -1) return;
+            advance(current);
+            selectCurrent();
+        }
+
+        /**
+         * Determine whether all of the entries read so far were sorted. A checkpoint that is not sorted (such as one written by
+         * an earlier version) cannot be merged with the keys of the current documents, so there are no more entries once this
+         * returns false.
+         * 
+         * @return true if the entries were sorted, or false otherwise
+         */
+        public boolean isSorted() {
+            return sorted;
+        }
+
+        public void close() {
+            for (BackupDocumentReader reader : readers) {
+                reader.close();
+            }
+        }
+
+        private void advance( int partition ) {
+            String previousKey = keys[partition];
+            keys[partition] = null;
+            hashes[partition] = null;
+            while (true) {
+                Document entry = readers[partition].read();
+                if (entry == null) return;
+                String key = entry.getString(FieldName.KEY);
+                if (key == null) continue;
+                if (previousKey != null && key.compareTo(previousKey) <= 0) {
+                    sorted = false;
+                    return;
+                }
+                keys[partition] = key;
+                hashes[partition] = entry.getString(FieldName.HASH, "");
+                return;
+            }
+        }
+
+        private void selectCurrent() {
+            current = -1;
+            if (!sorted) return;
+            for (int i = 0; i != keys.length; ++i) {
+                if (keys[i] != null && (current == -1 || keys[i].compareTo(keys[current]) < 0)) current = i;
+            }
+        }
+    }
+
+    /**
+     * Get the path of a directory relative to another directory.
+     * 
+     * @param from the directory from which the path starts; may not be null
+     * @param to the directory to which the path leads; may not be null
+     * @return the relative path, which uses '/' as the separator; never null
+     * @throws IOException if the canonical paths of the directories cannot be obtained
+     */
+    protected static String relativePath( File from,
+                                          File to ) throws IOException {
+        String[] fromNames = from.getCanonicalPath().split(Pattern.quote(File.separator));
+        String[] toNames = to.getCanonicalPath().split(Pattern.quote(File.separator));
+        int common = 0;
+        while (common < fromNames.length && common < toNames.length && fromNames[common].equals(toNames[common])) {
+            ++common;
+        }
+        if (common == 0) {
+            // The directories don't share a root (e.g., they are on different drives) ...
+            return to.getCanonicalPath();
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = common; i < fromNames.length; ++i) {
+            if (path.length() != 0) path.append('/');
+            path.append("..");
+        }
+        for (int i = common; i < toNames.length; ++i) {
+            if (path.length() != 0) path.append('/');
+            path.append(toNames[i]);
+        }
+        return path.length() != 0 ? path.toString() : ".";
+    }
+
+    /**
+     * Resolve a path that was recorded in a backup, which is relative to that backup's directory unless it is absolute (as it
+     * is in backups written by earlier versions).
+     * 
+     * @param backup the directory of the backup in which the path was recorded; may not be null
+     * @param path the recorded path; may not be null
+     * @return the file; never null
+     */
+    protected static File resolvePath( File backup,
+                                       String path ) {
+        File file = new File(path);
+        if (!file.isAbsolute()) file = new File(backup.getAbsoluteFile(), path);
+        // Remove any '..' segments, so that the same backup is always identified by the same file ...
+        return new File(file.toURI().normalize());
+    }
+
+    /**
+     * Compute the SHA-1 hash of the JSON representation of the supplied document.
+     * 
+     * @param document the document; may not be null
+     * @return the hexadecimal form of the hash; never null
+     */
+    protected static String hashOf( Document document ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(SecureHash.Algorithm.SHA_1.digestName());
+            Writer writer = new OutputStreamWriter(new DigestOutputStream(new OutputStream() {
+                @Override
+                public void write( int b ) {
+                    // The bytes are only digested ...
+                }
+            }, digest), BackupDocumentWriter.CHARSET);
+            Json.write(document, writer);
+            writer.flush();
+            return SecureHash.asHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new SystemFailureException(e);
+        } catch (IOException e) {
+            throw new SystemFailureException(e);
+        }
+    }
+
     /**
      * The {@link Activity} subclass that performs content restore operations.
      */
@@ -530,21 +1345,44 @@ public class BackupService {
         protected RestoreActivity( File backupDirectory,
                                    org.modeshape.jcr.cache.document.LocalDocumentStore documentStore,
                                    BinaryStore binaryStore,
-                                   RepositoryCache repositoryCache ) {
-            super(backupDirectory, documentStore, binaryStore, repositoryCache);
+                                   RepositoryCache repositoryCache,
+                                   int parallelism ) {
+            super(backupDirectory, documentStore, binaryStore, repositoryCache, parallelism);
         }
 
         @Override
         public Problems execute() {
+            // Find the backups that are to be restored, starting with the full backup ...
+            List<File> backups = backupsToRestore();
+            if (backups == null) return problems;
+
             removeExistingBinaryFiles();
-            restoreBinaryFiles();
+            for (File backup : backups) {
+                restoreBinaryFiles(new File(backup, BINARY_AREA_DIR_NAME));
+            }
 
             removeExistingDocuments();
-            restoreDocuments(backupDirectory); // first pass of documents
-            restoreDocuments(changeDirectory); // documents changed while backup was being made
+            for (File backup : backups) {
+                File changes = new File(backup, CHANGED_AREA_DIR_NAME);
+                restoreDocuments(backup); // first pass of documents
+                removeDocuments(backup); // documents removed since the previous backup
+                restoreDocuments(changes); // documents changed while backup was being made
+                removeDocuments(changes); // documents removed while backup was being made
+            }
             return problems;
         }
 
+        /**
+         * Determine the backups that must be restored, which for an incremental backup includes all of the backups upon which it
+         * is based.
+         * 
+         * @return the backup directories, ordered from the full backup to this activity's backup, or null if a backup cannot be
+         *         found
+         */
+        protected List<File> backupsToRestore() {
+            return backupChain(backupDirectory);
+        }
+
         public void removeExistingBinaryFiles() {
             // simply mark all of the existing binary values as unused; if an unused binary value is restored,
             // it will simply be kept without having store it ...
@@ -591,15 +1429,35 @@ public class BackupService {
         }
 
         public void restoreBinaryFiles() {
-            for (File segment1Dir : binaryDirectory.listFiles()) {
-                for (File segment2Dir : segment1Dir.listFiles()) {
-                    for (File segment3Dir : segment2Dir.listFiles()) {
-                        for (File binaryFile : segment3Dir.listFiles()) {
-                            restoreBinaryFile(binaryFile);
+            restoreBinaryFiles(binaryDirectory);
+        }
+
+        /**
+         * Restore all of the binary values in the supplied directory, using a separate task for each of the top-level
+         * directories.
+         * 
+         * @param binaryDirectory the directory containing the binary values; may not be null
+         */
+        protected void restoreBinaryFiles( File binaryDirectory ) {
+            File[] segment1Dirs = filesIn(binaryDirectory);
+            if (segment1Dirs.length == 0) return;
+            ExecutorService restorers = createWorkers("modeshape-restore-binaries");
+            for (final File segment1Dir : segment1Dirs) {
+                restorers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Any files that are not directories (or cannot be read) have no files of their own ...
+                        for (File segment2Dir : filesIn(segment1Dir)) {
+                            for (File segment3Dir : filesIn(segment2Dir)) {
+                                for (File binaryFile : filesIn(segment3Dir)) {
+                                    restoreBinaryFile(binaryFile);
+                                }
+                            }
                         }
                     }
-                }
+                });
             }
+            awaitRestorers(restorers);
         }
 
         public void restoreBinaryFile( File binaryFile ) {
@@ -639,19 +1497,82 @@ public class BackupService {
             return new BinaryKey(sha1);
         }
 
-        protected void restoreDocuments( File directory ) {
-            BackupDocumentReader reader = new BackupDocumentReader(directory, DOCUMENTS_FILENAME_PREFIX, problems);
-            LOGGER.debug("Restoring documents from {0}", directory.getAbsolutePath());
+        /**
+         * Restore the documents in the supplied directory, using a separate task for each partition of the documents.
+         * 
+         * @param directory the directory containing the documents; may not be null
+         */
+        protected void restoreDocuments( final File directory ) {
+            List<String> prefixes = filenamePrefixes(directory, DOCUMENTS_FILENAME_PREFIX);
+            if (prefixes.size() <= 1 || parallelism == 1) {
+                for (String prefix : prefixes) {
+                    restoreDocuments(directory, prefix);
+                }
+                return;
+            }
+            ExecutorService restorers = createWorkers("modeshape-restore-documents");
+            for (final String prefix : prefixes) {
+                restorers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        restoreDocuments(directory, prefix);
+                    }
+                });
+            }
+            awaitRestorers(restorers);
+        }
+
+        protected void restoreDocuments( File directory,
+                                         String prefix ) {
+            BackupDocumentReader reader = new BackupDocumentReader(directory, prefix, problems);
+            LOGGER.debug("Restoring documents from {0} with prefix {1}", directory.getAbsolutePath(), prefix);
             int count = 0;
-            while (true) {
-                Document doc = reader.read();
-                if (doc == null) break;
-                documentStore.put(doc);
+            try {
+                while (true) {
+                    Document doc = reader.read();
+                    if (doc == null) break;
+                    documentStore.put(doc);
 
-                ++count;
-                LOGGER.debug("restoring {0} doc {1}", (count + 1), doc);
+                    ++count;
+                    LOGGER.debug("restoring {0} doc {1}", (count + 1), doc);
+                }
+            } finally {
+                reader.close();
             }
             LOGGER.debug("Restored {0} documents from {1}", count, directory.getAbsolutePath());
         }
+
+        /**
+         * Remove the documents that were recorded in the supplied directory as having been removed, either since the backup upon
+         * which an incremental backup is based or while a backup was being made.
+         * 
+         * @param directory the directory containing the keys of the removed documents; may not be null
+         */
+        protected void removeDocuments( File directory ) {
+            BackupDocumentReader reader = new BackupDocumentReader(directory, REMOVED_FILENAME_PREFIX, problems);
+            int count = 0;
+            try {
+                while (true) {
+                    Document entry = reader.read();
+                    if (entry == null) break;
+                    String key = entry.getString(FieldName.KEY);
+                    if (key != null && documentStore.remove(key)) ++count;
+                }
+            } finally {
+                reader.close();
+            }
+            LOGGER.debug("Removed {0} documents recorded in {1}", count, directory.getAbsolutePath());
+        }
+
+        private void awaitRestorers( ExecutorService restorers ) {
+            try {
+                awaitTermination(restorers);
+            } catch (InterruptedException e) {
+                restorers.shutdownNow();
+                Thread.interrupted();
+                I18n msg = JcrI18n.interruptedWhilePerformingBackup;
+                this.problems.addError(msg, repositoryName(), backupLocation(), e.getMessage());
+            }
+        }
     }
 }
@@ -56,7 +56,9 @@ import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
 import org.modeshape.jcr.cache.document.DocumentTranslator;
 import org.modeshape.jcr.cache.document.LocalDocumentStore;
+import org.modeshape.jcr.federation.FederatedChangeSetFactory;
 import org.modeshape.jcr.federation.spi.Connector;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSetFactory;
 import org.modeshape.jcr.federation.spi.ExtraPropertiesStore;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.Property;
@@ -424,6 +426,11 @@ public class Connectors {
         ExtraPropertiesStore defaultExtraPropertiesStore = new LocalDocumentStoreExtraProperties(store, sourceKey, translator);
         ReflectionUtil.setValue(connector, "extraPropertiesStore", defaultExtraPropertiesStore);
 
+        // Set the factory for the change sets that the connector can use to signal external changes ...
+        ConnectorChangeSetFactory changeSetFactory = new FederatedChangeSetFactory(name, repository.repositoryCache(),
+                                                                                   repository.context());
+        ReflectionUtil.setValue(connector, "connectorChangeSetFactory", changeSetFactory);
+
         connector.initialize(registry, nodeTypeManager);
 
         // If successful, call the 'postInitialize' method reflectively (due to inability to call directly) ...
@@ -32,6 +32,7 @@ import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.cache.ChildReference;
 import org.modeshape.jcr.cache.ChildReferences;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
 
 /**
  * A concrete {@link NodeIterator} implementation for children. Where possible, the creator should pass in the size. However, if
@@ -42,10 +43,22 @@ final class JcrChildNodeIterator implements NodeIterator {
 
     protected static interface NodeResolver {
         public Node nodeFrom( ChildReference ref );
+
+        /**
+         * Signal that the nodes for the supplied references are about to be {@link #nodeFrom(ChildReference) resolved}, so that
+         * they can be loaded at once.
+         * 
+         * @param refs the references; never null
+         */
+        public void prefetch( List<ChildReference> refs );
     }
 
+    private static final int INITIAL_BATCH_SIZE = 10;
+
     private final NodeResolver resolver;
     private final Iterator<ChildReference> iterator;
+    private final LinkedList<ChildReference> batch = new LinkedList<ChildReference>();
+    private int batchSize = INITIAL_BATCH_SIZE;
     private Iterator<Node> nodeIterator;
     private int ndx;
     private long size;
@@ -81,8 +94,8 @@ final class JcrChildNodeIterator implements NodeIterator {
         // Otherwise, we have to iterate through the remaining iterator and keep the results ...
         List<Node> remainingNodes = new LinkedList<Node>();
         size = ndx;
-        while (iterator.hasNext()) {
-            Node node = resolver.nodeFrom(iterator.next());
+        while (hasNextReference()) {
+            Node node = resolver.nodeFrom(nextReference());
             if (node != null) {
                 remainingNodes.add(node);
                 ++size;
@@ -94,7 +107,24 @@ final class JcrChildNodeIterator implements NodeIterator {
 
     @Override
     public boolean hasNext() {
-        return nodeIterator != null ? nodeIterator.hasNext() : iterator.hasNext();
+        return nodeIterator != null ? nodeIterator.hasNext() : hasNextReference();
+    }
+
+    private boolean hasNextReference() {
+        return !batch.isEmpty() || iterator.hasNext();
+    }
+
+    private ChildReference nextReference() {
+        if (batch.isEmpty()) {
+            // Read ahead the next references so that their nodes can be loaded at once, reading more each time since most
+            // callers that get beyond the first few children will go on to iterate over all of them ...
+            while (batch.size() < batchSize && iterator.hasNext()) {
+                batch.add(iterator.next());
+            }
+            if (batch.size() > 1) resolver.prefetch(batch);
+            batchSize = Math.min(batchSize * 2, WorkspaceCache.PREFETCH_SIZE);
+        }
+        return batch.removeFirst();
     }
 
     @Override
@@ -109,7 +139,7 @@ final class JcrChildNodeIterator implements NodeIterator {
         }
         Node child = null;
         do {
-            ChildReference childRef = iterator.next();
+            ChildReference childRef = nextReference();
             child = resolver.nodeFrom(childRef);
         } while (child == null);
         ndx++;
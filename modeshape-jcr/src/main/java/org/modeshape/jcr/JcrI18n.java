@@ -92,6 +92,10 @@ public final class JcrI18n {
     public static I18n problemObtainingDocumentsToBackup;
     public static I18n backupOperationWasCancelled;
     public static I18n problemsClosingBackupFiles;
+    public static I18n previousBackupHasNoCheckpoint;
+    public static I18n previousBackupCannotBeFound;
+    public static I18n previousBackupCheckpointIsNotSorted;
+    public static I18n problemsReadingBackupSummary;
     public static I18n invalidJcrUrl;
     public static I18n unableToInitializeAuthenticationProvider;
     public static I18n errorInAuthenticationProvider;
@@ -19,10 +19,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.RangeIterator;
@@ -115,15 +115,12 @@ class JcrObservationManager implements ObservationManager, ChangeSetListener {
     private final RepositoryStatistics repositoryStatistics;
 
     /**
-     * A map of [changeSetHashCode, integer] which keep track of the events which have been received by the observation manager
-     * and dispatched to the individual listeners. This is used for statistic purposes only.
+     * A map of [changeSet, integer] which keep track of the events which have been received by the observation manager but not
+     * yet dispatched to all of the individual listeners. Each counter holds the number of listeners that have yet to process the
+     * change set; it may temporarily be negative when listeners receive a change set before the observation manager does. Change
+     * sets are compared by identity, and the map is updated without locking. This is used for statistic purposes only.
      */
-    private final Map<Integer, AtomicInteger> changesReceivedAndDispatched;
-
-    /**
-     * A lock which guards the JcrObservationManager#changesReceivedAndDispatched map
-     */
-    private final Lock changesLock;
+    private final ConcurrentMap<ChangeSet, AtomicInteger> changesReceivedAndDispatched;
 
     /**
      * A lock used to provide thread-safe guarantees when working it the repository observable
@@ -156,8 +153,7 @@ class JcrObservationManager implements ObservationManager, ChangeSetListener {
         this.listeners = new HashMap<EventListener, JcrListenerAdapter>();
 
         this.repositoryStatistics = statistics;
-        this.changesLock = new ReentrantLock();
-        this.changesReceivedAndDispatched = new HashMap<Integer, AtomicInteger>();
+        this.changesReceivedAndDispatched = new ConcurrentHashMap<ChangeSet, AtomicInteger>();
     }
 
     @Override
@@ -208,36 +204,26 @@ class JcrObservationManager implements ObservationManager, ChangeSetListener {
     private void incrementEventQueueStatistic( ChangeSet changeSet ) {
         // whenever a change set is received from the bus, increment the que size
         repositoryStatistics.increment(ValueMetric.EVENT_QUEUE_SIZE);
-
-        try {
-            changesLock.lock();
-            if (!this.changesReceivedAndDispatched.containsKey(changeSet.hashCode())) {
-                // none of the adapters have processed this change set yet, register it
-                changesReceivedAndDispatched.put(changeSet.hashCode(), new AtomicInteger(listeners.size()));
-            }
-        } finally {
-            changesLock.unlock();
-        }
+        // and expect each of the adapters to process it (some of them may already have done so) ...
+        updatePendingDispatches(changeSet, listeners.size());
     }
 
     private void decrementEventQueueStatistic( ChangeSet changeSet ) {
+        // one of the adapters has processed the change set ...
+        updatePendingDispatches(changeSet, -1);
+    }
 
-        try {
-            changesLock.lock();
-            if (changesReceivedAndDispatched.containsKey(changeSet.hashCode())) {
-                // the change set has already been registered (and the que size incremented)
-                int timesProcessed = changesReceivedAndDispatched.get(changeSet.hashCode()).decrementAndGet();
-                if (timesProcessed == 0) {
-                    repositoryStatistics.decrement(ValueMetric.EVENT_QUEUE_SIZE);
-                    changesReceivedAndDispatched.remove(changeSet.hashCode());
-                }
-            } else {
-                // the change got to this adapter (from the bus) before it got to the observation manager, so it'll be registered
-                // this listener already received the event, so total count of expected listeners is decremented by 1
-                changesReceivedAndDispatched.put(changeSet.hashCode(), new AtomicInteger(listeners.size() - 1));
-            }
-        } finally {
-            changesLock.unlock();
+    private void updatePendingDispatches( ChangeSet changeSet,
+                                          int delta ) {
+        AtomicInteger pending = changesReceivedAndDispatched.get(changeSet);
+        if (pending == null) {
+            AtomicInteger newPending = new AtomicInteger();
+            pending = changesReceivedAndDispatched.putIfAbsent(changeSet, newPending);
+            if (pending == null) pending = newPending;
+        }
+        if (pending.addAndGet(delta) == 0 && changesReceivedAndDispatched.remove(changeSet, pending)) {
+            // the change set was received by the observation manager and processed by all of the adapters ...
+            repositoryStatistics.decrement(ValueMetric.EVENT_QUEUE_SIZE);
         }
     }
 
@@ -139,6 +139,7 @@ class JcrQueryManager implements QueryManager {
             hints.showPlan = true;
             hints.hasFullTextSearch = true; // always include the score
             hints.validateColumnExistance = false; // see MODE-1055
+            hints.streamResults = streamResults();
             if (parser.getLanguage().equals(QueryLanguage.JCR_SQL2)) {
                 hints.qualifyExpandedColumnNames = true;
             }
@@ -178,6 +179,7 @@ class JcrQueryManager implements QueryManager {
             hints.showPlan = true;
             hints.hasFullTextSearch = true; // always include the score
             hints.qualifyExpandedColumnNames = true; // always qualify expanded names with the selector name in JCR-SQL2
+            hints.streamResults = streamResults();
             return resultWith(expression, QueryLanguage.JCR_SQL2, command, hints, null);
         } catch (org.modeshape.jcr.query.parse.InvalidQueryException e) {
             // The query was parsed, but there is an error in the query
@@ -211,6 +213,10 @@ class JcrQueryManager implements QueryManager {
         return languages.toArray(new String[languages.size()]);
     }
 
+    protected boolean streamResults() {
+        return session.repository().getConfiguration().getQuery().streamResults();
+    }
+
     protected org.modeshape.jcr.api.query.Query resultWith( String expression,
                                                             String language,
                                                             QueryCommand command,
@@ -101,6 +101,7 @@ import org.modeshape.jcr.api.query.Query;
 import org.modeshape.jcr.bus.ChangeBus;
 import org.modeshape.jcr.bus.ClusteredRepositoryChangeBus;
 import org.modeshape.jcr.bus.RepositoryChangeBus;
+import org.modeshape.jcr.bus.RingBufferChangeBus;
 import org.modeshape.jcr.cache.NodeCache;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.RepositoryCache;
@@ -114,6 +115,7 @@ import org.modeshape.jcr.cache.change.ChangeSet;
 import org.modeshape.jcr.cache.change.ChangeSetListener;
 import org.modeshape.jcr.cache.change.WorkspaceAdded;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
+import org.modeshape.jcr.cache.document.BoundedNodeCache;
 import org.modeshape.jcr.cache.document.DocumentStore;
 import org.modeshape.jcr.cache.document.LocalDocumentStore;
 import org.modeshape.jcr.federation.FederatedDocumentStore;
@@ -1080,14 +1082,32 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
 
                 // Create the event bus
                 this.changeDispatchingQueue = this.context().getCachedTreadPool("modeshape-event-dispatcher");
-                this.changeBus = createBus(config.getClustering(), this.changeDispatchingQueue, systemWorkspaceName(), false);
+                this.changeBus = createBus(config.getClustering(), config.getEventBus(), this.changeDispatchingQueue,
+                                           systemWorkspaceName(), false);
                 this.changeBus.start();
 
                 // Set up the repository cache ...
                 final SessionEnvironment sessionEnv = new RepositorySessionEnvironment(this.transactions);
                 CacheContainer workspaceCacheContainer = this.config.getWorkspaceContentCacheContainer();
+                final RepositoryStatistics statistics = this.statistics;
+                BoundedNodeCache.Monitor nodeCacheMonitor = new BoundedNodeCache.Monitor() {
+                    @Override
+                    public void recordHit() {
+                        statistics.increment(ValueMetric.NODE_CACHE_HIT_COUNT);
+                    }
+
+                    @Override
+                    public void recordMiss() {
+                        statistics.increment(ValueMetric.NODE_CACHE_MISS_COUNT);
+                    }
+
+                    @Override
+                    public void recordEvictions( long count ) {
+                        statistics.increment(ValueMetric.NODE_CACHE_EVICTION_COUNT, count);
+                    }
+                };
                 this.cache = new RepositoryCache(context, documentStore, config, systemContentInitializer, sessionEnv, changeBus,
-                                                 workspaceCacheContainer);
+                                                 workspaceCacheContainer, nodeCacheMonitor);
 
                 // Set up the node type manager ...
                 this.nodeTypes = new RepositoryNodeTypeManager(this, true, true);
@@ -1692,11 +1712,26 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
         }
 
         protected ChangeBus createBus( RepositoryConfiguration.Clustering clusteringConfiguration,
+                                       RepositoryConfiguration.EventBus eventBusConfiguration,
                                        ExecutorService executor,
                                        String systemWorkspaceName,
                                        boolean separateThreadForSystemWorkspace ) {
-            RepositoryChangeBus standaloneBus = new RepositoryChangeBus(executor, systemWorkspaceName,
-                                                                        separateThreadForSystemWorkspace);
+            ChangeBus standaloneBus = null;
+            int ringBufferSize = eventBusConfiguration.getRingBufferSize();
+            if (ringBufferSize > 0) {
+                // Report the number of change sets yet to be dispatched as part of the event queue size ...
+                RingBufferChangeBus.QueueSizeMonitor monitor = new RingBufferChangeBus.QueueSizeMonitor() {
+                    @Override
+                    public void queueSizeChanged( long delta ) {
+                        statistics.increment(ValueMetric.EVENT_QUEUE_SIZE, delta);
+                    }
+                };
+                standaloneBus = new RingBufferChangeBus(executor, systemWorkspaceName, ringBufferSize,
+                                                        eventBusConfiguration.getWaitStrategy(),
+                                                        eventBusConfiguration.getMaxBatchSize(), monitor);
+            } else {
+                standaloneBus = new RepositoryChangeBus(executor, systemWorkspaceName, separateThreadForSystemWorkspace);
+            }
             return clusteringConfiguration.isEnabled() ? new ClusteredRepositoryChangeBus(clusteringConfiguration, standaloneBus) : standaloneBus;
         }
     }
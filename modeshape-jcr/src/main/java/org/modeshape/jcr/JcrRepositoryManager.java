@@ -26,6 +26,7 @@ package org.modeshape.jcr;
 import java.io.File;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.jcr.AccessDeniedException;
 import javax.jcr.RepositoryException;
 import org.modeshape.jcr.api.Problems;
 import org.modeshape.jcr.api.RepositoryManager;
@@ -77,9 +78,54 @@ public class JcrRepositoryManager implements RepositoryManager {
         return repository().runningState().backupService().backupRepository(backupDirectory);
     }
 
+    /**
+     * Begin a backup operation of the entire repository, writing the files associated with the backup to the specified directory
+     * on the local file system. When a previous backup is given, only the content that has changed since that backup is written,
+     * and the resulting backup can only be restored while the previous backup is still available at the same location.
+     * 
+     * @param backupDirectory the directory on the local file system into which all backup files will be written; this directory
+     *        need not exist, but the process must have write privilege for this directory
+     * @param previousBackupDirectory the directory containing the previous backup upon which the backup is to be based, or null
+     *        if all of the repository content is to be written
+     * @param parallelism the number of threads used to write the backup files; must be positive
+     * @return the problems that occurred during the backup operation
+     * @throws AccessDeniedException if the current session does not have sufficient privileges to perform the backup
+     * @throws RepositoryException if the backup cannot be run
+     * @see #backupRepository(File)
+     */
+    public Problems backupRepository( File backupDirectory,
+                                      File previousBackupDirectory,
+                                      int parallelism ) throws RepositoryException {
+        session().checkPermission(Path.ROOT_PATH, ModeShapePermissions.BACKUP);
+        return repository().runningState().backupService().backupRepository(backupDirectory,
+                                                                            previousBackupDirectory,
+                                                                            BackupService.DEFAULT_NUMBER_OF_DOCUMENTS_IN_BACKUP_FILES,
+                                                                            BackupService.DEFAULT_COMPRESS,
+                                                                            parallelism);
+    }
+
     @Override
     public Problems restoreRepository( File backupDirectory ) throws RepositoryException {
         session().checkPermission(Path.ROOT_PATH, ModeShapePermissions.RESTORE);
         return repository().runningState().backupService().restoreRepository(repository(), backupDirectory);
     }
+
+    /**
+     * Begin a restore operation of the entire repository, reading the backup files in the specified directory on the local file
+     * system using multiple threads. Upon completion of the restore operation, the repository will be restarted automatically.
+     * 
+     * @param backupDirectory the directory on the local file system in which all backup files exist and were written by a
+     *        previous backup operation; this directory must exist, and the process must have read privilege for all contents in
+     *        this directory
+     * @param parallelism the number of threads used to read the backup files; must be positive
+     * @return the problems that occurred during the restore operation
+     * @throws AccessDeniedException if the current session does not have sufficient privileges to perform the restore
+     * @throws RepositoryException if the restoration cannot be run
+     * @see #restoreRepository(File)
+     */
+    public Problems restoreRepository( File backupDirectory,
+                                       int parallelism ) throws RepositoryException {
+        session().checkPermission(Path.ROOT_PATH, ModeShapePermissions.RESTORE);
+        return repository().runningState().backupService().restoreRepository(repository(), backupDirectory, parallelism);
+    }
 }
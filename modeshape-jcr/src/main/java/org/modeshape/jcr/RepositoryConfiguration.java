@@ -76,6 +76,7 @@ import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.ObjectUtil;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.connector.filesystem.FileSystemConnector;
+import org.modeshape.jcr.bus.RingBufferChangeBus;
 import org.modeshape.jcr.clustering.DefaultChannelProvider;
 import org.modeshape.jcr.security.AnonymousProvider;
 import org.modeshape.jcr.security.JaasProvider;
@@ -242,6 +243,76 @@ public class RepositoryConfiguration {
          */
         public static final String MONITORING_ENABLED = "enabled";
 
+        /**
+         * The name for the field whose value is a document containing the configuration of the bus that dispatches changes to
+         * the repository's internal listeners.
+         */
+        public static final String EVENT_BUS = "eventBus";
+
+        /**
+         * The name for the optional field specifying the number of change sets held by the event bus' ring buffer. When not
+         * positive, each listener uses its own queue.
+         */
+        public static final String EVENT_BUS_RING_BUFFER_SIZE = "ringBufferSize";
+
+        /**
+         * The name for the optional field specifying how the listeners wait for changes published to the event bus' ring buffer.
+         */
+        public static final String EVENT_BUS_WAIT_STRATEGY = "waitStrategy";
+
+        /**
+         * The name for the optional field specifying the maximum number of change sets a listener consumes from the event bus'
+         * ring buffer at once.
+         */
+        public static final String EVENT_BUS_MAX_BATCH_SIZE = "maxBatchSize";
+
+        /**
+         * The name for the field whose value is a document containing the configuration of the coalescing of concurrent session
+         * saves into a single transaction.
+         */
+        public static final String GROUP_COMMIT = "groupCommit";
+
+        /**
+         * The name for the optional field specifying whether concurrent session saves are coalesced into a single transaction.
+         */
+        public static final String GROUP_COMMIT_ENABLED = "enabled";
+
+        /**
+         * The name for the optional field specifying the maximum time in milliseconds that a save waits for other saves to join
+         * its transaction.
+         */
+        public static final String GROUP_COMMIT_WINDOW_IN_MILLIS = "windowInMillis";
+
+        /**
+         * The name for the optional field specifying the number of changed nodes at which a group of saves is committed without
+         * waiting for the rest of the window.
+         */
+        public static final String GROUP_COMMIT_MAX_NODES = "maxNodes";
+
+        /**
+         * The name for the field whose value is a document containing the configuration of how the child references of nodes
+         * are kept in balanced blocks.
+         */
+        public static final String DOCUMENT_OPTIMIZATION = "documentOptimization";
+
+        /**
+         * The name for the optional field specifying the desired number of child references in each block. Child blocks are
+         * only rebalanced when a target is specified, either here or for the node's primary type.
+         */
+        public static final String OPTIMIZATION_CHILD_COUNT_TARGET = "childCountTarget";
+
+        /**
+         * The name for the optional field specifying how far the number of child references in a block may stray from the
+         * target before the block is split or merged.
+         */
+        public static final String OPTIMIZATION_CHILD_COUNT_TOLERANCE = "childCountTolerance";
+
+        /**
+         * The name for the optional field whose value is a document mapping node type names to the desired number of child
+         * references in each block for nodes of that primary type.
+         */
+        public static final String OPTIMIZATION_CHILD_COUNT_TARGETS_BY_NODE_TYPE = "childCountTargetsByNodeType";
+
         /**
          * The name for the field whose value is a document containing the Infinispan storage information.
          */
@@ -333,6 +404,13 @@ public class RepositoryConfiguration {
          */
         public static final String WORKSPACE_CACHE_CONFIGURATION = "cacheConfiguration";
 
+        /**
+         * The name for the field whose value is the maximum amount of memory (in bytes) used to cache the nodes of each workspace.
+         * When set to a positive value, each workspace uses a memory-bounded node cache rather than the Infinispan cache defined
+         * by the {@link #WORKSPACE_CACHE_CONFIGURATION workspace cache configuration}.
+         */
+        public static final String WORKSPACE_NODE_CACHE_SIZE = "nodeCacheSize";
+
         /**
          * The name for the field whose value is a document containing binary storage information.
          */
@@ -399,12 +477,17 @@ public class RepositoryConfiguration {
         public static final String QUERY = "query";
         public static final String QUERY_ENABLED = "enabled";
         public static final String REBUILD_UPON_STARTUP = "rebuildUponStartup";
+        public static final String STREAM_RESULTS = "streamResults";
+        public static final String REINDEXING_PARALLELISM = "reindexingParallelism";
         public static final String INDEX_STORAGE = "indexStorage";
         public static final String INDEXING = "indexing";
         public static final String INDEXING_BACKEND = "backend";
         public static final String TABLES_INCLUDE_INHERITED_COLUMNS = "tablesIncludeInheritedColumns";
         public static final String TEXT_EXTRACTING = "textExtracting";
         public static final String EXTRACTORS = "extractors";
+        public static final String MAX_CONCURRENT_EXTRACTIONS = "maxConcurrentExtractions";
+        public static final String MAX_CONCURRENT_EXTRACTIONS_BY_MIME_TYPE = "maxConcurrentExtractionsByMimeType";
+        public static final String EXTRACTION_QUEUE_CAPACITY = "queueCapacity";
         public static final String SEQUENCING = "sequencing";
         public static final String SEQUENCERS = "sequencers";
         public static final String EXTERNAL_SOURCES = "externalSources";
@@ -516,6 +599,12 @@ public class RepositoryConfiguration {
          */
         public static final String WORKSPACE_CACHE_CONFIGURATION = "org/modeshape/jcr/default-workspace-cache-config.xml";
 
+        /**
+         * The default value of the {@link FieldName#WORKSPACE_NODE_CACHE_SIZE} field is '{@value} ', meaning the Infinispan
+         * workspace caches are used.
+         */
+        public static final long WORKSPACE_NODE_CACHE_SIZE = 0L;
+
         /**
          * The default value of the {@link FieldName#USE_ANONYMOUS_ON_FAILED_LOGINS} field is '{@value} '.
          */
@@ -525,13 +614,26 @@ public class RepositoryConfiguration {
 
         public static final boolean QUERY_ENABLED = true;
         public static final boolean FULL_TEXT_SEARCH_ENABLED = true;
+        public static final boolean STREAM_RESULTS = false;
+        public static final int REINDEXING_PARALLELISM = 1;
 
         public static final boolean MONITORING_ENABLED = true;
 
+        public static final int EVENT_BUS_RING_BUFFER_SIZE = 0;
+        public static final String EVENT_BUS_WAIT_STRATEGY = "blocking";
+        public static final int EVENT_BUS_MAX_BATCH_SIZE = 64;
+
+        public static final boolean GROUP_COMMIT_ENABLED = false;
+        public static final long GROUP_COMMIT_WINDOW_IN_MILLIS = 5L;
+        public static final int GROUP_COMMIT_MAX_NODES = 1000;
+
         public static final boolean REMOVE_DERIVED_CONTENT_WITH_ORIGINAL = true;
 
         public static final String SEQUENCING_POOL = "modeshape-sequencer";
         public static final String QUERY_THREAD_POOL = "modeshape-indexer";
+        public static final String TEXT_EXTRACTION_POOL = "modeshape-text-extractor";
+        public static final int MAX_CONCURRENT_EXTRACTIONS = Runtime.getRuntime().availableProcessors();
+        public static final int EXTRACTION_QUEUE_CAPACITY = 1000;
 
         public static final String INDEXING_ANALYZER = StandardAnalyzer.class.getName();
         public static final String INDEXING_SIMILARITY = DefaultSimilarity.class.getName();
@@ -945,6 +1047,19 @@ public class RepositoryConfiguration {
         return Default.WORKSPACE_CACHE_CONFIGURATION;
     }
 
+    /**
+     * Get the maximum amount of memory (in bytes) that should be used to cache the nodes of each workspace.
+     * 
+     * @return the maximum size of each workspace's node cache, or 0 if the Infinispan workspace caches should be used instead
+     */
+    public long getWorkspaceNodeCacheSize() {
+        Document workspaces = doc.getDocument(FieldName.WORKSPACES);
+        if (workspaces != null) {
+            return Math.max(0L, workspaces.getLong(FieldName.WORKSPACE_NODE_CACHE_SIZE, Default.WORKSPACE_NODE_CACHE_SIZE));
+        }
+        return Default.WORKSPACE_NODE_CACHE_SIZE;
+    }
+
     CacheContainer getContentCacheContainer() throws IOException, NamingException {
         return getCacheContainer(null);
     }
@@ -1616,6 +1731,171 @@ public class RepositoryConfiguration {
         }
     }
 
+    /**
+     * Get the configuration for the bus that dispatches changes to the repository's internal listeners.
+     * 
+     * @return the event bus configuration; never null
+     */
+    public EventBus getEventBus() {
+        return new EventBus(doc.getDocument(FieldName.EVENT_BUS));
+    }
+
+    /**
+     * The configuration of the bus that dispatches changes to the repository's internal listeners.
+     */
+    @Immutable
+    public class EventBus {
+        private final Document eventBus;
+
+        protected EventBus( Document eventBus ) {
+            this.eventBus = eventBus != null ? eventBus : EMPTY;
+        }
+
+        /**
+         * Get the number of change sets held by the bus' ring buffer. When this is not positive (the default), the bus gives
+         * each listener its own queue instead of using a ring buffer.
+         * 
+         * @return the ring buffer size, or 0 if no ring buffer should be used
+         */
+        public int getRingBufferSize() {
+            return Math.max(0, eventBus.getInteger(FieldName.EVENT_BUS_RING_BUFFER_SIZE, Default.EVENT_BUS_RING_BUFFER_SIZE));
+        }
+
+        /**
+         * Get the strategy the listeners use to wait for changes published to the bus' ring buffer.
+         * 
+         * @return the wait strategy; never null
+         */
+        public RingBufferChangeBus.WaitStrategy getWaitStrategy() {
+            String strategy = eventBus.getString(FieldName.EVENT_BUS_WAIT_STRATEGY, Default.EVENT_BUS_WAIT_STRATEGY);
+            try {
+                return RingBufferChangeBus.WaitStrategy.valueOf(strategy.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return RingBufferChangeBus.WaitStrategy.valueOf(Default.EVENT_BUS_WAIT_STRATEGY.toUpperCase());
+            }
+        }
+
+        /**
+         * Get the maximum number of change sets a listener consumes from the bus' ring buffer before advancing its position.
+         * 
+         * @return the maximum batch size; always positive
+         */
+        public int getMaxBatchSize() {
+            int size = eventBus.getInteger(FieldName.EVENT_BUS_MAX_BATCH_SIZE, Default.EVENT_BUS_MAX_BATCH_SIZE);
+            return size > 0 ? size : Default.EVENT_BUS_MAX_BATCH_SIZE;
+        }
+    }
+
+    /**
+     * Get the configuration for the coalescing of concurrent session saves into a single transaction.
+     * 
+     * @return the group commit configuration; never null
+     */
+    public GroupCommit getGroupCommit() {
+        return new GroupCommit(doc.getDocument(FieldName.GROUP_COMMIT));
+    }
+
+    /**
+     * The configuration of the coalescing of concurrent session saves into a single transaction.
+     */
+    @Immutable
+    public class GroupCommit {
+        private final Document groupCommit;
+
+        protected GroupCommit( Document groupCommit ) {
+            this.groupCommit = groupCommit != null ? groupCommit : EMPTY;
+        }
+
+        /**
+         * Determine whether saves made concurrently by different sessions are committed in a single transaction. This is
+         * disabled by default, since each save may wait up to the {@link #getWindowInMillis() window} for other saves.
+         * 
+         * @return true if group commit is enabled, or false if each save is committed in its own transaction
+         */
+        public boolean isEnabled() {
+            return groupCommit.getBoolean(FieldName.GROUP_COMMIT_ENABLED, Default.GROUP_COMMIT_ENABLED);
+        }
+
+        /**
+         * Get the maximum time that a save waits for other saves to join its transaction.
+         * 
+         * @return the window in milliseconds; never negative
+         */
+        public long getWindowInMillis() {
+            return Math.max(0L, groupCommit.getLong(FieldName.GROUP_COMMIT_WINDOW_IN_MILLIS,
+                                                    Default.GROUP_COMMIT_WINDOW_IN_MILLIS));
+        }
+
+        /**
+         * Get the number of changed nodes at which a group of saves is committed without waiting for the rest of the window.
+         * 
+         * @return the maximum number of nodes; always positive
+         */
+        public int getMaximumNodes() {
+            int max = groupCommit.getInteger(FieldName.GROUP_COMMIT_MAX_NODES, Default.GROUP_COMMIT_MAX_NODES);
+            return max > 0 ? max : Default.GROUP_COMMIT_MAX_NODES;
+        }
+    }
+
+    /**
+     * Get the configuration for keeping the child references of nodes in balanced blocks.
+     * 
+     * @return the document optimization configuration; never null
+     */
+    public DocumentOptimization getDocumentOptimization() {
+        return new DocumentOptimization(doc.getDocument(FieldName.DOCUMENT_OPTIMIZATION));
+    }
+
+    /**
+     * The configuration of how the child references of nodes are kept in balanced blocks. When a save changes the children of a
+     * node, any block that has grown larger than the target plus the tolerance is split, and any block (other than the last)
+     * that has shrunk below the target minus the tolerance is merged with the next block.
+     */
+    @Immutable
+    public class DocumentOptimization {
+        private final Document optimization;
+
+        protected DocumentOptimization( Document optimization ) {
+            this.optimization = optimization != null ? optimization : EMPTY;
+        }
+
+        /**
+         * Get the desired number of child references in each block.
+         * 
+         * @return the target, or 0 if the blocks are not rebalanced unless a target is given for the node's primary type
+         */
+        public int getChildCountTarget() {
+            return Math.max(0, optimization.getInteger(FieldName.OPTIMIZATION_CHILD_COUNT_TARGET, 0));
+        }
+
+        /**
+         * Get how far the number of child references in a block may stray from the target before the block is rebalanced.
+         * 
+         * @return the tolerance, or 0 if a tenth of the target is to be used
+         */
+        public int getChildCountTolerance() {
+            return Math.max(0, optimization.getInteger(FieldName.OPTIMIZATION_CHILD_COUNT_TOLERANCE, 0));
+        }
+
+        /**
+         * Get the desired number of child references in each block for nodes of particular primary types.
+         * 
+         * @return the targets keyed by the (prefixed or expanded) node type names; never null but possibly empty
+         */
+        public Map<String, Integer> getChildCountTargetsByNodeType() {
+            Document targets = optimization.getDocument(FieldName.OPTIMIZATION_CHILD_COUNT_TARGETS_BY_NODE_TYPE);
+            if (targets == null) return Collections.emptyMap();
+            Map<String, Integer> result = new HashMap<String, Integer>();
+            for (Field field : targets.fields()) {
+                Object value = field.getValue();
+                if (value instanceof Number && ((Number)value).intValue() > 0) {
+                    result.put(field.getName(), ((Number)value).intValue());
+                }
+            }
+            return result;
+        }
+    }
+
     /**
      * Possible options for rebuilding the indexes upon startup.
      */
@@ -1674,6 +1954,29 @@ public class RepositoryConfiguration {
             return queriesEnabled() && query.getBoolean(FieldName.FULL_TEXT_SEARCH_ENABLED, Default.FULL_TEXT_SEARCH_ENABLED);
         }
 
+        /**
+         * Get whether query results should be streamed, meaning the rows are computed only as the results are iterated rather
+         * than all being computed before the query returns. Streamed results return the first row much sooner and never compute
+         * the rows that are not read, but their size is not known until they have been completely iterated. The computed rows
+         * are kept, so the results can still be iterated more than once.
+         * 
+         * @return true if query results are to be streamed, or false otherwise
+         */
+        public boolean streamResults() {
+            return query.getBoolean(FieldName.STREAM_RESULTS, Default.STREAM_RESULTS);
+        }
+
+        /**
+         * Get the number of threads that should be used to concurrently crawl and index content when the indexes are rebuilt.
+         * A value of 1 means the content is reindexed sequentially on the calling thread.
+         * 
+         * @return the degree of parallelism for reindexing; always positive
+         */
+        public int getReindexingParallelism() {
+            int parallelism = query.getInteger(FieldName.REINDEXING_PARALLELISM, Default.REINDEXING_PARALLELISM);
+            return parallelism > 0 ? parallelism : Default.REINDEXING_PARALLELISM;
+        }
+
         /**
          * Get the specification for when the indexes should be built when the system starts up.
          * 
@@ -1834,7 +2137,47 @@ public class RepositoryConfiguration {
          * @return the thread pool name; never null
          */
         public String getThreadPoolName() {
-            return textExtracting.getString(FieldName.THREAD_POOL, "modeshape-text-extractor");
+            return textExtracting.getString(FieldName.THREAD_POOL, Default.TEXT_EXTRACTION_POOL);
+        }
+
+        /**
+         * Get the maximum number of text extractions that may run at the same time.
+         * 
+         * @return the maximum number of concurrent extractions; always positive
+         */
+        public int getMaxConcurrentExtractions() {
+            int max = textExtracting.getInteger(FieldName.MAX_CONCURRENT_EXTRACTIONS, Default.MAX_CONCURRENT_EXTRACTIONS);
+            return max > 0 ? max : Default.MAX_CONCURRENT_EXTRACTIONS;
+        }
+
+        /**
+         * Get the maximum number of text extractions that may run at the same time for binary values of particular MIME types.
+         * These limits apply in addition to the {@link #getMaxConcurrentExtractions() overall limit}.
+         * 
+         * @return the limits keyed by MIME type; never null but possibly empty
+         */
+        public Map<String, Integer> getMaxConcurrentExtractionsByMimeType() {
+            Document limits = textExtracting.getDocument(FieldName.MAX_CONCURRENT_EXTRACTIONS_BY_MIME_TYPE);
+            if (limits == null) return Collections.emptyMap();
+            Map<String, Integer> result = new HashMap<String, Integer>();
+            for (Field field : limits.fields()) {
+                Object value = field.getValue();
+                if (value instanceof Number && ((Number)value).intValue() > 0) {
+                    result.put(field.getName(), ((Number)value).intValue());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Get the maximum number of binary values that may be waiting for their text to be extracted. Once the queue is full,
+         * storing more binary values blocks until some of the queued extractions have completed.
+         * 
+         * @return the capacity of the extraction queue; always positive
+         */
+        public int getQueueCapacity() {
+            int capacity = textExtracting.getInteger(FieldName.EXTRACTION_QUEUE_CAPACITY, Default.EXTRACTION_QUEUE_CAPACITY);
+            return capacity > 0 ? capacity : Default.EXTRACTION_QUEUE_CAPACITY;
         }
 
         /**
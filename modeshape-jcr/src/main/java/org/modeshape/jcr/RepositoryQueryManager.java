@@ -23,26 +23,40 @@
  */
 package org.modeshape.jcr;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.jcr.query.InvalidQueryException;
+import javax.transaction.Status;
 import javax.transaction.Synchronization;
 import org.hibernate.search.backend.TransactionContext;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
 import org.hibernate.search.spi.SearchFactoryBuilder;
+import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.annotation.GuardedBy;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrRepository.RunningState;
 import org.modeshape.jcr.RepositoryConfiguration.QuerySystem;
+import org.modeshape.jcr.api.monitor.DurationMetric;
+import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.api.query.qom.QueryCommand;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.ChildReference;
@@ -51,6 +65,7 @@ import org.modeshape.jcr.cache.NodeCache;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.PathCache;
 import org.modeshape.jcr.cache.RepositoryCache;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
 import org.modeshape.jcr.query.CancellableQuery;
 import org.modeshape.jcr.query.QueryIndexing;
 import org.modeshape.jcr.query.lucene.LuceneQueryEngine;
@@ -64,14 +79,24 @@ import org.modeshape.jcr.query.plan.Planner;
 import org.modeshape.jcr.query.validate.Schemata;
 import org.modeshape.jcr.value.Path;
 import org.modeshape.jcr.value.Path.Segment;
+import org.modeshape.jcr.value.PathFactory;
 
 /**
  * The query manager a the repository. Each instance lazily starts up the {@link LuceneQueryEngine}, which can be expensive.
  */
 class RepositoryQueryManager {
 
+    /**
+     * The maximum number of child references that are processed as a single reindexing task, and the number of index updates
+     * that each reindexing worker batches together.
+     */
+    protected static final int REINDEXING_BATCH_SIZE = 500;
+
+    private static final String REINDEXING_THREAD_POOL_NAME = "modeshape-reindexer";
+
     private final RunningState runningState;
     private final ExecutorService indexingExecutorService;
+    private final int reindexingParallelism;
     private final LuceneSearchConfiguration config;
     private final Lock engineInitLock = new ReentrantLock();
     @GuardedBy( "engineInitLock" )
@@ -86,6 +111,7 @@ class RepositoryQueryManager {
                             Properties indexStorageProps ) {
         this.runningState = runningState;
         this.indexingExecutorService = indexingExecutorService;
+        this.reindexingParallelism = querySystem.getReindexingParallelism();
         // Set up the query engine ...
         String repoName = runningState.name();
         this.config = new BasicLuceneConfiguration(repoName, backendProps, indexingProps, indexStorageProps);
@@ -201,7 +227,26 @@ class RepositoryQueryManager {
     public void reindexContent( JcrWorkspace workspace,
                                 Path path,
                                 int depth ) {
+        reindexContent(workspace, path, depth, reindexingParallelism);
+    }
+
+    /**
+     * Crawl and index the content starting at the supplied path in the named workspace, to the designated depth, using the
+     * supplied number of threads.
+     * 
+     * @param workspace the workspace
+     * @param path the path of the content to be indexed
+     * @param depth the depth of the content to be indexed
+     * @param parallelism the number of threads that should concurrently crawl and index the content; 1 if the content should be
+     *        indexed sequentially on the calling thread
+     * @throws IllegalArgumentException if the workspace or path are null, or if the depth or parallelism are less than 1
+     */
+    public void reindexContent( JcrWorkspace workspace,
+                                Path path,
+                                int depth,
+                                int parallelism ) {
         CheckArg.isPositive(depth, "depth");
+        CheckArg.isPositive(parallelism, "parallelism");
         JcrSession session = workspace.getSession();
         NodeCache cache = session.cache().getWorkspace();
         String workspaceName = workspace.getName();
@@ -221,10 +266,10 @@ class RepositoryQueryManager {
         // If the node is in the system workspace ...
         String systemWorkspaceKey = runningState.repositoryCache().getSystemWorkspaceKey();
         if (node.getKey().getWorkspaceKey().equals(systemWorkspaceKey)) {
-            reindexSystemContent(node, depth, schemata);
+            reindexSystemContent(node, depth, schemata, parallelism);
         } else {
             // It's just a regular node in the workspace ...
-            reindexContent(workspaceName, schemata, cache, node, depth, path.isRoot());
+            reindexContent(workspaceName, schemata, cache, node, depth, path.isRoot(), parallelism);
         }
     }
 
@@ -234,14 +279,47 @@ class RepositoryQueryManager {
                                    CachedNode node,
                                    int depth,
                                    boolean lookForSystemNode ) {
+        reindexContent(workspaceName, schemata, cache, node, depth, lookForSystemNode, reindexingParallelism);
+    }
+
+    protected void reindexContent( final String workspaceName,
+                                   final NodeTypeSchemata schemata,
+                                   NodeCache cache,
+                                   CachedNode node,
+                                   int depth,
+                                   boolean lookForSystemNode,
+                                   int parallelism ) {
         if (!node.isQueryable(cache)) {
             return;
         }
 
         // Get the path for the first node (we already have it, but we need to populate the cache) ...
-        final PathCache paths = new PathCache(cache);
+        final PathCache paths = cache instanceof WorkspaceCache ? ((WorkspaceCache)cache).pathCache() : new PathCache(cache);
         Path nodePath = paths.getPath(node);
 
+        long start = System.nanoTime();
+        if (parallelism > 1 && depth > 1) {
+            new ParallelReindexer(workspaceName, schemata, cache, parallelism).reindex(node, nodePath, depth, lookForSystemNode);
+        } else {
+            reindexSequentially(workspaceName, schemata, cache, paths, node, nodePath, depth, lookForSystemNode);
+        }
+        long durationInNanos = Math.abs(System.nanoTime() - start);
+        Map<String, String> payload = new HashMap<String, String>();
+        payload.put("workspaceName", workspaceName);
+        payload.put("path", runningState.context().getValueFactories().getStringFactory().create(nodePath));
+        runningState.statistics().recordDuration(DurationMetric.REINDEXING_TIME, durationInNanos, TimeUnit.NANOSECONDS, payload);
+    }
+
+    private void reindexSequentially( final String workspaceName,
+                                      final NodeTypeSchemata schemata,
+                                      NodeCache cache,
+                                      PathCache paths,
+                                      CachedNode node,
+                                      Path nodePath,
+                                      int depth,
+                                      boolean lookForSystemNode ) {
+        final RepositoryStatistics statistics = runningState.statistics();
+
         // Index the first node ...
         final QueryIndexing indexes = getIndexes();
         final TransactionContext txnCtx = NO_TRANSACTION;
@@ -253,6 +331,7 @@ class RepositoryQueryManager {
                             node.getProperties(cache),
                             schemata,
                             txnCtx);
+        statistics.increment(ValueMetric.REINDEXED_COUNT);
 
         if (depth == 1) return;
 
@@ -269,7 +348,7 @@ class RepositoryQueryManager {
                 if (childKey.equals(systemKey)) {
                     // This is the "/jcr:system" node ...
                     node = cache.getNode(childKey);
-                    reindexSystemContent(node, depth - 1, schemata);
+                    reindexSystemContent(node, depth - 1, schemata, 1);
                 } else {
                     queue.add(childKey);
                 }
@@ -281,10 +360,16 @@ class RepositoryQueryManager {
             }
         }
 
-        // Now, process the queue until empty ...
+        // Now, process the queue until empty, loading the queued nodes in batches when possible ...
+        final WorkspaceCache prefetchCache = cache instanceof WorkspaceCache ? (WorkspaceCache)cache : null;
+        int prefetched = 0;
         while (true) {
+            if (prefetched == 0 && prefetchCache != null) {
+                prefetched = prefetchCache.prefetch(queue.iterator(), WorkspaceCache.PREFETCH_SIZE);
+            }
             NodeKey key = queue.poll();
             if (key == null) break;
+            if (prefetched > 0) --prefetched;
 
             // Look up the node and find the path ...
             node = cache.getNode(key);
@@ -302,6 +387,7 @@ class RepositoryQueryManager {
                                 node.getProperties(cache),
                                 schemata,
                                 txnCtx);
+            statistics.increment(ValueMetric.REINDEXED_COUNT);
 
             // Check the depth ...
             if (nodePath.size() <= depth) {
@@ -316,10 +402,17 @@ class RepositoryQueryManager {
     protected void reindexSystemContent( CachedNode nodeInSystemBranch,
                                          int depth,
                                          NodeTypeSchemata schemata ) {
+        reindexSystemContent(nodeInSystemBranch, depth, schemata, reindexingParallelism);
+    }
+
+    protected void reindexSystemContent( CachedNode nodeInSystemBranch,
+                                         int depth,
+                                         NodeTypeSchemata schemata,
+                                         int parallelism ) {
         RepositoryCache repoCache = runningState.repositoryCache();
         String workspaceName = repoCache.getSystemWorkspaceName();
         NodeCache systemWorkspaceCache = repoCache.getWorkspaceCache(workspaceName);
-        reindexContent(workspaceName, schemata, systemWorkspaceCache, nodeInSystemBranch, depth, false);
+        reindexContent(workspaceName, schemata, systemWorkspaceCache, nodeInSystemBranch, depth, false, parallelism);
     }
 
     protected void reindexSystemContent( boolean async ) {
@@ -388,6 +481,260 @@ class RepositoryQueryManager {
         });
     }
 
+    /**
+     * Asynchronously crawl and index the content starting at the supplied path in the named workspace, to the designated depth,
+     * using the supplied number of threads.
+     * 
+     * @param workspace the workspace
+     * @param path the path of the content to be indexed
+     * @param depth the depth of the content to be indexed
+     * @param parallelism the number of threads that should concurrently crawl and index the content
+     * @return the future for the asynchronous operation; never null
+     * @throws IllegalArgumentException if the workspace or path are null, or if the depth or parallelism are less than 1
+     */
+    public Future<Boolean> reindexContentAsync( final JcrWorkspace workspace,
+                                                final Path path,
+                                                final int depth,
+                                                final int parallelism ) {
+        CheckArg.isPositive(parallelism, "parallelism");
+        return indexingExecutorService.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                reindexContent(workspace, path, depth, parallelism);
+                return Boolean.TRUE;
+            }
+        });
+    }
+
+    /**
+     * A component that crawls and indexes a subgraph using multiple threads. The children of each node are split into ranges of
+     * at most {@link RepositoryQueryManager#REINDEXING_BATCH_SIZE} child references, and each range becomes a separate task on a
+     * queue shared by all of the workers. Processing a range produces new ranges for the children of its nodes, so the work is
+     * spread across the workers no matter the shape of the subgraph. Each worker also batches its index updates, so that the
+     * indexes are written once for every {@link RepositoryQueryManager#REINDEXING_BATCH_SIZE} nodes rather than once per node.
+     * <p>
+     * The calling thread is always one of the workers, while the remaining workers are run in a separate thread pool (rather
+     * than in the indexing thread pool, which may be running the asynchronous reindexing operation itself).
+     * </p>
+     */
+    protected final class ParallelReindexer {
+        private final String workspaceName;
+        private final NodeTypeSchemata schemata;
+        private final NodeCache cache;
+        private final int parallelism;
+        private final QueryIndexing indexes = getIndexes();
+        private final RepositoryStatistics statistics = runningState.statistics();
+        private final PathFactory pathFactory = runningState.context().getValueFactories().getPathFactory();
+        private final BlockingQueue<ChildRange> ranges = new LinkedBlockingQueue<ChildRange>();
+        private final AtomicInteger unfinishedRanges = new AtomicInteger();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        protected ParallelReindexer( String workspaceName,
+                                     NodeTypeSchemata schemata,
+                                     NodeCache cache,
+                                     int parallelism ) {
+            this.workspaceName = workspaceName;
+            this.schemata = schemata;
+            this.cache = cache;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Index the supplied node and its descendants, and block until all of the nodes have been indexed.
+         * 
+         * @param node the node at the top of the subgraph; may not be null
+         * @param nodePath the path of the node; may not be null
+         * @param depth the depth of the subgraph that should be indexed, where 1 means only the supplied node
+         * @param lookForSystemNode true if the "/jcr:system" child should be indexed as system content, or false otherwise
+         */
+        protected void reindex( CachedNode node,
+                                Path nodePath,
+                                int depth,
+                                boolean lookForSystemNode ) {
+            NodeKey systemKey = null;
+            if (lookForSystemNode) {
+                // We need to look for the system node, and index it differently ...
+                ChildReference systemRef = node.getChildReferences(cache).getChild(JcrLexicon.SYSTEM);
+                if (systemRef != null) {
+                    systemKey = systemRef.getKey();
+                    reindexSystemContent(cache.getNode(systemKey), depth - 1, schemata, parallelism);
+                }
+            }
+
+            // Index the first node and find the ranges of its children ...
+            IndexBatch batch = new IndexBatch();
+            batch.update(node, nodePath);
+            batch.flush();
+            if (depth > 1) addChildRanges(node, nodePath, depth - 1, systemKey);
+
+            // Start the other workers, and then do our share of the work ...
+            ExecutorService executor = runningState.context().getCachedTreadPool(REINDEXING_THREAD_POOL_NAME);
+            List<Future<?>> workers = new ArrayList<Future<?>>(parallelism - 1);
+            for (int i = 1; i < parallelism; ++i) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }));
+            }
+            work();
+
+            // Wait for the other workers to finish ...
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, new SystemFailureException(e));
+                    break;
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, new SystemFailureException(e.getCause()));
+                }
+            }
+            RuntimeException e = failure.get();
+            if (e != null) throw e;
+        }
+
+        protected void work() {
+            IndexBatch batch = new IndexBatch();
+            try {
+                while (failure.get() == null) {
+                    ChildRange range = ranges.poll(100, TimeUnit.MILLISECONDS);
+                    if (range == null) {
+                        // There are no ranges available, so we're done only if all other ranges have been completed ...
+                        if (unfinishedRanges.get() == 0) break;
+                        continue;
+                    }
+                    try {
+                        range.index(batch);
+                    } finally {
+                        statistics.increment(ValueMetric.REINDEXING_QUEUE_SIZE, -range.size());
+                        unfinishedRanges.decrementAndGet();
+                    }
+                }
+                batch.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new SystemFailureException(e));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        protected void addChildRanges( CachedNode parent,
+                                       Path parentPath,
+                                       int depth,
+                                       NodeKey excludedKey ) {
+            List<ChildReference> refs = new ArrayList<ChildReference>();
+            // Iterate with a context that computes the SNS index of each child reference, since we use it to build the paths ...
+            Iterator<ChildReference> iter = parent.getChildReferences(cache).iterator(new ChildReferences.BasicContext());
+            while (iter.hasNext()) {
+                ChildReference childRef = iter.next();
+                if (childRef.getKey().equals(excludedKey)) continue;
+                refs.add(childRef);
+                if (refs.size() == REINDEXING_BATCH_SIZE) {
+                    addRange(new ChildRange(parentPath, refs, depth));
+                    refs = new ArrayList<ChildReference>();
+                }
+            }
+            if (!refs.isEmpty()) addRange(new ChildRange(parentPath, refs, depth));
+        }
+
+        private void addRange( ChildRange range ) {
+            statistics.increment(ValueMetric.REINDEXING_QUEUE_SIZE, range.size());
+            unfinishedRanges.incrementAndGet();
+            ranges.add(range);
+        }
+
+        /**
+         * A range of child references that are to be indexed, along with their descendants to the given depth.
+         */
+        protected final class ChildRange {
+            private final Path parentPath;
+            private final List<ChildReference> childRefs;
+            private final int depth;
+
+            protected ChildRange( Path parentPath,
+                                  List<ChildReference> childRefs,
+                                  int depth ) {
+                this.parentPath = parentPath;
+                this.childRefs = childRefs;
+                this.depth = depth;
+            }
+
+            protected int size() {
+                return childRefs.size();
+            }
+
+            protected void index( IndexBatch batch ) {
+                for (ChildReference childRef : childRefs) {
+                    if (failure.get() != null) return;
+                    CachedNode node = cache.getNode(childRef);
+                    if (node == null || !node.isQueryable(cache)) continue;
+                    Path path = pathFactory.create(parentPath, childRef.getSegment());
+                    batch.update(node, path);
+                    if (depth > 1) addChildRanges(node, path, depth - 1, null);
+                }
+            }
+        }
+
+        /**
+         * A {@link TransactionContext} that accumulates the index updates made by a single worker, and that writes them to the
+         * indexes once the batch is full or when {@link #flush() flushed}.
+         */
+        protected final class IndexBatch implements TransactionContext {
+            private final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+            private Object transactionId = new Object();
+            private int count;
+
+            protected void update( CachedNode node,
+                                   Path nodePath ) {
+                indexes.updateIndex(workspaceName,
+                                    node.getKey(),
+                                    nodePath,
+                                    node.getPrimaryType(cache),
+                                    node.getMixinTypes(cache),
+                                    node.getProperties(cache),
+                                    schemata,
+                                    this);
+                if (++count >= REINDEXING_BATCH_SIZE) flush();
+            }
+
+            protected void flush() {
+                if (count == 0) return;
+                try {
+                    for (Synchronization synchronization : synchronizations) {
+                        synchronization.beforeCompletion();
+                    }
+                    for (Synchronization synchronization : synchronizations) {
+                        synchronization.afterCompletion(Status.STATUS_COMMITTED);
+                    }
+                } finally {
+                    statistics.increment(ValueMetric.REINDEXED_COUNT, count);
+                    synchronizations.clear();
+                    transactionId = new Object();
+                    count = 0;
+                }
+            }
+
+            @Override
+            public boolean isTransactionInProgress() {
+                return true;
+            }
+
+            @Override
+            public Object getTransactionIdentifier() {
+                return transactionId;
+            }
+
+            @Override
+            public void registerSynchronization( Synchronization synchronization ) {
+                synchronizations.add(synchronization);
+            }
+        }
+    }
+
     protected static final TransactionContext NO_TRANSACTION = new TransactionContext() {
         @Override
         public boolean isTransactionInProgress() {
@@ -68,6 +68,9 @@ import org.modeshape.jcr.value.DateTimeFactory;
  * <li><b>{@link ValueMetric#SESSION_SAVES save operations}</b> - the number of Session save operations performed the window;</li>
  * <li><b>{@link ValueMetric#NODE_CHANGES changed nodes}</b> - the number of nodes that were created, updated, or deleted during
  * the window;</li>
+ * <li><b>{@link ValueMetric#NODE_CACHE_HIT_COUNT node cache hits}</b>, <b>{@link ValueMetric#NODE_CACHE_MISS_COUNT misses}</b>
+ * and <b>{@link ValueMetric#NODE_CACHE_EVICTION_COUNT evictions}</b> - the activity of the memory-bounded workspace node caches
+ * during the window;</li>
  * </ol>
  * and the metrics that record durations include:
  * <ol>
@@ -76,6 +79,8 @@ import org.modeshape.jcr.value.DateTimeFactory;
  * window;</li>
  * <li><b>{@link DurationMetric#SEQUENCER_EXECUTION_TIME sequencer execution time}</b> - the duration of sequencing operations
  * completed during the window;</li>
+ * <li><b>{@link DurationMetric#TEXT_EXTRACTION_TIME text extraction time}</b> - the duration of text extractions completed during
+ * the window;</li>
  * </ol>
  * This class provides a way to obtain the {@link History history} for a particular metric during a specified window, where the
  * window is comprised of the {@link Statistics statistics} (the average value, minimum value, maximum value, variance, standard
@@ -117,6 +122,16 @@ public class RepositoryStatistics implements RepositoryMonitor {
      */
     public static final int MAXIMUM_LONG_RUNNING_SESSION_COUNT = 15;
 
+    /**
+     * The maximum number of longest-running reindexing operations to retain.
+     */
+    public static final int MAXIMUM_LONG_RUNNING_REINDEXING_COUNT = 15;
+
+    /**
+     * The maximum number of longest-running text extraction operations to retain.
+     */
+    public static final int MAXIMUM_LONG_RUNNING_TEXT_EXTRACTION_COUNT = 15;
+
     /**
      * The frequency at which the metric values are rolled into statistics.
      */
@@ -172,6 +187,10 @@ public class RepositoryStatistics implements RepositoryMonitor {
                                                                                    MAXIMUM_LONG_RUNNING_SEQUENCING_COUNT));
         durations.put(DurationMetric.SESSION_LIFETIME, new DurationHistory(TimeUnit.MILLISECONDS,
                                                                            MAXIMUM_LONG_RUNNING_SESSION_COUNT));
+        durations.put(DurationMetric.REINDEXING_TIME, new DurationHistory(TimeUnit.MILLISECONDS,
+                                                                          MAXIMUM_LONG_RUNNING_REINDEXING_COUNT));
+        durations.put(DurationMetric.TEXT_EXTRACTION_TIME, new DurationHistory(TimeUnit.MILLISECONDS,
+                                                                               MAXIMUM_LONG_RUNNING_TEXT_EXTRACTION_COUNT));
 
         for (ValueMetric metric : EnumSet.allOf(ValueMetric.class)) {
             boolean resetUponRollup = !metric.isContinuous();
@@ -0,0 +1,436 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.api.monitor.DurationMetric;
+import org.modeshape.jcr.api.monitor.ValueMetric;
+import org.modeshape.jcr.api.text.TextExtractor;
+import org.modeshape.jcr.value.BinaryKey;
+import org.modeshape.jcr.value.BinaryValue;
+import org.modeshape.jcr.value.binary.AbstractBinaryStore;
+
+/**
+ * The scheduler of the text extractions requested through {@link TextExtractors}. It makes sure that:
+ * <ul>
+ * <li>there is at most one pending or running extraction for each {@link BinaryKey binary key};</li>
+ * <li>at most a configured number of extractions run at the same time, both overall and for each of the configured MIME types,
+ * using the supplied executor only for as many tasks as there are extractions running;</li>
+ * <li>extractions for which a caller is waiting (e.g., to index the text) run before the extractions requested when the binary
+ * values are stored, and that the text of smaller binary values is extracted before that of larger ones, except that every
+ * {@value #OLDEST_TASK_INTERVAL}th extraction is the oldest queued one, so that larger binary values are never starved;</li>
+ * <li>at most a configured number of extractions requested when storing binary values are queued, blocking the threads storing
+ * more binary values until some of the queued extractions have completed.</li>
+ * </ul>
+ * Completed extractions are forgotten, so an extraction that failed (or whose text was removed along with its binary value) is
+ * simply requested again; extractions whose text is already stored complete immediately. The number of queued extractions and
+ * the duration of each extraction are recorded in the repository statistics.
+ */
+@ThreadSafe
+final class TextExtractionQueue {
+
+    /**
+     * Every this many extractions, the oldest queued extraction runs rather than the one for the smallest binary value.
+     */
+    static final int OLDEST_TASK_INTERVAL = 16;
+
+    private static final Logger LOGGER = Logger.getLogger(TextExtractionQueue.class);
+
+    private final TextExtractors extractors;
+    private final Executor executor;
+    private final RepositoryStatistics statistics;
+    private final int maxConcurrentExtractions;
+    private final Map<String, Integer> maxConcurrentExtractionsByMimeType;
+    private final Semaphore capacity;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<Task>();
+    private final ConcurrentMap<BinaryKey, Task> tasksByKey = new ConcurrentHashMap<BinaryKey, Task>();
+    private final AtomicInteger runners = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+    @GuardedBy( "mimeTypeLock" )
+    private final Map<String, Integer> runningByMimeType = new HashMap<String, Integer>();
+    @GuardedBy( "mimeTypeLock" )
+    private final Map<String, LinkedList<Task>> deferredByMimeType = new HashMap<String, LinkedList<Task>>();
+    private final Object mimeTypeLock = new Object();
+    private volatile boolean shutdown;
+
+    /**
+     * Create a new queue.
+     * 
+     * @param extractors the extractors that perform the extraction; may not be null
+     * @param executor the executor used to run the extractions; may not be null
+     * @param statistics the statistics in which the queue size and extraction times are recorded; may be null
+     * @param maxConcurrentExtractions the maximum number of extractions that run at the same time; must be positive
+     * @param maxConcurrentExtractionsByMimeType the maximum number of extractions that run at the same time for particular MIME
+     *        types; may not be null
+     * @param capacity the maximum number of queued extractions that were requested when storing binary values; must be positive
+     */
+    TextExtractionQueue( TextExtractors extractors,
+                         Executor executor,
+                         RepositoryStatistics statistics,
+                         int maxConcurrentExtractions,
+                         Map<String, Integer> maxConcurrentExtractionsByMimeType,
+                         int capacity ) {
+        assert maxConcurrentExtractions > 0;
+        assert capacity > 0;
+        this.extractors = extractors;
+        this.executor = executor;
+        this.statistics = statistics;
+        this.maxConcurrentExtractions = maxConcurrentExtractions;
+        this.maxConcurrentExtractionsByMimeType = maxConcurrentExtractionsByMimeType;
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * Request the extraction of the text of the supplied binary value, unless an extraction for the same binary key is already
+     * pending or running. Extractions that are not {@code awaited} block while the queue is full.
+     * 
+     * @param store the store in which the extracted text is to be stored; may not be null
+     * @param binaryValue the binary value; may not be null
+     * @param context the extraction context; may not be null
+     * @param awaited true if the caller is going to wait for the extraction to complete, or false otherwise
+     * @return the latch that is released when the extraction completes, or null if the extraction could not be queued
+     */
+    CountDownLatch submit( AbstractBinaryStore store,
+                           BinaryValue binaryValue,
+                           TextExtractor.Context context,
+                           boolean awaited ) {
+        BinaryKey key = binaryValue.getKey();
+        CountDownLatch latch = getLatch(key);
+        if (latch != null) {
+            if (awaited) promote(tasksByKey.get(key));
+            return latch;
+        }
+
+        // Extractions which nobody waits for must wait for room in the queue ...
+        if (!awaited) {
+            try {
+                capacity.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        Task task = new Task(store, binaryValue, context, awaited, sequence.incrementAndGet());
+        Task existing = shutdown ? null : tasksByKey.putIfAbsent(key, task);
+        if (shutdown || existing != null) {
+            // Someone else queued the same binary value while we were waiting ...
+            if (!awaited) capacity.release();
+            if (existing == null) return null;
+            if (awaited) promote(existing);
+            return existing.latch;
+        }
+        queue.add(task);
+        if (statistics != null) statistics.increment(ValueMetric.TEXT_EXTRACTION_QUEUE_SIZE);
+        startRunnerIfNeeded();
+        return task.latch;
+    }
+
+    /**
+     * Get the latch for the pending or running extraction of the binary value with the supplied key.
+     * 
+     * @param key the binary key; may not be null
+     * @return the latch, or null if there is no such extraction
+     */
+    CountDownLatch getLatch( BinaryKey key ) {
+        Task task = tasksByKey.get(key);
+        return task != null ? task.latch : null;
+    }
+
+    /**
+     * Get the number of extractions that are queued or running.
+     * 
+     * @return the number of extractions
+     */
+    int size() {
+        return tasksByKey.size();
+    }
+
+    /**
+     * Discard all queued extractions, releasing anyone waiting for them. Extractions that are already running are allowed to
+     * complete.
+     */
+    void shutdown() {
+        shutdown = true;
+        List<Task> discarded = new ArrayList<Task>();
+        queue.drainTo(discarded);
+        synchronized (mimeTypeLock) {
+            for (LinkedList<Task> deferred : deferredByMimeType.values()) {
+                discarded.addAll(deferred);
+            }
+            deferredByMimeType.clear();
+        }
+        for (Task task : discarded) {
+            if (statistics != null) statistics.decrement(ValueMetric.TEXT_EXTRACTION_QUEUE_SIZE);
+            completed(task);
+        }
+    }
+
+    private void promote( Task task ) {
+        if (task == null || task.awaited) return;
+        // The priority of a task can only be changed while it is not in the queue ...
+        if (queue.remove(task)) {
+            task.awaited = true;
+            queue.add(task);
+            startRunnerIfNeeded();
+            return;
+        }
+        // The task may be deferred until an extraction of the same MIME type completes ...
+        synchronized (mimeTypeLock) {
+            LinkedList<Task> deferred = task.mimeType != null ? deferredByMimeType.get(task.mimeType) : null;
+            if (deferred != null && deferred.remove(task)) {
+                task.awaited = true;
+                // Deferred tasks that are awaited are resumed first, in the order they were deferred ...
+                ListIterator<Task> iter = deferred.listIterator();
+                while (iter.hasNext()) {
+                    if (!iter.next().awaited) {
+                        iter.previous();
+                        break;
+                    }
+                }
+                iter.add(task);
+            }
+        }
+    }
+
+    /**
+     * Take the next task from the queue. This is usually the task with the highest priority, but every
+     * {@link #OLDEST_TASK_INTERVAL}th time (unless a caller is waiting for the first task) it is the task that was queued first.
+     * 
+     * @return the task, or null if the queue is empty
+     */
+    private Task poll() {
+        if (polls.incrementAndGet() % OLDEST_TASK_INTERVAL == 0) {
+            Task first = queue.peek();
+            if (first != null && !first.awaited) {
+                Task oldest = first;
+                for (Task task : queue) {
+                    if (task.sequence < oldest.sequence) oldest = task;
+                }
+                if (queue.remove(oldest)) return oldest;
+            }
+        }
+        return queue.poll();
+    }
+
+    private void startRunnerIfNeeded() {
+        if (queue.isEmpty() || !acquireRunner()) return;
+        try {
+            executor.execute(new Runner());
+        } catch (RejectedExecutionException e) {
+            runners.decrementAndGet();
+            LOGGER.debug(e, "Unable to start extracting text");
+        }
+    }
+
+    private boolean acquireRunner() {
+        while (true) {
+            int current = runners.get();
+            if (current >= maxConcurrentExtractions) return false;
+            if (runners.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Try to reserve one of the extractions that may run for the MIME type of the supplied task. If none is available, the task
+     * is deferred until a running extraction for the same MIME type completes.
+     * 
+     * @param task the task; may not be null
+     * @return true if the task may run, or false if it was deferred
+     */
+    private boolean acquireMimeType( Task task ) {
+        if (maxConcurrentExtractionsByMimeType.isEmpty()) return true;
+        Integer limit = maxConcurrentExtractionsByMimeType.get(task.mimeType());
+        if (limit == null) return true;
+        synchronized (mimeTypeLock) {
+            Integer running = runningByMimeType.get(task.mimeType);
+            int count = running != null ? running.intValue() : 0;
+            if (count < limit.intValue()) {
+                runningByMimeType.put(task.mimeType, count + 1);
+                return true;
+            }
+            LinkedList<Task> deferred = deferredByMimeType.get(task.mimeType);
+            if (deferred == null) {
+                deferred = new LinkedList<Task>();
+                deferredByMimeType.put(task.mimeType, deferred);
+            }
+            deferred.add(task);
+            return false;
+        }
+    }
+
+    private void releaseMimeType( Task task ) {
+        if (!maxConcurrentExtractionsByMimeType.containsKey(task.mimeType)) return;
+        Task next = null;
+        synchronized (mimeTypeLock) {
+            Integer running = runningByMimeType.get(task.mimeType);
+            if (running == null || running.intValue() <= 1) {
+                runningByMimeType.remove(task.mimeType);
+            } else {
+                runningByMimeType.put(task.mimeType, running.intValue() - 1);
+            }
+            LinkedList<Task> deferred = deferredByMimeType.get(task.mimeType);
+            if (deferred != null) {
+                next = deferred.poll();
+                if (deferred.isEmpty()) deferredByMimeType.remove(task.mimeType);
+            }
+        }
+        if (next != null) {
+            // Put the deferred task back in the queue, where it competes with the other tasks ...
+            queue.add(next);
+        }
+    }
+
+    private void execute( Task task ) {
+        if (statistics != null) statistics.decrement(ValueMetric.TEXT_EXTRACTION_QUEUE_SIZE);
+        long start = System.nanoTime();
+        try {
+            extractors.extractAndStore(task.store, task.binaryValue, task.mimeType, task.context);
+        } finally {
+            if (statistics != null) {
+                Map<String, String> payload = new HashMap<String, String>();
+                payload.put("binaryKey", task.binaryValue.getHexHash());
+                if (task.mimeType != null) payload.put("mimeType", task.mimeType);
+                statistics.recordDuration(DurationMetric.TEXT_EXTRACTION_TIME, System.nanoTime() - start, TimeUnit.NANOSECONDS,
+                                          payload);
+            }
+            releaseMimeType(task);
+            completed(task);
+        }
+    }
+
+    private void completed( Task task ) {
+        tasksByKey.remove(task.binaryValue.getKey(), task);
+        if (!task.awaitedWhenQueued) capacity.release();
+        task.latch.countDown();
+    }
+
+    /**
+     * The unit of work run by the executor, which runs queued tasks until the queue is empty.
+     */
+    protected final class Runner implements Runnable {
+        @SuppressWarnings( "synthetic-access" )
+        @Override
+        public void run() {
+            boolean running = true;
+            try {
+                while (true) {
+                    Task task = poll();
+                    if (task == null) {
+                        running = false;
+                        runners.decrementAndGet();
+                        // A task may have been queued after we polled but before we released our slot ...
+                        if (queue.isEmpty() || !acquireRunner()) return;
+                        running = true;
+                        continue;
+                    }
+                    if (!acquireMimeType(task)) continue;
+                    execute(task);
+                }
+            } finally {
+                if (running) {
+                    // Something unexpected happened, so let another runner take over ...
+                    runners.decrementAndGet();
+                    startRunnerIfNeeded();
+                }
+            }
+        }
+    }
+
+    /**
+     * A queued extraction. Tasks for which a caller is waiting come first, followed by tasks for smaller binary values, followed
+     * by the tasks that were queued first. (The queue itself makes sure that tasks for larger binary values eventually run.)
+     */
+    protected static final class Task implements Comparable<Task> {
+        protected final AbstractBinaryStore store;
+        protected final BinaryValue binaryValue;
+        protected final TextExtractor.Context context;
+        protected final CountDownLatch latch = new CountDownLatch(1);
+        protected final boolean awaitedWhenQueued;
+        protected final long size;
+        protected final long sequence;
+        protected volatile boolean awaited;
+        protected String mimeType;
+        private boolean mimeTypeDetermined;
+
+        protected Task( AbstractBinaryStore store,
+                        BinaryValue binaryValue,
+                        TextExtractor.Context context,
+                        boolean awaited,
+                        long sequence ) {
+            this.store = store;
+            this.binaryValue = binaryValue;
+            this.context = context;
+            this.awaited = awaited;
+            this.awaitedWhenQueued = awaited;
+            this.size = binaryValue.getSize();
+            this.sequence = sequence;
+        }
+
+        /**
+         * Get the MIME type of the binary value, which is determined (only once) when the task is about to run rather than when
+         * it is queued, since doing so may require reading the binary value. The MIME type is only needed (before the extraction
+         * itself) when there are limits by MIME type.
+         * 
+         * @return the MIME type, or null if it cannot be determined
+         */
+        protected String mimeType() {
+            if (!mimeTypeDetermined) {
+                mimeTypeDetermined = true;
+                try {
+                    mimeType = binaryValue.getMimeType();
+                } catch (Exception e) {
+                    LOGGER.debug(e, "Unable to determine the MIME type of binary value {0}", binaryValue.getHexHash());
+                }
+            }
+            return mimeType;
+        }
+
+        @Override
+        public int compareTo( Task that ) {
+            if (this.awaited != that.awaited) return this.awaited ? -1 : 1;
+            if (this.size != that.size) return this.size < that.size ? -1 : 1;
+            if (this.sequence != that.sequence) return this.sequence < that.sequence ? -1 : 1;
+            return 0;
+        }
+    }
+}
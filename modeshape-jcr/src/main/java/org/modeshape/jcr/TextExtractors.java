@@ -23,41 +23,68 @@
  */
 package org.modeshape.jcr;
 
-import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
-import org.modeshape.common.util.StringUtil;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.jcr.RepositoryConfiguration.Component;
 import org.modeshape.jcr.api.text.TextExtractor;
+import org.modeshape.jcr.text.StreamingTextExtractorOutput;
 import org.modeshape.jcr.text.TextExtractorOutput;
 import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.BinaryValue;
 import org.modeshape.jcr.value.binary.AbstractBinaryStore;
 import org.modeshape.jcr.value.binary.InMemoryBinaryValue;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 
 /**
- * Facility for managing {@link TextExtractor} instances and submitting text extraction work
+ * Facility for managing {@link TextExtractor} instances and submitting text extraction work, which is scheduled by a
+ * {@link TextExtractionQueue}.
  */
-@Immutable
+@ThreadSafe
 public final class TextExtractors {
 
     private static final Logger LOGGER = Logger.getLogger(TextExtractors.class);
 
+    private static final String SPOOL_FILE_PREFIX = "ms-text-extraction";
+    private static final String SPOOL_FILE_SUFFIX = ".txt";
+    private static final String SPOOL_FILE_ENCODING = "UTF-8";
+
     private final List<TextExtractor> extractors;
-    private final ExecutorService extractingQueue;
-    private final ConcurrentHashMap<BinaryKey, CountDownLatch> workerLatches;
+    private final ExecutorService extractingPool;
+    private final TextExtractionQueue extractingQueue;
     private final boolean fullTextSearchEnabled;
 
-    public TextExtractors( ExecutorService extractingQueue,
+    public TextExtractors( ExecutorService extractingPool,
                            boolean fullTextSearchEnabled,
                            List<TextExtractor> extractors ) {
-        this.extractingQueue = extractingQueue;
-        this.workerLatches = new ConcurrentHashMap<BinaryKey, CountDownLatch>();
+        this(extractingPool, fullTextSearchEnabled, extractors, null, RepositoryConfiguration.Default.MAX_CONCURRENT_EXTRACTIONS,
+             Collections.<String, Integer>emptyMap(), RepositoryConfiguration.Default.EXTRACTION_QUEUE_CAPACITY);
+    }
+
+    TextExtractors( ExecutorService extractingPool,
+                    boolean fullTextSearchEnabled,
+                    List<TextExtractor> extractors,
+                    RepositoryStatistics statistics,
+                    int maxConcurrentExtractions,
+                    Map<String, Integer> maxConcurrentExtractionsByMimeType,
+                    int queueCapacity ) {
+        this.extractingPool = extractingPool;
+        this.extractingQueue = new TextExtractionQueue(this, extractingPool, statistics, maxConcurrentExtractions,
+                                                       maxConcurrentExtractionsByMimeType, queueCapacity);
         this.fullTextSearchEnabled = fullTextSearchEnabled;
         this.extractors = extractors;
     }
@@ -65,12 +92,14 @@ public final class TextExtractors {
     TextExtractors( JcrRepository.RunningState repository,
                     RepositoryConfiguration.TextExtracting extracting ) {
         this(repository.context().getCachedTreadPool(extracting.getThreadPoolName()), repository.isFullTextSearchEnabled(),
-             getConfiguredExtractors(repository, extracting));
+             getConfiguredExtractors(repository, extracting), repository.statistics(), extracting.getMaxConcurrentExtractions(),
+             extracting.getMaxConcurrentExtractionsByMimeType(), extracting.getQueueCapacity());
     }
 
     protected void shutdown() {
-        extractors.clear();
         extractingQueue.shutdown();
+        extractors.clear();
+        extractingPool.shutdown();
     }
 
     public boolean extractionEnabled() {
@@ -98,9 +127,38 @@ public final class TextExtractors {
         return null;
     }
 
+    /**
+     * Request the extraction of the text of the supplied binary value, which will be stored in the supplied store. This is
+     * meant to be called when the binary value is stored, and blocks while too many such extractions are already queued.
+     * 
+     * @param store the store in which the extracted text is to be stored; may not be null
+     * @param binaryValue the binary value; may not be null
+     * @param context the extraction context; may not be null
+     * @return the latch that is released when the extraction completes, or null if the text is not extracted
+     * @see #extract(AbstractBinaryStore, BinaryValue, org.modeshape.jcr.api.text.TextExtractor.Context, boolean)
+     */
     public CountDownLatch extract( AbstractBinaryStore store,
                                    BinaryValue binaryValue,
                                    TextExtractor.Context context ) {
+        return extract(store, binaryValue, context, false);
+    }
+
+    /**
+     * Request the extraction of the text of the supplied binary value, which will be stored in the supplied store. Only one
+     * extraction is ever queued for the same binary value, and the binary values whose text was recently extracted are not
+     * extracted again.
+     * 
+     * @param store the store in which the extracted text is to be stored; may not be null
+     * @param binaryValue the binary value; may not be null
+     * @param context the extraction context; may not be null
+     * @param awaited true if the caller is going to wait for the text, in which case the extraction is given priority over the
+     *        others and never blocks the caller, or false otherwise
+     * @return the latch that is released when the extraction completes, or null if the text is not extracted
+     */
+    public CountDownLatch extract( AbstractBinaryStore store,
+                                   BinaryValue binaryValue,
+                                   TextExtractor.Context context,
+                                   boolean awaited ) {
         if (!extractionEnabled()) {
             return null;
         }
@@ -109,19 +167,17 @@ public final class TextExtractors {
             return null;
         }
         CheckArg.isNotNull(binaryValue, "binaryValue");
-        CountDownLatch latch = getWorkerLatch(binaryValue.getKey(), true);
-        extractingQueue.execute(new Worker(store, binaryValue, context, latch));
-        return latch;
+        return extractingQueue.submit(store, binaryValue, context, awaited);
     }
 
-    public CountDownLatch getWorkerLatch( BinaryKey binaryKey,
-                                          boolean createIfMissing ) {
-        if (createIfMissing) {
-            CountDownLatch latch = new CountDownLatch(1);
-            CountDownLatch existingLatch = workerLatches.putIfAbsent(binaryKey, latch);
-            return existingLatch != null ? existingLatch : latch;
-        }
-        return workerLatches.get(binaryKey);
+    /**
+     * Get the latch for the pending or running extraction of the binary value with the supplied key.
+     * 
+     * @param binaryKey the binary key; may not be null
+     * @return the latch that is released when the extraction completes, or null if there is no such extraction
+     */
+    public CountDownLatch getWorkerLatch( BinaryKey binaryKey ) {
+        return extractingQueue.getLatch(binaryKey);
     }
 
     private static List<TextExtractor> getConfiguredExtractors( JcrRepository.RunningState repository,
@@ -143,55 +199,57 @@ public final class TextExtractors {
     }
 
     /**
-     * A unit of work which extracts text from a binary value, stores that text in a store and notifies a latch that the
-     * extraction operation has finished.
+     * Extract the text of the supplied binary value and store it. The text is streamed into a temporary spool file as the
+     * extractor produces it, and then streamed from that file into the store, so that the text of large documents is never held
+     * in memory as a whole. Any problem is logged, and the extraction is not retried.
+     * 
+     * @param store the store in which the extracted text is to be stored; may not be null
+     * @param binaryValue the binary value; may not be null
+     * @param mimeType the MIME type of the binary value; may be null if it has not been determined yet
+     * @param context the extraction context; may not be null
      */
-    protected final class Worker implements Runnable {
-        private final BinaryValue binaryValue;
-        private final TextExtractor.Context context;
-        private final AbstractBinaryStore store;
-        private final CountDownLatch latch;
-
-        protected Worker( AbstractBinaryStore store,
+    void extractAndStore( AbstractBinaryStore store,
                           BinaryValue binaryValue,
-                          TextExtractor.Context context,
-                          CountDownLatch latch ) {
-            this.store = store;
-            this.binaryValue = binaryValue;
-            this.context = context;
-            this.latch = latch;
-        }
+                          String mimeType,
+                          TextExtractor.Context context ) {
+        File spoolFile = null;
+        try {
+            // only extract text if there isn't a stored value for the binary key (note that any changes in the binary will
+            // produce a different key)
+            Reader existingText = store.getExtractedTextReader(binaryValue);
+            if (existingText != null) {
+                IoUtil.closeQuietly(existingText);
+                return;
+            }
 
-        @SuppressWarnings( "synthetic-access" )
-        @Override
-        public void run() {
-            try {
-                // only extract text if there isn't a stored value for the binary key (note that any changes in the binary will
-                // produce a different key)
-                if (store.getExtractedText(binaryValue) != null) {
-                    return;
+            if (mimeType == null) {
+                mimeType = binaryValue.getMimeType();
+            }
+            // Run through the extractors and have them extract the text - the first one which accepts the mime-type will win
+            for (TextExtractor extractor : extractors) {
+                if (!extractor.supportsMimeType(mimeType)) {
+                    continue;
                 }
-
-                String mimeType = binaryValue.getMimeType();
-                TextExtractorOutput output = new TextExtractorOutput();
-                // Run through the extractors and have them extract the text - the first one which accepts the mime-type will win
-                for (TextExtractor extractor : extractors) {
-                    if (!extractor.supportsMimeType(mimeType)) {
-                        continue;
-                    }
+                spoolFile = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX);
+                Writer spool = new OutputStreamWriter(new FileOutputStream(spoolFile), SPOOL_FILE_ENCODING);
+                StreamingTextExtractorOutput output = new StreamingTextExtractorOutput(new BufferedWriter(spool));
+                try {
                     extractor.extractFrom(binaryValue, output, context);
-                    break;
+                    output.close();
+                } finally {
+                    IoUtil.closeQuietly(output);
                 }
-
-                String extractedText = output.getText();
-                if (extractedText != null && !StringUtil.isBlank(extractedText)) {
-                    store.storeExtractedText(binaryValue, extractedText);
+                if (output.hasText()) {
+                    store.storeExtractedText(binaryValue, new InputStreamReader(new FileInputStream(spoolFile),
+                                                                                SPOOL_FILE_ENCODING));
                 }
-            } catch (Exception e) {
-                LOGGER.error(JcrI18n.errorExtractingTextFromBinary, binaryValue.getHexHash(), e.getLocalizedMessage());
-            } finally {
-                // decrement the latch regardless of success/failure to avoid blocking, as extraction is not retried
-                latch.countDown();
+                break;
+            }
+        } catch (Exception e) {
+            LOGGER.error(JcrI18n.errorExtractingTextFromBinary, binaryValue.getHexHash(), e.getLocalizedMessage());
+        } finally {
+            if (spoolFile != null) {
+                spoolFile.delete();
             }
         }
     }
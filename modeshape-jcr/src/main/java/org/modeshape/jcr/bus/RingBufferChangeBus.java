@@ -0,0 +1,499 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.bus;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.cache.change.ChangeSetListener;
+
+/**
+ * A {@link ChangeBus} implementation that places all {@link ChangeSet}s into a single, pre-allocated ring buffer from which each
+ * registered listener consumes, on its own thread, using its own sequence cursor. Unlike the {@link RepositoryChangeBus}, a
+ * change set is therefore recorded only once regardless of the number of listeners, and publishing a change set requires
+ * neither locking nor allocation.
+ * <p>
+ * Each consumer takes all of the change sets available to it in batches (up to a maximum batch size), advances its cursor, and
+ * only then sends the batch to its listener. The ring buffer has a fixed capacity, so publishers wait when the slowest listener
+ * is a full buffer behind. How consumers wait for new change sets is controlled by the {@link WaitStrategy}.
+ * </p>
+ * <p>
+ * A listener may itself make changes (and thus publish change sets) on the thread that notifies it. Such a publisher must never
+ * wait for its own listener. So while such a publisher waits for room in the buffer, the change sets that its own listener has
+ * yet to process are moved out of the buffer and into that listener's backlog, which is sent to the listener (in order) before
+ * it continues with the change sets in the buffer. All other listeners are still notified only on their own threads.
+ * </p>
+ * <p>
+ * As with the {@link RepositoryChangeBus}, changes to the system workspace are sent to the listeners on the calling thread.
+ * </p>
+ */
+@ThreadSafe
+public final class RingBufferChangeBus implements ChangeBus {
+
+    /**
+     * The strategies that consumers can use when waiting for new change sets to be published.
+     */
+    public static enum WaitStrategy {
+        /**
+         * Consumers block until they are signalled that a change set was published. This uses the least CPU, but publishers
+         * pay the cost of signalling blocked consumers.
+         */
+        BLOCKING,
+        /**
+         * Consumers spin, then yield, then sleep for very short periods. Publishers never signal consumers.
+         */
+        SLEEPING,
+        /**
+         * Consumers spin and then yield the CPU to other threads. This has the lowest latency, at the cost of CPU usage.
+         */
+        YIELDING;
+    }
+
+    /**
+     * A component that is told about changes in the number of change sets that have yet to be sent to the listeners.
+     */
+    public static interface QueueSizeMonitor {
+        /**
+         * Record a change in the number of change sets that have been published but not yet sent to listeners. Each change set
+         * is counted once for each listener.
+         * 
+         * @param delta the positive or negative change
+         */
+        void queueSizeChanged( long delta );
+    }
+
+    /**
+     * The default number of change sets held by the ring buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 10;
+
+    /**
+     * The default maximum number of change sets taken from the buffer at once for a listener.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    protected static final Logger LOGGER = Logger.getLogger(RingBufferChangeBus.class);
+
+    private static final long BLOCKING_WAIT_TIMEOUT_MILLIS = 100L;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long PUBLISHER_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+
+    private final ExecutorService executor;
+    private final String systemWorkspaceName;
+    private final WaitStrategy waitStrategy;
+    private final int maxBatchSize;
+    private final QueueSizeMonitor queueSizeMonitor;
+
+    private final ChangeSet[] entries;
+    private final AtomicLongArray publishedSequences;
+    private final int mask;
+    private final AtomicLong claimedSequence = new AtomicLong(-1L);
+    private volatile long minimumConsumedSequence = -1L;
+
+    private final ReentrantLock consumersLock = new ReentrantLock();
+    private final Condition published = consumersLock.newCondition();
+    private final AtomicInteger blockedConsumers = new AtomicInteger();
+    private volatile Consumer[] consumers = NO_CONSUMERS;
+    private final ThreadLocal<Consumer> consumerOfThread = new ThreadLocal<Consumer>();
+
+    protected volatile boolean shutdown;
+
+    /**
+     * Create a new change bus.
+     * 
+     * @param executor the executor service used to run the thread of each listener; may not be null
+     * @param systemWorkspaceName the name of the system workspace, whose changes are sent to listeners on the calling thread; may
+     *        be null
+     * @param bufferSize the maximum number of change sets held in the ring buffer; will be rounded up to the next power of 2
+     * @param waitStrategy the strategy used by listener threads to wait for new change sets; may not be null
+     * @param maxBatchSize the maximum number of change sets that are taken from the buffer at once for a listener
+     * @param queueSizeMonitor the component that should be told how many change sets have yet to be sent to listeners; may be
+     *        null
+     */
+    public RingBufferChangeBus( ExecutorService executor,
+                                String systemWorkspaceName,
+                                int bufferSize,
+                                WaitStrategy waitStrategy,
+                                int maxBatchSize,
+                                QueueSizeMonitor queueSizeMonitor ) {
+        CheckArg.isNotNull(executor, "executor");
+        CheckArg.isPositive(bufferSize, "bufferSize");
+        CheckArg.isLessThan(bufferSize, 1 << 30, "bufferSize");
+        CheckArg.isNotNull(waitStrategy, "waitStrategy");
+        CheckArg.isPositive(maxBatchSize, "maxBatchSize");
+        this.executor = executor;
+        this.systemWorkspaceName = systemWorkspaceName;
+        this.waitStrategy = waitStrategy;
+        this.maxBatchSize = maxBatchSize;
+        this.queueSizeMonitor = queueSizeMonitor;
+        int capacity = Integer.highestOneBit(bufferSize);
+        if (capacity < bufferSize) capacity <<= 1;
+        this.entries = new ChangeSet[capacity];
+        this.publishedSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i != capacity; ++i) {
+            this.publishedSequences.set(i, -1L);
+        }
+        this.mask = capacity - 1;
+        this.shutdown = false;
+    }
+
+    RingBufferChangeBus( ExecutorService executor ) {
+        this(executor, null, DEFAULT_BUFFER_SIZE, WaitStrategy.BLOCKING, DEFAULT_MAX_BATCH_SIZE, null);
+    }
+
+    /**
+     * Get the number of change sets that the ring buffer can hold.
+     * 
+     * @return the capacity; always a power of 2
+     */
+    public int getBufferSize() {
+        return entries.length;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        consumersLock.lock();
+        try {
+            Consumer[] stopped = consumers;
+            consumers = NO_CONSUMERS;
+            long lastSequence = claimedSequence.get();
+            for (Consumer consumer : stopped) {
+                consumer.stop(lastSequence);
+            }
+            // Wake up all blocked consumers, which will send all published change sets to their listeners and then stop ...
+            published.signalAll();
+        } finally {
+            consumersLock.unlock();
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean register( ChangeSetListener listener ) {
+        if (listener == null) {
+            return false;
+        }
+        consumersLock.lock();
+        try {
+            if (indexOf(listener) >= 0) return false;
+            // The new listener only sees the change sets published after it was registered ...
+            Consumer consumer = new Consumer(listener, claimedSequence.get());
+            Consumer[] newConsumers = new Consumer[consumers.length + 1];
+            System.arraycopy(consumers, 0, newConsumers, 0, consumers.length);
+            newConsumers[consumers.length] = consumer;
+            consumers = newConsumers;
+            executor.submit(consumer);
+            return true;
+        } finally {
+            consumersLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean unregister( ChangeSetListener listener ) {
+        if (listener == null) {
+            return false;
+        }
+        consumersLock.lock();
+        try {
+            int index = indexOf(listener);
+            if (index < 0) return false;
+            Consumer consumer = consumers[index];
+            Consumer[] newConsumers = new Consumer[consumers.length - 1];
+            System.arraycopy(consumers, 0, newConsumers, 0, index);
+            System.arraycopy(consumers, index + 1, newConsumers, index, newConsumers.length - index);
+            consumers = newConsumers;
+            // Publishers that claim later sequences no longer see (or count) this consumer ...
+            consumer.stop(claimedSequence.get());
+            published.signalAll();
+            return true;
+        } finally {
+            consumersLock.unlock();
+        }
+    }
+
+    @GuardedBy( "consumersLock" )
+    private int indexOf( ChangeSetListener listener ) {
+        Consumer[] consumers = this.consumers;
+        for (int i = 0; i != consumers.length; ++i) {
+            if (consumers[i].listener.equals(listener)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void notify( ChangeSet changeSet ) {
+        if (changeSet == null || !hasObservers()) {
+            return;
+        }
+
+        if (shutdown) {
+            throw new IllegalStateException("Change bus has been already shut down, should not be receiving events");
+        }
+
+        String workspaceName = changeSet.getWorkspaceName();
+        if (workspaceName != null && workspaceName.equalsIgnoreCase(systemWorkspaceName)) {
+            for (Consumer consumer : consumers) {
+                consumer.listener.notify(changeSet);
+            }
+            return;
+        }
+
+        // Claim the next slot, and wait until the slowest consumer has processed the change set previously in that slot ...
+        long sequence = claimedSequence.incrementAndGet();
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint > minimumConsumedSequence) {
+            Consumer consumerOfThisThread = consumerOfThread.get();
+            while (wrapPoint > (minimumConsumedSequence = computeMinimumConsumedSequence(sequence))) {
+                if (shutdown) {
+                    throw new IllegalStateException("Change bus has been already shut down, should not be receiving events");
+                }
+                if (consumerOfThisThread != null && !consumerOfThisThread.isStopped()) {
+                    // This is a listener's thread, which must not wait for its own consumer ...
+                    consumerOfThisThread.moveToBacklog(wrapPoint);
+                }
+                LockSupport.parkNanos(PUBLISHER_WAIT_NANOS);
+            }
+        }
+
+        // Record and then publish the change set ...
+        int index = (int)(sequence & mask);
+        if (queueSizeMonitor != null) queueSizeMonitor.queueSizeChanged(countConsumersOf(sequence));
+        entries[index] = changeSet;
+        publishedSequences.set(index, sequence);
+
+        if (blockedConsumers.get() > 0) {
+            consumersLock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                consumersLock.unlock();
+            }
+        }
+    }
+
+    private int countConsumersOf( long sequence ) {
+        // Consumers registered after the sequence was claimed don't process the change set ...
+        int count = 0;
+        for (Consumer consumer : consumers) {
+            if (consumer.firstSequence <= sequence) ++count;
+        }
+        return count;
+    }
+
+    private long computeMinimumConsumedSequence( long sequence ) {
+        long minimum = sequence - 1;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    protected final boolean isPublished( long sequence ) {
+        return publishedSequences.get((int)(sequence & mask)) == sequence;
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return consumers.length != 0;
+    }
+
+    /**
+     * The component that sends the change sets in the ring buffer to a single listener.
+     */
+    protected final class Consumer implements Callable<Void> {
+
+        protected final ChangeSetListener listener;
+        protected final AtomicLong sequence;
+        protected final long firstSequence;
+        private volatile long lastSequence = Long.MAX_VALUE;
+        // Only used on this consumer's own thread ...
+        private final ChangeSet[] batch = new ChangeSet[maxBatchSize];
+        private final LinkedList<ChangeSet> backlog = new LinkedList<ChangeSet>();
+
+        protected Consumer( ChangeSetListener listener,
+                            long lastConsumedSequence ) {
+            this.listener = listener;
+            this.sequence = new AtomicLong(lastConsumedSequence);
+            this.firstSequence = lastConsumedSequence + 1;
+        }
+
+        /**
+         * Stop this consumer once it has processed the change sets up to the given sequence, which includes all of the change
+         * sets counted for this consumer in the queue size. Unless the bus is shut down, those change sets are no longer sent to
+         * the listener.
+         * 
+         * @param lastSequence the sequence of the last change set to be processed
+         */
+        protected void stop( long lastSequence ) {
+            this.lastSequence = lastSequence;
+        }
+
+        protected boolean isStopped() {
+            return lastSequence != Long.MAX_VALUE;
+        }
+
+        @Override
+        public Void call() {
+            consumerOfThread.set(this);
+            try {
+                return consume();
+            } finally {
+                consumerOfThread.remove();
+            }
+        }
+
+        private Void consume() {
+            boolean interrupted = false;
+            long next = sequence.get() + 1;
+            while (true) {
+                if (!isPublished(next)) {
+                    if (next > lastSequence || shutdown || interrupted) break;
+                    interrupted = waitFor(next);
+                    continue;
+                }
+                // Find the batch of change sets that are available ...
+                long last = next;
+                long maxLast = next + maxBatchSize - 1;
+                while (last < maxLast && isPublished(last + 1)) {
+                    ++last;
+                }
+                // Take the batch out of the buffer and advance the cursor, so the listener can publish while it is notified ...
+                int size = (int)(last - next + 1);
+                for (int i = 0; i != size; ++i) {
+                    batch[i] = entries[(int)((next + i) & mask)];
+                }
+                sequence.set(last);
+                for (int i = 0; i != size; ++i) {
+                    ChangeSet changeSet = batch[i];
+                    batch[i] = null;
+                    if (isStopped() && !shutdown) continue;
+                    dispatch(changeSet);
+                }
+                if (queueSizeMonitor != null) queueSizeMonitor.queueSizeChanged(-size);
+                // Then send the change sets that were moved out of the buffer while the listener was publishing ...
+                ChangeSet changeSet = null;
+                while ((changeSet = backlog.poll()) != null) {
+                    if (!isStopped() || shutdown) dispatch(changeSet);
+                    if (queueSizeMonitor != null) queueSizeMonitor.queueSizeChanged(-1L);
+                }
+                next = sequence.get() + 1;
+            }
+            // Remove from the queue size any change sets that were counted for this consumer but will never be processed ...
+            long last = lastSequence;
+            if (isStopped() && last >= next && queueSizeMonitor != null) queueSizeMonitor.queueSizeChanged(next - last - 1);
+            if (interrupted) Thread.currentThread().interrupt();
+            return null;
+        }
+
+        /**
+         * Move the change sets up to the given sequence that this consumer has yet to process out of the ring buffer and into its
+         * backlog, so that their slots can be reused. This must only be called on this consumer's own thread, while it is
+         * notifying its listener.
+         * 
+         * @param upToSequence the sequence of the last change set to be moved
+         */
+        protected void moveToBacklog( long upToSequence ) {
+            for (long next = sequence.get() + 1; next <= upToSequence; ++next) {
+                while (!isPublished(next)) {
+                    // The slot was claimed by another publisher, which has yet to record its change set ...
+                    if (shutdown) return;
+                    LockSupport.parkNanos(PUBLISHER_WAIT_NANOS);
+                }
+                backlog.add(entries[(int)(next & mask)]);
+                sequence.set(next);
+            }
+        }
+
+        private void dispatch( ChangeSet changeSet ) {
+            try {
+                listener.notify(changeSet);
+            } catch (RuntimeException e) {
+                // A listener failure must not stop the delivery of the following change sets ...
+                LOGGER.error(e, BusI18n.errorNotifyingListener, listener, changeSet.size(), changeSet.getWorkspaceName(),
+                             e.getMessage());
+            }
+        }
+
+        /**
+         * Wait for the change set with the given sequence to be published, using the bus' {@link WaitStrategy}. This method may
+         * return before the change set is published.
+         * 
+         * @param sequence the sequence of the change set
+         * @return true if the thread was interrupted, or false otherwise
+         */
+        private boolean waitFor( long sequence ) {
+            switch (waitStrategy) {
+                case BLOCKING:
+                    blockedConsumers.incrementAndGet();
+                    consumersLock.lock();
+                    try {
+                        if (!isPublished(sequence) && sequence <= lastSequence && !shutdown) {
+                            published.await(BLOCKING_WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                        }
+                    } catch (InterruptedException e) {
+                        return true;
+                    } finally {
+                        consumersLock.unlock();
+                        blockedConsumers.decrementAndGet();
+                    }
+                    return false;
+                case SLEEPING:
+                    for (int i = 0; i != SPIN_TRIES + YIELD_TRIES; ++i) {
+                        if (isPublished(sequence) || sequence > lastSequence || shutdown) return false;
+                        if (i >= SPIN_TRIES) Thread.yield();
+                    }
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                    return Thread.interrupted();
+                case YIELDING:
+                    for (int i = 0; i != SPIN_TRIES; ++i) {
+                        if (isPublished(sequence) || sequence > lastSequence || shutdown) return false;
+                    }
+                    Thread.yield();
+                    return Thread.interrupted();
+            }
+            return false;
+        }
+    }
+}
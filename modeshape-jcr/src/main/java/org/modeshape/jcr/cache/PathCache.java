@@ -44,7 +44,7 @@ public class PathCache {
 
     public Path getPath( CachedNode node ) {
         NodeKey key = node.getKey();
-        Path path = paths.get(key);
+        Path path = cachedPath(key);
         if (path == null) {
             path = node.getPath(this);
             paths.put(key, path); // even if null
@@ -55,4 +55,14 @@ public class PathCache {
     public boolean removePath( NodeKey key ) {
         return paths.remove(key) != null;
     }
+
+    /**
+     * Look up the path for the node with the supplied key that was previously placed into this cache.
+     * 
+     * @param key the node key; never null
+     * @return the cached path, or null if there is no path cached for the node
+     */
+    protected Path cachedPath( NodeKey key ) {
+        return paths.get(key);
+    }
 }
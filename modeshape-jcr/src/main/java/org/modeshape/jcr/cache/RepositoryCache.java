@@ -29,6 +29,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -37,7 +38,6 @@ import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
 import javax.transaction.SystemException;
-import org.infinispan.Cache;
 import org.infinispan.lifecycle.ComponentStatus;
 import org.infinispan.manager.CacheContainer;
 import org.infinispan.manager.EmbeddedCacheManager;
@@ -63,8 +63,10 @@ import org.modeshape.jcr.cache.change.Observable;
 import org.modeshape.jcr.cache.change.RecordingChanges;
 import org.modeshape.jcr.cache.change.WorkspaceAdded;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
+import org.modeshape.jcr.cache.document.BoundedNodeCache;
 import org.modeshape.jcr.cache.document.DocumentStore;
 import org.modeshape.jcr.cache.document.DocumentTranslator;
+import org.modeshape.jcr.cache.document.GroupCommitter;
 import org.modeshape.jcr.cache.document.LocalDocumentStore;
 import org.modeshape.jcr.cache.document.ReadOnlySessionCache;
 import org.modeshape.jcr.cache.document.WorkspaceCache;
@@ -115,6 +117,7 @@ public class RepositoryCache implements Observable {
     private final SessionEnvironment sessionContext;
     private final boolean createdSystemContent;
     private final CacheContainer workspaceCacheManager;
+    private final BoundedNodeCache.Monitor nodeCacheMonitor;
     private volatile boolean initializingRepository = false;
 
     public RepositoryCache( ExecutionContext context,
@@ -123,12 +126,18 @@ public class RepositoryCache implements Observable {
                             ContentInitializer initializer,
                             SessionEnvironment sessionContext,
                             ChangeBus changeBus,
-                            CacheContainer workspaceCacheContainer ) {
+                            CacheContainer workspaceCacheContainer,
+                            BoundedNodeCache.Monitor nodeCacheMonitor ) {
         this.context = context;
+        this.nodeCacheMonitor = nodeCacheMonitor;
         this.configuration = configuration;
         this.documentStore = documentStore;
         this.minimumStringLengthForBinaryStorage.set(configuration.getBinaryStorage().getMinimumStringSize());
         this.translator = new DocumentTranslator(this.context, this.documentStore, this.minimumStringLengthForBinaryStorage.get());
+        RepositoryConfiguration.DocumentOptimization optimization = configuration.getDocumentOptimization();
+        this.translator.setChildCountTargets(optimization.getChildCountTarget(),
+                                             optimization.getChildCountTolerance(),
+                                             optimization.getChildCountTargetsByNodeType());
         this.sessionContext = sessionContext;
         this.workspaceCacheManager = workspaceCacheContainer;
         this.logger = Logger.getLogger(getClass());
@@ -617,10 +626,20 @@ public class RepositoryCache implements Observable {
 
             documentStore.localStore().putIfAbsent(rootKey.toString(), rootDoc);
 
-            // Create/get the Infinispan cache that we'll use within the WorkspaceCache, using the cache manager's
-            // default configuration ...
-            Cache<NodeKey, CachedNode> nodeCache = workspaceCacheManager.getCache(cacheNameForWorkspace(name));
+            // Create/get the cache that we'll use within the WorkspaceCache, which is either a memory-bounded cache or
+            // an Infinispan cache using the cache manager's default configuration ...
+            long nodeCacheSize = configuration.getWorkspaceNodeCacheSize();
+            ConcurrentMap<NodeKey, CachedNode> nodeCache = null;
+            if (nodeCacheSize > 0L) {
+                nodeCache = new BoundedNodeCache(nodeCacheSize, nodeCacheMonitor);
+            } else {
+                nodeCache = workspaceCacheManager.getCache(cacheNameForWorkspace(name));
+            }
             cache = new WorkspaceCache(context, getKey(), name, documentStore, translator, rootKey, nodeCache, changeBus);
+            RepositoryConfiguration.GroupCommit groupCommit = configuration.getGroupCommit();
+            if (groupCommit.isEnabled()) {
+                cache.setGroupCommitter(new GroupCommitter(groupCommit.getWindowInMillis(), groupCommit.getMaximumNodes()));
+            }
 
             WorkspaceCache existing = workspaceCachesByName.putIfAbsent(name, cache);
             if (existing != null) {
@@ -675,7 +694,13 @@ public class RepositoryCache implements Observable {
         this.workspaceCachesByName.remove(name);
     }
 
-    Iterable<WorkspaceCache> workspaces() {
+    /**
+     * Get the caches for the workspaces that are currently in use. Unlike {@link #getWorkspaceCache(String)}, this never creates
+     * a workspace cache.
+     * 
+     * @return the workspace caches; never null
+     */
+    public Iterable<WorkspaceCache> workspaces() {
         return workspaceCachesByName.values();
     }
 
@@ -26,9 +26,11 @@ package org.modeshape.jcr.cache;
 import java.util.HashMap;
 import java.util.Map;
 import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
 
 /**
- * A set of {@link PathCache} instances keyed by workspace names.
+ * A set of {@link PathCache} instances keyed by workspace names. The {@link WorkspaceCache#pathCache() shared path cache} is used
+ * for any workspace whose node cache is a {@link WorkspaceCache}.
  */
 @NotThreadSafe
 public class RepositoryPathCache {
@@ -43,7 +45,11 @@ public class RepositoryPathCache {
                                    NodeCache nodeCacheForWorkspace ) throws WorkspaceNotFoundException {
         PathCache cache = pathCacheByWorkspaceName.get(workspaceName);
         if (cache == null) {
-            cache = new PathCache(nodeCacheForWorkspace);
+            if (nodeCacheForWorkspace instanceof WorkspaceCache) {
+                cache = ((WorkspaceCache)nodeCacheForWorkspace).pathCache();
+            } else {
+                cache = new PathCache(nodeCacheForWorkspace);
+            }
             pathCacheByWorkspaceName.put(workspaceName, cache);
         }
         return cache;
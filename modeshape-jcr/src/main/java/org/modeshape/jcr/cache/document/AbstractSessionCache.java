@@ -202,7 +202,7 @@ public abstract class AbstractSessionCache implements SessionCache, DocumentCach
 
     @Override
     public Iterator<NodeKey> getAllNodeKeysAtAndBelow( NodeKey startingKey ) {
-        return new NodeCacheIterator(this, startingKey);
+        return new NodeCacheIterator(this, startingKey, workspaceCache);
     }
 
 }
@@ -0,0 +1,580 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.infinispan.schematic.document.Binary;
+import org.infinispan.schematic.document.Document;
+import org.infinispan.schematic.internal.document.BsonDocument;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+
+/**
+ * A {@link ConcurrentMap} of {@link CachedNode} instances that is bounded by the estimated amount of memory used by the nodes, and
+ * that can be used as the node cache of a {@link WorkspaceCache}. The size of each node is estimated from its {@link Document}
+ * (using the length of the encoded BSON when the document has not been decoded), and the least valuable nodes are evicted
+ * whenever the total estimated size exceeds the maximum size.
+ * <p>
+ * The nodes are evicted using a segmented LRU policy: each newly-added node is placed into a <i>probationary</i> segment, and is
+ * promoted into a <i>protected</i> segment only when it is found again. Nodes are evicted from the probationary segment first,
+ * so that a scan over many nodes that are used only once (e.g., a query or an export) does not flush out the nodes that are
+ * used frequently. Nodes demoted from the protected segment get one more chance in the probationary segment. Setting the
+ * protected fraction to 0 results in a simple LRU policy.
+ * </p>
+ * <p>
+ * To allow for many concurrent readers, the map is split into a number of independent stripes, each with its own lock, a
+ * proportional share of the maximum size, and its own segments.
+ * </p>
+ */
+@ThreadSafe
+public class BoundedNodeCache extends AbstractMap<NodeKey, CachedNode> implements ConcurrentMap<NodeKey, CachedNode> {
+
+    /**
+     * A component that is told about the hits, misses, and evictions of a {@link BoundedNodeCache}.
+     */
+    public static interface Monitor {
+        /**
+         * Record that a node was requested and found in the cache.
+         */
+        void recordHit();
+
+        /**
+         * Record that a node was requested but not found in the cache.
+         */
+        void recordMiss();
+
+        /**
+         * Record that nodes were evicted from the cache to keep its size under the maximum.
+         * 
+         * @param count the number of evicted nodes; always positive
+         */
+        void recordEvictions( long count );
+    }
+
+    /**
+     * The default number of independently-locked stripes.
+     */
+    public static final int DEFAULT_STRIPE_COUNT = 16;
+
+    /**
+     * The default fraction of each stripe's maximum size that is used for the protected segment.
+     */
+    public static final float DEFAULT_PROTECTED_FRACTION = 0.8f;
+
+    protected static final long NODE_OVERHEAD = 128L;
+    protected static final long FIELD_OVERHEAD = 48L;
+    protected static final long STRING_OVERHEAD = 40L;
+    protected static final long VALUE_OVERHEAD = 16L;
+
+    private final Stripe[] stripes;
+    private final long maximumSize;
+
+    /**
+     * Create a new cache that uses the default number of stripes and the default protected fraction.
+     * 
+     * @param maximumSize the maximum estimated size of all the nodes in the cache, in bytes; must be positive
+     */
+    public BoundedNodeCache( long maximumSize ) {
+        this(maximumSize, DEFAULT_STRIPE_COUNT, DEFAULT_PROTECTED_FRACTION, null);
+    }
+
+    /**
+     * Create a new cache that uses the default number of stripes and the default protected fraction.
+     * 
+     * @param maximumSize the maximum estimated size of all the nodes in the cache, in bytes; must be positive
+     * @param monitor the component that should be told about the hits, misses, and evictions; may be null
+     */
+    public BoundedNodeCache( long maximumSize,
+                             Monitor monitor ) {
+        this(maximumSize, DEFAULT_STRIPE_COUNT, DEFAULT_PROTECTED_FRACTION, monitor);
+    }
+
+    /**
+     * Create a new cache.
+     * 
+     * @param maximumSize the maximum estimated size of all the nodes in the cache, in bytes; must be positive
+     * @param stripeCount the number of independently-locked stripes; must be positive, and is rounded up to a power of 2
+     * @param protectedFraction the fraction of the maximum size used for nodes that have been found more than once; must be
+     *        non-negative, where 0 results in an LRU policy and values larger than 1 are treated as 1
+     */
+    public BoundedNodeCache( long maximumSize,
+                             int stripeCount,
+                             float protectedFraction ) {
+        this(maximumSize, stripeCount, protectedFraction, null);
+    }
+
+    /**
+     * Create a new cache.
+     * 
+     * @param maximumSize the maximum estimated size of all the nodes in the cache, in bytes; must be positive
+     * @param stripeCount the number of independently-locked stripes; must be positive, and is rounded up to a power of 2
+     * @param protectedFraction the fraction of the maximum size used for nodes that have been found more than once; must be
+     *        non-negative, where 0 results in an LRU policy and values larger than 1 are treated as 1
+     * @param monitor the component that should be told about the hits, misses, and evictions; may be null
+     */
+    public BoundedNodeCache( long maximumSize,
+                             int stripeCount,
+                             float protectedFraction,
+                             Monitor monitor ) {
+        CheckArg.isPositive(maximumSize, "maximumSize");
+        CheckArg.isPositive(stripeCount, "stripeCount");
+        CheckArg.isNonNegative(protectedFraction, "protectedFraction");
+        protectedFraction = Math.min(1.0f, protectedFraction);
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+        this.maximumSize = maximumSize;
+        this.stripes = new Stripe[count];
+        long stripeSize = Math.max(1L, maximumSize / count);
+        for (int i = 0; i != count; ++i) {
+            this.stripes[i] = new Stripe(stripeSize, (long)(stripeSize * protectedFraction), monitor);
+        }
+    }
+
+    protected final Stripe stripeFor( Object key ) {
+        int hash = key.hashCode();
+        // Spread the bits, since the low-order bits of the hash codes are used ...
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    /**
+     * Estimate the amount of memory used by the supplied node.
+     * 
+     * @param node the node; never null
+     * @return the estimated size in bytes; always positive
+     */
+    protected long sizeOf( CachedNode node ) {
+        if (node instanceof LazyCachedNode) {
+            Document document = ((LazyCachedNode)node).cachedDocument();
+            if (document != null) return NODE_OVERHEAD + sizeOf(document);
+        }
+        return NODE_OVERHEAD;
+    }
+
+    /**
+     * Estimate the amount of memory used by the supplied document. A document that is still a {@link BsonDocument view} over its
+     * encoded BSON is estimated from the length of the BSON, so that estimating its size never decodes it.
+     * 
+     * @param document the document; never null
+     * @return the estimated size in bytes
+     */
+    protected static long sizeOf( Document document ) {
+        if (document instanceof BsonDocument) return VALUE_OVERHEAD + ((BsonDocument)document).getLength();
+        long size = VALUE_OVERHEAD;
+        for (Document.Field field : document.fields()) {
+            size += FIELD_OVERHEAD + 2L * field.getName().length() + sizeOfValue(field.getValue());
+        }
+        return size;
+    }
+
+    private static long sizeOfValue( Object value ) {
+        if (value instanceof String) return STRING_OVERHEAD + 2L * ((String)value).length();
+        // Nested documents that have been decoded are already in memory, so walking them is cheap ...
+        if (value instanceof Document) return sizeOf((Document)value);
+        if (value instanceof Binary) return VALUE_OVERHEAD + ((Binary)value).length();
+        return VALUE_OVERHEAD;
+    }
+
+    @Override
+    public CachedNode get( Object key ) {
+        if (!(key instanceof NodeKey)) return null;
+        return stripeFor(key).get((NodeKey)key);
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+        if (!(key instanceof NodeKey)) return false;
+        return stripeFor(key).peek((NodeKey)key) != null;
+    }
+
+    @Override
+    public CachedNode put( NodeKey key,
+                           CachedNode value ) {
+        CheckArg.isNotNull(value, "value");
+        return stripeFor(key).put(key, value, sizeOf(value), false);
+    }
+
+    @Override
+    public CachedNode putIfAbsent( NodeKey key,
+                                   CachedNode value ) {
+        CheckArg.isNotNull(value, "value");
+        return stripeFor(key).put(key, value, sizeOf(value), true);
+    }
+
+    @Override
+    public CachedNode remove( Object key ) {
+        if (!(key instanceof NodeKey)) return null;
+        return stripeFor(key).remove((NodeKey)key, null);
+    }
+
+    @Override
+    public boolean remove( Object key,
+                           Object value ) {
+        if (!(key instanceof NodeKey) || value == null) return false;
+        return stripeFor(key).remove((NodeKey)key, value) != null;
+    }
+
+    @Override
+    public boolean replace( NodeKey key,
+                            CachedNode oldValue,
+                            CachedNode newValue ) {
+        CheckArg.isNotNull(newValue, "newValue");
+        return stripeFor(key).replace(key, oldValue, newValue, sizeOf(newValue)) != null;
+    }
+
+    @Override
+    public CachedNode replace( NodeKey key,
+                               CachedNode value ) {
+        CheckArg.isNotNull(value, "value");
+        return stripeFor(key).replace(key, null, value, sizeOf(value));
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.count();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The resulting set is a snapshot of the nodes in the cache, and changes to it are not reflected in this cache.
+     * </p>
+     */
+    @Override
+    public Set<Map.Entry<NodeKey, CachedNode>> entrySet() {
+        Map<NodeKey, CachedNode> snapshot = new HashMap<NodeKey, CachedNode>();
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(snapshot);
+        }
+        return snapshot.entrySet();
+    }
+
+    /**
+     * Get the maximum estimated size of all the nodes in this cache.
+     * 
+     * @return the maximum size in bytes
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Get the current estimated size of all the nodes in this cache.
+     * 
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedSize() {
+        long total = 0L;
+        for (Stripe stripe : stripes) {
+            total += stripe.estimatedSize();
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of times a node was requested and found in this cache.
+     * 
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        long total = 0L;
+        for (Stripe stripe : stripes) {
+            total += stripe.hits;
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of times a node was requested but not found in this cache.
+     * 
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        long total = 0L;
+        for (Stripe stripe : stripes) {
+            total += stripe.misses;
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of nodes that were evicted from this cache to keep its size under the maximum.
+     * 
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        long total = 0L;
+        for (Stripe stripe : stripes) {
+            total += stripe.evictions;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedNodeCache (" + size() + " nodes, " + getEstimatedSize() + " of " + maximumSize + " bytes, "
+               + getHitCount() + " hits, " + getMissCount() + " misses, " + getEvictionCount() + " evictions)";
+    }
+
+    protected static final class Entry {
+        protected final CachedNode node;
+        protected final long size;
+
+        protected Entry( CachedNode node,
+                         long size ) {
+            this.node = node;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A portion of the cache with its own lock and its own probationary and protected segments. Each segment is a
+     * {@link LinkedHashMap} in access order, so the least-recently-used entry is always first.
+     */
+    protected static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<NodeKey, Entry> probation = new LinkedHashMap<NodeKey, Entry>(16, 0.75f, true);
+        private final LinkedHashMap<NodeKey, Entry> protectedSegment = new LinkedHashMap<NodeKey, Entry>(16, 0.75f, true);
+        private final long maximumSize;
+        private final long maximumProtectedSize;
+        private long probationSize;
+        private long protectedSize;
+        protected volatile long hits;
+        protected volatile long misses;
+        protected volatile long evictions;
+        private final Monitor monitor;
+
+        protected Stripe( long maximumSize,
+                          long maximumProtectedSize,
+                          Monitor monitor ) {
+            this.maximumSize = maximumSize;
+            this.maximumProtectedSize = maximumProtectedSize;
+            this.monitor = monitor;
+        }
+
+        protected CachedNode get( NodeKey key ) {
+            lock.lock();
+            try {
+                Entry entry = protectedSegment.get(key);
+                if (entry == null) {
+                    entry = probation.remove(key);
+                    if (entry == null) {
+                        ++misses;
+                        if (monitor != null) monitor.recordMiss();
+                        return null;
+                    }
+                    // Found a second time, so promote it to the protected segment ...
+                    probationSize -= entry.size;
+                    protectedSegment.put(key, entry);
+                    protectedSize += entry.size;
+                    demoteProtected();
+                }
+                ++hits;
+                if (monitor != null) monitor.recordHit();
+                return entry.node;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected CachedNode peek( NodeKey key ) {
+            lock.lock();
+            try {
+                Entry entry = find(key);
+                return entry != null ? entry.node : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected CachedNode put( NodeKey key,
+                                  CachedNode node,
+                                  long size,
+                                  boolean onlyIfAbsent ) {
+            lock.lock();
+            try {
+                Entry existing = find(key);
+                if (existing != null) {
+                    if (onlyIfAbsent) return existing.node;
+                    removeEntry(key);
+                }
+                probation.put(key, new Entry(node, size));
+                probationSize += size;
+                evict();
+                return existing != null ? existing.node : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected CachedNode replace( NodeKey key,
+                                      CachedNode expected,
+                                      CachedNode node,
+                                      long size ) {
+            lock.lock();
+            try {
+                Entry existing = find(key);
+                if (existing == null || (expected != null && !expected.equals(existing.node))) return null;
+                removeEntry(key);
+                probation.put(key, new Entry(node, size));
+                probationSize += size;
+                evict();
+                return existing.node;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected CachedNode remove( NodeKey key,
+                                     Object expected ) {
+            lock.lock();
+            try {
+                Entry existing = find(key);
+                if (existing == null || (expected != null && !expected.equals(existing.node))) return null;
+                removeEntry(key);
+                return existing.node;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected int count() {
+            lock.lock();
+            try {
+                return probation.size() + protectedSegment.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected long estimatedSize() {
+            lock.lock();
+            try {
+                return probationSize + protectedSize;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected void clear() {
+            lock.lock();
+            try {
+                probation.clear();
+                protectedSegment.clear();
+                probationSize = 0L;
+                protectedSize = 0L;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        protected void copyTo( Map<NodeKey, CachedNode> nodes ) {
+            lock.lock();
+            try {
+                for (Map.Entry<NodeKey, Entry> entry : probation.entrySet()) {
+                    nodes.put(entry.getKey(), entry.getValue().node);
+                }
+                for (Map.Entry<NodeKey, Entry> entry : protectedSegment.entrySet()) {
+                    nodes.put(entry.getKey(), entry.getValue().node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Entry find( NodeKey key ) {
+            // Use 'containsKey' before 'get', since 'get' changes the order of the entries ...
+            if (protectedSegment.containsKey(key)) return protectedSegment.get(key);
+            if (probation.containsKey(key)) return probation.get(key);
+            return null;
+        }
+
+        private void removeEntry( NodeKey key ) {
+            Entry entry = protectedSegment.remove(key);
+            if (entry != null) {
+                protectedSize -= entry.size;
+                return;
+            }
+            entry = probation.remove(key);
+            if (entry != null) probationSize -= entry.size;
+        }
+
+        private void demoteProtected() {
+            // Move the least-recently-used protected entries back into the probationary segment ...
+            while (protectedSize > maximumProtectedSize && !protectedSegment.isEmpty()) {
+                Iterator<Map.Entry<NodeKey, Entry>> iter = protectedSegment.entrySet().iterator();
+                Map.Entry<NodeKey, Entry> eldest = iter.next();
+                iter.remove();
+                Entry entry = eldest.getValue();
+                protectedSize -= entry.size;
+                probation.put(eldest.getKey(), entry);
+                probationSize += entry.size;
+            }
+            evict();
+        }
+
+        private void evict() {
+            // Evict the least-recently-used entries, starting with the probationary segment ...
+            long evicted = 0L;
+            while (probationSize + protectedSize > maximumSize) {
+                LinkedHashMap<NodeKey, Entry> segment = probation.isEmpty() ? protectedSegment : probation;
+                if (segment.isEmpty()) break;
+                Iterator<Entry> iter = segment.values().iterator();
+                Entry eldest = iter.next();
+                iter.remove();
+                if (segment == probation) {
+                    probationSize -= eldest.size;
+                } else {
+                    protectedSize -= eldest.size;
+                }
+                ++evictions;
+                ++evicted;
+            }
+            if (evicted != 0L && monitor != null) monitor.recordEvictions(evicted);
+        }
+    }
+}
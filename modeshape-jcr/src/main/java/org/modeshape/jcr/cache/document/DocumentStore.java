@@ -25,6 +25,7 @@
 package org.modeshape.jcr.cache.document;
 
 import java.util.Collection;
+import java.util.Map;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 import org.infinispan.schematic.SchematicEntry;
@@ -48,6 +49,17 @@ public interface DocumentStore {
      */
     public SchematicEntry get( String key );
 
+    /**
+     * Get the entries with the supplied keys. Stores that can read several documents in one round trip should do so, so that
+     * callers about to use a batch of documents (e.g., the next children of a node) pay for one store read rather than one per
+     * document.
+     * 
+     * @param keys the keys or identifiers for the documents; may not be null but may be empty
+     * @return the entries keyed by their key; never null, and without entries for those keys that have no document
+     * @throws DocumentStoreException if there is a problem retrieving the documents
+     */
+    public Map<String, SchematicEntry> getAll( Collection<String> keys );
+
     /**
      * Store the supplied document at the given key.
      * 
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -107,7 +108,13 @@ public class DocumentTranslator {
     public static final String BLOCK_SIZE = "blockSize";
     public static final String NEXT_BLOCK = "nextBlock";
     public static final String LAST_BLOCK = "lastBlock";
+    public static final String CHILDREN_INDEX = "childrenIndex";
+    public static final String CHILDREN_INDEX_NAMES = "names";
+    public static final String CHILDREN_INDEX_KEYS = "keys";
+    public static final String BLOCK = "block";
+    public static final String BUCKETS = "buckets";
     public static final String NAME = "name";
+    public static final String SEGMENT = "segment";
     public static final String KEY = "key";
     public static final String REFERRERS = "referrers";
     public static final String WEAK = "weak";
@@ -127,8 +134,17 @@ public class DocumentTranslator {
      */
     public static final String CACHE_TTL_SECONDS = "cacheTtlSeconds";
 
+    /**
+     * The approximate number of children that are recorded in each bucket of the children index of a segmented node.
+     */
+    protected static final int CHILDREN_PER_INDEX_BUCKET = 1000;
+
     private final DocumentStore documentStore;
     private final AtomicLong largeStringSize = new AtomicLong();
+    private volatile int childCountTarget = 0;
+    private volatile int childCountTolerance = 0;
+    private volatile Map<String, Integer> childCountTargetsByNodeType = Collections.emptyMap();
+    private volatile Map<Name, Integer> childCountTargetsByType = null;
     private final ExecutionContext context;
     private final PropertyFactory propertyFactory;
     private final ValueFactories factories;
@@ -195,6 +211,94 @@ public class DocumentTranslator {
         this.largeStringSize.set(largeValueSize);
     }
 
+    /**
+     * Set the desired number of child references in each block of children. When this translator
+     * {@link #changeChildren(EditableDocument, ChangedChildren, ChildReferences) changes the children} of a node, blocks that
+     * stray too far from the target are split or merged.
+     * 
+     * @param target the desired number of child references in each block, or 0 if blocks are to be rebalanced only for nodes
+     *        with a primary type in <code>targetsByNodeType</code>
+     * @param tolerance how far the number of child references in a block may stray from the target, or 0 if a tenth of the
+     *        target is to be used
+     * @param targetsByNodeType the desired number of child references in each block keyed by the (prefixed or expanded) name of
+     *        the node's primary type; may be null
+     */
+    public void setChildCountTargets( int target,
+                                      int tolerance,
+                                      Map<String, Integer> targetsByNodeType ) {
+        assert target >= 0;
+        assert tolerance >= 0;
+        this.childCountTarget = target;
+        this.childCountTolerance = tolerance;
+        this.childCountTargetsByNodeType = targetsByNodeType != null ? new HashMap<String, Integer>(targetsByNodeType) : Collections.<String, Integer>emptyMap();
+        this.childCountTargetsByType = null;
+    }
+
+    /**
+     * Get the desired number of child references in each block of children for the node with the supplied document.
+     * 
+     * @param document the node's document; may not be null
+     * @return the target, or 0 if the node's blocks are not to be rebalanced
+     */
+    protected int childCountTarget( Document document ) {
+        if (!childCountTargetsByNodeType.isEmpty()) {
+            Property primaryType = getProperty(document, JcrLexicon.PRIMARY_TYPE);
+            if (primaryType != null && !primaryType.isEmpty()) {
+                Integer target = childCountTargetsByType().get(names.create(primaryType.getFirstValue()));
+                if (target != null) return target.intValue() > 1 ? target.intValue() : 0;
+            }
+        }
+        return childCountTarget > 1 ? childCountTarget : 0;
+    }
+
+    private Map<Name, Integer> childCountTargetsByType() {
+        Map<Name, Integer> result = childCountTargetsByType;
+        if (result == null) {
+            // Resolve the names lazily, since the namespaces may not have been registered when the targets were set ...
+            result = new HashMap<Name, Integer>();
+            boolean resolved = true;
+            for (Map.Entry<String, Integer> entry : childCountTargetsByNodeType.entrySet()) {
+                try {
+                    result.put(names.create(entry.getKey()), entry.getValue());
+                } catch (RuntimeException e) {
+                    // The namespace is not (yet) known ...
+                    resolved = false;
+                }
+            }
+            if (resolved) childCountTargetsByType = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the tolerance for the supplied target number of child references in each block.
+     * 
+     * @param target the target; must be larger than 1
+     * @return the tolerance; always positive but smaller than the target
+     */
+    protected int childCountTolerance( int target ) {
+        assert target > 1;
+        int tolerance = childCountTolerance > 0 ? childCountTolerance : target / 10;
+        return Math.max(1, Math.min(tolerance, target - 1));
+    }
+
+    /**
+     * Determine whether {@link #splitChildren splitting} a block with the supplied number of children would change it.
+     * 
+     * @param count the number of children in the block
+     * @param targetCountPerBlock the goal for the number of children in each block; must be positive
+     * @param tolerance the tolerance; must be positive but smaller than <code>targetCountPerBlock</code>
+     * @return true if the block would be split, or false otherwise
+     */
+    protected static boolean isSplittable( int count,
+                                           int targetCountPerBlock,
+                                           int tolerance ) {
+        int numFullBlocks = count / targetCountPerBlock;
+        if (numFullBlocks == 0) return false;
+        if (numFullBlocks > 1) return true;
+        return count % targetCountPerBlock >= (targetCountPerBlock - tolerance);
+    }
+
     /**
      * Obtain the preferred {@link NodeKey key} for the parent of this node. Because a node can be used in more than once place,
      * it may technically have more than one parent. Therefore, in such cases this method prefers the parent that is in the
@@ -733,6 +837,42 @@ public class DocumentTranslator {
         return document.getString(KEY);
     }
 
+    /**
+     * Get the name and same-name-sibling index of the node under its (primary) parent, as recorded in the node's own document.
+     * Only the first child with each name records its segment (see {@link #setSegment(EditableDocument, Segment)}).
+     * 
+     * @param document the document for the node; may not be null
+     * @return the segment, or null if the document does not record the segment (e.g., it is the root node, an external node,
+     *         a node with multiple parents, a same-name-sibling with an index greater than 1, or a node that was stored before
+     *         segments were recorded and has not been saved since)
+     */
+    public Segment getSegment( Document document ) {
+        Document segment = document.getDocument(SEGMENT);
+        if (segment == null) return null;
+        // The segment is relative to the primary parent, but a node with several parents has a name under each of them ...
+        Object parents = document.get(PARENT);
+        if (parents instanceof List<?> && ((List<?>)parents).size() > 1) return null;
+        return paths.createSegment(names.create(segment.getString(NAME), decoder));
+    }
+
+    /**
+     * Record in the node's document the name of the node under its (primary) parent. The segment is recorded only when the node
+     * is the first child with that name; otherwise any recorded segment is removed. This way, removing or reordering same-name
+     * siblings never requires rewriting the documents of all of the later siblings, whose indexes are instead found in the
+     * parent's child references.
+     * 
+     * @param document the document for the node; may not be null
+     * @param segment the segment of the node; may not be null
+     * @return true if the document was changed, or false if it already recorded the supplied segment
+     */
+    public boolean setSegment( EditableDocument document,
+                               Segment segment ) {
+        if (segment.getIndex() > 1) return document.remove(SEGMENT) != null;
+        if (segment.equals(getSegment(document))) return false;
+        document.setDocument(SEGMENT, Schematic.newDocument(NAME, strings.create(segment.getName())));
+        return true;
+    }
+
     public void changeChildren( EditableDocument document,
                                 ChangedChildren changedChildren,
                                 ChildReferences appended ) {
@@ -740,13 +880,19 @@ public class DocumentTranslator {
 
         // Get the total number of children and the number of children in this block ...
         ChildReferencesInfo info = getChildReferencesInfo(document);
+        String parentKey = info != null && info.parentKey != null ? info.parentKey : getKey(document);
         long newTotalSize = 0L;
 
         EditableDocument doc = document;
         EditableDocument lastDoc = document;
         String lastDocKey = null;
+        // The blocks that are visited (in order) while applying the changes, used to rebuild the children index ...
+        List<String> blockKeys = null;
+        List<Document> blocks = null;
         if (changedChildren != null && !changedChildren.isEmpty()) {
             Map<NodeKey, Insertions> insertionsByBeforeKey = changedChildren.getInsertionsByBeforeKey();
+            blockKeys = new ArrayList<String>();
+            blocks = new ArrayList<Document>();
 
             // Handle removals and renames ...
             Set<NodeKey> removals = changedChildren.getRemovals();
@@ -767,6 +913,8 @@ public class DocumentTranslator {
                 // Change the existing children ...
                 long blockCount = insertChildren(doc, insertionsByBeforeKey, removals, newNames);
                 newTotalSize += blockCount;
+                blockKeys.add(doc == document ? parentKey : lastDocKey);
+                blocks.add(doc);
 
                 // Look at the 'childrenInfo' document for info about the next block of children ...
                 SchematicEntry nextEntry = null;
@@ -801,21 +949,29 @@ public class DocumentTranslator {
 
         if (appended != null && appended.size() != 0) {
             String lastKey = info != null ? info.lastKey : null;
+            String appendedBlockKey = lastDoc == document ? parentKey : lastDocKey;
             if (lastKey != null && !lastKey.equals(lastDocKey)) {
                 // Find the last document ...
                 SchematicEntry lastBlockEntry = documentStore.get(lastKey);
                 lastDoc = lastBlockEntry.editDocumentContent();
+                appendedBlockKey = lastKey;
+                if (blocks != null) {
+                    blockKeys.add(lastKey);
+                    blocks.add(lastDoc);
+                }
             } else {
                 lastKey = null;
             }
-            // Just append the new children to the end of the last document; we can use an asynchronous process
-            // to adjust/optimize the number of children in each block ...
+            // Just append the new children to the end of the last document; the block is split below if it grows too large ...
             EditableArray lastChildren = lastDoc.getArray(CHILDREN);
             if (lastChildren == null) {
                 lastChildren = lastDoc.setArray(CHILDREN);
             }
+            List<Document> appendedChildren = new ArrayList<Document>((int)appended.size());
             for (ChildReference ref : appended) {
-                lastChildren.add(fromChildReference(ref));
+                EditableDocument child = fromChildReference(ref);
+                lastChildren.add(child);
+                appendedChildren.add(child);
             }
 
             if (lastDoc != document) {
@@ -839,7 +995,107 @@ public class DocumentTranslator {
             if (lastKey != null) {
                 childInfo.setString(LAST_BLOCK, lastKey);
             }
+
+            if (blocks == null) {
+                // Only the last block changed, so the children index can be updated in place unless its buckets are too full ...
+                boolean indexed = info != null && info.isIndexed();
+                boolean rehash = indexed && isOverfull(info, newTotalSize);
+                if (indexed && !rehash) {
+                    updateChildrenIndex(document, info, null, appendedBlockKey, appendedChildren);
+                }
+                int target = isLocalKey(parentKey) ? childCountTarget(document) : 0;
+                if (target != 0 && isSplittable(lastChildren.size(), target, childCountTolerance(target))) {
+                    // The last block has grown too large, so split it ...
+                    splitLastBlock(document, parentKey, appendedBlockKey, lastDoc, lastChildren, target,
+                                   indexed && !rehash ? info : null);
+                }
+                if (rehash) {
+                    // Rebuild the index with more buckets ...
+                    rebuildChildrenIndex(new NodeKey(parentKey), document);
+                }
+            }
+        }
+
+        if (blocks != null) {
+            int target = isLocalKey(parentKey) ? childCountTarget(document) : 0;
+            if (target != 0 && !isBalanced(blocks, target, childCountTolerance(target))) {
+                // Some blocks are too large or too small, so rebalance them (which also rebuilds the children index) ...
+                optimizeChildrenBlocks(new NodeKey(parentKey), document, target, childCountTolerance(target));
+            } else {
+                // We've already visited every block, so rebuild the children index ...
+                writeChildrenIndex(parentKey, document, blockKeys, blocks);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the supplied blocks of children are all within the tolerance of the target. The last block is allowed to
+     * be smaller, since it is where new children are appended.
+     * 
+     * @param blocks the blocks of children, in order; may not be null
+     * @param targetCountPerBlock the goal for the number of children in each block; must be positive
+     * @param tolerance the tolerance; must be positive but smaller than <code>targetCountPerBlock</code>
+     * @return true if no block needs to be split or merged, or false otherwise
+     */
+    protected boolean isBalanced( List<? extends Document> blocks,
+                                  int targetCountPerBlock,
+                                  int tolerance ) {
+        Iterator<? extends Document> iter = blocks.iterator();
+        while (iter.hasNext()) {
+            List<?> children = iter.next().getArray(CHILDREN);
+            int count = children != null ? children.size() : 0;
+            if (count > (targetCountPerBlock + tolerance) && isSplittable(count, targetCountPerBlock, tolerance)) return false;
+            if (count < (targetCountPerBlock - tolerance) && iter.hasNext()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Split the last block of children, which has grown too large after children were appended to it, and update the reference
+     * to the last block and the children index. Unlike {@link #optimizeChildrenBlocks(NodeKey, EditableDocument, int, int)},
+     * this never reads the other blocks (except when the node's children were not yet segmented).
+     * 
+     * @param document the node's document; may not be null
+     * @param parentKey the key of the node; may not be null
+     * @param lastBlockKey the key of the last block, which is the node's key if the children are not segmented; may not be null
+     * @param lastBlock the last block; may be the node's document
+     * @param children the children in the last block; may not be null
+     * @param targetCountPerBlock the goal for the number of children in each block; must be positive
+     * @param info the information about the node's children if they are indexed, or null if they are not indexed
+     */
+    protected void splitLastBlock( EditableDocument document,
+                                   String parentKey,
+                                   String lastBlockKey,
+                                   EditableDocument lastBlock,
+                                   EditableArray children,
+                                   int targetCountPerBlock,
+                                   ChildReferencesInfo info ) {
+        boolean isFirst = lastBlock == document;
+        NodeKey key = new NodeKey(parentKey);
+        if (!splitChildren(key, lastBlock, children, targetCountPerBlock, childCountTolerance(targetCountPerBlock), isFirst, null)) {
+            return;
+        }
+        if (isFirst) {
+            // The children are now segmented for the first time, so build the index ...
+            rebuildChildrenIndex(key, document);
+            return;
+        }
+        // Find the new blocks, moving their children in the index ...
+        String blockKey = lastBlock.getDocument(CHILDREN_INFO).getString(NEXT_BLOCK);
+        String newLastKey = lastBlockKey;
+        while (blockKey != null) {
+            SchematicEntry entry = documentStore.get(blockKey);
+            if (entry == null) break;
+            Document block = entry.getContentAsDocument();
+            if (info != null) {
+                List<?> moved = block.getArray(CHILDREN);
+                if (moved != null) updateChildrenIndex(document, info, lastBlockKey, blockKey, moved);
+            }
+            newLastKey = blockKey;
+            Document blockInfo = block.getDocument(CHILDREN_INFO);
+            blockKey = blockInfo != null ? blockInfo.getString(NEXT_BLOCK) : null;
         }
+        document.getDocument(CHILDREN_INFO).setString(LAST_BLOCK, newLastKey);
     }
 
     protected long insertChildren( EditableDocument document,
@@ -951,7 +1207,10 @@ public class DocumentTranslator {
             long blockSize = childrenInfo.getLong(BLOCK_SIZE, 0L);
             String nextBlockKey = childrenInfo.getString(NEXT_BLOCK);
             String lastBlockKey = childrenInfo.getString(LAST_BLOCK, nextBlockKey);
-            return new ChildReferencesInfo(totalSize, blockSize, nextBlockKey, lastBlockKey);
+            Document index = childrenInfo.getDocument(CHILDREN_INDEX);
+            String indexedKey = index != null ? index.getString(KEY) : null;
+            int indexBuckets = index != null ? (int)index.getLong(BUCKETS, 0L) : 0;
+            return new ChildReferencesInfo(totalSize, blockSize, nextBlockKey, lastBlockKey, indexedKey, indexBuckets);
         }
         return null;
     }
@@ -962,20 +1221,340 @@ public class DocumentTranslator {
         public final long blockSize;
         public final String nextKey;
         public final String lastKey;
+        public final String parentKey;
+        public final int indexBuckets;
 
         public ChildReferencesInfo( long totalSize,
                                     long blockSize,
                                     String nextKey,
                                     String lastKey ) {
+            this(totalSize, blockSize, nextKey, lastKey, null, 0);
+        }
+
+        public ChildReferencesInfo( long totalSize,
+                                    long blockSize,
+                                    String nextKey,
+                                    String lastKey,
+                                    String parentKey,
+                                    int indexBuckets ) {
             this.totalSize = totalSize;
             this.blockSize = blockSize;
             this.nextKey = nextKey;
             this.lastKey = lastKey;
+            this.parentKey = parentKey;
+            this.indexBuckets = indexBuckets;
+        }
+
+        /**
+         * Determine whether the children of the node are described by a children index.
+         * 
+         * @return true if the children can be found using the children index, or false if the blocks must be scanned
+         */
+        public boolean isIndexed() {
+            return indexBuckets > 0 && parentKey != null;
         }
 
         @Override
         public String toString() {
-            return "totalSize: " + totalSize + "; blockSize: " + blockSize + "; nextKey: " + nextKey + "; lastKey: " + lastKey;
+            return "totalSize: " + totalSize + "; blockSize: " + blockSize + "; nextKey: " + nextKey + "; lastKey: " + lastKey
+                   + "; indexBuckets: " + indexBuckets;
+        }
+    }
+
+    /**
+     * Obtain the bucket of the children index that records the blocks containing the children with the supplied name.
+     * 
+     * @param cache the workspace cache; may not be null
+     * @param info the information about the segmented children of the parent; may not be null
+     * @param name the name of the children; may not be null
+     * @return the bucket document, or null if the parent has no children index or the bucket could not be found
+     */
+    public Document getChildrenIndexBucket( WorkspaceCache cache,
+                                            ChildReferencesInfo info,
+                                            Name name ) {
+        return childrenIndexBucket(cache, info, strings.create(name));
+    }
+
+    /**
+     * Obtain the bucket of the children index that records the block containing the child with the supplied key.
+     * 
+     * @param cache the workspace cache; may not be null
+     * @param info the information about the segmented children of the parent; may not be null
+     * @param key the key of the child; may not be null
+     * @return the bucket document, or null if the parent has no children index or the bucket could not be found
+     */
+    public Document getChildrenIndexBucket( WorkspaceCache cache,
+                                            ChildReferencesInfo info,
+                                            NodeKey key ) {
+        return childrenIndexBucket(cache, info, key.toString());
+    }
+
+    private Document childrenIndexBucket( WorkspaceCache cache,
+                                          ChildReferencesInfo info,
+                                          String value ) {
+        if (!info.isIndexed()) return null;
+        Document bucket = cache.blockFor(childrenIndexKey(info.parentKey, childrenIndexBucket(value, info.indexBuckets)));
+        // The index may have been rebuilt with a different number of buckets since the info was read ...
+        return bucket != null && bucket.getLong(BUCKETS, 0L) == info.indexBuckets ? bucket : null;
+    }
+
+    /**
+     * Get from the supplied bucket of a children index the blocks that contain children with the given name. Each entry in the
+     * resulting list is a document with the {@link #BLOCK key of the block} and the {@link #COUNT number of children} in that
+     * block with the name, and the entries are in the same order as the blocks.
+     * 
+     * @param bucket the bucket of the children index; may not be null
+     * @param name the name of the children; may not be null
+     * @return the entries for the name, or null if there are no children with the supplied name
+     */
+    public List<?> getIndexedBlocks( Document bucket,
+                                     Name name ) {
+        Document names = bucket.getDocument(CHILDREN_INDEX_NAMES);
+        return names != null ? names.getArray(strings.create(name)) : null;
+    }
+
+    /**
+     * Get from the supplied bucket of a children index the key of the block that contains the child with the given key.
+     * 
+     * @param bucket the bucket of the children index; may not be null
+     * @param key the key of the child; may not be null
+     * @return the key of the block containing the child, or null if there is no such child
+     */
+    public String getIndexedBlock( Document bucket,
+                                   NodeKey key ) {
+        Document keys = bucket.getDocument(CHILDREN_INDEX_KEYS);
+        return keys != null ? keys.getString(key.toString()) : null;
+    }
+
+    protected String childrenIndexKey( String parentKey,
+                                       int bucket ) {
+        NodeKey key = new NodeKey(parentKey);
+        return key.withId(key.getIdentifier() + "-childrenIndex-" + bucket).toString();
+    }
+
+    /**
+     * Determine whether the buckets of a children index hold so many more children than {@link #CHILDREN_PER_INDEX_BUCKET} that
+     * the index should be rebuilt with more buckets. Since each rebuild at least doubles the number of buckets, the cost of
+     * reading all of the blocks to rebuild the index is spread over at least as many appended children as there are blocks.
+     * 
+     * @param info the information about the node's children; may not be null
+     * @param totalSize the number of children the node now has
+     * @return true if the index should be rebuilt, or false if it can be updated in place
+     */
+    protected static boolean isOverfull( ChildReferencesInfo info,
+                                         long totalSize ) {
+        return totalSize > 2L * info.indexBuckets * CHILDREN_PER_INDEX_BUCKET;
+    }
+
+    protected static int childrenIndexBucket( String value,
+                                              int buckets ) {
+        return (value.hashCode() & Integer.MAX_VALUE) % buckets;
+    }
+
+    /**
+     * Rebuild the children index for the node with the supplied key by reading all of the blocks of children.
+     * 
+     * @param key the key of the node; may not be null
+     * @param document the node's document; may not be null
+     * @see #writeChildrenIndex(String, EditableDocument, List, List)
+     */
+    protected void rebuildChildrenIndex( NodeKey key,
+                                         EditableDocument document ) {
+        List<String> blockKeys = new ArrayList<String>();
+        List<Document> blocks = new ArrayList<Document>();
+        Document doc = document;
+        String docKey = key.toString();
+        while (doc != null) {
+            blockKeys.add(docKey);
+            blocks.add(doc);
+            Document docInfo = doc.getDocument(CHILDREN_INFO);
+            docKey = docInfo != null ? docInfo.getString(NEXT_BLOCK) : null;
+            SchematicEntry nextEntry = docKey != null ? documentStore.get(docKey) : null;
+            doc = nextEntry != null ? nextEntry.getContentAsDocument() : null;
+        }
+        writeChildrenIndex(key.toString(), document, blockKeys, blocks);
+    }
+
+    /**
+     * Write the children index for a segmented node, given all of its blocks of children. The index is a set of bucket documents
+     * stored alongside the blocks; each child name and child key is hashed to one of the buckets, which records for the name the
+     * blocks (in order) containing children with that name and the number of such children in each block, and for the key the
+     * block that contains the child. A lookup by name or key thus needs to load only a bucket and a single block, regardless of
+     * the number of blocks.
+     * <p>
+     * If the node's children are not segmented, any existing index is removed.
+     * </p>
+     * 
+     * @param parentKey the key of the node; may be null if the index is not to be used
+     * @param document the node's document; may not be null
+     * @param blockKeys the keys of the blocks of children, starting with the parent's key; may not be null
+     * @param blocks the blocks of children, starting with the node's document; may not be null
+     */
+    protected void writeChildrenIndex( String parentKey,
+                                       EditableDocument document,
+                                       List<String> blockKeys,
+                                       List<? extends Document> blocks ) {
+        EditableDocument childInfo = document.getDocument(CHILDREN_INFO);
+        Document oldIndex = childInfo != null ? childInfo.getDocument(CHILDREN_INDEX) : null;
+        String oldKey = oldIndex != null ? oldIndex.getString(KEY) : null;
+        int oldBuckets = oldIndex != null ? (int)oldIndex.getLong(BUCKETS, 0L) : 0;
+        boolean segmented = childInfo != null && childInfo.containsField(NEXT_BLOCK);
+        if (!segmented || !isLocalKey(parentKey)) {
+            // There's no need for an index (external nodes page their children through the connector) ...
+            if (oldIndex != null) {
+                removeChildrenIndex(oldKey, 0, oldBuckets);
+                childInfo.remove(CHILDREN_INDEX);
+            }
+            return;
+        }
+
+        long total = 0L;
+        for (Document block : blocks) {
+            List<?> children = block.getArray(CHILDREN);
+            if (children != null) total += children.size();
+        }
+        int buckets = (int)Math.max(1L, (total + CHILDREN_PER_INDEX_BUCKET - 1) / CHILDREN_PER_INDEX_BUCKET);
+        EditableDocument[] names = new EditableDocument[buckets];
+        EditableDocument[] keys = new EditableDocument[buckets];
+        EditableDocument[] bucketDocs = new EditableDocument[buckets];
+        for (int i = 0; i != buckets; ++i) {
+            bucketDocs[i] = Schematic.newDocument(BUCKETS, buckets);
+            names[i] = bucketDocs[i].setDocument(CHILDREN_INDEX_NAMES);
+            keys[i] = bucketDocs[i].setDocument(CHILDREN_INDEX_KEYS);
+        }
+
+        Iterator<String> blockKeyIter = blockKeys.iterator();
+        for (Document block : blocks) {
+            String blockKey = blockKeyIter.next();
+            List<?> children = block.getArray(CHILDREN);
+            if (children == null) continue;
+            // Count the children in this block with each name ...
+            Map<String, Long> countsByName = new LinkedHashMap<String, Long>();
+            for (Object value : children) {
+                if (!(value instanceof Document)) continue;
+                Document child = (Document)value;
+                String childKey = child.getString(KEY);
+                String childName = child.getString(NAME);
+                if (childKey == null || childName == null) continue;
+                keys[childrenIndexBucket(childKey, buckets)].setString(childKey, blockKey);
+                Long count = countsByName.get(childName);
+                countsByName.put(childName, count == null ? 1L : count + 1L);
+            }
+            for (Map.Entry<String, Long> entry : countsByName.entrySet()) {
+                String childName = entry.getKey();
+                EditableArray entries = names[childrenIndexBucket(childName, buckets)].getOrCreateArray(childName);
+                entries.add(Schematic.newDocument(BLOCK, blockKey, COUNT, entry.getValue()));
+            }
+        }
+
+        for (int i = 0; i != buckets; ++i) {
+            documentStore.localStore().put(childrenIndexKey(parentKey, i), bucketDocs[i]);
+        }
+        if (oldKey != null && !oldKey.equals(parentKey)) {
+            removeChildrenIndex(oldKey, 0, oldBuckets);
+        } else if (buckets < oldBuckets) {
+            removeChildrenIndex(parentKey, buckets, oldBuckets);
+        }
+        childInfo.setDocument(CHILDREN_INDEX, Schematic.newDocument(KEY, parentKey, BUCKETS, buckets));
+    }
+
+    /**
+     * Record in the children index of a segmented node that the supplied children were added to or moved into the given block.
+     * Blocks must be filled in order, so that the index continues to list the blocks containing each name in order.
+     * 
+     * @param document the node's document; may not be null
+     * @param info the information about the node's children; may not be null
+     * @param fromBlock the key of the block from which the children were moved, or null if the children were appended
+     * @param toBlock the key of the block to which the children were added; may not be null
+     * @param children the documents for the children, in order; may not be null
+     */
+    protected void updateChildrenIndex( EditableDocument document,
+                                        ChildReferencesInfo info,
+                                        String fromBlock,
+                                        String toBlock,
+                                        List<?> children ) {
+        Map<Integer, EditableDocument> bucketDocs = new HashMap<Integer, EditableDocument>();
+        for (Object value : children) {
+            if (!(value instanceof Document)) continue;
+            Document child = (Document)value;
+            String childKey = child.getString(KEY);
+            String childName = child.getString(NAME);
+            if (childKey == null || childName == null) continue;
+            EditableDocument nameBucket = editChildrenIndexBucket(info, childrenIndexBucket(childName, info.indexBuckets),
+                                                                  bucketDocs);
+            EditableDocument keyBucket = editChildrenIndexBucket(info, childrenIndexBucket(childKey, info.indexBuckets),
+                                                                 bucketDocs);
+            if (nameBucket == null || keyBucket == null) {
+                // The index is incomplete, so remove it and stop using it until it is rebuilt ...
+                removeChildrenIndex(info.parentKey, 0, info.indexBuckets);
+                document.getDocument(CHILDREN_INFO).remove(CHILDREN_INDEX);
+                return;
+            }
+            EditableArray entries = nameBucket.getOrCreateDocument(CHILDREN_INDEX_NAMES).getOrCreateArray(childName);
+            if (fromBlock != null) {
+                // Remove the child from the entry for the block it was in ...
+                for (int i = entries.size() - 1; i >= 0; --i) {
+                    Document entry = (Document)entries.get(i);
+                    if (fromBlock.equals(entry.getString(BLOCK))) {
+                        long count = entry.getLong(COUNT, 0L) - 1L;
+                        if (count > 0L) {
+                            entries.set(i, Schematic.newDocument(BLOCK, fromBlock, COUNT, count));
+                        } else {
+                            entries.remove(i);
+                        }
+                        break;
+                    }
+                }
+            }
+            int last = entries.size() - 1;
+            Document lastEntry = last >= 0 ? (Document)entries.get(last) : null;
+            if (lastEntry != null && toBlock.equals(lastEntry.getString(BLOCK))) {
+                entries.set(last, Schematic.newDocument(BLOCK, toBlock, COUNT, lastEntry.getLong(COUNT, 0L) + 1L));
+            } else {
+                entries.add(Schematic.newDocument(BLOCK, toBlock, COUNT, 1L));
+            }
+            keyBucket.getOrCreateDocument(CHILDREN_INDEX_KEYS).setString(childKey, toBlock);
+        }
+    }
+
+    private EditableDocument editChildrenIndexBucket( ChildReferencesInfo info,
+                                                      int bucket,
+                                                      Map<Integer, EditableDocument> bucketDocs ) {
+        EditableDocument bucketDoc = bucketDocs.get(bucket);
+        if (bucketDoc == null) {
+            SchematicEntry entry = documentStore.get(childrenIndexKey(info.parentKey, bucket));
+            if (entry == null) return null;
+            bucketDoc = entry.editDocumentContent();
+            bucketDocs.put(bucket, bucketDoc);
+        }
+        return bucketDoc;
+    }
+
+    private boolean isLocalKey( String key ) {
+        if (key == null) return false;
+        String localSourceKey = documentStore.getLocalSourceKey();
+        return localSourceKey == null || key.startsWith(localSourceKey);
+    }
+
+    /**
+     * Remove the bucket documents of the children index of the supplied node, if it has one. This must be called when the node
+     * is removed, since the buckets are stored separately from the node's document.
+     * 
+     * @param document the node's document; may not be null
+     */
+    public void removeChildrenIndex( Document document ) {
+        ChildReferencesInfo info = getChildReferencesInfo(document);
+        if (info != null && info.isIndexed()) {
+            removeChildrenIndex(info.parentKey, 0, info.indexBuckets);
+        }
+    }
+
+    private void removeChildrenIndex( String parentKey,
+                                      int fromBucket,
+                                      int toBucket ) {
+        if (parentKey == null) return;
+        for (int i = fromBucket; i < toBucket; ++i) {
+            documentStore.remove(childrenIndexKey(parentKey, i));
         }
     }
 
@@ -1464,7 +2043,9 @@ public class DocumentTranslator {
                 return;
             }
             // Otherwise, there are more children than our target + tolerance, so we need to split the children ...
-            splitChildren(key, document, children, targetCountPerBlock, tolerance, true, null);
+            if (splitChildren(key, document, children, targetCountPerBlock, tolerance, true, null)) {
+                rebuildChildrenIndex(key, document);
+            }
         } else {
             assert info != null;
             // This is not self-contained; there are already at least two blocks.
@@ -1504,6 +2085,9 @@ public class DocumentTranslator {
                     doc = null;
                 }
             }
+
+            // The children have moved between blocks, so rebuild the index ...
+            rebuildChildrenIndex(key, document);
         }
     }
 
@@ -1561,6 +2145,8 @@ public class DocumentTranslator {
             // in the previous block ...
             sizeOfLastBlock = 0;
         }
+        // Otherwise the remaining children are enough for a block of their own ...
+        int numBlocks = sizeOfLastBlock > 0 ? numFullBlocks + 1 : numFullBlocks;
 
         // The order we do things is important here. The best thing is to create and persist blocks 2...n immediately,
         // and then we can change the first document to have the smaller number of children and to point to the newly-created
@@ -1570,9 +2156,9 @@ public class DocumentTranslator {
         int endIndex = 0;
         final String firstNewBlockKey = key.withRandomId().toString();
         String blockKey = firstNewBlockKey;
-        for (int n = 1; n != numFullBlocks; ++n) {
+        for (int n = 1; n != numBlocks; ++n) {
             // Create the sublist of children that should be written to a new block ...
-            boolean isLast = n == (numFullBlocks - 1);
+            boolean isLast = n == (numBlocks - 1);
             endIndex = isLast ? total : (startIndex + targetCountPerBlock);
             EditableArray blockChildren = Schematic.newArray(children.subList(startIndex, endIndex));
 
@@ -0,0 +1,283 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.SessionEnvironment.Monitor;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.txn.Transactions;
+import org.modeshape.jcr.txn.Transactions.Transaction;
+import org.modeshape.jcr.txn.Transactions.TransactionFunction;
+
+/**
+ * A component that coalesces the saves of multiple sessions into a single transaction. The first session to save becomes the
+ * leader of a group: it waits up to the configured window (or until the group contains the maximum number of changed nodes)
+ * for other sessions to join, and then persists the changes of all sessions in the group within one transaction. Every
+ * session that joins a group blocks until the group's transaction has completed, so a save still returns only after that
+ * session's changes are durable. Sessions that join while a group is being committed form the next group.
+ * <p>
+ * Each session still produces its own {@link ChangeSet}, since the change sets record the user and user data of the session
+ * that made the changes. If the group cannot be committed as a whole, none of its sessions' changes are persisted and each
+ * session is asked to save its changes individually, so that only the sessions whose changes caused the failure see an
+ * exception.
+ * </p>
+ */
+@ThreadSafe
+public class GroupCommitter {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitter.class);
+
+    private final long windowInNanos;
+    private final int maximumNodes;
+    private final Lock lock = new ReentrantLock();
+    private final Condition groupFull = lock.newCondition();
+    @GuardedBy( "lock" )
+    private List<Request> pending = new ArrayList<Request>();
+    @GuardedBy( "lock" )
+    private int pendingNodes;
+    @GuardedBy( "lock" )
+    private boolean collecting;
+    private final AtomicLong committedGroups = new AtomicLong();
+    private final AtomicLong committedSaves = new AtomicLong();
+    private final AtomicLong failedGroups = new AtomicLong();
+
+    /**
+     * Create a new group committer.
+     * 
+     * @param windowInMillis the maximum time in milliseconds that the leader of a group waits for other sessions to join;
+     *        may not be negative
+     * @param maximumNodes the number of changed nodes at which a group is committed without waiting for the rest of the
+     *        window; must be positive
+     */
+    public GroupCommitter( long windowInMillis,
+                           int maximumNodes ) {
+        CheckArg.isNonNegative(windowInMillis, "windowInMillis");
+        CheckArg.isPositive(maximumNodes, "maximumNodes");
+        this.windowInNanos = TimeUnit.MILLISECONDS.toNanos(windowInMillis);
+        this.maximumNodes = maximumNodes;
+    }
+
+    /**
+     * Get the maximum time that the leader of a group waits for other sessions to join.
+     * 
+     * @return the window in milliseconds; never negative
+     */
+    public long getWindowInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(windowInNanos);
+    }
+
+    /**
+     * Get the number of changed nodes at which a group is committed without waiting for the rest of the window.
+     * 
+     * @return the maximum number of nodes; always positive
+     */
+    public int getMaximumNodes() {
+        return maximumNodes;
+    }
+
+    /**
+     * Get the number of groups whose changes were committed in a single transaction.
+     * 
+     * @return the number of committed groups
+     */
+    public long getCommittedGroupCount() {
+        return committedGroups.get();
+    }
+
+    /**
+     * Get the number of session saves that were committed as part of a group.
+     * 
+     * @return the number of saves committed in groups; never smaller than the {@link #getCommittedGroupCount() number of
+     *         groups}
+     */
+    public long getCommittedSaveCount() {
+        return committedSaves.get();
+    }
+
+    /**
+     * Get the number of groups that could not be committed, and whose sessions each had to save their changes individually.
+     * 
+     * @return the number of failed groups
+     */
+    public long getFailedGroupCount() {
+        return failedGroups.get();
+    }
+
+    /**
+     * Persist and commit the changes of the supplied session as part of a group. This method must be called by the thread
+     * holding the session's read lock, and only when that thread is not participating in a transaction. That thread must not
+     * hold the session's write lock, since the leader of the group reads the session from its own thread.
+     * 
+     * @param session the session whose changes are to be saved; may not be null
+     * @param txns the transactions used to commit the group; may not be null
+     * @param numNodes the number of nodes changed by the session
+     * @return true if the session's changes were committed, or false if the group could not be committed and the session must
+     *         save its changes individually
+     */
+    boolean commit( WritableSessionCache session,
+                    Transactions txns,
+                    int numNodes ) {
+        Request request = new Request(session);
+        List<Request> group = null;
+        lock.lock();
+        try {
+            pending.add(request);
+            pendingNodes += numNodes;
+            if (!collecting) {
+                // This session leads the group, so wait for other sessions to join ...
+                collecting = true;
+                try {
+                    long remaining = windowInNanos;
+                    while (pendingNodes < maximumNodes && remaining > 0L) {
+                        remaining = groupFull.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    // Stop waiting, but still commit the sessions that have already joined ...
+                    Thread.currentThread().interrupt();
+                }
+                group = pending;
+                pending = new ArrayList<Request>();
+                pendingNodes = 0;
+                collecting = false;
+            } else if (pendingNodes >= maximumNodes) {
+                groupFull.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (group != null) {
+            commit(group, txns);
+        }
+        return request.awaitCompletion();
+    }
+
+    private void commit( final List<Request> group,
+                         Transactions txns ) {
+        boolean committed = false;
+        try {
+            Transaction txn = txns.begin();
+            final Monitor monitor = txn.createMonitor();
+            try {
+                // Lock the documents changed by all of the sessions at once, in the order of their keys (just as a single
+                // session does), so that the group cannot deadlock with other saves ...
+                DocumentStore documentStore = group.get(0).session.workspaceCache().documentStore();
+                Set<String> keysToLock = null;
+                if (documentStore.updatesRequirePreparing()) {
+                    keysToLock = new TreeSet<String>();
+                    for (Request request : group) {
+                        request.session.addKeysOfDocumentsToLock(keysToLock);
+                    }
+                    WritableSessionCache.lockDocuments(documentStore, keysToLock);
+                }
+                for (Request request : group) {
+                    request.changes = request.session.persistChanges(monitor, keysToLock);
+                }
+            } catch (RuntimeException e) {
+                txn.rollback();
+                throw e;
+            }
+
+            // Register a handler that will execute upon successful commit of the transaction ...
+            txn.uponCompletion(new TransactionFunction() {
+                @Override
+                public void transactionComplete() {
+                    for (Request request : group) {
+                        if (request.changes != null && monitor != null) {
+                            monitor.recordChanged(request.changes.changedNodes().size());
+                        }
+                        request.session.clearState();
+                    }
+                }
+            });
+
+            LOGGER.debug("Committing the changes of {0} session(s) in one transaction", group.size());
+            txn.commit();
+            committed = true;
+            committedGroups.incrementAndGet();
+            committedSaves.addAndGet(group.size());
+
+            for (Request request : group) {
+                txns.updateCache(request.session.workspaceCache(), request.changes, txn);
+            }
+        } catch (Exception e) {
+            if (!committed) {
+                failedGroups.incrementAndGet();
+                LOGGER.debug(e, "Unable to commit the changes of {0} session(s) together; each will save individually",
+                             group.size());
+            } else {
+                LOGGER.debug(e, "Unable to notify the workspace of the changes committed by {0} session(s)", group.size());
+            }
+        } finally {
+            for (Request request : group) {
+                request.complete(committed);
+            }
+        }
+    }
+
+    private static final class Request {
+        protected final WritableSessionCache session;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        protected ChangeSet changes;
+        private volatile boolean committed;
+
+        protected Request( WritableSessionCache session ) {
+            this.session = session;
+        }
+
+        protected void complete( boolean committed ) {
+            this.committed = committed;
+            this.completed.countDown();
+        }
+
+        protected boolean awaitCompletion() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        // The session's changes may already be persisted, so we cannot return until the group completes ...
+                        completed.await();
+                        return committed;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -379,6 +379,7 @@ public class ImmutableChildReferences {
 
         protected final WorkspaceCache cache;
         protected final long totalSize;
+        protected final ChildReferencesInfo info;
         private Segment firstSegment;
 
         public Segmented( WorkspaceCache cache,
@@ -386,6 +387,7 @@ public class ImmutableChildReferences {
                           ChildReferencesInfo info ) {
             this.cache = cache;
             this.totalSize = info.totalSize;
+            this.info = info;
             this.firstSegment = new Segment(firstSegment, info.nextKey);
         }
 
@@ -399,8 +401,49 @@ public class ImmutableChildReferences {
             return size() != ChildReferences.UNKNOWN_SIZE;
         }
 
+        /**
+         * Determine whether the children index can be used with the supplied context. The index reflects only the persisted
+         * children, so it cannot be used when the context has transient changes.
+         * 
+         * @param context the context; may be null
+         * @return true if the index can be used, or false if the segments must be scanned
+         */
+        protected boolean useIndex( Context context ) {
+            if (!info.isIndexed()) return false;
+            if (context == null) return true;
+            Changes changes = context.changes();
+            return changes == null || changes.isEmpty();
+        }
+
+        /**
+         * Load the references in the block with the supplied key.
+         * 
+         * @param blockKey the key of the block, which is the parent's key for the first block; may not be null
+         * @return the references in the block, or null if the block could not be found
+         */
+        protected ChildReferences referencesInBlock( String blockKey ) {
+            if (blockKey.equals(info.parentKey)) {
+                return firstSegment.getReferences();
+            }
+            Document blockDoc = cache.blockFor(blockKey);
+            return blockDoc != null ? cache.translator().getChildReferencesFromBlock(blockDoc) : null;
+        }
+
         @Override
         public int getChildCount( Name name ) {
+            if (useIndex(null)) {
+                Document bucket = cache.translator().getChildrenIndexBucket(cache, info, name);
+                if (bucket != null) {
+                    int result = 0;
+                    List<?> entries = cache.translator().getIndexedBlocks(bucket, name);
+                    if (entries != null) {
+                        for (Object entry : entries) {
+                            result += ((Document)entry).getLong(DocumentTranslator.COUNT, 0L);
+                        }
+                    }
+                    return result;
+                }
+            }
             int result = 0;
             Segment segment = this.firstSegment;
             while (segment != null) {
@@ -414,6 +457,47 @@ public class ImmutableChildReferences {
         public ChildReference getChild( Name name,
                                         int snsIndex,
                                         Context context ) {
+            if (useIndex(context)) {
+                Document bucket = cache.translator().getChildrenIndexBucket(cache, info, name);
+                if (bucket != null) {
+                    List<?> entries = cache.translator().getIndexedBlocks(bucket, name);
+                    if (entries == null) {
+                        // There are no children with this name ...
+                        return null;
+                    }
+                    // Find the block containing the child, and load only that block ...
+                    int before = 0;
+                    boolean stale = false;
+                    for (Object value : entries) {
+                        Document entry = (Document)value;
+                        int count = (int)entry.getLong(DocumentTranslator.COUNT, 0L);
+                        if (snsIndex <= before + count) {
+                            ChildReferences refs = referencesInBlock(entry.getString(DocumentTranslator.BLOCK));
+                            if (refs != null) {
+                                int index = before;
+                                Iterator<ChildReference> iter = refs.iterator(name);
+                                while (iter.hasNext()) {
+                                    ChildReference ref = iter.next();
+                                    if (++index == snsIndex) return ref.with(snsIndex);
+                                }
+                            }
+                            stale = true;
+                            break;
+                        }
+                        before += count;
+                    }
+                    if (!stale) {
+                        // There is no such child, but consume the children with the name (as a scan would) ...
+                        if (context != null) {
+                            for (int i = 0; i != before; ++i) {
+                                context.consume(name, null);
+                            }
+                        }
+                        return null;
+                    }
+                    // Otherwise the index doesn't match the blocks, so just scan them ...
+                }
+            }
             ChildReference result = null;
             Segment segment = this.firstSegment;
             while (segment != null) {
@@ -428,6 +512,12 @@ public class ImmutableChildReferences {
 
         @Override
         public boolean hasChild( NodeKey key ) {
+            if (useIndex(null)) {
+                Document bucket = cache.translator().getChildrenIndexBucket(cache, info, key);
+                if (bucket != null) {
+                    return cache.translator().getIndexedBlock(bucket, key) != null;
+                }
+            }
             Segment segment = this.firstSegment;
             while (segment != null) {
                 if (segment.getReferences().hasChild(key)) {
@@ -446,6 +536,21 @@ public class ImmutableChildReferences {
         @Override
         public ChildReference getChild( NodeKey key,
                                         Context context ) {
+            if (useIndex(context)) {
+                Document bucket = cache.translator().getChildrenIndexBucket(cache, info, key);
+                if (bucket != null) {
+                    String blockKey = cache.translator().getIndexedBlock(bucket, key);
+                    if (blockKey == null) {
+                        // There is no such child ...
+                        return null;
+                    }
+                    ChildReference ref = indexedChild(key, blockKey);
+                    if (ref != null) {
+                        return ref;
+                    }
+                    // Otherwise the index doesn't match the blocks, so just scan them ...
+                }
+            }
             ChildReference result = null;
             Segment segment = this.firstSegment;
             while (segment != null) {
@@ -458,6 +563,34 @@ public class ImmutableChildReferences {
             return result;
         }
 
+        /**
+         * Use the children index to find the child with the supplied key, loading only the block that contains it.
+         * 
+         * @param key the key of the child; may not be null
+         * @param blockKey the key of the block that the index records as containing the child; may not be null
+         * @return the reference with the correct SNS index, or null if the index does not match the blocks
+         */
+        private ChildReference indexedChild( NodeKey key,
+                                             String blockKey ) {
+            DocumentTranslator translator = cache.translator();
+            ChildReferences refs = referencesInBlock(blockKey);
+            ChildReference ref = refs != null ? refs.getChild(key, new BasicContext()) : null;
+            if (ref == null) return null;
+            // The SNS index within the block is known, so add the number of same-name siblings in the prior blocks ...
+            Document nameBucket = translator.getChildrenIndexBucket(cache, info, ref.getName());
+            List<?> entries = nameBucket != null ? translator.getIndexedBlocks(nameBucket, ref.getName()) : null;
+            if (entries == null) return null;
+            int before = 0;
+            for (Object value : entries) {
+                Document entry = (Document)value;
+                if (blockKey.equals(entry.getString(DocumentTranslator.BLOCK))) {
+                    return ref.with(before + ref.getSnsIndex());
+                }
+                before += (int)entry.getLong(DocumentTranslator.COUNT, 0L);
+            }
+            return null;
+        }
+
         @Override
         public Iterator<ChildReference> iterator( final Name name ) {
             final Segment firstSegment = this.firstSegment;
@@ -683,6 +816,17 @@ public class ImmutableChildReferences {
             return new UnionIterator<ChildReference>(internalReferences.iterator(), externalReferences);
         }
 
+        @Override
+        public Iterator<ChildReference> iterator( final Name name ) {
+            Iterable<ChildReference> externalIterable = new Iterable<ChildReference>() {
+                @Override
+                public Iterator<ChildReference> iterator() {
+                    return externalReferences.iterator(name);
+                }
+            };
+            return new UnionIterator<ChildReference>(internalReferences.iterator(name), externalIterable);
+        }
+
         @Override
         public Iterator<NodeKey> getAllKeys() {
             Set<NodeKey> externalKeys = new HashSet<NodeKey>();
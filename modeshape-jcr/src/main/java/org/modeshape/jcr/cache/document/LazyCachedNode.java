@@ -25,13 +25,15 @@ package org.modeshape.jcr.cache.document;
 
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.infinispan.schematic.document.Document;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.jcr.JcrLexicon;
@@ -60,23 +62,33 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final AtomicReferenceFieldUpdater<LazyCachedNode, PropertySnapshot> PROPERTIES = AtomicReferenceFieldUpdater
+        .newUpdater(LazyCachedNode.class, PropertySnapshot.class, "properties");
+
     private final NodeKey key;
     private Document document;
-    private transient Map<Name, Property> properties;
-    private transient NodeKey parent;
-    private transient Set<NodeKey> additionalParents;
+    /**
+     * the properties decoded so far from the document; this is replaced (never modified) whenever more properties are decoded, so
+     * that concurrent readers always see a consistent snapshot
+     */
+    private transient volatile PropertySnapshot properties;
+    private transient volatile NodeKey parent;
+    private transient volatile Set<NodeKey> additionalParents;
     /**
      * cached reference of the parent node towards this (child) node
      */
-    private transient ChildReference parentReferenceToSelf;
+    private transient volatile ChildReference parentReferenceToSelf;
 
     /**
      * the reference of the parent set when the above reference is set/changed. Needs to be kept in sync to detect stale SNS data
      * (see MODE-1613 for more information). Also, to avoid memory leaks, this should not be a strong reference.
      */
-    private transient WeakReference<CachedNode> parentReferenceToSelfParentRef;
-    private transient boolean propertiesFullyLoaded = false;
-    private transient ChildReferences childReferences;
+    private transient volatile WeakReference<CachedNode> parentReferenceToSelfParentRef;
+    /**
+     * the segment as recorded in this node's document, which never changes because a changed document is a new node instance
+     */
+    private transient volatile Segment segment;
+    private transient volatile ChildReferences childReferences;
 
     public LazyCachedNode( NodeKey key,
                            Document document ) {
@@ -106,11 +118,22 @@ public class LazyCachedNode implements CachedNode, Serializable {
         return document;
     }
 
+    /**
+     * Get the {@link Document} that represents this node, if it has already been loaded.
+     * 
+     * @return the document, or null if it has not been loaded
+     */
+    final Document cachedDocument() {
+        return document;
+    }
+
     @Override
     public NodeKey getParentKey( NodeCache cache ) {
+        NodeKey parent = this.parent;
         if (parent == null) {
             WorkspaceCache wsCache = workspaceCache(cache);
             parent = wsCache.translator().getParentKey(document(wsCache), wsCache.getWorkspaceKey(), key.getWorkspaceKey());
+            this.parent = parent;
         }
         return parent;
     }
@@ -123,12 +146,14 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     @Override
     public Set<NodeKey> getAdditionalParentKeys( NodeCache cache ) {
+        Set<NodeKey> additionalParents = this.additionalParents;
         if (additionalParents == null) {
             WorkspaceCache wsCache = workspaceCache(cache);
-            Set<NodeKey> additionalParents = wsCache.translator().getParentKeys(document(wsCache),
-                                                                                wsCache.getWorkspaceKey(),
-                                                                                key.getWorkspaceKey());
-            this.additionalParents = additionalParents.isEmpty() ? additionalParents : Collections.unmodifiableSet(additionalParents);
+            additionalParents = wsCache.translator().getParentKeys(document(wsCache),
+                                                                   wsCache.getWorkspaceKey(),
+                                                                   key.getWorkspaceKey());
+            if (!additionalParents.isEmpty()) additionalParents = Collections.unmodifiableSet(additionalParents);
+            this.additionalParents = additionalParents;
         }
         return additionalParents;
     }
@@ -173,7 +198,11 @@ public class LazyCachedNode implements CachedNode, Serializable {
      *         (which can happen if this node is used while in the midst of being (re)moved.
      */
     protected ChildReference parentReferenceToSelf( WorkspaceCache cache ) {
-        if (parentReferenceToSelfParentRef == null || parentReferenceToSelfParentRef.get() == null) {
+        // Read the parent reference before the child reference, since they are written in the opposite order ...
+        WeakReference<CachedNode> parentRef = this.parentReferenceToSelfParentRef;
+        CachedNode parentReferenceToSelfParent = parentRef != null ? parentRef.get() : null;
+        ChildReference parentReferenceToSelf = this.parentReferenceToSelf;
+        if (parentReferenceToSelfParent == null) {
             // either we don't have a parent reference at all yet, or it has been reclaimed by the GC so we need to reset
             // parentRefToSelf
             parentReferenceToSelf = null;
@@ -181,7 +210,6 @@ public class LazyCachedNode implements CachedNode, Serializable {
             // we have a cached child reference and a parent reference, but we need to check that the reference isn't stale (it
             // could happen for SNS)
             CachedNode parentFromCache = parent(cache);
-            CachedNode parentReferenceToSelfParent = parentReferenceToSelfParentRef.get();
             if (parentReferenceToSelfParent != parentFromCache) {
                 // the parent coming from the ws cache (possibly the "db") is different that what we have cached, so we need to
                 // retrieve it again
@@ -194,6 +222,7 @@ public class LazyCachedNode implements CachedNode, Serializable {
             if (parent == null) {
                 // This should be the root node ...
                 parentReferenceToSelf = cache.childReferenceForRoot();
+                this.parentReferenceToSelf = parentReferenceToSelf;
             } else {
                 ChildReferences references = parent.getChildReferences(cache);
                 if (references.supportsGetChildReferenceByKey()) {
@@ -203,7 +232,8 @@ public class LazyCachedNode implements CachedNode, Serializable {
                     NodeKey parentKey = getParentKey(cache);
                     parentReferenceToSelf = cache.getChildReference(parentKey, key);
                 }
-                parentReferenceToSelfParentRef = new WeakReference<CachedNode>(parent);
+                this.parentReferenceToSelf = parentReferenceToSelf;
+                this.parentReferenceToSelfParentRef = new WeakReference<CachedNode>(parent);
             }
         }
 
@@ -216,11 +246,9 @@ public class LazyCachedNode implements CachedNode, Serializable {
         return parentReferenceToSelf;
     }
 
-    protected Map<Name, Property> properties() {
-        if (properties == null) {
-            properties = new ConcurrentHashMap<Name, Property>();
-        }
-        return properties;
+    private PropertySnapshot propertySnapshot() {
+        PropertySnapshot snapshot = properties;
+        return snapshot != null ? snapshot : PropertySnapshot.EMPTY;
     }
 
     @Override
@@ -230,16 +258,18 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     @Override
     public Name getName( NodeCache cache ) {
-        return parentReferenceToSelf(workspaceCache(cache)).getName();
+        return getSegment(workspaceCache(cache)).getName();
     }
 
     @Override
     public Segment getSegment( NodeCache cache ) {
-        return parentReferenceToSelf(workspaceCache(cache)).getSegment();
+        return getSegment(workspaceCache(cache));
     }
 
     /**
-     * Get the name for this node, without any same-name-sibiling (SNS) index.
+     * Get the name and same-name-sibling (SNS) index for this node. The segment is read from this node's document when the
+     * document records it, so that it is not necessary to find this node in its parent's child references (which may require
+     * loading many blocks of child references).
      * 
      * @param cache the workspace cache to which this node belongs, required in case this node needs to use the cache; may not be
      *        null
@@ -249,7 +279,16 @@ public class LazyCachedNode implements CachedNode, Serializable {
      * @see #getPath(NodeCache)
      */
     protected Segment getSegment( WorkspaceCache cache ) {
-        return parentReferenceToSelf(cache).getSegment();
+        Segment segment = this.segment;
+        if (segment == null) {
+            segment = cache.translator().getSegment(document(cache));
+            if (segment == null) {
+                // The document doesn't record the segment (e.g., an external node or a node not yet upgraded) ...
+                return parentReferenceToSelf(cache).getSegment();
+            }
+            this.segment = segment;
+        }
+        return segment;
     }
 
     @Override
@@ -313,16 +352,17 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     @Override
     public int getPropertyCount( NodeCache cache ) {
-        if (propertiesFullyLoaded) return properties().size();
+        PropertySnapshot snapshot = propertySnapshot();
+        if (snapshot.isComplete()) return snapshot.size();
         WorkspaceCache wsCache = workspaceCache(cache);
         return wsCache.translator().countProperties(document(wsCache));
     }
 
     @Override
     public boolean hasProperties( NodeCache cache ) {
-        Map<Name, Property> props = properties();
-        if (!props.isEmpty()) return true;
-        if (propertiesFullyLoaded) return false;
+        PropertySnapshot snapshot = propertySnapshot();
+        if (snapshot.size() != 0) return true;
+        if (snapshot.isComplete()) return false;
         WorkspaceCache wsCache = workspaceCache(cache);
         return wsCache.translator().hasProperties(document(wsCache));
     }
@@ -330,9 +370,9 @@ public class LazyCachedNode implements CachedNode, Serializable {
     @Override
     public boolean hasProperty( Name name,
                                 NodeCache cache ) {
-        Map<Name, Property> props = properties();
-        if (props.containsKey(name)) return true;
-        if (propertiesFullyLoaded) return false;
+        PropertySnapshot snapshot = propertySnapshot();
+        if (snapshot.get(name) != null) return true;
+        if (snapshot.isComplete()) return false;
         WorkspaceCache wsCache = workspaceCache(cache);
         return wsCache.translator().hasProperty(document(wsCache), name);
     }
@@ -340,13 +380,20 @@ public class LazyCachedNode implements CachedNode, Serializable {
     @Override
     public Property getProperty( Name name,
                                  NodeCache cache ) {
-        Map<Name, Property> props = properties();
-        Property property = props.get(name);
-        if (property == null && !propertiesFullyLoaded) {
+        PropertySnapshot current = properties;
+        PropertySnapshot snapshot = current != null ? current : PropertySnapshot.EMPTY;
+        Property property = snapshot.get(name);
+        if (property == null && !snapshot.isComplete()) {
             WorkspaceCache wsCache = workspaceCache(cache);
             property = wsCache.translator().getProperty(document(wsCache), name);
             if (property != null) {
-                props.put(name, property);
+                // Publish a new snapshot only if no other reader has published one since, so that a complete snapshot is never
+                // replaced by an incomplete one ...
+                while (!PROPERTIES.compareAndSet(this, current, snapshot.with(property))) {
+                    current = properties;
+                    snapshot = current != null ? current : PropertySnapshot.EMPTY;
+                    if (snapshot.isComplete() || snapshot.get(name) != null) break;
+                }
             }
         }
         return property;
@@ -354,12 +401,13 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     @Override
     public Iterator<Property> getProperties( NodeCache cache ) {
-        if (!propertiesFullyLoaded) {
+        PropertySnapshot snapshot = propertySnapshot();
+        if (!snapshot.isComplete()) {
             WorkspaceCache wsCache = workspaceCache(cache);
-            wsCache.translator().getProperties(document(wsCache), properties());
-            this.propertiesFullyLoaded = true;
+            snapshot = snapshot.complete(wsCache.translator(), document(wsCache));
+            properties = snapshot;
         }
-        return properties().values().iterator();
+        return snapshot.iterator();
     }
 
     @Override
@@ -377,9 +425,11 @@ public class LazyCachedNode implements CachedNode, Serializable {
 
     @Override
     public ChildReferences getChildReferences( NodeCache cache ) {
+        ChildReferences childReferences = this.childReferences;
         if (childReferences == null) {
             WorkspaceCache wsCache = workspaceCache(cache);
             childReferences = wsCache.translator().getChildReferences(wsCache, document(wsCache));
+            this.childReferences = childReferences;
         }
         return childReferences;
     }
@@ -426,4 +476,79 @@ public class LazyCachedNode implements CachedNode, Serializable {
         return sb.toString();
     }
 
+    /**
+     * An immutable set of the properties decoded from a node's document. The properties are kept in an array and found with a
+     * linear scan, which is faster and much more compact than a hash map for the handful of properties that most nodes have.
+     */
+    @Immutable
+    protected static final class PropertySnapshot {
+
+        protected static final PropertySnapshot EMPTY = new PropertySnapshot(new Property[0], false);
+
+        private final Property[] properties;
+        private final boolean complete;
+
+        private PropertySnapshot( Property[] properties,
+                                  boolean complete ) {
+            this.properties = properties;
+            this.complete = complete;
+        }
+
+        /**
+         * Determine whether this snapshot contains all of the node's properties.
+         * 
+         * @return true if all properties have been decoded, or false if other properties may exist in the document
+         */
+        protected boolean isComplete() {
+            return complete;
+        }
+
+        protected int size() {
+            return properties.length;
+        }
+
+        protected Property get( Name name ) {
+            for (Property property : properties) {
+                Name propertyName = property.getName();
+                if (propertyName == name || propertyName.equals(name)) return property;
+            }
+            return null;
+        }
+
+        /**
+         * Create a new incomplete snapshot that contains this snapshot's properties plus the supplied property.
+         * 
+         * @param property the property that is not in this snapshot; may not be null
+         * @return the new snapshot; never null
+         */
+        protected PropertySnapshot with( Property property ) {
+            Property[] newProperties = new Property[properties.length + 1];
+            System.arraycopy(properties, 0, newProperties, 0, properties.length);
+            newProperties[properties.length] = property;
+            return new PropertySnapshot(newProperties, false);
+        }
+
+        /**
+         * Create a new complete snapshot with all of the properties in the supplied document, reusing the properties already
+         * decoded in this snapshot.
+         * 
+         * @param translator the translator used to decode the properties; may not be null
+         * @param document the node's document; may not be null
+         * @return the complete snapshot; never null
+         */
+        protected PropertySnapshot complete( DocumentTranslator translator,
+                                             Document document ) {
+            Map<Name, Property> decoded = new LinkedHashMap<Name, Property>();
+            for (Property property : properties) {
+                decoded.put(property.getName(), property);
+            }
+            translator.getProperties(document, decoded);
+            return new PropertySnapshot(decoded.values().toArray(new Property[decoded.size()]), true);
+        }
+
+        protected Iterator<Property> iterator() {
+            return Collections.unmodifiableList(Arrays.asList(properties)).iterator();
+        }
+    }
+
 }
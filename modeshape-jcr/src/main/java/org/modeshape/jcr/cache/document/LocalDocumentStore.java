@@ -25,12 +25,19 @@
 package org.modeshape.jcr.cache.document;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.transaction.SystemException;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 import org.infinispan.Cache;
 import org.infinispan.schematic.SchematicDb;
 import org.infinispan.schematic.SchematicEntry;
 import org.infinispan.schematic.document.Document;
+import org.modeshape.jcr.cache.DocumentStoreException;
 import org.modeshape.jcr.value.binary.ExternalBinaryValue;
 
 /**
@@ -63,6 +70,53 @@ public class LocalDocumentStore implements DocumentStore {
         return database.get(key);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This method issues asynchronous reads for all of the keys before waiting on any of them, so that misses that have to go to
+     * a (possibly remote) cache store are loaded concurrently. Within a transaction the documents are read one at a time, since
+     * asynchronous reads are not performed within the context of the caller's transaction.
+     * </p>
+     */
+    @Override
+    public Map<String, SchematicEntry> getAll( Collection<String> keys ) {
+        Map<String, SchematicEntry> entries = new HashMap<String, SchematicEntry>();
+        if (keys.size() < 2 || isInTransaction()) {
+            for (String key : keys) {
+                SchematicEntry entry = database.get(key);
+                if (entry != null) entries.put(key, entry);
+            }
+            return entries;
+        }
+        Map<String, Future<SchematicEntry>> futures = new LinkedHashMap<String, Future<SchematicEntry>>();
+        for (String key : keys) {
+            if (!futures.containsKey(key)) futures.put(key, database.getAsync(key));
+        }
+        for (Map.Entry<String, Future<SchematicEntry>> future : futures.entrySet()) {
+            String key = future.getKey();
+            try {
+                SchematicEntry entry = future.getValue().get();
+                if (entry != null) entries.put(key, entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DocumentStoreException(key, e);
+            } catch (ExecutionException e) {
+                throw new DocumentStoreException(key, e.getCause());
+            }
+        }
+        return entries;
+    }
+
+    private boolean isInTransaction() {
+        TransactionManager txnMgr = transactionManager();
+        try {
+            return txnMgr != null && txnMgr.getTransaction() != null;
+        } catch (SystemException e) {
+            // Be conservative and read the documents within the transaction (if there is one) ...
+            return true;
+        }
+    }
+
     @Override
     public SchematicEntry storeDocument( String key,
                                          Document document ) {
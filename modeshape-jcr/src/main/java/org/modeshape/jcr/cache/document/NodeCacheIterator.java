@@ -39,13 +39,31 @@ public final class NodeCacheIterator implements Iterator<NodeKey> {
 
     private final Queue<NodeKey> keys = new LinkedList<NodeKey>();
     private final NodeCache cache;
+    private final WorkspaceCache prefetchCache;
+    private int prefetched;
     private NodeKey nextNode;
 
     public NodeCacheIterator( NodeCache cache,
                               NodeKey startingNode ) {
+        this(cache, startingNode, null);
+    }
+
+    /**
+     * Create an iterator that loads the nodes in batches, by {@link WorkspaceCache#prefetch(Iterator, int) prefetching} the next
+     * keys in its queue into the supplied workspace cache.
+     * 
+     * @param cache the cache; may not be null
+     * @param startingNode the key of the node at which the iteration starts; may not be null
+     * @param prefetchCache the workspace cache (underlying the supplied cache) into which the nodes are to be prefetched; may be
+     *        null if the nodes should be loaded one at a time
+     */
+    public NodeCacheIterator( NodeCache cache,
+                              NodeKey startingNode,
+                              WorkspaceCache prefetchCache ) {
         CheckArg.isNotNull(cache, "cache");
         CheckArg.isNotNull(startingNode, "startingNode");
         this.cache = cache;
+        this.prefetchCache = prefetchCache;
         this.keys.add(startingNode);
     }
 
@@ -74,8 +92,13 @@ public final class NodeCacheIterator implements Iterator<NodeKey> {
 
     protected void nextNode() {
         while (true) {
+            if (prefetched == 0 && prefetchCache != null) {
+                // Load the next batch of nodes at once ...
+                prefetched = prefetchCache.prefetch(keys.iterator(), WorkspaceCache.PREFETCH_SIZE);
+            }
             // Pop the next key off the queue ...
             NodeKey nextKey = keys.poll();
+            if (prefetched > 0) --prefetched;
             if (nextKey == null) {
                 // We're finished ...
                 this.nextNode = null;
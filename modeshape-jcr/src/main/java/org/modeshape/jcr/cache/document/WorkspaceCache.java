@@ -23,7 +23,12 @@
  */
 package org.modeshape.jcr.cache.document;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import org.infinispan.api.BasicCache;
@@ -49,6 +54,11 @@ import org.modeshape.jcr.value.PathFactory;
  */
 public class WorkspaceCache implements DocumentCache, ChangeSetListener {
 
+    /**
+     * The number of nodes that components iterating over many nodes should {@link #prefetch(Collection) prefetch} at once.
+     */
+    public static final int PREFETCH_SIZE = 100;
+
     private final DocumentTranslator translator;
     private final ExecutionContext context;
     private final DocumentStore documentStore;
@@ -62,6 +72,8 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
     private final PathFactory pathFactory;
     private final NameFactory nameFactory;
     private final ChangeSetListener changeSetListener;
+    private final WorkspacePathCache pathCache;
+    private volatile GroupCommitter groupCommitter;
     private volatile boolean closed = false;
 
     public WorkspaceCache( ExecutionContext context,
@@ -85,6 +97,7 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
         this.pathFactory = context.getValueFactories().getPathFactory();
         this.nameFactory = context.getValueFactories().getNameFactory();
         this.nodesByKey = cache;
+        this.pathCache = new WorkspacePathCache(this, WorkspacePathCache.DEFAULT_MAXIMUM_SIZE);
     }
 
     public void setMinimumStringLengthForBinaryStorage( long largeValueSize ) {
@@ -92,11 +105,39 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
         this.translator.setMinimumStringLengthForBinaryStorage(largeValueSize);
     }
 
+    /**
+     * Set the component that coalesces the saves of concurrent sessions into a single transaction.
+     * 
+     * @param groupCommitter the group committer, or null if each session should save its changes in its own transaction
+     */
+    public void setGroupCommitter( GroupCommitter groupCommitter ) {
+        this.groupCommitter = groupCommitter;
+    }
+
+    /**
+     * Get the component that coalesces the saves of concurrent sessions into a single transaction.
+     * 
+     * @return the group committer, or null if each session saves its changes in its own transaction
+     */
+    public final GroupCommitter groupCommitter() {
+        return groupCommitter;
+    }
+
     @Override
     public final WorkspaceCache workspaceCache() {
         return this;
     }
 
+    /**
+     * Get the cache of the paths of this workspace's persisted nodes, which is shared by all components using this workspace
+     * and which is invalidated as changes are made to the workspace.
+     * 
+     * @return the shared path cache; never null
+     */
+    public final WorkspacePathCache pathCache() {
+        return pathCache;
+    }
+
     public final String getProcessKey() {
         return context.getProcessId();
     }
@@ -177,23 +218,84 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
             // Load the node from the database ...
             Document doc = documentFor(key);
             if (doc != null) {
-                // Create a new node and put into this cache ...
-                CachedNode newNode = new LazyCachedNode(key, doc);
-                Integer cacheTtlSeconds = translator().getCacheTtlSeconds(doc);
-                if (nodesByKey instanceof BasicCache && cacheTtlSeconds != null) {
-                    node = ((BasicCache<NodeKey, CachedNode>)nodesByKey).putIfAbsent(key,
-                                                                                     newNode,
-                                                                                     cacheTtlSeconds.longValue(),
-                                                                                     TimeUnit.SECONDS);
-                } else {
-                    node = nodesByKey.putIfAbsent(key, newNode);
-                }
-                if (node == null) node = newNode;
+                node = cacheNode(key, doc);
             }
         }
         return node;
     }
 
+    /**
+     * Load into this cache those of the nodes with the supplied keys that are not already cached, reading all of their documents
+     * from the document store at once. This should be called by components that are about to {@link #getNode(NodeKey) get}
+     * several nodes (e.g., the next children of a node), so that the nodes are loaded with one store read rather than one per
+     * node.
+     * 
+     * @param keys the keys of the nodes that will soon be needed; may not be null
+     */
+    public void prefetch( Collection<NodeKey> keys ) {
+        checkNotClosed();
+        Map<String, NodeKey> missing = new HashMap<String, NodeKey>();
+        for (NodeKey key : keys) {
+            if (!nodesByKey.containsKey(key)) missing.put(key.toString(), key);
+        }
+        if (missing.size() < 2) {
+            // There's nothing to be gained over simply loading the node when it's needed ...
+            return;
+        }
+        for (Map.Entry<String, SchematicEntry> entry : documentStore.getAll(missing.keySet()).entrySet()) {
+            NodeKey key = missing.get(entry.getKey());
+            if (key != null) cacheNode(key, entry.getValue().getContentAsDocument());
+        }
+    }
+
+    /**
+     * Load into this cache those of the nodes with the next keys from the supplied iterator that are not already cached. This is
+     * a convenience for callers that process a queue of node keys: they can prefetch the next batch of the queue each time they
+     * have consumed the previously prefetched batch.
+     * 
+     * @param keys the iterator over the keys of the nodes that will soon be needed; may not be null
+     * @param maxKeys the maximum number of keys to take from the iterator
+     * @return the number of keys taken from the iterator
+     * @see #prefetch(Collection)
+     */
+    public int prefetch( Iterator<NodeKey> keys,
+                         int maxKeys ) {
+        List<NodeKey> batch = new ArrayList<NodeKey>(maxKeys);
+        while (batch.size() < maxKeys && keys.hasNext()) {
+            batch.add(keys.next());
+        }
+        prefetch(batch);
+        return batch.size();
+    }
+
+    private CachedNode cacheNode( NodeKey key,
+                                  Document doc ) {
+        // Create a new node and put into this cache ...
+        CachedNode newNode = new LazyCachedNode(key, doc);
+        Integer cacheTtlSeconds = translator().getCacheTtlSeconds(doc);
+        CachedNode node = null;
+        if (nodesByKey instanceof BasicCache && cacheTtlSeconds != null) {
+            node = ((BasicCache<NodeKey, CachedNode>)nodesByKey).putIfAbsent(key,
+                                                                             newNode,
+                                                                             cacheTtlSeconds.longValue(),
+                                                                             TimeUnit.SECONDS);
+        } else {
+            node = nodesByKey.putIfAbsent(key, newNode);
+        }
+        return node != null ? node : newNode;
+    }
+
+    /**
+     * Get the node with the supplied key only if it is already in this cache, without loading it from the document store.
+     * 
+     * @param key the node key; may not be null
+     * @return the cached node, or null if the node is not currently cached
+     */
+    public CachedNode getCachedNode( NodeKey key ) {
+        checkNotClosed();
+        return nodesByKey.get(key);
+    }
+
     @Override
     public CachedNode getNode( ChildReference reference ) {
         checkNotClosed();
@@ -215,12 +317,13 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
 
     @Override
     public Iterator<NodeKey> getAllNodeKeysAtAndBelow( NodeKey startingKey ) {
-        return new NodeCacheIterator(this, startingKey);
+        return new NodeCacheIterator(this, startingKey, this);
     }
 
     @Override
     public void clear() {
         nodesByKey.clear();
+        pathCache.clear();
     }
 
     @Override
@@ -231,6 +334,7 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
                 if (closed) break;
                 nodesByKey.remove(key);
             }
+            pathCache.invalidate(changeSet);
         }
     }
 
@@ -247,6 +351,7 @@ public class WorkspaceCache implements DocumentCache, ChangeSetListener {
             if (closed) break;
             nodesByKey.remove(key);
         }
+        pathCache.invalidate(changes);
 
         // Notify the listener ...
         if (changeSetListener != null) changeSetListener.notify(changes);
@@ -0,0 +1,258 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.PathCache;
+import org.modeshape.jcr.cache.change.AbstractNodeChange;
+import org.modeshape.jcr.cache.change.Change;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.cache.change.NodeMoved;
+import org.modeshape.jcr.cache.change.NodeRemoved;
+import org.modeshape.jcr.cache.change.NodeRenamed;
+import org.modeshape.jcr.cache.change.NodeReordered;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * A {@link PathCache} for the persisted content of a single workspace that is shared by all sessions and components using that
+ * workspace. The cache holds at most a maximum number of paths, evicting the least-recently used paths first, and is invalidated
+ * by the {@link ChangeSet}s that the owning {@link WorkspaceCache} is told about: the paths of all changed nodes are removed, and
+ * any structural change (a removal, move, rename or reordering) removes all paths, since it may change the paths of any number of
+ * descendants and same-name-siblings.
+ * <p>
+ * To allow for many concurrent readers, the paths are split into a number of independently-locked stripes, each with its own
+ * proportional share of the maximum size.
+ * </p>
+ * <p>
+ * Each invalidation increments a version number. A path that was computed while an invalidation took place is not kept, since
+ * it may have been computed from stale parent paths.
+ * </p>
+ */
+@ThreadSafe
+public class WorkspacePathCache extends PathCache {
+
+    /**
+     * The default maximum number of paths held by each workspace's path cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    private static final int MAXIMUM_STRIPE_COUNT = 16;
+    private static final int MINIMUM_STRIPE_SIZE = 1024;
+
+    private final WorkspaceCache workspaceCache;
+    private final Stripe[] stripes;
+    private final int maximumSize;
+    private final AtomicLong version = new AtomicLong();
+
+    protected WorkspacePathCache( WorkspaceCache workspaceCache,
+                                  int maximumSize ) {
+        super(workspaceCache);
+        assert maximumSize >= 0;
+        this.workspaceCache = workspaceCache;
+        this.maximumSize = maximumSize;
+        int count = 1;
+        while (count < MAXIMUM_STRIPE_COUNT && (long)count * 2 * MINIMUM_STRIPE_SIZE <= maximumSize) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i != count; ++i) {
+            this.stripes[i] = new Stripe(maximumSize / count);
+        }
+    }
+
+    protected final Stripe stripeFor( NodeKey key ) {
+        int hash = key.hashCode();
+        // Spread the bits, since the low-order bits of the hash codes are used ...
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    @Override
+    public Path getPath( CachedNode node ) {
+        NodeKey key = node.getKey();
+        Stripe stripe = stripeFor(key);
+        Path path = stripe.get(key);
+        if (path == null) {
+            long versionBefore = version.get();
+            path = node.getPath(this);
+            if (path != null) {
+                stripe.put(key, path);
+                // If there was an invalidation while the path was computed, it might be stale ...
+                if (version.get() != versionBefore) stripe.remove(key, path);
+            }
+        }
+        return path;
+    }
+
+    @Override
+    protected Path cachedPath( NodeKey key ) {
+        return stripeFor(key).get(key);
+    }
+
+    @Override
+    public boolean removePath( NodeKey key ) {
+        version.incrementAndGet();
+        return stripeFor(key).remove(key, null);
+    }
+
+    /**
+     * Get the number of paths currently held by this cache.
+     * 
+     * @return the number of cached paths
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the maximum number of paths held by this cache.
+     * 
+     * @return the maximum number of cached paths
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Remove all paths from this cache.
+     */
+    public void clear() {
+        version.incrementAndGet();
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Create a path cache that reads paths from this shared cache but that records the paths it computes only locally. This is
+     * useful when computing the paths of persisted nodes while the persisted content is being changed (e.g., while a session
+     * is saving its changes), since those paths should not be shared with other components.
+     * 
+     * @return the new local path cache; never null
+     */
+    public PathCache createLocalView() {
+        return new LocalPathCache(this);
+    }
+
+    /**
+     * Remove from this cache all paths that may have been affected by the supplied changes.
+     * 
+     * @param changes the changes; may not be null
+     */
+    public void invalidate( ChangeSet changes ) {
+        String workspaceKey = workspaceCache.getWorkspaceKey();
+        for (Change change : changes) {
+            if (change instanceof NodeRemoved || change instanceof NodeMoved || change instanceof NodeRenamed
+                || change instanceof NodeReordered) {
+                if (workspaceKey.equals(((AbstractNodeChange)change).getKey().getWorkspaceKey())) {
+                    // The paths of any number of cached descendants and same-name-siblings may have changed ...
+                    clear();
+                    return;
+                }
+            }
+        }
+        version.incrementAndGet();
+        for (NodeKey key : changes.changedNodes()) {
+            stripeFor(key).remove(key, null);
+        }
+    }
+
+    /**
+     * A least-recently-used map of paths guarded by its own lock.
+     */
+    protected static final class Stripe {
+        @GuardedBy( "this" )
+        private final LinkedHashMap<NodeKey, Path> paths;
+
+        protected Stripe( final int maximumSize ) {
+            this.paths = new LinkedHashMap<NodeKey, Path>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( Map.Entry<NodeKey, Path> eldest ) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        protected synchronized Path get( NodeKey key ) {
+            return paths.get(key);
+        }
+
+        protected synchronized void put( NodeKey key,
+                                         Path path ) {
+            paths.put(key, path);
+        }
+
+        /**
+         * Remove the path for the supplied key.
+         * 
+         * @param key the node key; may not be null
+         * @param path the path that must be cached for the key, or null if any cached path is to be removed
+         * @return true if a path was removed, or false otherwise
+         */
+        protected synchronized boolean remove( NodeKey key,
+                                               Path path ) {
+            if (path != null && !path.equals(paths.get(key))) return false;
+            return paths.remove(key) != null;
+        }
+
+        protected synchronized int size() {
+            return paths.size();
+        }
+
+        protected synchronized void clear() {
+            paths.clear();
+        }
+    }
+
+    /**
+     * A {@link PathCache} that reads through to a shared {@link WorkspacePathCache} but that records new paths only locally.
+     */
+    protected static final class LocalPathCache extends PathCache {
+        private final WorkspacePathCache shared;
+
+        protected LocalPathCache( WorkspacePathCache shared ) {
+            super(shared.workspaceCache);
+            this.shared = shared;
+        }
+
+        @Override
+        protected Path cachedPath( NodeKey key ) {
+            Path path = super.cachedPath(key);
+            return path != null ? path : shared.cachedPath(key);
+        }
+    }
+}
@@ -24,6 +24,7 @@
 package org.modeshape.jcr.cache.document;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -89,6 +91,7 @@ import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.NamespaceRegistry;
 import org.modeshape.jcr.value.Path;
+import org.modeshape.jcr.value.Path.Segment;
 import org.modeshape.jcr.value.Property;
 
 /**
@@ -367,6 +370,12 @@ public class WritableSessionCache extends AbstractSessionCache {
 
             final int numNodes = this.changedNodes.size();
 
+            GroupCommitter groupCommitter = workspaceCache.groupCommitter();
+            if (groupCommitter != null && !txns.isCurrentlyInTransaction() && commitInGroup(groupCommitter, numNodes)) {
+                // Our changes were committed (and the workspace notified) along with those of other sessions ...
+                return;
+            }
+
             int repeat = txns.isCurrentlyInTransaction() ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
             while (--repeat >= 0) {
                 try {
@@ -383,7 +392,7 @@ public class WritableSessionCache extends AbstractSessionCache {
                         txn.rollback();
                         if (repeat <= 0) throw new TimeoutException(e.getMessage(), e);
                         --repeat;
-                        Thread.sleep(PAUSE_TIME_BEFORE_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT);
+                        pauseBeforeRepeating();
                         continue;
                     } catch (RuntimeException e) {
                         // Some error occurred (likely within our code) ...
@@ -444,6 +453,61 @@ public class WritableSessionCache extends AbstractSessionCache {
         txns.updateCache(workspaceCache, events, txn);
     }
 
+    /**
+     * Persist and commit this session's changes as part of a group. The group's leader persists the changes of every session in
+     * the group on its own thread, so while waiting for the group this method downgrades the calling thread's write lock on
+     * this session to a read lock, and then reacquires the write lock.
+     * 
+     * @param groupCommitter the group committer; may not be null
+     * @param numNodes the number of nodes changed by this session
+     * @return true if the changes were committed, or false if they must be saved individually
+     */
+    @GuardedBy( "lock" )
+    private boolean commitInGroup( GroupCommitter groupCommitter,
+                                   int numNodes ) {
+        Lock readLock = this.lock.readLock();
+        Lock writeLock = this.lock.writeLock();
+        readLock.lock();
+        writeLock.unlock();
+        try {
+            return groupCommitter.commit(this, txns, numNodes);
+        } finally {
+            readLock.unlock();
+            writeLock.lock();
+        }
+    }
+
+    /**
+     * Persist all of this session's changes as part of a transaction started by the {@link GroupCommitter}. The session's state
+     * is left unchanged until that transaction commits. The group committer must already have locked all of the documents
+     * returned by {@link #addKeysOfDocumentsToLock(Set)}.
+     * 
+     * @param monitor the monitor for the group's transaction; may be null
+     * @param lockedKeys the keys of all of the documents locked by the group committer, or null if the store does not require
+     *        locking
+     * @return the changes that were persisted; never null
+     */
+    final ChangeSet persistChanges( Monitor monitor,
+                                    Set<String> lockedKeys ) {
+        return persistChanges(this.changedNodesInOrder, monitor, lockedKeys);
+    }
+
+    /**
+     * Add to the supplied set the keys of all the persisted documents that must be locked before this session's changes are
+     * persisted by the {@link GroupCommitter}.
+     * 
+     * @param keys the set into which the keys are placed; may not be null
+     */
+    final void addKeysOfDocumentsToLock( Set<String> keys ) {
+        addKeysOfDocumentsToLock(this.changedNodesInOrder, keys);
+    }
+
+    private static void pauseBeforeRepeating() throws InterruptedException {
+        // Randomize the pause so that concurrent saves that timed out waiting for the same locks don't all repeat at once ...
+        long pause = PAUSE_TIME_BEFORE_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
+        Thread.sleep(pause + (long)(Math.random() * pause));
+    }
+
     protected void clearState() {
         // The changes have been made, so create a new map (we're using the keys from the current map) ...
         this.changedNodes = new HashMap<NodeKey, SessionNode>();
@@ -504,6 +568,13 @@ public class WritableSessionCache extends AbstractSessionCache {
 
             final int numNodes = this.changedNodes.size() + that.changedNodes.size();
 
+            GroupCommitter groupCommitter = workspaceCache.groupCommitter();
+            if (groupCommitter != null && !that.hasChanges() && !txns.isCurrentlyInTransaction()
+                && commitInGroup(groupCommitter, numNodes)) {
+                // The other session has nothing to save, and our changes were committed along with those of other sessions ...
+                return;
+            }
+
             int repeat = txns.isCurrentlyInTransaction() ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
             while (--repeat >= 0) {
                 try {
@@ -514,15 +585,17 @@ public class WritableSessionCache extends AbstractSessionCache {
                     final Monitor monitor = txn.createMonitor();
                     try {
                         // Now persist the changes ...
-                        events1 = persistChanges(this.changedNodesInOrder, monitor);
-                        events2 = that.persistChanges(that.changedNodesInOrder, monitor);
+                        // Lock the documents changed by both sessions at once, so that the locks are acquired in order ...
+                        Set<String> lockedKeys = lockDocumentsToBeChanged(this.changedNodesInOrder, that);
+                        events1 = persistChanges(this.changedNodesInOrder, monitor, lockedKeys);
+                        events2 = that.persistChanges(that.changedNodesInOrder, monitor, lockedKeys);
                         this.clearModifiedState();
                         that.clearModifiedState();
                     } catch (org.infinispan.util.concurrent.TimeoutException e) {
                         txn.rollback();
                         if (repeat <= 0) throw new TimeoutException(e.getMessage(), e);
                         --repeat;
-                        Thread.sleep(PAUSE_TIME_BEFORE_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT);
+                        pauseBeforeRepeating();
                         continue;
                     } catch (RuntimeException e) {
                         // Some error occurred (likely within our code) ...
@@ -665,15 +738,17 @@ public class WritableSessionCache extends AbstractSessionCache {
 
                     try {
                         // Now persist the changes ...
-                        events1 = persistChanges(savedNodesInOrder, monitor);
-                        events2 = that.persistChanges(that.changedNodesInOrder, monitor);
+                        // Lock the documents changed by both sessions at once, so that the locks are acquired in order ...
+                        Set<String> lockedKeys = lockDocumentsToBeChanged(savedNodesInOrder, that);
+                        events1 = persistChanges(savedNodesInOrder, monitor, lockedKeys);
+                        events2 = that.persistChanges(that.changedNodesInOrder, monitor, lockedKeys);
                         clearModifiedState(savedNodesInOrder);
                         clearModifiedState();
                     } catch (org.infinispan.util.concurrent.TimeoutException e) {
                         txn.rollback();
                         if (repeat <= 0) throw new TimeoutException(e.getMessage(), e);
                         --repeat;
-                        Thread.sleep(PAUSE_TIME_BEFORE_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT);
+                        pauseBeforeRepeating();
                         continue;
                     } catch (RuntimeException e) {
                         // Some error occurred (likely within our code) ...
@@ -747,6 +822,245 @@ public class WritableSessionCache extends AbstractSessionCache {
         txns.updateCache(that.workspaceCache, events2, txn);
     }
 
+    /**
+     * Determine whether the only change to the supplied node is the appending of new children. Such changes can be merged with
+     * the changes made concurrently by other sessions that append children to the same node, so they are applied to the latest
+     * version of the node's document.
+     * 
+     * @param node the changed node; may not be null
+     * @return true if the node only has appended children, or false otherwise
+     */
+    protected boolean isOnlyAppendingChildren( SessionNode node ) {
+        if (node.isNew() || node.newParent() != null) return false;
+        MutableChildReferences appended = node.appended(false);
+        if (appended == null || appended.isEmpty()) return false;
+        ChangedChildren changedChildren = node.changedChildren();
+        if (changedChildren != null && !changedChildren.isEmpty()) return false;
+        if (!node.changedProperties().isEmpty() || !node.removedProperties().isEmpty()) return false;
+        MixinChanges mixinChanges = node.mixinChanges(false);
+        if (mixinChanges != null && !mixinChanges.isEmpty()) return false;
+        ChangedAdditionalParents additionalParents = node.additionalParents();
+        if (additionalParents != null && !additionalParents.isEmpty()) return false;
+        ReferrerChanges referrerChanges = node.getReferrerChanges();
+        if (referrerChanges != null && !referrerChanges.isEmpty()) return false;
+        if (node.getLockChange() != null) return false;
+        // External nodes are updated by their connectors ...
+        return workspaceCache().getRootKey().getSourceKey().equalsIgnoreCase(node.getKey().getSourceKey());
+    }
+
+    /**
+     * Determine whether the document of the node with the supplied key records the node's own segment. Only the documents of
+     * the nodes in the local source do; the segments of external nodes are always obtained from their parents.
+     * 
+     * @param key the node key; may not be null
+     * @return true if the node's document records its segment, or false otherwise
+     */
+    protected boolean recordsSegment( NodeKey key ) {
+        return workspaceCache().getRootKey().getSourceKey().equalsIgnoreCase(key.getSourceKey());
+    }
+
+    /**
+     * Find the names of the children whose segments may be changed by the removal, renaming or reordering of children. This must
+     * be called before the parent's document is changed, since the old names are read from the persisted nodes.
+     * 
+     * @param changedChildren the changes to the children of a node; may not be null
+     * @return the names of the children whose segments may be changed; never null
+     */
+    private Set<Name> namesOfChangedChildren( ChangedChildren changedChildren ) {
+        Set<Name> names = new HashSet<Name>();
+        for (NodeKey removed : changedChildren.getRemovals()) {
+            CachedNode persisted = workspaceCache.getNode(removed);
+            if (persisted != null) names.add(persisted.getName(workspaceCache));
+        }
+        for (Map.Entry<NodeKey, Name> renameEntry : changedChildren.getNewNames().entrySet()) {
+            CachedNode persisted = workspaceCache.getNode(renameEntry.getKey());
+            if (persisted != null) names.add(persisted.getName(workspaceCache));
+            names.add(renameEntry.getValue());
+        }
+        for (SessionNode.Insertions insertion : changedChildren.getInsertionsByBeforeKey().values()) {
+            for (ChildReference insertedRef : insertion.inserted()) {
+                names.add(insertedRef.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Add to the supplied set the keys of the children whose documents may record segments that are changed by the removal,
+     * renaming or reordering of the children of a node. Only the first child with each name records its segment (see
+     * {@link DocumentTranslator#setSegment(EditableDocument, Segment)}), so these are the first children with each of the
+     * changed names and the renamed or reordered children themselves, rather than all of the same-name siblings.
+     * 
+     * @param references the child references of the node before the children are changed; may not be null
+     * @param names the names of the children whose segments may be changed; may not be null
+     * @param changedChildren the changes to the children of the node; may not be null
+     * @param keys the set into which the keys are placed; may not be null
+     */
+    private void addKeysOfSiblingsWithChangedSegments( ChildReferences references,
+                                                       Set<Name> names,
+                                                       ChangedChildren changedChildren,
+                                                       Set<String> keys ) {
+        for (Name name : names) {
+            ChildReference first = references.getChild(name);
+            if (first != null && recordsSegment(first.getKey())) keys.add(first.getKey().toString());
+        }
+        for (NodeKey renamed : changedChildren.getNewNames().keySet()) {
+            if (recordsSegment(renamed) && references.hasChild(renamed)) keys.add(renamed.toString());
+        }
+        for (SessionNode.Insertions insertion : changedChildren.getInsertionsByBeforeKey().values()) {
+            for (ChildReference insertedRef : insertion.inserted()) {
+                NodeKey inserted = insertedRef.getKey();
+                if (recordsSegment(inserted) && references.hasChild(inserted)) keys.add(inserted.toString());
+            }
+        }
+    }
+
+    /**
+     * Record the new segments in the documents of the supplied existing children, whose names or same-name-sibling indexes may
+     * have been changed by the removal, renaming or reordering of children. The segments are read from the parent's changed
+     * document, so this must be called after the parent's children are changed.
+     * 
+     * @param parentKey the key of the node whose children were changed; may not be null
+     * @param parentDoc the changed document of that node; may not be null
+     * @param childKeys the keys of the children whose segments may have changed, as found by
+     *        {@link #addKeysOfSiblingsWithChangedSegments}; may not be null
+     * @param changedSegments the set into which are placed the keys of the children whose documents were changed; may not be
+     *        null
+     */
+    private void changeSegmentsOfChildren( NodeKey parentKey,
+                                           Document parentDoc,
+                                           Set<String> childKeys,
+                                           Set<NodeKey> changedSegments ) {
+        if (childKeys.isEmpty()) return;
+        DocumentStore documentStore = workspaceCache.documentStore();
+        DocumentTranslator translator = workspaceCache.translator();
+        ChildReferences references = translator.getChildReferences(workspaceCache, parentDoc);
+        for (String childKey : childKeys) {
+            NodeKey key = new NodeKey(childKey);
+            // Children that were removed no longer have a segment under this node ...
+            ChildReference ref = references.getChild(key, new ChildReferences.BasicContext());
+            if (ref == null) continue;
+            SchematicEntry childEntry = documentStore.get(childKey);
+            if (childEntry == null) continue;
+            if (!parentKey.equals(translator.getParentKey(childEntry.getContentAsDocument(), key.getWorkspaceKey(),
+                                                           key.getWorkspaceKey()))) continue;
+            if (translator.setSegment(childEntry.editDocumentContent(), ref.getSegment())) {
+                changedSegments.add(key);
+            }
+        }
+    }
+
+    /**
+     * Verify that all of the supplied keys were locked up front. If a node's children were changed by another session after
+     * this session read them, the documents whose segments must be changed may differ from those that were locked. Locking them
+     * now could deadlock with other saves, so instead this save is abandoned and retried with the new children.
+     * 
+     * @param keys the keys of the documents that are about to be changed; may not be null
+     * @param lockedKeys the keys of the documents that were locked up front, or null if the store does not require locking
+     * @throws org.infinispan.util.concurrent.TimeoutException if any of the keys was not locked
+     */
+    private static void checkLocked( Set<String> keys,
+                                     Set<String> lockedKeys ) {
+        if (lockedKeys == null || lockedKeys.containsAll(keys)) return;
+        throw new org.infinispan.util.concurrent.TimeoutException("Children changed concurrently; unable to lock: " + keys);
+    }
+
+    /**
+     * Correct the segments recorded in the documents of the children appended to the supplied node, in case the node's persisted
+     * children were changed by another session after this session computed the SNS indexes of the appended children. The
+     * indexes are always recomputed from the latest child counts, so the node's document must be locked.
+     * 
+     * @param node the node to which the children are appended; may not be null
+     * @param doc the latest (locked) document of the node, before the children are appended; may not be null
+     * @param changedSegments the set into which are placed the keys of the children whose documents were changed; may not be
+     *        null
+     */
+    private void correctSegmentsOfAppendedChildren( SessionNode node,
+                                                    Document doc,
+                                                    Set<NodeKey> changedSegments ) {
+        DocumentTranslator translator = workspaceCache.translator();
+        ChildReferences latest = translator.getChildReferences(workspaceCache, doc);
+        DocumentStore documentStore = workspaceCache.documentStore();
+        Map<Name, Integer> indexesByName = new HashMap<Name, Integer>();
+        for (ChildReference ref : node.appended(false)) {
+            Name name = ref.getName();
+            Integer index = indexesByName.get(name);
+            index = index == null ? latest.getChildCount(name) + 1 : index.intValue() + 1;
+            indexesByName.put(name, index);
+            NodeKey childKey = ref.getKey();
+            if (!recordsSegment(childKey)) continue;
+            SchematicEntry childEntry = documentStore.get(childKey.toString());
+            if (childEntry == null) continue;
+            Segment segment = pathFactory().createSegment(name, index.intValue());
+            if (translator.setSegment(childEntry.editDocumentContent(), segment)) {
+                changedSegments.add(childKey);
+            }
+        }
+    }
+
+    /**
+     * Acquire from the document store the locks for the documents with the supplied keys, if the store requires it. Locks that
+     * are already held by the current transaction are simply kept.
+     * 
+     * @param documentStore the document store; may not be null
+     * @param keys the keys of the documents to be locked; may not be null
+     * @throws org.infinispan.util.concurrent.TimeoutException if the locks could not be acquired
+     */
+    static void lockDocuments( DocumentStore documentStore,
+                               Collection<String> keys ) {
+        if (keys.isEmpty() || !documentStore.updatesRequirePreparing()) return;
+        if (!documentStore.prepareDocumentsForUpdate(keys)) {
+            // try again ...
+            if (!documentStore.prepareDocumentsForUpdate(keys)) {
+                throw new org.infinispan.util.concurrent.TimeoutException("Unable to acquire storage locks: " + keys);
+            }
+        }
+    }
+
+    /**
+     * Lock, in a single batch and in the order of their keys, all of the documents that must be locked before the supplied
+     * changes of this session and of the other session are persisted. Concurrent saves thus always acquire their locks in the
+     * same order and never while holding other locks, so they can't deadlock.
+     * 
+     * @param changedNodesInOrder the nodes of this session that are to be persisted; may not be null
+     * @param other the other session whose changes are persisted in the same transaction; may be null
+     * @return the keys of the locked documents, or null if the store does not require locking
+     */
+    private Set<String> lockDocumentsToBeChanged( Iterable<NodeKey> changedNodesInOrder,
+                                                  WritableSessionCache other ) {
+        DocumentStore documentStore = workspaceCache.documentStore();
+        if (!documentStore.updatesRequirePreparing()) return null;
+        Set<String> keysToLock = new TreeSet<String>();
+        addKeysOfDocumentsToLock(changedNodesInOrder, keysToLock);
+        if (other != null) other.addKeysOfDocumentsToLock(other.changedNodesInOrder, keysToLock);
+        lockDocuments(documentStore, keysToLock);
+        return keysToLock;
+    }
+
+    /**
+     * Add to the supplied set the keys of the persisted documents that must be locked before the supplied nodes are persisted:
+     * those of the changed nodes (including those whose only change is appending children), and those of the siblings whose
+     * recorded segments may be changed by removals, renames or reorderings.
+     * 
+     * @param changedNodesInOrder the nodes that are to be persisted; may not be null
+     * @param keys the set into which the keys are placed; may not be null
+     */
+    private void addKeysOfDocumentsToLock( Iterable<NodeKey> changedNodesInOrder,
+                                           Set<String> keys ) {
+        for (NodeKey key : changedNodesInOrder) {
+            SessionNode node = changedNodes.get(key);
+            if (node == REMOVED || node.isNew()) continue;
+            keys.add(key.toString());
+            ChangedChildren changedChildren = node.changedChildren();
+            if (changedChildren != null && !changedChildren.isEmpty()) {
+                CachedNode persisted = workspaceCache.getNode(key);
+                if (persisted == null) continue;
+                addKeysOfSiblingsWithChangedSegments(persisted.getChildReferences(workspaceCache),
+                                                     namesOfChangedChildren(changedChildren), changedChildren, keys);
+            }
+        }
+    }
+
     /**
      * Persist the changes within an already-established transaction.
      * 
@@ -761,6 +1075,22 @@ public class WritableSessionCache extends AbstractSessionCache {
     @GuardedBy( "lock" )
     protected ChangeSet persistChanges( Iterable<NodeKey> changedNodesInOrder,
                                         Monitor monitor ) {
+        return persistChanges(changedNodesInOrder, monitor, lockDocumentsToBeChanged(changedNodesInOrder, null));
+    }
+
+    /**
+     * Persist the changes within an already-established transaction.
+     * 
+     * @param changedNodesInOrder the nodes that are to be persisted; may not be null
+     * @param monitor the monitor for these changes; may be null if not needed
+     * @param lockedKeys the keys of the documents that the caller has already locked, which must include all those added by
+     *        {@link #addKeysOfDocumentsToLock(Iterable, Set)}; or null if the store does not require locking
+     * @return the ChangeSet encapsulating the changes that were made
+     */
+    @GuardedBy( "lock" )
+    private ChangeSet persistChanges( Iterable<NodeKey> changedNodesInOrder,
+                                      Monitor monitor,
+                                      Set<String> lockedKeys ) {
         // Compute the save meta-info ...
         ExecutionContext context = context();
         String userId = context.getSecurityContext().getUserName();
@@ -776,32 +1106,30 @@ public class WritableSessionCache extends AbstractSessionCache {
         DocumentTranslator translator = workspaceCache.translator();
 
         PathCache sessionPaths = new PathCache(this);
-        PathCache workspacePaths = new PathCache(workspaceCache);
-
-        if (documentStore.updatesRequirePreparing()) {
-            // Try to acquire from the DocumentStore locks for all the nodes that we're going to change ...
-            Set<String> keysToLock = new HashSet<String>();
-            for (NodeKey key : changedNodesInOrder) {
-                SessionNode node = changedNodes.get(key);
-                if (node != REMOVED && !node.isNew()) {
-                    String keyStr = key.toString();
-                    keysToLock.add(keyStr);
-                }
-            }
-            if (!documentStore.prepareDocumentsForUpdate(keysToLock)) {
-                // try again ...
-                if (!documentStore.prepareDocumentsForUpdate(keysToLock)) {
-                    throw new org.infinispan.util.concurrent.TimeoutException("Unable to acquire storage locks: " + keysToLock);
-                }
-            }
-        }
+        // Persisted paths are read from the shared cache, but those computed during the save are not shared ...
+        PathCache workspacePaths = workspaceCache.pathCache().createLocalView();
 
         Set<NodeKey> removedNodes = null;
+        List<SessionNode> appendingNodes = null;
+        Set<NodeKey> changedSegments = new HashSet<NodeKey>();
         Set<BinaryKey> unusedBinaryKeys = new HashSet<BinaryKey>();
         for (NodeKey key : changedNodesInOrder) {
             SessionNode node = changedNodes.get(key);
             String keyStr = key.toString();
-            if (node == REMOVED) {
+            if (node != REMOVED && isOnlyAppendingChildren(node)) {
+                // The children will be appended to the node's document once everything else is done (see below) ...
+                if (appendingNodes == null) {
+                    appendingNodes = new ArrayList<SessionNode>();
+                }
+                appendingNodes.add(node);
+                boolean isSameWorkspace = workspaceCache().getWorkspaceKey().equalsIgnoreCase(key.getWorkspaceKey());
+                if (monitor != null && isSameWorkspace && node.isQueryable(this)) {
+                    Name primaryType = node.getPrimaryType(this);
+                    Set<Name> mixinTypes = node.getMixinTypes(this);
+                    Path newPath = sessionPaths.getPath(node);
+                    monitor.recordUpdate(workspaceName, key, newPath, primaryType, mixinTypes, node.getProperties(this));
+                }
+            } else if (node == REMOVED) {
                 // We need to read some information from the node before we remove it ...
                 CachedNode persisted = workspaceCache.getNode(key);
                 if (persisted != null) {
@@ -877,6 +1205,14 @@ public class WritableSessionCache extends AbstractSessionCache {
                     }
                 }
 
+                // Record the node's own segment, so that its path can be found without looking in its parent's children. The
+                // segments of existing children renamed or reordered in their parents are recorded when the parents are saved,
+                // and nodes stored before segments were recorded get theirs the next time they are saved ...
+                if (!newPath.isRoot() && recordsSegment(key)
+                    && (node.isNew() || newParent != null || translator.getSegment(doc) == null)) {
+                    translator.setSegment(doc, newPath.getLastSegment());
+                }
+
                 LockChange lockChange = node.getLockChange();
                 if (lockChange != null) {
                     switch (lockChange) {
@@ -957,8 +1293,15 @@ public class WritableSessionCache extends AbstractSessionCache {
                         }
                     }
 
-                    // Now change the children ...
+                    // Now change the children, and the segments of the children whose names or SNS indexes changed. These
+                    // children are found in the latest (locked) document, which other sessions may have changed since the
+                    // children to be locked were found ...
+                    Set<String> siblingKeys = new HashSet<String>();
+                    addKeysOfSiblingsWithChangedSegments(translator.getChildReferences(workspaceCache, doc),
+                                                         namesOfChangedChildren(changedChildren), changedChildren, siblingKeys);
+                    checkLocked(siblingKeys, lockedKeys);
                     translator.changeChildren(doc, changedChildren, appended);
+                    changeSegmentsOfChildren(key, doc, siblingKeys, changedSegments);
 
                     // Generate events for renames, as this is only captured in the parent node ...
                     Map<NodeKey, Name> newNames = changedChildren.getNewNames();
@@ -1129,6 +1472,8 @@ public class WritableSessionCache extends AbstractSessionCache {
             // Note 2: we do this last because the children are removed from their parent before the removal is handled above
             // (see Node 1), meaning getting the path and other information for removed nodes never would work properly.
             for (NodeKey removedKey : removedNodes) {
+                SchematicEntry entry = documentStore.get(removedKey.toString());
+                if (entry != null) translator.removeChildrenIndex(entry.getContentAsDocument());
                 documentStore.remove(removedKey.toString());
             }
 
@@ -1138,6 +1483,27 @@ public class WritableSessionCache extends AbstractSessionCache {
             }
         }
 
+        if (appendingNodes != null) {
+            // Append the new child references to the documents of the nodes whose only change is appending children. Editing
+            // a document makes a copy of the latest persisted version, and appends are merged into that version, so concurrent
+            // saves appending different children to the same node don't conflict. The documents were locked up front along with
+            // all the others, so the latest child counts can't change before the children are appended ...
+            for (SessionNode node : appendingNodes) {
+                String keyStr = node.getKey().toString();
+                SchematicEntry nodeEntry = documentStore.get(keyStr);
+                if (nodeEntry == null) {
+                    // The node was removed by someone else ...
+                    throw new DocumentNotFoundException(keyStr);
+                }
+                EditableDocument doc = nodeEntry.editDocumentContent();
+                correctSegmentsOfAppendedChildren(node, doc, changedSegments);
+                translator.changeChildren(doc, null, node.appended(false));
+                if (!node.isQueryable(this)) {
+                    translator.setQueryable(doc, false);
+                }
+            }
+        }
+
         if (!unusedBinaryKeys.isEmpty()) {
             // There are some binary values that are no longer referenced ...
             for (BinaryKey key : unusedBinaryKeys) {
@@ -1145,7 +1511,13 @@ public class WritableSessionCache extends AbstractSessionCache {
             }
         }
 
-        changes.setChangedNodes(changedNodes.keySet()); // don't need to make a copy
+        if (changedSegments.isEmpty()) {
+            changes.setChangedNodes(changedNodes.keySet()); // don't need to make a copy
+        } else {
+            // Some nodes not changed by this session had their segments changed, so they must also be refreshed in caches ...
+            changedSegments.addAll(changedNodes.keySet());
+            changes.setChangedNodes(changedSegments);
+        }
         changes.freeze(userId, userData, timestamp);
         return changes;
     }
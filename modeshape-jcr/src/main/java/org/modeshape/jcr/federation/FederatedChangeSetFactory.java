@@ -0,0 +1,136 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.federation;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.api.value.DateTime;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.NodeNotFoundException;
+import org.modeshape.jcr.cache.RepositoryCache;
+import org.modeshape.jcr.cache.change.RecordingChanges;
+import org.modeshape.jcr.cache.document.WorkspaceCache;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSet;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSetFactory;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * The {@link ConnectorChangeSetFactory} implementation that ModeShape supplies to each connector. The change sets it creates
+ * publish the connector's changes to each workspace cache that currently holds any of the affected nodes: the cache discards those
+ * nodes and notifies the repository's change bus, so the change bus listeners see the changes, too.
+ */
+public class FederatedChangeSetFactory implements ConnectorChangeSetFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(FederatedChangeSetFactory.class);
+
+    private final String sourceKey;
+    private final RepositoryCache repositoryCache;
+    private final ExecutionContext context;
+
+    public FederatedChangeSetFactory( String sourceName,
+                                      RepositoryCache repositoryCache,
+                                      ExecutionContext context ) {
+        this.sourceKey = NodeKey.keyForSourceName(sourceName);
+        this.repositoryCache = repositoryCache;
+        this.context = context;
+    }
+
+    @Override
+    public ConnectorChangeSet newChangeSet() {
+        return new FederatedChangeSet();
+    }
+
+    protected NodeKey nodeKeyFor( String documentId ) {
+        return new NodeKey(sourceKey, FederatedDocumentStore.FEDERATED_WORKSPACE_KEY, documentId);
+    }
+
+    protected class FederatedChangeSet implements ConnectorChangeSet {
+        private final Set<String> changed = new LinkedHashSet<String>();
+        private final Map<String, String> removed = new LinkedHashMap<String, String>();
+
+        @Override
+        public void nodeChanged( String docId ) {
+            changed.add(docId);
+        }
+
+        @Override
+        public void nodeRemoved( String docId,
+                                 String parentDocId ) {
+            changed.remove(docId);
+            removed.put(docId, parentDocId);
+        }
+
+        @Override
+        public void publish() {
+            if (changed.isEmpty() && removed.isEmpty()) return;
+            String userId = context.getSecurityContext().getUserName();
+            DateTime timestamp = context.getValueFactories().getDateFactory().create();
+            for (WorkspaceCache workspace : repositoryCache.workspaces()) {
+                // Only nodes that this workspace has cached need to be discarded, and only they have known paths ...
+                RecordingChanges changes = new RecordingChanges(context.getProcessId(), repositoryCache.getKey(),
+                                                                workspace.getWorkspaceName());
+                Set<NodeKey> changedNodes = new HashSet<NodeKey>();
+                for (String docId : changed) {
+                    NodeKey key = nodeKeyFor(docId);
+                    CachedNode node = workspace.getCachedNode(key);
+                    if (node == null) continue;
+                    changedNodes.add(key);
+                    Path path = pathOf(node, workspace);
+                    if (path != null) changes.nodeChanged(key, path);
+                }
+                for (Map.Entry<String, String> entry : removed.entrySet()) {
+                    NodeKey key = nodeKeyFor(entry.getKey());
+                    CachedNode node = workspace.getCachedNode(key);
+                    if (node == null) continue;
+                    changedNodes.add(key);
+                    Path path = pathOf(node, workspace);
+                    if (path != null) changes.nodeRemoved(key, nodeKeyFor(entry.getValue()), path);
+                }
+                if (changedNodes.isEmpty()) continue;
+                changes.setChangedNodes(changedNodes);
+                changes.freeze(userId, null, timestamp);
+                workspace.changed(changes);
+            }
+            changed.clear();
+            removed.clear();
+        }
+
+        private Path pathOf( CachedNode node,
+                             WorkspaceCache workspace ) {
+            try {
+                return node.getPath(workspace);
+            } catch (NodeNotFoundException e) {
+                // One of the ancestors is gone, so the node can only be discarded ...
+                LOGGER.debug("Unable to determine the path of the changed external node '{0}'", node.getKey());
+                return null;
+            }
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class FederatedDocumentStore implements DocumentStore {
 
     private static final Logger LOGGER = Logger.getLogger(FederatedDocumentStore.class);
 
-    private static final String FEDERATED_WORKSPACE_KEY = NodeKey.keyForWorkspaceName("federated_ws");
+    static final String FEDERATED_WORKSPACE_KEY = NodeKey.keyForWorkspaceName("federated_ws");
 
     private final LocalDocumentStore localDocumentStore;
     private final Connectors connectors;
@@ -239,28 +239,71 @@ public class FederatedDocumentStore implements DocumentStore {
             String docId = documentIdFromNodeKey(key);
             Document document = connector.getDocumentById(docId);
             if (document != null) {
-                // clone the document, so we don't alter the original
-                EditableDocument editableDocument = replaceConnectorIdsWithNodeKeys(document, connector.getSourceName());
-                editableDocument = updateCachingTtl(connector, editableDocument);
-                editableDocument = updateQueryable(connector, editableDocument);
-
-                // Extract any embedded documents ...
-                Object removedContainer = editableDocument.remove(DocumentTranslator.EMBEDDED_DOCUMENTS);
-                if (removedContainer instanceof EditableDocument) {
-                    EditableDocument embeddedDocs = (EditableDocument)removedContainer;
-                    for (Document.Field field : embeddedDocs.fields()) {
-                        String id = field.getName();
-                        Document doc = field.getValueAsDocument();
-                        // Place the embedded document in the local value store ...
-                        if (doc != null) localStore().put(id, doc);
-                    }
-                }
-                return new FederatedSchematicEntry(editableDocument);
+                return federatedEntry(connector, document);
             }
         }
         return null;
     }
 
+    @Override
+    public Map<String, SchematicEntry> getAll( Collection<String> keys ) {
+        // Group the keys by source, so that each connector is asked for all of its documents at once ...
+        List<String> localKeys = new ArrayList<String>();
+        Map<String, List<String>> externalKeysBySourceKey = new HashMap<String, List<String>>();
+        for (String key : keys) {
+            if (isLocalSource(key)) {
+                localKeys.add(key);
+                continue;
+            }
+            String sourceKey = sourceKey(key);
+            List<String> externalKeys = externalKeysBySourceKey.get(sourceKey);
+            if (externalKeys == null) {
+                externalKeys = new ArrayList<String>();
+                externalKeysBySourceKey.put(sourceKey, externalKeys);
+            }
+            externalKeys.add(key);
+        }
+
+        Map<String, SchematicEntry> entries = localStore().getAll(localKeys);
+        for (Map.Entry<String, List<String>> externalKeys : externalKeysBySourceKey.entrySet()) {
+            Connector connector = connectors.getConnectorForSourceKey(externalKeys.getKey());
+            if (connector == null) continue;
+            Map<String, String> keysByDocId = new HashMap<String, String>();
+            for (String key : externalKeys.getValue()) {
+                keysByDocId.put(documentIdFromNodeKey(key), key);
+            }
+            Map<String, Document> documentsById = connector.getDocumentsById(keysByDocId.keySet());
+            for (Map.Entry<String, Document> document : documentsById.entrySet()) {
+                String key = keysByDocId.get(document.getKey());
+                if (key != null && document.getValue() != null) {
+                    entries.put(key, federatedEntry(connector, document.getValue()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private SchematicEntry federatedEntry( Connector connector,
+                                           Document document ) {
+        // clone the document, so we don't alter the original
+        EditableDocument editableDocument = replaceConnectorIdsWithNodeKeys(document, connector.getSourceName());
+        editableDocument = updateCachingTtl(connector, editableDocument);
+        editableDocument = updateQueryable(connector, editableDocument);
+
+        // Extract any embedded documents ...
+        Object removedContainer = editableDocument.remove(DocumentTranslator.EMBEDDED_DOCUMENTS);
+        if (removedContainer instanceof EditableDocument) {
+            EditableDocument embeddedDocs = (EditableDocument)removedContainer;
+            for (Document.Field field : embeddedDocs.fields()) {
+                String id = field.getName();
+                Document doc = field.getValueAsDocument();
+                // Place the embedded document in the local value store ...
+                if (doc != null) localStore().put(id, doc);
+            }
+        }
+        return new FederatedSchematicEntry(editableDocument);
+    }
+
     private EditableDocument updateCachingTtl( Connector connector,
                                                EditableDocument editableDocument ) {
         DocumentReader reader = new FederatedDocumentReader(translator(), editableDocument);
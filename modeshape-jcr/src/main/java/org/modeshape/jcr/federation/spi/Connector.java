@@ -25,6 +25,7 @@
 package org.modeshape.jcr.federation.spi;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import javax.jcr.NamespaceRegistry;
@@ -138,6 +139,15 @@ public abstract class Connector {
      */
     private TransactionManager transactionManager;
 
+    /**
+     * The factory for the {@link ConnectorChangeSet change sets} that a connector can use to signal changes made to the external
+     * content by something other than ModeShape.
+     * <p>
+     * The field is assigned via reflection before ModeShape calls {@link #initialize(NamespaceRegistry, NodeTypeManager)}.
+     * </p>
+     */
+    private ConnectorChangeSetFactory connectorChangeSetFactory;
+
     /**
      * Ever connector is expected to have a no-argument constructor, although the class should never initialize any of the data at
      * this time. Instead, all initialization should be performed in the {@link #initialize} method.
@@ -249,6 +259,17 @@ public abstract class Connector {
         return transactionManager;
     }
 
+    /**
+     * Create a new {@link ConnectorChangeSet} that can be used to notify the repository of changes made to the external content by
+     * something other than ModeShape. This is available for use after the
+     * {@link #initialize(NamespaceRegistry, NodeTypeManager)} method.
+     * 
+     * @return the new change set; never null
+     */
+    protected ConnectorChangeSet newConnectorChangeSet() {
+        return connectorChangeSetFactory.newChangeSet();
+    }
+
     /**
      * Initialize the connector. This is called automatically by ModeShape once for each Connector instance, and should not be
      * called by the connector. By the time this method is called, ModeShape will hav already set the {@link #context},
@@ -307,6 +328,23 @@ public abstract class Connector {
      */
     public abstract Document getDocumentById( String id );
 
+    /**
+     * Returns the documents with the given ids. ModeShape calls this method when it is about to use several documents of this
+     * connector (e.g., when iterating over the children of a node), so connectors whose backing systems can read multiple items
+     * in a single request should override this method. By default, each document is read via {@link #getDocumentById(String)}.
+     * 
+     * @param ids the {@code non-null} ids of the documents
+     * @return the documents keyed by their id; never {@code null}, and without entries for ids that have no document
+     */
+    public Map<String, Document> getDocumentsById( Collection<String> ids ) {
+        Map<String, Document> documents = new HashMap<String, Document>();
+        for (String id : ids) {
+            Document document = getDocumentById(id);
+            if (document != null) documents.put(id, document);
+        }
+        return documents;
+    }
+
     /**
      * Returns the id of an external node located at the given path.
      * 
@@ -0,0 +1,54 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.federation.spi;
+
+/**
+ * A set of changes that a {@link Connector} detected in its external system and that were made by something other than ModeShape.
+ * Connectors obtain an instance via {@link Connector#newConnectorChangeSet()}, record the changes, and then {@link #publish()
+ * publish} them. Publishing discards any cached representations of the affected nodes, and notifies the listeners registered
+ * on the repository's change bus.
+ */
+public interface ConnectorChangeSet {
+
+    /**
+     * Signal that something about the document with the given identifier (e.g., its properties or its children) has changed.
+     * 
+     * @param docId the identifier of the changed document; may not be null
+     */
+    void nodeChanged( String docId );
+
+    /**
+     * Signal that the document with the given identifier was removed.
+     * 
+     * @param docId the identifier of the removed document; may not be null
+     * @param parentDocId the identifier of the document's former parent; may not be null
+     */
+    void nodeRemoved( String docId,
+                      String parentDocId );
+
+    /**
+     * Publish all of the changes recorded in this change set. This change set should not be used after it is published.
+     */
+    void publish();
+}
@@ -122,7 +122,16 @@ public class JcrQuery extends JcrAbstractQuery {
         executingQuery.compareAndSet(executable, null);
 
         checkForProblems(result.getProblems());
-        context.recordDuration(Math.abs(System.nanoTime() - start), TimeUnit.NANOSECONDS, statement, language);
+        // Record the duration once all of the tuples are computed, which for streamed results is when they've been read ...
+        final long nanos = Math.abs(System.nanoTime() - start);
+        final long executionNanos = result.getStatistics().getExecutionTime(TimeUnit.NANOSECONDS);
+        result.whenAllTuplesComputed(new Runnable() {
+            @Override
+            public void run() {
+                long streamingNanos = result.getStatistics().getExecutionTime(TimeUnit.NANOSECONDS) - executionNanos;
+                context.recordDuration(nanos + streamingNanos, TimeUnit.NANOSECONDS, statement, language);
+            }
+        });
         if (Query.XPATH.equals(language)) {
             return new XPathQueryResult(context, statement, result, schemata);
         } else if (Query.SQL.equals(language)) {
@@ -93,6 +93,16 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
         return results;
     }
 
+    /**
+     * Get the number of rows in the results, if that number is known.
+     * 
+     * @return the number of rows, or -1 if the results are {@link QueryResults#isStreaming() streamed} and the number of rows is
+     *         not yet known
+     */
+    protected long rowCount() {
+        return results.isStreaming() ? -1L : results.getRowCount();
+    }
+
     public List<String> getColumnNameList() {
         return results.getColumns().getColumnNames();
     }
@@ -136,6 +146,12 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
         if (getSelectorNames().length > 1) {
             throw new RepositoryException(JcrI18n.multipleSelectorsAppearInQueryUnableToCallMethod.text(queryStatement));
         }
+        if (results.isStreaming()) {
+            // Find the nodes only as they are needed ...
+            final String selectorName = results.getColumns().getSelectorNames().get(0);
+            final int locationIndex = results.getColumns().getLocationIndex(selectorName);
+            return new StreamedQueryResultNodeIterator(context, results.getTupleIterator(), locationIndex);
+        }
         // Find all of the nodes in the results. We have to do this pre-emptively, since this
         // is the only method to throw RepositoryException ...
         final int numRows = results.getRowCount();
@@ -157,12 +173,12 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
     @Override
     public RowIterator getRows() /*throws RepositoryException*/{
         // We can actually delay the loading of the nodes until the rows are accessed ...
-        final int numRows = results.getRowCount();
-        final List<Object[]> tuples = results.getTuples();
+        final long numRows = rowCount();
+        final Iterator<Object[]> tuples = results.getTupleIterator();
         if (results.getColumns().getLocationCount() == 1) {
-            return new SingleSelectorQueryResultRowIterator(context, queryStatement, results, tuples.iterator(), numRows);
+            return new SingleSelectorQueryResultRowIterator(context, queryStatement, results, tuples, numRows);
         }
-        return new QueryResultRowIterator(context, queryStatement, results, tuples.iterator(), numRows);
+        return new QueryResultRowIterator(context, queryStatement, results, tuples, numRows);
     }
 
     @Override
@@ -230,6 +246,81 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
         }
     }
 
+    /**
+     * The {@link NodeIterator} implementation returned by the {@link JcrQueryResult} when the results are
+     * {@link QueryResults#isStreaming() streamed}. The nodes are found only as the iterator is advanced, and the size is not known
+     * until all of the nodes have been iterated.
+     * 
+     * @see JcrQueryResult#getNodes()
+     */
+    @NotThreadSafe
+    protected static class StreamedQueryResultNodeIterator implements NodeIterator {
+        private final JcrQueryContext context;
+        private final Iterator<Object[]> tuples;
+        private final int locationIndex;
+        private long position = 0L;
+        private Node nextNode;
+
+        protected StreamedQueryResultNodeIterator( JcrQueryContext context,
+                                                   Iterator<Object[]> tuples,
+                                                   int locationIndex ) {
+            this.context = context;
+            this.tuples = tuples;
+            this.locationIndex = locationIndex;
+        }
+
+        @Override
+        public Node nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = nextNode;
+            nextNode = null;
+            ++position;
+            return node;
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public long getSize() {
+            // We only know the size once all of the nodes have been found ...
+            return hasNext() ? -1L : position;
+        }
+
+        @Override
+        public void skip( long skipNum ) {
+            for (long i = 0L; i != skipNum; ++i)
+                nextNode();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextNode == null && tuples.hasNext()) {
+                Location location = (Location)tuples.next()[locationIndex];
+                try {
+                    nextNode = context.getNode(location);
+                } catch (RepositoryException e) {
+                    // The node could not be found in this session, so skip it ...
+                }
+            }
+            return nextNode != null;
+        }
+
+        @Override
+        public Object next() {
+            return nextNode();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * The {@link RowIterator} implementation returned by the {@link JcrQueryResult}.
      * 
@@ -246,6 +337,7 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
         private int[] locationIndexes;
         private long position = 0L;
         private long numRows;
+        private long skippedRows = 0L;
         private Row nextRow;
 
         protected QueryResultRowIterator( JcrQueryContext context,
@@ -293,6 +385,10 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
 
         @Override
         public long getSize() {
+            if (numRows < 0L && !hasNext()) {
+                // The results were streamed, and now we know how many rows there are ...
+                numRows = position - skippedRows;
+            }
             return numRows;
         }
 
@@ -319,7 +415,8 @@ public class JcrQueryResult implements org.modeshape.jcr.api.query.QueryResult {
                 } catch (RepositoryException e) {
                     // The node could not be found in this session, so skip it ...
                 }
-                --numRows;
+                if (numRows >= 0L) --numRows;
+                ++skippedRows;
             }
             return false;
         }
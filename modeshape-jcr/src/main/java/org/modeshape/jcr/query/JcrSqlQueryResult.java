@@ -24,6 +24,7 @@
 package org.modeshape.jcr.query;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import javax.jcr.PropertyType;
@@ -75,8 +76,8 @@ public class JcrSqlQueryResult extends JcrQueryResult {
 
     @Override
     public RowIterator getRows() {
-        final int numRows = results.getRowCount();
-        final List<Object[]> tuples = results.getTuples();
-        return new SingleSelectorQueryResultRowIterator(context, queryStatement, results, tuples.iterator(), numRows);
+        final long numRows = rowCount();
+        final Iterator<Object[]> tuples = results.getTupleIterator();
+        return new SingleSelectorQueryResultRowIterator(context, queryStatement, results, tuples, numRows);
     }
 }
@@ -26,6 +26,7 @@ package org.modeshape.jcr.query;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
@@ -57,21 +58,50 @@ public interface QueryResults extends Serializable {
      */
     public Cursor getCursor();
 
+    /**
+     * Get an iterator over the tuples that contain the results. Each tuple corresponds to the column definitions. If these
+     * results are {@link #isStreaming() streamed}, the tuples that have not yet been computed are computed as the iterator is
+     * advanced.
+     * 
+     * @return the iterator over the tuples; never null but possibly empty
+     */
+    public Iterator<Object[]> getTupleIterator();
+
     /**
      * Get the actual tuples that contain the results. Each element in the list represents a tuple, and each tuple corresponds to
-     * the column definitions.
+     * the column definitions. If these results are {@link #isStreaming() streamed}, calling this method computes all of the
+     * remaining tuples.
      * 
      * @return the list of tuples; never null but possibly empty
      */
     public List<Object[]> getTuples();
 
     /**
-     * Get the number of rows in the results.
+     * Get the number of rows in the results. If these results are {@link #isStreaming() streamed}, calling this method computes
+     * all of the remaining tuples.
      * 
      * @return the number of rows; never negative
      */
     public int getRowCount();
 
+    /**
+     * Determine whether the tuples in these results are computed only as they are {@link #getTupleIterator() iterated}, in which
+     * case the number of rows is not known until all of the tuples have been iterated.
+     * 
+     * @return true if the tuples are streamed and some have yet to be computed, or false if they have all been computed
+     */
+    public boolean isStreaming();
+
+    /**
+     * Run the supplied task once all of the tuples in these results have been computed. Unless the results are
+     * {@link #isStreaming() streamed}, the task is run immediately on the calling thread; otherwise it is run on the thread that
+     * finishes computing the tuples, after the time spent computing them has been added to the {@link #getStatistics()
+     * statistics}.
+     * 
+     * @param task the task; may not be null
+     */
+    public void whenAllTuplesComputed( Runnable task );
+
     /**
      * Get a description of the query plan, if requested.
      * 
@@ -91,9 +91,9 @@ public class XPathQueryResult extends JcrQueryResult {
 
     @Override
     public RowIterator getRows() {
-        final int numRows = results.getRowCount();
-        final List<Object[]> tuples = results.getTuples();
-        return new XPathQueryResultRowIterator(context, queryStatement, results, tuples.iterator(), numRows);
+        final long numRows = rowCount();
+        final Iterator<Object[]> tuples = results.getTupleIterator();
+        return new XPathQueryResultRowIterator(context, queryStatement, results, tuples, numRows);
     }
 
     protected static class XPathQueryResultRowIterator extends SingleSelectorQueryResultRowIterator {
@@ -24,7 +24,10 @@
 package org.modeshape.jcr.query.lucene;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,10 +35,14 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.jcr.RepositoryException;
 import javax.jcr.query.InvalidQueryException;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Version;
 import org.hibernate.search.SearchFactory;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
@@ -51,14 +58,17 @@ import org.modeshape.jcr.query.QueryResults;
 import org.modeshape.jcr.query.QueryResults.Columns;
 import org.modeshape.jcr.query.lucene.basic.BasicLuceneSchema;
 import org.modeshape.jcr.query.lucene.basic.ExistsTupleCollector;
+import org.modeshape.jcr.query.lucene.basic.TopTuplesCollector;
 import org.modeshape.jcr.query.model.Constraint;
 import org.modeshape.jcr.query.model.FullTextSearchScore;
+import org.modeshape.jcr.query.model.Limit;
 import org.modeshape.jcr.query.model.QueryCommand;
 import org.modeshape.jcr.query.optimize.Optimizer;
 import org.modeshape.jcr.query.plan.PlanHints;
 import org.modeshape.jcr.query.plan.PlanNode;
 import org.modeshape.jcr.query.plan.Planner;
 import org.modeshape.jcr.query.process.AbstractAccessComponent;
+import org.modeshape.jcr.query.process.LimitComponent;
 import org.modeshape.jcr.query.process.ProcessingComponent;
 import org.modeshape.jcr.query.process.QueryEngine;
 import org.modeshape.jcr.query.process.QueryProcessor;
@@ -189,6 +199,11 @@ public class LuceneQueryEngine extends QueryEngine {
             return true;
         }
 
+        @Override
+        protected boolean supportsPushDownLimits() {
+            return true;
+        }
+
         @Override
         protected LuceneProcessingContext createProcessingContext( QueryContext queryContext ) {
             return new LuceneProcessingContext(queryContext, repositoryName, searchFactory, schema);
@@ -231,6 +246,15 @@ public class LuceneQueryEngine extends QueryEngine {
             this.processingContext = processingContext;
         }
 
+        @Override
+        public boolean pushDownLimit( Limit limit,
+                                      Comparator<Object[]> sortingComparator ) {
+            if (!this.limit.isUnlimited()) return false; // already has a limit
+            this.limit = limit;
+            this.sortingComparator = sortingComparator;
+            return true;
+        }
+
         /**
          * {@inheritDoc}
          * <p>
@@ -301,6 +325,7 @@ public class LuceneQueryEngine extends QueryEngine {
                                      pushDownQuery);
                     }
                     TupleCollector collector = schema.createTupleCollector(queryContext, columns);
+                    boolean collectTopTuples = limit.hasRowLimited() && queries.getPostProcessingConstraints() == null;
                     if (getContext().getHints().isExistsQuery) {
                         // We only are looking for the existance of a tuple, so we want to stop as soon as we find one.
                         // So wrap the collector with an ExistsTupleCollector that will throw an exception as soon as one tuple
@@ -312,6 +337,17 @@ public class LuceneQueryEngine extends QueryEngine {
                             // This only happens when the query has a row limit of 1, and we've found a tuple.
                             // So we should eat this exception and just continue ...
                         }
+                    } else if (collectTopTuples) {
+                        // There are no constraints to apply after the search, so the limit (and ordering) can be applied
+                        // while the tuples are being collected, keeping only those tuples that fall within the limit ...
+                        collector = new TopTuplesCollector(collector, limit, sortingComparator);
+                        try {
+                            searcher.search(pushDownQuery, collector);
+                        } catch (TopTuplesCollector.CompletedException e) {
+                            // This only happens when the tuples are not sorted and we've already found enough tuples.
+                            // So we should eat this exception and just continue ...
+                        }
+                        return collector.getTuples();
                     } else {
                         searcher.search(pushDownQuery, collector);
                     }
@@ -343,27 +379,184 @@ public class LuceneQueryEngine extends QueryEngine {
                     tuples = selector.execute();
                 }
 
+                // Sort the tuples if the ordering was pushed down ...
+                if (sortingComparator != null && tuples.size() > 1) {
+                    Collections.sort(tuples, sortingComparator);
+                }
+
                 // Limit the tuples ...
                 if (!limit.isUnlimited()) {
                     int firstIndex = limit.getOffset();
-                    int maxRows = Math.min(tuples.size(), limit.getRowLimit());
-                    if (firstIndex > 0) {
-                        // There is an offset and we're limiting the number of rows ...
-                        if (firstIndex > tuples.size()) {
-                            tuples.clear(); // not enough rows, so return no tuples
-                        } else {
-                            // Find the tuples for the range of rows we're interested in ...
-                            tuples = tuples.subList(firstIndex, maxRows);
-                        }
+                    if (firstIndex >= tuples.size()) {
+                        tuples = Collections.emptyList(); // not enough rows, so return no tuples
                     } else {
-                        // We're limiting the number of rows but there is no offset ...
-                        tuples = tuples.subList(0, maxRows);
+                        // Find the tuples for the range of rows we're interested in ...
+                        long lastIndex = (long)firstIndex + (long)limit.getRowLimit();
+                        tuples = tuples.subList(firstIndex, (int)Math.min(tuples.size(), lastIndex));
                     }
                 }
             }
 
             return tuples;
         }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Unless the tuples are to be sorted or the query only checks for the existence of results, the Lucene query is evaluated
+         * lazily: each document is scored and collected only as the tuples are pulled from the returned iterator, so that the
+         * consumer can stop early without reading any of the remaining documents. Any post-processing constraints and the limit
+         * are applied as the tuples are iterated.
+         * </p>
+         */
+        @Override
+        public Iterator<Object[]> iterate() {
+            assert andedConstraints != null;
+            assert limit != null;
+            if (sortingComparator != null || getContext().getHints().isExistsQuery) {
+                // All of the tuples are needed (or only a single one), so it's better to collect them all at once ...
+                return super.iterate();
+            }
+
+            // Create the Lucene queries ...
+            LuceneQuery queries = schema.createQuery(sourceName, andedConstraints, processingContext);
+            if (queries.matchesNone()) {
+                // There are no results ...
+                return Collections.<Object[]>emptyList().iterator();
+            }
+            Query pushDownQuery = queries.getPushDownQuery();
+            if (pushDownQuery == null) {
+                // There are no constraints that can be pushed down, so return _all_ the nodes ...
+                pushDownQuery = new MatchAllDocsQuery();
+            }
+            if (pushDownQuery instanceof MatchNoneQuery) {
+                // There are no results ...
+                return Collections.<Object[]>emptyList().iterator();
+            }
+
+            final QueryContext queryContext = getContext();
+            final Columns columns = getColumns();
+            Iterator<Object[]> tuples = null;
+            try {
+                IndexSearcher searcher = processingContext.getSearcher(queries.getPushDownIndexName());
+                Logger logger = Logger.getLogger(getClass());
+                if (logger.isTraceEnabled()) {
+                    Set<String> workspaceNames = processingContext.getWorkspaceNames();
+                    String repoName = processingContext.getRepositoryName();
+                    logger.trace("query \"{0}\" workspace(s) in \"{1}\" repository: {2}", repoName, workspaceNames, pushDownQuery);
+                }
+                TupleCollector collector = schema.createTupleCollector(queryContext, columns);
+                tuples = new SearchIterator(queryContext, searcher, searcher.createNormalizedWeight(pushDownQuery), collector);
+            } catch (IOException e) {
+                throw new LuceneException(e);
+            }
+
+            Constraint postProcessingConstraints = queries.getPostProcessingConstraints();
+            if (postProcessingConstraints != null) {
+                // Apply these constraints to the tuples as they are found ...
+                SelectComponent selector = new SelectComponent(new IteratingComponent(queryContext, columns, tuples),
+                                                               postProcessingConstraints, queryContext.getVariables());
+                tuples = selector.iterate();
+            }
+            if (!limit.isUnlimited()) {
+                // Stop pulling tuples as soon as the limit is reached ...
+                tuples = new LimitComponent(new IteratingComponent(queryContext, columns, tuples), limit).iterate();
+            }
+            return tuples;
+        }
+
+        /**
+         * A {@link ProcessingComponent} that simply returns tuples that were already found by some other means.
+         */
+        protected static final class IteratingComponent extends ProcessingComponent {
+            private final Iterator<Object[]> tuples;
+
+            protected IteratingComponent( QueryContext context,
+                                          Columns columns,
+                                          Iterator<Object[]> tuples ) {
+                super(context, columns);
+                this.tuples = tuples;
+            }
+
+            @Override
+            public List<Object[]> execute() {
+                List<Object[]> results = new ArrayList<Object[]>();
+                while (tuples.hasNext()) {
+                    results.add(tuples.next());
+                }
+                return results;
+            }
+
+            @Override
+            public Iterator<Object[]> iterate() {
+                return tuples;
+            }
+        }
+
+        /**
+         * An iterator that scores and collects the documents matching a Lucene query one at a time, as the tuples are needed.
+         * Each of the index's sub-readers is searched in turn, in the same order used by
+         * {@link IndexSearcher#search(Query, Collector)}.
+         */
+        protected static final class SearchIterator extends TupleIterator {
+            private final QueryContext queryContext;
+            private final Weight weight;
+            private final TupleCollector collector;
+            private final IndexReader[] subReaders;
+            private int readerIndex = 0;
+            private int docBase = 0;
+            private Scorer scorer;
+
+            protected SearchIterator( QueryContext queryContext,
+                                      IndexSearcher searcher,
+                                      Weight weight,
+                                      TupleCollector collector ) {
+                this.queryContext = queryContext;
+                this.weight = weight;
+                this.collector = collector;
+                this.subReaders = searcher.getSubReaders();
+            }
+
+            @Override
+            protected Object[] findNext() {
+                // The collector adds the tuples to its list, so we remove each one as we return it ...
+                List<Object[]> collected = collector.getTuples();
+                try {
+                    while (collected.isEmpty()) {
+                        if (queryContext.isCancelled()) return null;
+                        if (scorer == null && !nextScorer()) return null; // no more documents
+                        int doc = scorer.nextDoc();
+                        if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                            scorer = null;
+                            continue;
+                        }
+                        collector.doCollect(doc);
+                        collected = collector.getTuples();
+                    }
+                } catch (QueryCancelledIOException e) {
+                    assert queryContext.isCancelled();
+                    return null;
+                } catch (IOException e) {
+                    throw new LuceneException(e);
+                }
+                return collected.remove(0);
+            }
+
+            private boolean nextScorer() throws IOException {
+                while (readerIndex < subReaders.length) {
+                    IndexReader reader = subReaders[readerIndex++];
+                    int base = docBase;
+                    docBase += reader.maxDoc();
+                    collector.setNextReader(reader, base);
+                    scorer = weight.scorer(reader, true, false);
+                    if (scorer != null) {
+                        collector.setScorer(scorer);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
     }
 
     public static abstract class TupleCollector extends Collector {
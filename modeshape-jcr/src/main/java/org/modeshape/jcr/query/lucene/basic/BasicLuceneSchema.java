@@ -24,6 +24,7 @@
 package org.modeshape.jcr.query.lucene.basic;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -42,7 +43,6 @@ import org.hibernate.search.backend.spi.Worker;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.ExecutionContext;
-import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.NodeTypeSchemata;
 import org.modeshape.jcr.api.query.qom.Operator;
 import org.modeshape.jcr.api.value.DateTime;
@@ -73,7 +73,6 @@ import org.modeshape.jcr.value.Property;
 import org.modeshape.jcr.value.Reference;
 import org.modeshape.jcr.value.ValueFactory;
 import org.modeshape.jcr.value.binary.BinaryStore;
-import org.modeshape.jcr.value.binary.BinaryStoreException;
 
 /**
  * The LuceneSchema implementation that uses a single index for {@link NodeInfoIndex node information}.
@@ -255,20 +254,16 @@ public class BasicLuceneSchema implements LuceneSchema {
             previous = new DynamicField(previous, FieldName.LENGTH_PREFIX + propertyName, binary.getSize(), false, true);
 
             if (fullTextSearchable) {
-                // Get the full text ...
-                try {
-                    String fullTextTerms = binaryStore.getText(binary);
-                    if (fullTextTerms != null) {
-                        String ftsPropName = FieldName.FULL_TEXT_PREFIX + propertyName;
-                        previous = new DynamicField(previous, ftsPropName, fullTextTerms, true, false); // never store
-
-                        // Add add the string to the node's full-text value ...
-                        fullText.append(' ').append(fullTextTerms);
-                    }
-                } catch (BinaryStoreException e) {
-                    // Log it ...
-                    logger.error(e, JcrI18n.errorExtractingTextFromBinary, binary, e.getLocalizedMessage());
-                }
+                // The text is streamed into the index rather than being loaded into memory. Each reader obtains the text (which
+                // may block until the text has been extracted) only when Lucene reads it, so no reader is left open if this
+                // document is never indexed. Both readers share the text, so that it is obtained and decoded only once ...
+                BinaryTextReader.Text text = new BinaryTextReader.Text(binaryStore, binary, logger);
+                String ftsPropName = FieldName.FULL_TEXT_PREFIX + propertyName;
+                Reader ftsValue = new BinaryTextReader(text);
+                previous = new DynamicField(previous, ftsPropName, ftsValue, true, false); // never store
+
+                // Add add the text to the node's full-text value (as a separate value of the same field) ...
+                previous = new DynamicField(previous, NodeInfoIndex.FieldName.FULL_TEXT, new BinaryTextReader(text), true, false);
             }
 
             // Get the SHA-1 ...
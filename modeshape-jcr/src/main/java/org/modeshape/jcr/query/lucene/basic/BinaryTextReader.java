@@ -0,0 +1,209 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.query.lucene.basic;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.StringReader;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.value.BinaryValue;
+import org.modeshape.jcr.value.binary.AbstractBinaryStore;
+import org.modeshape.jcr.value.binary.BinaryStore;
+import org.modeshape.jcr.value.binary.BinaryStoreException;
+
+/**
+ * A {@link Reader} over the full-text of a binary value, used as the value of a {@link DynamicField} so that Lucene can index the
+ * text of large binary values without the text ever being loaded into memory. The text is obtained from the
+ * {@link AbstractBinaryStore#getTextReader(BinaryValue) binary store} only when it is first read (other stores supply the
+ * {@link BinaryStore#getText(BinaryValue) text} itself), and the underlying reader is closed as soon as all of the text has been
+ * read.
+ * <p>
+ * The same text is usually indexed in more than one field, so the readers of those fields share a {@link Text}: the text read by
+ * the first reader is buffered (up to {@link Text#MAX_BUFFERED_CHARS} characters), and the other readers then read the buffered
+ * text rather than obtaining and decoding the text again.
+ * </p>
+ * <p>
+ * When the index work has to be sent to another process (e.g., with a JMS or JGroups backend), this reader is serialized as the
+ * text itself.
+ * </p>
+ */
+final class BinaryTextReader extends Reader implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Text text;
+    private transient Reader delegate;
+    private transient boolean opened;
+
+    /**
+     * Create a reader that obtains the shared text when it is first read.
+     * 
+     * @param text the text of the binary value; may not be null
+     */
+    BinaryTextReader( Text text ) {
+        this.text = text;
+    }
+
+    private Reader delegate() {
+        if (!opened) {
+            opened = true;
+            delegate = text.open(this);
+        }
+        return delegate;
+    }
+
+    @Override
+    public int read( char[] cbuf,
+                     int off,
+                     int len ) throws IOException {
+        Reader reader = delegate();
+        if (reader == null) return -1;
+        int numRead = reader.read(cbuf, off, len);
+        if (numRead == -1) {
+            text.completed(this);
+            // Release the underlying resources as soon as possible ...
+            close();
+        } else {
+            text.record(this, cbuf, off, numRead);
+        }
+        return numRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        opened = true;
+        text.closed(this);
+        Reader reader = delegate;
+        delegate = null;
+        if (reader != null) reader.close();
+    }
+
+    private void writeObject( ObjectOutputStream out ) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(IoUtil.read(this));
+    }
+
+    private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        text = new Text(null, null, null);
+        delegate = new StringReader((String)in.readObject());
+        opened = true;
+    }
+
+    /**
+     * The text of a binary value that is shared by the {@link BinaryTextReader readers} of all of the fields (of one document) in
+     * which the text is indexed. The first reader to be read obtains the text from the binary store and records it, and any reader
+     * opened after all of the text has been recorded reads the recorded text. A reader opened before then, or after more than
+     * {@link #MAX_BUFFERED_CHARS} characters were recorded, obtains the text from the binary store itself.
+     */
+    static final class Text {
+        /**
+         * The maximum number of characters of text that are buffered.
+         */
+        static final int MAX_BUFFERED_CHARS = 1 << 20;
+
+        private final BinaryStore binaryStore;
+        private final BinaryValue binary;
+        private final Logger logger;
+        private BinaryTextReader recorder;
+        private StringBuilder recorded;
+        private String buffered;
+        private boolean canBuffer = true;
+
+        /**
+         * Create the text of the supplied binary value.
+         * 
+         * @param binaryStore the binary store; may not be null
+         * @param binary the binary value; may not be null
+         * @param logger the logger used to record any problem obtaining the text; may not be null
+         */
+        Text( BinaryStore binaryStore,
+              BinaryValue binary,
+              Logger logger ) {
+            this.binaryStore = binaryStore;
+            this.binary = binary;
+            this.logger = logger;
+        }
+
+        synchronized Reader open( BinaryTextReader reader ) {
+            if (buffered != null) return new StringReader(buffered);
+            Reader text = openFromStore();
+            if (text != null && canBuffer && recorder == null) {
+                recorder = reader;
+                recorded = new StringBuilder();
+            }
+            return text;
+        }
+
+        synchronized void record( BinaryTextReader reader,
+                                  char[] cbuf,
+                                  int off,
+                                  int len ) {
+            if (reader != recorder) return;
+            if (recorded.length() + len > MAX_BUFFERED_CHARS) {
+                // The text is too large to be kept in memory, so the other readers will have to obtain it themselves ...
+                stopRecording();
+                return;
+            }
+            recorded.append(cbuf, off, len);
+        }
+
+        synchronized void completed( BinaryTextReader reader ) {
+            if (reader != recorder) return;
+            buffered = recorded.toString();
+            recorder = null;
+            recorded = null;
+        }
+
+        synchronized void closed( BinaryTextReader reader ) {
+            // A reader that is closed before all of the text was read has recorded only part of it ...
+            if (reader == recorder) stopRecording();
+        }
+
+        private void stopRecording() {
+            recorder = null;
+            recorded = null;
+            canBuffer = false;
+        }
+
+        private Reader openFromStore() {
+            if (binaryStore == null) return null;
+            try {
+                if (binaryStore instanceof AbstractBinaryStore) {
+                    return ((AbstractBinaryStore)binaryStore).getTextReader(binary);
+                }
+                String text = binaryStore.getText(binary);
+                return text != null ? new StringReader(text) : null;
+            } catch (BinaryStoreException e) {
+                logger.error(e, JcrI18n.errorExtractingTextFromBinary, binary, e.getLocalizedMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -23,8 +23,10 @@
  */
 package org.modeshape.jcr.query.lucene.basic;
 
+import java.io.Reader;
 import java.math.BigDecimal;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Index;
 import org.apache.lucene.document.Field.TermVector;
 import org.hibernate.search.annotations.Store;
@@ -104,6 +106,13 @@ public class DynamicFieldBridge implements FieldBridge {
             options.addFieldToDocument(fieldName, (String)value, document);
             return;
         }
+        if (value instanceof Reader) {
+            // Streamed text (e.g., the text extracted from a large binary value) is always analyzed and never stored ...
+            Field field = new Field(fieldName, (Reader)value);
+            field.setBoost(options.getBoost());
+            document.add(field);
+            return;
+        }
         options = stored ? STORED_NOT_ANALYZED : NOT_STORED_NOT_ANALYZED;
         if (value instanceof Boolean) {
             // Boolean values are stored using integer values '1' and '0' ...
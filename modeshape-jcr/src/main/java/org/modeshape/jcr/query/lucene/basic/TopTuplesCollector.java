@@ -0,0 +1,193 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.query.lucene.basic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Scorer;
+import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.jcr.query.lucene.LuceneQueryEngine.TupleCollector;
+import org.modeshape.jcr.query.model.Limit;
+
+/**
+ * A special TupleCollector implementation that keeps only the tuples that fall within a {@link Limit}, so that the number of
+ * tuples held in memory is bounded by the limit's offset plus its row limit rather than by the number of matching documents.
+ * <p>
+ * When a comparator is supplied, the tuples are kept in a bounded priority queue and only the "best" tuples (as defined by the
+ * comparator) are retained; tuples that compare equally are kept in the order in which they were collected, so the results are
+ * identical to sorting all of the tuples and then applying the limit. When no comparator is supplied, the tuples are returned in
+ * the order they are collected, and this collector terminates the search as soon as enough tuples have been found.
+ * </p>
+ * <p>
+ * The wrapped collector must return a modifiable list from {@link TupleCollector#getTuples()}, since this collector removes each
+ * tuple from that list as soon as it is collected.
+ * </p>
+ */
+@NotThreadSafe
+public class TopTuplesCollector extends TupleCollector {
+
+    private final TupleCollector collector;
+    private final Comparator<Object[]> comparator;
+    private final int offset;
+    private final int maxTuples;
+    private final List<Object[]> unsortedTuples;
+    private final PriorityQueue<RankedTuple> sortedTuples;
+    private long sequence = 0L;
+
+    /**
+     * Create a TopTuplesCollector wrapper over another {@link TupleCollector}.
+     * 
+     * @param collector the wrapped collector; may not be null
+     * @param limit the limit that defines the offset and maximum number of rows; may not be null and must have a row limit
+     * @param comparator the comparator defining the order of the tuples; may be null if the tuples need not be sorted
+     */
+    public TopTuplesCollector( TupleCollector collector,
+                               Limit limit,
+                               Comparator<Object[]> comparator ) {
+        assert collector != null;
+        assert limit != null;
+        assert limit.hasRowLimited();
+        this.collector = collector;
+        this.comparator = comparator;
+        this.offset = limit.getOffset();
+        // Be careful not to overflow ...
+        long max = (long)limit.getOffset() + (long)limit.getRowLimit();
+        this.maxTuples = (int)Math.min(max, Integer.MAX_VALUE);
+        int initialCapacity = Math.max(1, Math.min(maxTuples, 1024));
+        if (comparator != null) {
+            this.unsortedTuples = null;
+            // The head of the queue is the "worst" tuple, so reverse the order ...
+            Comparator<RankedTuple> worstFirst = Collections.reverseOrder(new RankedTupleComparator(comparator));
+            this.sortedTuples = new PriorityQueue<RankedTuple>(initialCapacity, worstFirst);
+        } else {
+            this.unsortedTuples = new ArrayList<Object[]>(initialCapacity);
+            this.sortedTuples = null;
+        }
+    }
+
+    @SuppressWarnings( "synthetic-access" )
+    @Override
+    public float doCollect( int doc ) throws IOException {
+        float score = this.collector.doCollect(doc);
+        List<Object[]> collected = this.collector.getTuples();
+        if (collected.isEmpty()) return score;
+        for (Object[] tuple : collected) {
+            if (maxTuples == 0) break;
+            if (sortedTuples != null) {
+                RankedTuple ranked = new RankedTuple(tuple, sequence++);
+                if (sortedTuples.size() < maxTuples) {
+                    sortedTuples.add(ranked);
+                } else if (sortedTuples.comparator().compare(ranked, sortedTuples.peek()) > 0) {
+                    // The new tuple is better than the worst one we have, so replace it ...
+                    sortedTuples.poll();
+                    sortedTuples.add(ranked);
+                }
+            } else {
+                unsortedTuples.add(tuple);
+            }
+        }
+        collected.clear();
+        if (sortedTuples == null && unsortedTuples.size() >= maxTuples) {
+            // We've found all the tuples we need, so stop the search ...
+            throw new CompletedException();
+        }
+        return score;
+    }
+
+    @Override
+    public List<Object[]> getTuples() {
+        List<Object[]> tuples = null;
+        if (sortedTuples != null) {
+            List<RankedTuple> ranked = new ArrayList<RankedTuple>(sortedTuples);
+            Collections.sort(ranked, new RankedTupleComparator(comparator));
+            tuples = new ArrayList<Object[]>(ranked.size());
+            for (RankedTuple rankedTuple : ranked) {
+                tuples.add(rankedTuple.tuple);
+            }
+        } else {
+            tuples = unsortedTuples;
+        }
+        if (offset >= tuples.size()) return new ArrayList<Object[]>(0);
+        if (offset > 0) return new ArrayList<Object[]>(tuples.subList(offset, tuples.size()));
+        return tuples;
+    }
+
+    @Override
+    public void setScorer( Scorer scorer ) throws IOException {
+        collector.setScorer(scorer);
+    }
+
+    @Override
+    public void setNextReader( IndexReader reader,
+                               int docBase ) throws IOException {
+        collector.setNextReader(reader, docBase);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return collector.acceptsDocsOutOfOrder();
+    }
+
+    /** Thrown when enough tuples have been found and the search can be terminated. */
+    public static class CompletedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private CompletedException() {
+            super("Top tuples collector completed");
+        }
+    }
+
+    protected static final class RankedTuple {
+        protected final Object[] tuple;
+        protected final long sequence;
+
+        protected RankedTuple( Object[] tuple,
+                               long sequence ) {
+            this.tuple = tuple;
+            this.sequence = sequence;
+        }
+    }
+
+    protected static final class RankedTupleComparator implements Comparator<RankedTuple> {
+        private final Comparator<Object[]> comparator;
+
+        protected RankedTupleComparator( Comparator<Object[]> comparator ) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare( RankedTuple tuple1,
+                            RankedTuple tuple2 ) {
+            int result = comparator.compare(tuple1.tuple, tuple2.tuple);
+            if (result != 0) return result;
+            // Keep the order in which the tuples were collected ...
+            return tuple1.sequence < tuple2.sequence ? -1 : (tuple1.sequence > tuple2.sequence ? 1 : 0);
+        }
+    }
+}
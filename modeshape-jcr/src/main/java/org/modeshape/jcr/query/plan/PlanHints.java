@@ -91,6 +91,12 @@ public final class PlanHints implements Serializable, Cloneable {
      */
     public boolean qualifyExpandedColumnNames = false;
 
+    /**
+     * Flag indicates whether the tuples in the results should be computed only as the results are iterated, rather than being
+     * computed in their entirety before the results are returned.
+     */
+    public boolean streamResults = false;
+
     public PlanHints() {
     }
 
@@ -111,6 +117,7 @@ public final class PlanHints implements Serializable, Cloneable {
         sb.append(", includeSystemContent=").append(includeSystemContent);
         sb.append(", useSessionContent=").append(useSessionContent);
         sb.append(", qualifyExpandedColumnNames=").append(qualifyExpandedColumnNames);
+        sb.append(", streamResults=").append(streamResults);
         sb.append('}');
         return sb.toString();
     }
@@ -131,6 +138,7 @@ public final class PlanHints implements Serializable, Cloneable {
         clone.includeSystemContent = this.includeSystemContent;
         clone.useSessionContent = this.useSessionContent;
         clone.qualifyExpandedColumnNames = this.qualifyExpandedColumnNames;
+        clone.streamResults = this.streamResults;
         return clone;
     }
 }
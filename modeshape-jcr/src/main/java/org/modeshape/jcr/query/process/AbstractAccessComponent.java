@@ -25,6 +25,7 @@ package org.modeshape.jcr.query.process;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryResults.Columns;
@@ -48,7 +49,8 @@ public abstract class AbstractAccessComponent extends ProcessingComponent {
     protected final SelectorName sourceName;
     protected final List<Column> projectedColumns;
     protected final List<Constraint> andedConstraints;
-    protected final Limit limit;
+    protected Limit limit;
+    protected Comparator<Object[]> sortingComparator;
 
     protected AbstractAccessComponent( QueryContext context,
                                        Columns columns,
@@ -114,4 +116,20 @@ public abstract class AbstractAccessComponent extends ProcessingComponent {
         assert this.limit != null;
     }
 
+    /**
+     * Attempt to push down into this access component the {@link Type#LIMIT LIMIT} (and optionally the ordering of the
+     * {@link Type#SORT SORT}) that appears immediately above it in the plan. If this method returns true, this component is
+     * responsible for returning only those tuples within the limit's offset and row limit, sorted using the supplied comparator
+     * (if there is one). By default, this method does nothing and returns false; subclasses that can honor the limit (and
+     * ordering) more efficiently than the processing components above them should override this method.
+     * 
+     * @param limit the limit that is to be pushed down; never null
+     * @param sortingComparator the comparator that defines the order of the tuples; may be null if the tuples need not be ordered
+     * @return true if this component will honor the limit and ordering, or false otherwise
+     */
+    public boolean pushDownLimit( Limit limit,
+                                  Comparator<Object[]> sortingComparator ) {
+        return false;
+    }
+
 }
@@ -23,6 +23,8 @@
  */
 package org.modeshape.jcr.query.process;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import org.modeshape.jcr.query.model.Limit;
 
@@ -67,4 +69,29 @@ public class LimitComponent extends DelegatingComponent {
         }
         return tuples;
     }
+
+    @Override
+    public Iterator<Object[]> iterate() {
+        if (limit.getRowLimit() == 0) {
+            return Collections.<Object[]>emptyList().iterator();
+        }
+        final Iterator<Object[]> tuples = delegate().iterate();
+        return new TupleIterator() {
+            private int skipped = 0;
+            private int returned = 0;
+
+            @Override
+            protected Object[] findNext() {
+                // Skip the tuples before the offset ...
+                while (skipped < limit.getOffset() && tuples.hasNext()) {
+                    tuples.next();
+                    ++skipped;
+                }
+                // Stop pulling tuples as soon as we've reached the row limit ...
+                if (returned >= limit.getRowLimit() || !tuples.hasNext()) return null;
+                ++returned;
+                return tuples.next();
+            }
+        };
+    }
 }
@@ -24,6 +24,8 @@
 package org.modeshape.jcr.query.process;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.model.JoinCondition;
@@ -44,6 +46,24 @@ public class NestedLoopJoinComponent extends JoinComponent {
 
     @Override
     public List<Object[]> execute() {
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        Iterator<Object[]> iter = iterate();
+        while (iter.hasNext()) {
+            tuples.add(iter.next());
+        }
+        return tuples;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tuples on the outer side of the join (the right side for {@link JoinType#RIGHT_OUTER right outer joins}, or the left
+     * side for all other join types) are pulled one at a time, and the tuples on the inner side are computed only once. Thus only
+     * the inner side's tuples and the joined tuples for a single outer tuple are ever held in memory.
+     * </p>
+     */
+    @Override
+    public Iterator<Object[]> iterate() {
         // Construct the necessary components ...
         final ValueSelector leftSelector = valueSelectorFor(left(), getJoinCondition());
         final ValueSelector rightSelector = valueSelectorFor(right(), getJoinCondition());
@@ -52,54 +72,47 @@ public class NestedLoopJoinComponent extends JoinComponent {
         final TupleMerger merger = createMerger(getColumns(), left().getColumns(), right().getColumns());
 
         // Walk through the left and right results ...
-        List<Object[]> leftTuples = left().execute();
-        List<Object[]> rightTuples = right().execute();
-        List<Object[]> tuples = null;
-        switch (joinType) {
-            case INNER:
-                // Note that in SQL joins, a NULL value on one side of the join criteria is not considered equal to
-                // a NULL value on the other side. Therefore, in the following algorithms, we're shortcutting the
-                // loops as soon as we get any NULL value for the join criteria.
-                // see http://en.wikipedia.org/wiki/Join_(SQL)#Inner_join
-
-                // Must match tuples on left with those on right, so we'll have no more result tuples than the
-                // minumum number of tuples on the left or right...
-                int maxSize = Math.min(leftTuples.size(), rightTuples.size());
-                tuples = new ArrayList<Object[]>(maxSize);
-                // Iterate through all the tuples on the left ...
-                for (Object[] leftTuple : leftTuples) {
-                    Object leftValue = leftSelector.evaluate(leftTuple);
-                    if (leftValue == null) {
-                        continue;
+        final Iterator<Object[]> outerTuples;
+        final List<Object[]> innerTuples;
+        if (joinType == JoinType.RIGHT_OUTER) {
+            innerTuples = left().execute();
+            outerTuples = right().iterate();
+        } else {
+            outerTuples = left().iterate();
+            innerTuples = right().execute();
+        }
+        return new TupleIterator() {
+            private final LinkedList<Object[]> joined = new LinkedList<Object[]>();
+
+            @Override
+            protected Object[] findNext() {
+                while (joined.isEmpty()) {
+                    if (!outerTuples.hasNext()) return null;
+                    Object[] outerTuple = outerTuples.next();
+                    if (joinType == JoinType.RIGHT_OUTER) {
+                        joinRight(outerTuple, innerTuples, joined);
+                    } else {
+                        joinLeft(outerTuple, innerTuples, joined);
                     }
+                }
+                return joined.removeFirst();
+            }
 
-                    // And then find the matching ones on the right ...
-                    for (Object[] rightTuple : rightTuples) {
-                        // Get the value from the left and right side ...
-                        Object rightValue = rightSelector.evaluate(rightTuple);
-                        if (rightValue == null) {
-                            continue;
+            private void joinLeft( Object[] leftTuple,
+                                   List<Object[]> rightTuples,
+                                   List<Object[]> tuples ) {
+                switch (joinType) {
+                    case INNER:
+                        // Note that in SQL joins, a NULL value on one side of the join criteria is not considered equal to
+                        // a NULL value on the other side. Therefore, in the following algorithms, we're shortcutting the
+                        // loops as soon as we get any NULL value for the join criteria.
+                        // see http://en.wikipedia.org/wiki/Join_(SQL)#Inner_join
+                        Object leftValue = leftSelector.evaluate(leftTuple);
+                        if (leftValue == null) {
+                            return;
                         }
 
-                        // Determine if the tuples should be joined ...
-                        if (joinable.evaluate(leftValue, rightValue)) {
-                            Object[] result = merger.merge(leftTuple, rightTuple);
-                            tuples.add(result);
-                        }
-                    }
-                }
-                break;
-            case LEFT_OUTER:
-                // We'll have all the tuples on the left, with any of those on the right that match ...
-                maxSize = leftTuples.size();
-                tuples = new ArrayList<Object[]>(maxSize);
-                // Iterate through all the tuples on the left ...
-                for (Object[] leftTuple : leftTuples) {
-                    Object leftValue = leftSelector.evaluate(leftTuple);
-
-                    // And then find the matching ones on the right ...
-                    boolean foundMatch = false;
-                    if (leftValue != null) {
+                        // And then find the matching ones on the right ...
                         for (Object[] rightTuple : rightTuples) {
                             // Get the value from the left and right side ...
                             Object rightValue = rightSelector.evaluate(rightTuple);
@@ -111,102 +124,108 @@ public class NestedLoopJoinComponent extends JoinComponent {
                             if (joinable.evaluate(leftValue, rightValue)) {
                                 Object[] result = merger.merge(leftTuple, rightTuple);
                                 tuples.add(result);
-                                foundMatch = true;
                             }
                         }
-                    }
-                    // We've processed all the tuples on the right, and if we've not yet found a match
-                    // we still need to include the left tuple (but we only want to include it once) ...
-                    if (!foundMatch) {
-                        tuples.add(merger.merge(leftTuple, null));
-                    }
-                }
-                break;
-            case RIGHT_OUTER:
-                // We'll have all the tuples on the right, with any of those on the left that match ...
-                maxSize = rightTuples.size();
-                tuples = new ArrayList<Object[]>(maxSize);
-                // Iterate through all the tuples on the right ...
-                for (Object[] rightTuple : rightTuples) {
-                    Object rightValue = rightSelector.evaluate(rightTuple);
-
-                    // And then find the matching ones on the right ...
-                    boolean foundMatch = false;
-                    if (rightValue != null) {
-                        for (Object[] leftTuple : leftTuples) {
-                            // Get the value from the left and right side ...
-                            Object leftValue = leftSelector.evaluate(leftTuple);
-                            if (leftValue == null) {
-                                continue;
+                        break;
+                    case LEFT_OUTER:
+                        // We'll have the tuple on the left, with any of those on the right that match ...
+                        leftValue = leftSelector.evaluate(leftTuple);
+
+                        // And then find the matching ones on the right ...
+                        boolean foundMatch = false;
+                        if (leftValue != null) {
+                            for (Object[] rightTuple : rightTuples) {
+                                // Get the value from the left and right side ...
+                                Object rightValue = rightSelector.evaluate(rightTuple);
+                                if (rightValue == null) {
+                                    continue;
+                                }
+
+                                // Determine if the tuples should be joined ...
+                                if (joinable.evaluate(leftValue, rightValue)) {
+                                    Object[] result = merger.merge(leftTuple, rightTuple);
+                                    tuples.add(result);
+                                    foundMatch = true;
+                                }
                             }
+                        }
+                        // We've processed all the tuples on the right, and if we've not yet found a match
+                        // we still need to include the left tuple (but we only want to include it once) ...
+                        if (!foundMatch) {
+                            tuples.add(merger.merge(leftTuple, null));
+                        }
+                        break;
+                    case FULL_OUTER:
+                        leftValue = leftSelector.evaluate(leftTuple);
+
+                        // And then find the matching ones on the right ...
+                        foundMatch = false;
+                        for (Object[] rightTuple : rightTuples) {
+                            // Get the value from the left and right side ...
+                            Object rightValue = rightSelector.evaluate(rightTuple);
+                            if (rightValue == null) continue;
 
                             // Determine if the tuples should be joined ...
                             if (joinable.evaluate(leftValue, rightValue)) {
                                 Object[] result = merger.merge(leftTuple, rightTuple);
                                 tuples.add(result);
                                 foundMatch = true;
+                            } else {
+                                // Otherwise, we still return the right tuple ...
+                                tuples.add(merger.merge(null, rightTuple));
                             }
                         }
-                    }
-                    // We've processed all the tuples on the left, and if we've not yet found a match
-                    // we still need to include the right tuple (but we only want to include it once) ...
-                    if (!foundMatch) {
-                        tuples.add(merger.merge(null, rightTuple));
-                    }
+                        // We've processed all the tuples on the right, and if we've not yet found a match
+                        // we still need to include the left tuple (but we only want to include it once) ...
+                        if (!foundMatch) {
+                            tuples.add(merger.merge(leftTuple, null));
+                        }
+                        break;
+                    case CROSS:
+                        // A cross join results in the Cartesian product, so each tuple on the left will be combined with
+                        // each tuple on the right ...
+                        for (Object[] rightTuple : rightTuples) {
+                            // We always use both tuples ...
+                            Object[] result = merger.merge(leftTuple, rightTuple);
+                            tuples.add(result);
+                        }
+                        break;
+                    case RIGHT_OUTER:
+                        assert false : "Right outer joins are handled by joinRight";
+                        break;
                 }
-                break;
-            case FULL_OUTER:
-                // We'll have all the tuples on the right and all the tuples on the left, and in the worst case
-                // none will match, so we'll start with the sum of the number of tuples on the left plus the number
-                // on the right ...
-                maxSize = leftTuples.size() + rightTuples.size();
-                tuples = new ArrayList<Object[]>(maxSize);
-                // Iterate through all the tuples on the left ...
-                for (Object[] leftTuple : leftTuples) {
-                    Object leftValue = leftSelector.evaluate(leftTuple);
-
-                    // And then find the matching ones on the right ...
-                    boolean foundMatch = false;
-                    for (Object[] rightTuple : rightTuples) {
+            }
+
+            private void joinRight( Object[] rightTuple,
+                                    List<Object[]> leftTuples,
+                                    List<Object[]> tuples ) {
+                // We'll have the tuple on the right, with any of those on the left that match ...
+                Object rightValue = rightSelector.evaluate(rightTuple);
+
+                // And then find the matching ones on the left ...
+                boolean foundMatch = false;
+                if (rightValue != null) {
+                    for (Object[] leftTuple : leftTuples) {
                         // Get the value from the left and right side ...
-                        Object rightValue = rightSelector.evaluate(rightTuple);
-                        if (rightValue == null) continue;
+                        Object leftValue = leftSelector.evaluate(leftTuple);
+                        if (leftValue == null) {
+                            continue;
+                        }
 
                         // Determine if the tuples should be joined ...
                         if (joinable.evaluate(leftValue, rightValue)) {
                             Object[] result = merger.merge(leftTuple, rightTuple);
                             tuples.add(result);
                             foundMatch = true;
-                        } else {
-                            // Otherwise, we still return the right tuple ...
-                            tuples.add(merger.merge(null, rightTuple));
                         }
                     }
-                    // We've processed all the tuples on the right, and if we've not yet found a match
-                    // we still need to include the left tuple (but we only want to include it once) ...
-                    if (!foundMatch) {
-                        tuples.add(merger.merge(leftTuple, null));
-                    }
                 }
-                break;
-            case CROSS:
-                // A cross join results in the Cartesian product, so each tuple on the left will be combined with
-                // each tuple on the right ...
-                maxSize = leftTuples.size() * rightTuples.size();
-                tuples = new ArrayList<Object[]>(maxSize);
-                // Iterate through all the tuples on the left ...
-                for (Object[] leftTuple : leftTuples) {
-                    // And for each iterate through all the tuples on the left ...
-                    for (Object[] rightTuple : rightTuples) {
-                        // We always use both tuples ...
-                        Object[] result = merger.merge(leftTuple, rightTuple);
-                        tuples.add(result);
-                    }
+                // We've processed all the tuples on the left, and if we've not yet found a match
+                // we still need to include the right tuple (but we only want to include it once) ...
+                if (!foundMatch) {
+                    tuples.add(merger.merge(null, rightTuple));
                 }
-                break;
-
-        }
-        assert tuples != null;
-        return tuples;
+            }
+        };
     }
 }
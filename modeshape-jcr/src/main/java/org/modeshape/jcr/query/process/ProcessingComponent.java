@@ -25,7 +25,9 @@ package org.modeshape.jcr.query.process;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.collection.Problems;
 import org.modeshape.jcr.query.QueryContext;
@@ -101,6 +103,22 @@ public abstract class ProcessingComponent {
      */
     public abstract List<Object[]> execute();
 
+    /**
+     * Execute this stage of processing and return an iterator over the resulting tuples that each conform to the
+     * {@link #getColumns() columns}. Unlike {@link #execute()}, the tuples may be computed only as the iterator is advanced, which
+     * means that components that can process one tuple at a time (e.g., selecting, projecting and limiting) never need to hold
+     * all of the tuples in memory, and processing stops as soon as the consumer stops pulling tuples.
+     * <p>
+     * By default, this method simply returns an iterator over the tuples returned by {@link #execute()}, so subclasses that are
+     * able to compute their tuples incrementally should override this method.
+     * </p>
+     * 
+     * @return the iterator over the tuples; never null
+     */
+    public Iterator<Object[]> iterate() {
+        return execute().iterator();
+    }
+
     /**
      * Close these results, allowing any resources to be released.
      */
@@ -116,6 +134,45 @@ public abstract class ProcessingComponent {
         return new ArrayList<Object[]>(0);
     }
 
+    /**
+     * A read-only {@link Iterator} over tuples that are computed one at a time, useful for implementing {@link #iterate()}.
+     * Subclasses only need to implement {@link #findNext()}.
+     */
+    @NotThreadSafe
+    protected static abstract class TupleIterator implements Iterator<Object[]> {
+        private Object[] next;
+        private boolean done;
+
+        /**
+         * Find the next tuple.
+         * 
+         * @return the next tuple, or null if there are no more tuples
+         */
+        protected abstract Object[] findNext();
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (done) return false;
+            next = findNext();
+            if (next == null) done = true;
+            return next != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Object[] result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Interface for evaluating a {@link DynamicOperand} to return the resulting value.
      */
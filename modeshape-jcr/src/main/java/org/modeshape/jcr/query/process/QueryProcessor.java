@@ -26,9 +26,11 @@ package org.modeshape.jcr.query.process;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryResults;
 import org.modeshape.jcr.query.QueryResults.Columns;
@@ -68,6 +70,7 @@ public abstract class QueryProcessor<ProcessingContextType> implements Processor
         long nanos = System.nanoTime();
         Columns columns = null;
         List<Object[]> tuples = null;
+        Iterator<Object[]> stream = null;
         try {
             // Find the topmost PROJECT node and build the Columns ...
             PlanNode project = plan.findAtOrBelow(Type.PROJECT);
@@ -82,6 +85,7 @@ public abstract class QueryProcessor<ProcessingContextType> implements Processor
 
             // Create the processing context ...
             final ProcessingContextType processingContext = createProcessingContext(context);
+            boolean closeProcessingContext = true;
             try {
 
                 // Go through the plan and create the corresponding ProcessingComponents ...
@@ -91,27 +95,94 @@ public abstract class QueryProcessor<ProcessingContextType> implements Processor
                 nanos = nanos2;
 
                 if (component != null) {
-                    // Now execute the component ...
+                    // Now execute the component, pulling the tuples through the components ...
                     columns = component.getColumns();
-                    tuples = component.execute();
+                    Iterator<Object[]> iter = component.iterate();
+                    if (context.getHints().streamResults) {
+                        // The tuples will be computed as they are consumed, so the processing context can only be closed
+                        // after all of the tuples have been consumed ...
+                        stream = new ClosingTupleIterator(iter, processingContext);
+                        closeProcessingContext = false;
+                    } else {
+                        tuples = new ArrayList<Object[]>();
+                        while (iter.hasNext()) {
+                            tuples.add(iter.next());
+                        }
+                    }
                 } else {
                     // There must have been an error or was cancelled ...
                     assert context.getProblems().hasErrors() || context.isCancelled();
                     tuples = Collections.emptyList();
                 }
             } finally {
-                // Always close the processing context !!!
-                closeProcessingContext(processingContext);
+                // Always close the processing context (unless the results are streamed) !!!
+                if (closeProcessingContext) closeProcessingContext(processingContext);
             }
 
         } finally {
             statistics = statistics.withExecutionTime(Math.abs(System.nanoTime() - nanos));
         }
-        assert tuples != null;
         final String planDesc = context.getHints().showPlan ? plan.getString() : null;
+        if (stream != null) {
+            return new org.modeshape.jcr.query.process.QueryResults(columns, statistics, stream, context.getProblems(), planDesc);
+        }
+        assert tuples != null;
         return new org.modeshape.jcr.query.process.QueryResults(columns, statistics, tuples, context.getProblems(), planDesc);
     }
 
+    /**
+     * An iterator over streamed tuples that {@link QueryProcessor#closeProcessingContext(Object) closes the processing context}
+     * as soon as all of the tuples have been consumed or an exception is thrown while computing the tuples.
+     */
+    protected final class ClosingTupleIterator implements Iterator<Object[]> {
+        private final Iterator<Object[]> delegate;
+        private final ProcessingContextType processingContext;
+        private boolean closed = false;
+
+        protected ClosingTupleIterator( Iterator<Object[]> delegate,
+                                        ProcessingContextType processingContext ) {
+            this.delegate = delegate;
+            this.processingContext = processingContext;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) return false;
+            boolean hasNext = false;
+            try {
+                hasNext = delegate.hasNext();
+            } finally {
+                if (!hasNext) close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object[] next() {
+            if (closed) throw new NoSuchElementException();
+            boolean success = false;
+            try {
+                Object[] tuple = delegate.next();
+                success = true;
+                return tuple;
+            } finally {
+                if (!success) close();
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void close() {
+            if (!closed) {
+                closed = true;
+                closeProcessingContext(processingContext);
+            }
+        }
+    }
+
     /**
      * A method that can be overridden by subclasses to create a single context object used for all the access queries for a
      * single query.
@@ -136,6 +207,43 @@ public abstract class QueryProcessor<ProcessingContextType> implements Processor
 
     protected abstract boolean supportsPushDownExistConstraints();
 
+    /**
+     * Determine whether the {@link AbstractAccessComponent access components} created by this processor are able to honor the
+     * limit (and ordering) directly above them. By default this method returns false.
+     * 
+     * @return true if the limits should be pushed down to the access components, or false otherwise
+     * @see AbstractAccessComponent#pushDownLimit(Limit, java.util.Comparator)
+     */
+    protected boolean supportsPushDownLimits() {
+        return false;
+    }
+
+    /**
+     * Attempt to push the supplied limit down into the access component that is immediately below the limit, which is only
+     * possible when the limit's delegate is either the access component itself or a {@link SortValuesComponent} that directly
+     * sorts the access component's tuples.
+     * 
+     * @param delegate the component immediately below the LIMIT; may not be null
+     * @param limit the limit; may not be null
+     * @return true if the access component will honor the limit (and ordering), or false if the limit must still be applied
+     */
+    protected boolean pushDownLimit( ProcessingComponent delegate,
+                                     Limit limit ) {
+        if (limit.isUnlimited()) return false;
+        if (delegate instanceof AbstractAccessComponent) {
+            return ((AbstractAccessComponent)delegate).pushDownLimit(limit, null);
+        }
+        if (delegate instanceof SortValuesComponent) {
+            SortValuesComponent sort = (SortValuesComponent)delegate;
+            ProcessingComponent sorted = sort.delegate();
+            if (sorted instanceof AbstractAccessComponent && sort.getSortingComparator() != null) {
+                // The access component will sort the tuples, and the SORT will simply re-sort the (much smaller) results ...
+                return ((AbstractAccessComponent)sorted).pushDownLimit(limit, sort.getSortingComparator());
+            }
+        }
+        return false;
+    }
+
     /**
      * Create the {@link ProcessingComponent} that processes a single {@link Type#ACCESS} branch of a query plan.
      * 
@@ -264,8 +372,13 @@ public abstract class QueryProcessor<ProcessingContextType> implements Processor
                     Limit limit = Limit.NONE;
                     if (rowLimit != null) limit = limit.withRowLimit(rowLimit.intValue());
                     if (offset != null) limit = limit.withOffset(offset.intValue());
-                    // And wrap the delegate
-                    component = new LimitComponent(delegate, limit);
+                    if (supportsPushDownLimits() && pushDownLimit(delegate, limit)) {
+                        // This gets handled by the access query ...
+                        component = delegate;
+                    } else {
+                        // And wrap the delegate
+                        component = new LimitComponent(delegate, limit);
+                    }
                 }
                 break;
             case NULL:
@@ -23,10 +23,17 @@
  */
 package org.modeshape.jcr.query.process;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import org.modeshape.common.annotation.Immutable;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.collection.ImmutableProblems;
 import org.modeshape.common.collection.Problems;
 import org.modeshape.common.collection.SimpleProblems;
@@ -37,9 +44,10 @@ import org.modeshape.jcr.query.model.TypeSystem;
 import org.modeshape.jcr.query.model.TypeSystem.TypeFactory;
 
 /**
- * The resulting output of a query.
+ * The resulting output of a query. The tuples are either supplied as a list, or are {@link #isStreaming() streamed} from an
+ * iterator that computes them as they are needed (and are then kept, so that the results can be iterated more than once).
  */
-@Immutable
+@ThreadSafe
 public class QueryResults implements org.modeshape.jcr.query.QueryResults {
     private static final Problems NO_PROBLEMS = new ImmutableProblems(new SimpleProblems());
 
@@ -47,9 +55,15 @@ public class QueryResults implements org.modeshape.jcr.query.QueryResults {
 
     private final Problems problems;
     private final Columns columns;
-    private final List<Object[]> tuples;
+    @GuardedBy( "this" )
+    private List<Object[]> tuples;
+    @GuardedBy( "this" )
+    private transient Iterator<Object[]> stream;
+    @GuardedBy( "this" )
+    private transient List<Runnable> tasksWhenComputed;
     private final int[] tupleIndexesForColumns;
-    private final Statistics statistics;
+    @GuardedBy( "this" )
+    private Statistics statistics;
     private final String plan;
 
     /**
@@ -66,11 +80,43 @@ public class QueryResults implements org.modeshape.jcr.query.QueryResults {
                          List<Object[]> tuples,
                          Problems problems,
                          String plan ) {
+        this(columns, statistics, tuples, null, problems, plan);
+        assert tuples != null;
+    }
+
+    /**
+     * Create a results object for the supplied context, command, and result columns, where the tuples are computed by the
+     * supplied iterator only as they are needed. Such results are {@link #isStreaming() streamed} until all of the tuples have
+     * been computed. The computed tuples are kept, so the results can be {@link #getTupleIterator() iterated} more than once, and
+     * the time spent computing the tuples is added to the {@link Statistics#getExecutionTime(TimeUnit) execution time}.
+     * 
+     * @param columns the definition of the query result columns
+     * @param statistics the statistics for this query; may not be null
+     * @param tuples the iterator over the tuples; may not be null
+     * @param problems the problems; may be null if there are no problems
+     * @param plan the text representation of the query plan, if the hints asked for it
+     */
+    public QueryResults( Columns columns,
+                         Statistics statistics,
+                         Iterator<Object[]> tuples,
+                         Problems problems,
+                         String plan ) {
+        this(columns, statistics, null, tuples, problems, plan);
+        assert tuples != null;
+    }
+
+    private QueryResults( Columns columns,
+                          Statistics statistics,
+                          List<Object[]> tuples,
+                          Iterator<Object[]> stream,
+                          Problems problems,
+                          String plan ) {
         assert columns != null;
         assert statistics != null;
         this.problems = problems != null ? problems : NO_PROBLEMS;
         this.columns = columns;
-        this.tuples = tuples;
+        this.tuples = tuples != null ? tuples : new ArrayList<Object[]>();
+        this.stream = stream;
         this.statistics = statistics;
         this.plan = plan;
         // Precompute the indexes for each tuple, given the desired columns ...
@@ -136,17 +182,109 @@ public class QueryResults implements org.modeshape.jcr.query.QueryResults {
 
     @Override
     public Cursor getCursor() {
-        return new TupleCursor(columns, tuples.iterator());
+        return new TupleCursor(columns, getTupleIterator());
     }
 
     @Override
-    public List<Object[]> getTuples() {
+    public synchronized Iterator<Object[]> getTupleIterator() {
+        if (stream != null) {
+            return new ComputingTupleIterator();
+        }
+        return tuples.iterator();
+    }
+
+    @Override
+    public synchronized List<Object[]> getTuples() {
+        // Compute all of the (remaining) tuples ...
+        while (computeNextTuple()) {
+        }
         return tuples;
     }
 
     @Override
     public int getRowCount() {
-        return tuples.size();
+        return getTuples().size();
+    }
+
+    @Override
+    public synchronized boolean isStreaming() {
+        return stream != null;
+    }
+
+    @Override
+    public void whenAllTuplesComputed( Runnable task ) {
+        synchronized (this) {
+            if (stream != null) {
+                if (tasksWhenComputed == null) tasksWhenComputed = new LinkedList<Runnable>();
+                tasksWhenComputed.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * Compute the next tuple from the stream and add it to the tuples, recording the time spent computing it.
+     * 
+     * @return true if another tuple was computed, or false if all of the tuples have already been computed
+     */
+    @GuardedBy( "this" )
+    private boolean computeNextTuple() {
+        if (stream == null) return false;
+        long nanos = System.nanoTime();
+        boolean computed = false;
+        try {
+            if (stream.hasNext()) {
+                tuples.add(stream.next());
+                computed = true;
+            }
+        } finally {
+            statistics = statistics.withExecutionTime(statistics.getExecutionTime(TimeUnit.NANOSECONDS)
+                                                      + Math.abs(System.nanoTime() - nanos));
+            if (!computed) stream = null;
+        }
+        if (!computed && tasksWhenComputed != null) {
+            List<Runnable> tasks = tasksWhenComputed;
+            tasksWhenComputed = null;
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+        return computed;
+    }
+
+    /**
+     * An iterator over the tuples that first returns the tuples that have already been computed, and then computes the remaining
+     * tuples as they are needed.
+     */
+    protected final class ComputingTupleIterator implements Iterator<Object[]> {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            synchronized (QueryResults.this) {
+                return index < tuples.size() || computeNextTuple();
+            }
+        }
+
+        @Override
+        public Object[] next() {
+            synchronized (QueryResults.this) {
+                if (!hasNext()) throw new NoSuchElementException();
+                return tuples.get(index++);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void writeObject( ObjectOutputStream out ) throws IOException {
+        // Make sure that all of the tuples have been computed ...
+        getTuples();
+        out.defaultWriteObject();
     }
 
     @Override
@@ -170,7 +308,7 @@ public class QueryResults implements org.modeshape.jcr.query.QueryResults {
     }
 
     @Override
-    public Statistics getStatistics() {
+    public synchronized Statistics getStatistics() {
         return statistics;
     }
 
@@ -308,7 +446,7 @@ public class QueryResults implements org.modeshape.jcr.query.QueryResults {
         int rowNumber = 1;
         int tupleLength = columns.getTupleSize();
         // Should they all be printed ?
-        if (maxRowsToPrint > tuples.size()) {
+        if (maxRowsToPrint > getTuples().size()) {
             // Print all tuples ...
             for (Object[] tuple : getTuples()) {
                 printTuple(typeSystem, sb, columnWidths, rowNumber, tupleLength, tuple);
@@ -104,6 +104,22 @@ public class SelectComponent extends DelegatingComponent {
         return tuples;
     }
 
+    @Override
+    public Iterator<Object[]> iterate() {
+        final Iterator<Object[]> tuples = delegate().iterate();
+        return new TupleIterator() {
+            @Override
+            protected Object[] findNext() {
+                // Find the next tuple that satisfies the constraint ...
+                while (tuples.hasNext()) {
+                    Object[] tuple = tuples.next();
+                    if (checker.satisfiesConstraints(tuple)) return tuple;
+                }
+                return null;
+            }
+        };
+    }
+
     /**
      * Interface used to determine whether a tuple satisfies all of the constraints applied to the SELECT node.
      */
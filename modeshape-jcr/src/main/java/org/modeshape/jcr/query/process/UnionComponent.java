@@ -25,6 +25,7 @@ package org.modeshape.jcr.query.process;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import org.modeshape.jcr.query.QueryContext;
 import org.modeshape.jcr.query.QueryResults.Columns;
@@ -54,4 +55,26 @@ public class UnionComponent extends SetOperationComponent {
         }
         return tuples;
     }
+
+    @Override
+    public Iterator<Object[]> iterate() {
+        if (removeDuplicatesComparator != null) {
+            // All of the tuples are needed to remove the duplicates ...
+            return super.iterate();
+        }
+        // Otherwise, pull the tuples from each of the sources in turn ...
+        final Iterator<ProcessingComponent> sources = sources().iterator();
+        return new TupleIterator() {
+            private Iterator<Object[]> current;
+
+            @Override
+            protected Object[] findNext() {
+                while (current == null || !current.hasNext()) {
+                    if (!sources.hasNext()) return null;
+                    current = sources.next().iterate();
+                }
+                return current.next();
+            }
+        };
+    }
 }
@@ -35,6 +35,10 @@ import org.modeshape.jcr.api.ServletCredentials;
  * <p>
  * Note that this class can only be used if the {@link HttpServletRequest} class is on the classpath.
  * </p>
+ * <p>
+ * Roles are always checked against the request {@link ServletCredentials#getRequest() currently returned} by the credentials, so
+ * credentials which return the request being served can be used to create sessions that outlive a single request.
+ * </p>
  */
 public class ServletProvider implements AuthenticationProvider {
 
@@ -54,7 +58,7 @@ public class ServletProvider implements AuthenticationProvider {
             ServletCredentials creds = (ServletCredentials)credentials;
             HttpServletRequest request = creds.getRequest();
             if (request != null) {
-                return repositoryContext.with(new ServletSecurityContext(request));
+                return repositoryContext.with(new ServletSecurityContext(creds));
             }
         }
         return null;
@@ -62,6 +66,7 @@ public class ServletProvider implements AuthenticationProvider {
 
     protected static class ServletSecurityContext implements SecurityContext {
         private HttpServletRequest request;
+        private ServletCredentials credentials;
         private final String username;
 
         protected ServletSecurityContext( HttpServletRequest request ) {
@@ -69,6 +74,11 @@ public class ServletProvider implements AuthenticationProvider {
             this.username = request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : null;
         }
 
+        protected ServletSecurityContext( ServletCredentials credentials ) {
+            this(credentials.getRequest());
+            this.credentials = credentials;
+        }
+
         /**
          * {@inheritDoc}
          * 
@@ -96,6 +106,7 @@ public class ServletProvider implements AuthenticationProvider {
          */
         @Override
         public final boolean hasRole( String roleName ) {
+            HttpServletRequest request = credentials != null ? credentials.getRequest() : this.request;
             return request != null && request.isUserInRole(roleName);
         }
 
@@ -107,6 +118,7 @@ public class ServletProvider implements AuthenticationProvider {
         @Override
         public void logout() {
             request = null;
+            credentials = null;
         }
     }
 }
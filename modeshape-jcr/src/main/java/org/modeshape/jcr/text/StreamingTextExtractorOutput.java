@@ -0,0 +1,103 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import org.modeshape.common.util.StringUtil;
+import org.modeshape.jcr.api.text.TextExtractor;
+
+/**
+ * A {@link org.modeshape.jcr.api.text.TextExtractor.Output} implementation which writes each incoming text to a {@link Writer}
+ * as soon as it is recorded, separating the content via the configured separator. Unlike {@link TextExtractorOutput}, the text
+ * is never accumulated in memory, so this output should be used when the extracted text may be large.
+ * <p>
+ * Since {@link #recordText(String)} cannot throw checked exceptions, the first failure to write is remembered (all subsequent
+ * text is then ignored) and is thrown by {@link #close()}.
+ * </p>
+ */
+public final class StreamingTextExtractorOutput implements TextExtractor.Output, Closeable {
+
+    private static final String DEFAULT_SEPARATOR = " ";
+
+    private final Writer writer;
+    private final String separator;
+    private boolean empty = true;
+    private boolean blank = true;
+    private IOException error;
+
+    public StreamingTextExtractorOutput( Writer writer ) {
+        this(writer, DEFAULT_SEPARATOR);
+    }
+
+    public StreamingTextExtractorOutput( Writer writer,
+                                         String separator ) {
+        this.writer = writer;
+        this.separator = separator;
+    }
+
+    @Override
+    public void recordText( String text ) {
+        if (error != null || text == null) {
+            return;
+        }
+        try {
+            if (!empty) {
+                writer.write(separator);
+            }
+            writer.write(text);
+            empty = false;
+            if (blank && !StringUtil.isBlank(text)) {
+                blank = false;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Determine whether any non-blank text was recorded.
+     * 
+     * @return true if at least one non-blank text was recorded, or false otherwise
+     */
+    public boolean hasText() {
+        return !blank;
+    }
+
+    /**
+     * Flush and close the underlying writer.
+     * 
+     * @throws IOException if the text could not be written or if the writer could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (error == null) error = e;
+        }
+        if (error != null) throw error;
+    }
+}
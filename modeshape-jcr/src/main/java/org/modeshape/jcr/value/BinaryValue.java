@@ -23,16 +23,21 @@
  */
 package org.modeshape.jcr.value;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import javax.jcr.RepositoryException;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.jcr.api.Binary;
+import org.modeshape.jcr.api.RangedBinary;
 
 /**
  * Value holder for binary data. BinaryValue extends the public {@link Binary} interface (which itself extends
- * {@link javax.jcr.Binary}) and adds requirements such as being serializable and comparable.
+ * {@link javax.jcr.Binary}), supports the {@link RangedBinary ranged reads}, and adds requirements such as being serializable and
+ * comparable.
  */
 @Immutable
-public interface BinaryValue extends Comparable<BinaryValue>, Serializable, org.modeshape.jcr.api.Binary {
+public interface BinaryValue extends Comparable<BinaryValue>, Serializable, RangedBinary {
 
     /**
      * Get the length of this binary data.
@@ -51,4 +56,18 @@ public interface BinaryValue extends Comparable<BinaryValue>, Serializable, org.
      * @return the key; never null
      */
     public BinaryKey getKey();
+
+    /**
+     * Obtain a read-only {@link ByteBuffer} over a range of the content. Values persisted in files are memory-mapped (see
+     * {@link java.nio.channels.FileChannel#map}), so the content is paged in by the operating system on demand rather than being
+     * copied into the Java heap; other values return a buffer over their in-memory content.
+     * 
+     * @param position the zero-based offset of the first byte in the range; must be non-negative
+     * @param size the maximum number of bytes in the range; must be non-negative and no larger than {@link Integer#MAX_VALUE}
+     * @return the read-only buffer, positioned at zero and containing at most <code>size</code> bytes; never null
+     * @throws IOException if there is a problem reading the binary content
+     * @throws RepositoryException if an error occurs.
+     */
+    public ByteBuffer map( long position,
+                           long size ) throws IOException, RepositoryException;
 }
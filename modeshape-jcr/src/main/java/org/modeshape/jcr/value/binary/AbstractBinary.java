@@ -25,11 +25,15 @@ package org.modeshape.jcr.value.binary;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import javax.jcr.RepositoryException;
 import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.util.BoundedInputStream;
+import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.SecureHash;
 import org.modeshape.common.util.SecureHash.Algorithm;
 import org.modeshape.jcr.value.BinaryValue;
@@ -65,6 +69,13 @@ public abstract class AbstractBinary implements BinaryValue {
         assert this.key != null;
     }
 
+    /**
+     * Constructor for subclasses that compute their key lazily. Such subclasses must override {@link #getKey()}.
+     */
+    protected AbstractBinary() {
+        this.key = null;
+    }
+
     @Override
     public int read( byte[] b,
                      long position ) throws IOException, RepositoryException {
@@ -102,6 +113,33 @@ public abstract class AbstractBinary implements BinaryValue {
         }
     }
 
+    @Override
+    public InputStream getStream( long offset,
+                                  long length ) throws RepositoryException {
+        CheckArg.isNonNegative(offset, "offset");
+        CheckArg.isNonNegative(length, "length");
+        try {
+            return BoundedInputStream.range(getStream(), offset, length);
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
+    @Override
+    public long transferTo( long position,
+                            long count,
+                            WritableByteChannel target ) throws IOException, RepositoryException {
+        CheckArg.isNotNull(target, "target");
+        return AbstractBinaryStore.transfer(getStream(position, count), count, target);
+    }
+
+    @Override
+    public ByteBuffer map( long position,
+                           long size ) throws IOException, RepositoryException {
+        CheckArg.isLessThanOrEqualTo(size, Integer.MAX_VALUE, "size");
+        return AbstractBinaryStore.read(getStream(position, size), (int)size);
+    }
+
     @Override
     public BinaryKey getKey() {
         return key;
@@ -109,12 +147,12 @@ public abstract class AbstractBinary implements BinaryValue {
 
     @Override
     public byte[] getHash() {
-        return key.toBytes();
+        return getKey().toBytes();
     }
 
     @Override
     public String getHexHash() {
-        return key.toString();
+        return getKey().toString();
     }
 
     @Override
@@ -130,7 +168,7 @@ public abstract class AbstractBinary implements BinaryValue {
 
     @Override
     public int hashCode() {
-        return key.hashCode();
+        return getKey().hashCode();
     }
 
     @Override
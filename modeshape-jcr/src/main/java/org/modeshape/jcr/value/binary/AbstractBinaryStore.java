@@ -24,25 +24,33 @@
 package org.modeshape.jcr.value.binary;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.jcr.RepositoryException;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.BoundedInputStream;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.TextExtractors;
 import org.modeshape.jcr.mimetype.MimeTypeDetector;
 import org.modeshape.jcr.mimetype.NullMimeTypeDetector;
 import org.modeshape.jcr.text.TextExtractorContext;
+import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.BinaryValue;
 
 /**
  * An abstract class for a {@link BinaryStore}, with common functionality needed by implementation classes.
  */
 @ThreadSafe
-public abstract class AbstractBinaryStore implements BinaryStore {
+public abstract class AbstractBinaryStore implements RangedBinaryStore {
 
     /**
      * The default minimum size (in bytes) of binary values that are persisted in the binary store is 4096 bytes, or 4KB.
@@ -106,6 +114,95 @@ public abstract class AbstractBinaryStore implements BinaryStore {
         this.detector = mimeTypeDetector != null ? mimeTypeDetector : NullMimeTypeDetector.INSTANCE;
     }
 
+    @Override
+    public InputStream getInputStream( BinaryKey key,
+                                       long offset,
+                                       long length ) throws BinaryStoreException {
+        CheckArg.isNonNegative(offset, "offset");
+        CheckArg.isNonNegative(length, "length");
+        InputStream stream = getInputStream(key);
+        try {
+            return BoundedInputStream.range(stream, offset, length);
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
+    @Override
+    public long transferTo( BinaryKey key,
+                            long position,
+                            long count,
+                            WritableByteChannel target ) throws BinaryStoreException, IOException {
+        CheckArg.isNotNull(target, "target");
+        return transfer(getInputStream(key, position, count), count, target);
+    }
+
+    @Override
+    public ByteBuffer map( BinaryKey key,
+                           long position,
+                           long size ) throws BinaryStoreException {
+        CheckArg.isNonNegative(size, "size");
+        CheckArg.isLessThanOrEqualTo(size, Integer.MAX_VALUE, "size");
+        try {
+            return read(getInputStream(key, position, size), (int)size);
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
+    /**
+     * Copy at most <code>count</code> bytes from the supplied stream into the channel, and always close the stream.
+     * 
+     * @param stream the stream; may not be null
+     * @param count the maximum number of bytes to copy; must be non-negative
+     * @param target the channel; may not be null
+     * @return the number of bytes copied
+     * @throws IOException if there is a problem reading from the stream or writing to the channel
+     */
+    static long transfer( InputStream stream,
+                          long count,
+                          WritableByteChannel target ) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(bestBufferSize(count));
+            long transferred = 0L;
+            int numRead = 0;
+            while (transferred < count && (numRead = stream.read(buffer.array())) != -1) {
+                buffer.limit(numRead);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+                transferred += numRead;
+            }
+            return transferred;
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Read at most <code>size</code> bytes from the supplied stream into a read-only buffer, and always close the stream.
+     * 
+     * @param stream the stream; may not be null
+     * @param size the maximum number of bytes to read; must be non-negative
+     * @return the read-only buffer; never null
+     * @throws IOException if there is a problem reading from the stream
+     */
+    static ByteBuffer read( InputStream stream,
+                            int size ) throws IOException {
+        try {
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            int numRead = 0;
+            while (offset < size && (numRead = stream.read(bytes, offset, size - offset)) != -1) {
+                offset += numRead;
+            }
+            return ByteBuffer.wrap(bytes, 0, offset).slice().asReadOnlyBuffer();
+        } finally {
+            stream.close();
+        }
+    }
+
     @Override
     public final String getText( BinaryValue binary ) throws BinaryStoreException {
         // try and locate an already extracted text from the store
@@ -127,18 +224,59 @@ public abstract class AbstractBinaryStore implements BinaryStore {
         }
 
         // there isn't any text available, so wait for a job to finish and then return the result
-        try {
-            CountDownLatch latch = extractors.getWorkerLatch(binary.getKey(), false);
-            if (latch == null) {
-                // There is no latch, so just compute the text here ...
-                latch = extractors.extract(this, binary, new TextExtractorContext(detector()));
-            }
-            // There was a latch, so wait till the work is done ...
-            if (latch != null && latch.await(DEFAULT_LATCH_WAIT_IN_SECONDS, TimeUnit.SECONDS)) {
-                return getExtractedText(binary);
+        return awaitExtraction(binary) ? getExtractedText(binary) : null;
+    }
+
+    /**
+     * Get a reader over the text that can be extracted from this binary content. This behaves exactly like
+     * {@link #getText(BinaryValue)}, except that the text is streamed from the store (when the store supports it) rather than
+     * being loaded into memory, which makes it the preferred way of consuming the text of large binary values. The caller is
+     * responsible for closing the returned reader.
+     * 
+     * @param binary the binary content; may not be null
+     * @return the reader over the extracted text, or null if no text could be extracted
+     * @throws BinaryStoreException if the binary content could not be accessed or if the given binary value cannot be found
+     *         within the store.
+     * @see #getText(BinaryValue)
+     */
+    public final Reader getTextReader( BinaryValue binary ) throws BinaryStoreException {
+        // try and locate an already extracted text from the store
+        if (binary instanceof StoredBinaryValue) {
+            Reader extractedText = getExtractedTextReader(binary);
+            if (extractedText != null) {
+                return extractedText;
             }
-            // Stopped waiting ...
+        }
+
+        // there isn't extracted text stored, so try to extract text if extraction is enabled
+        if (extractors == null || !extractors.extractionEnabled()) {
             return null;
+        }
+
+        if (binary instanceof InMemoryBinaryValue) {
+            // In-memory values are small, so their text is simply extracted into memory ...
+            String text = extractors.extract((InMemoryBinaryValue)binary, new TextExtractorContext(detector()));
+            return text != null ? new StringReader(text) : null;
+        }
+
+        // there isn't any text available, so wait for a job to finish and then return the result
+        return awaitExtraction(binary) ? getExtractedTextReader(binary) : null;
+    }
+
+    /**
+     * Wait for the text extraction of the supplied binary value to finish, starting the extraction if it is not already under
+     * way.
+     * 
+     * @param binary the binary value; may not be null
+     * @return true if the extraction has finished, or false if the extraction could not be started or did not finish in time
+     * @throws BinaryStoreException if the thread is interrupted while waiting
+     */
+    private boolean awaitExtraction( BinaryValue binary ) throws BinaryStoreException {
+        try {
+            // Find the pending extraction (giving it priority since we're waiting for it), or request a new one ...
+            CountDownLatch latch = extractors.extract(this, binary, new TextExtractorContext(detector()), true);
+            // Wait till the work is done ...
+            return latch != null && latch.await(DEFAULT_LATCH_WAIT_IN_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             throw new BinaryStoreException(e);
         }
@@ -209,6 +347,45 @@ public abstract class AbstractBinaryStore implements BinaryStore {
      */
     public abstract String getExtractedText( BinaryValue source ) throws BinaryStoreException;
 
+    /**
+     * Stores the extracted text of a binary value into this store, reading the text from the supplied reader. This method always
+     * closes the reader.
+     * <p>
+     * By default this method reads the whole text into memory and calls {@link #storeExtractedText(BinaryValue, String)}, so
+     * stores that can write the text as it is read should override it.
+     * </p>
+     * 
+     * @param source a {@code non-null} {@link BinaryValue} instance from which the text was extracted
+     * @param extractedText a {@code non-null} reader over the non-blank extracted text
+     * @throws BinaryStoreException if the operation fails or if the extracted text cannot be stored for the given binary value
+     *         (regardless of the reason)
+     */
+    public void storeExtractedText( BinaryValue source,
+                                    Reader extractedText ) throws BinaryStoreException {
+        try {
+            storeExtractedText(source, IoUtil.read(extractedText));
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
+    /**
+     * Returns a reader over the extracted text of a binary value, or {@code null} if such text hasn't been stored previously (but
+     * the binary value can be found in the store). The caller is responsible for closing the reader.
+     * <p>
+     * By default this method simply wraps the result of {@link #getExtractedText(BinaryValue)}, so stores that can read the text
+     * as it is consumed should override it.
+     * </p>
+     * 
+     * @param source a {@code non-null} {@link BinaryValue} instance from which the text was extracted
+     * @return a reader over the extracted text, or {@code null} if such text hasn't been stored in this store previously.
+     * @throws BinaryStoreException if the binary value cannot be found in the store.
+     */
+    public Reader getExtractedTextReader( BinaryValue source ) throws BinaryStoreException {
+        String extractedText = getExtractedText(source);
+        return extractedText != null ? new StringReader(extractedText) : null;
+    }
+
     /**
      * Get the text extractor that can be used to extract text by this store.
      * 
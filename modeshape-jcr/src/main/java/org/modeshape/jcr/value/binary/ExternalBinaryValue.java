@@ -67,6 +67,26 @@ public abstract class ExternalBinaryValue extends AbstractBinary {
         this.mimeTypeDetector = mimeTypeDetector;
     }
 
+    /**
+     * Creates a new instance whose key is not known up front. Only {@link LazyKeyExternalBinaryValue} uses this constructor.
+     * 
+     * @param sourceName name of the external source which owns the value, {@code never null}
+     * @param size the length of the binary
+     * @param nameHint optional name which can help with mime-type detection
+     * @param mimeTypeDetector the repository's {@link MimeTypeDetector}
+     */
+    ExternalBinaryValue( String sourceName,
+                         long size,
+                         String nameHint,
+                         MimeTypeDetector mimeTypeDetector ) {
+        super();
+
+        this.sourceName = sourceName;
+        this.size = size;
+        this.nameHint = nameHint;
+        this.mimeTypeDetector = mimeTypeDetector;
+    }
+
     /**
      * Returns this binary's id.
      * 
@@ -25,14 +25,23 @@ package org.modeshape.jcr.value.binary;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashSet;
 import java.util.Set;
@@ -42,6 +51,7 @@ import java.util.concurrent.locks.Lock;
 import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.SecureHash;
 import org.modeshape.common.util.SecureHash.Algorithm;
@@ -60,7 +70,13 @@ import org.modeshape.jcr.value.binary.FileLocks.WrappedLock;
 @ThreadSafe
 public class FileSystemBinaryStore extends AbstractBinaryStore {
 
+    /**
+     * The suffix of the extracted text written by earlier versions, which is encoded with the platform's default charset
+     */
     private static final String EXTRACTED_TEXT_SUFFIX = "-extracted-text";
+    private static final String UTF8_EXTRACTED_TEXT_SUFFIX = "-extracted-text-utf8";
+    private static final Charset TEXT_ENCODING = Charset.forName("UTF-8");
+    private static final Charset PLATFORM_ENCODING = Charset.defaultCharset();
     private static final String MIME_TYPE_SUFFIX = "-mime-type";
 
     private static final ConcurrentHashMap<String, FileSystemBinaryStore> INSTANCES = new ConcurrentHashMap<String, FileSystemBinaryStore>();
@@ -108,24 +124,31 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
         File tmpFile = null;
         BinaryValue value = null;
         try {
-            // Write the contents to a temporary file, and while we do grab the SHA-1 hash and the length ...
             HashingInputStream hashingStream = SecureHash.createHashingStream(Algorithm.SHA_1, stream);
-            tmpFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
-            IoUtil.write(hashingStream,
-                         new BufferedOutputStream(new FileOutputStream(tmpFile)),
-                         AbstractBinaryStore.MEDIUM_BUFFER_SIZE);
-            hashingStream.close();
-            byte[] sha1 = hashingStream.getHash();
-            BinaryKey key = new BinaryKey(sha1);
-
-            final long numberOfBytes = tmpFile.length();
-            if (numberOfBytes < getMinimumBinarySizeInBytes()) {
-                // The content is small enough to just store in-memory ...
-                byte[] content = IoUtil.readBytes(tmpFile);
-                tmpFile.delete();
-                value = new InMemoryBinaryValue(this, key, content);
+
+            // Read the leading content into memory, since content smaller than the minimum is never written to disk ...
+            final long minimumSize = getMinimumBinarySizeInBytes();
+            ByteArrayOutputStream leadingContent = new ByteArrayOutputStream();
+            byte[] buffer = new byte[(int)Math.max(1L, Math.min(minimumSize, AbstractBinaryStore.MEDIUM_BUFFER_SIZE))];
+            int numRead = 0;
+            while (leadingContent.size() < minimumSize
+                   && (numRead = hashingStream.read(buffer, 0, (int)Math.min(buffer.length, minimumSize - leadingContent.size()))) != -1) {
+                leadingContent.write(buffer, 0, numRead);
+            }
+
+            if (leadingContent.size() < minimumSize) {
+                // We reached the end of the stream, so the content is small enough to just store in-memory ...
+                hashingStream.close();
+                BinaryKey key = new BinaryKey(hashingStream.getHash());
+                value = new InMemoryBinaryValue(this, key, leadingContent.toByteArray());
             } else {
-                value = saveTempFileToStore(tmpFile, key, numberOfBytes);
+                // Write the contents to a temporary file, and while we do grab the SHA-1 hash and the length ...
+                tmpFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+                OutputStream output = new BufferedOutputStream(new FileOutputStream(tmpFile));
+                leadingContent.writeTo(output);
+                IoUtil.write(hashingStream, output, AbstractBinaryStore.MEDIUM_BUFFER_SIZE);
+                BinaryKey key = new BinaryKey(hashingStream.getHash());
+                value = saveTempFileToStore(tmpFile, key, tmpFile.length());
             }
 
             if (extractors() != null && !(value instanceof InMemoryBinaryValue)) {
@@ -246,6 +269,97 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
 
     @Override
     public InputStream getInputStream( BinaryKey key ) throws BinaryStoreException {
+        // We now know that the file (which does exist) is not being written by this process, but another
+        // process might be actively writing to it. So use an InputStream that lazily obtains a shared lock
+        // when the stream is used, and always releases the lock (even in the case of exceptions).
+        return new SharedLockingInputStream(key, persistedFile(key), locks);
+    }
+
+    @Override
+    public InputStream getInputStream( BinaryKey key,
+                                       long offset,
+                                       long length ) throws BinaryStoreException {
+        CheckArg.isNonNegative(offset, "offset");
+        CheckArg.isNonNegative(length, "length");
+        // The stream positions the file's channel at the offset, so none of the preceding content is read ...
+        return new SharedLockingInputStream(key, persistedFile(key), locks, offset, length);
+    }
+
+    @Override
+    public long transferTo( BinaryKey key,
+                            long position,
+                            long count,
+                            WritableByteChannel target ) throws BinaryStoreException, IOException {
+        CheckArg.isNonNegative(position, "position");
+        CheckArg.isNonNegative(count, "count");
+        CheckArg.isNotNull(target, "target");
+        File persistedFile = persistedFile(key);
+        Lock lock = locks.readLock(key.toString());
+        try {
+            WrappedLock fileLock = FileLocks.get().readLock(persistedFile);
+            try {
+                FileInputStream stream = new FileInputStream(persistedFile);
+                try {
+                    // Let the channel move the bytes directly into the target (e.g., 'sendfile' for sockets) ...
+                    FileChannel channel = stream.getChannel();
+                    long end = position + Math.min(count, Math.max(0L, channel.size() - position));
+                    long transferred = 0L;
+                    while (position + transferred < end) {
+                        long numTransferred = channel.transferTo(position + transferred, end - position - transferred, target);
+                        if (numTransferred <= 0L) break;
+                        transferred += numTransferred;
+                    }
+                    return transferred;
+                } finally {
+                    stream.close();
+                }
+            } finally {
+                fileLock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ByteBuffer map( BinaryKey key,
+                           long position,
+                           long size ) throws BinaryStoreException {
+        CheckArg.isNonNegative(position, "position");
+        CheckArg.isNonNegative(size, "size");
+        CheckArg.isLessThanOrEqualTo(size, Integer.MAX_VALUE, "size");
+        File persistedFile = persistedFile(key);
+        Lock lock = locks.readLock(key.toString());
+        try {
+            WrappedLock fileLock = FileLocks.get().readLock(persistedFile);
+            try {
+                FileInputStream stream = new FileInputStream(persistedFile);
+                try {
+                    // The mapping remains valid after the channel is closed, and persisted files are never modified ...
+                    FileChannel channel = stream.getChannel();
+                    long start = Math.min(position, channel.size());
+                    return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, channel.size() - start));
+                } finally {
+                    stream.close();
+                }
+            } finally {
+                fileLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find the persisted file for the binary content with the supplied key, restoring it from the trash if needed.
+     * 
+     * @param key the binary key; may not be null
+     * @return the existing, readable file; never null
+     * @throws BinaryStoreException if there is no file for the key
+     */
+    private File persistedFile( BinaryKey key ) throws BinaryStoreException {
         // Now that we know the SHA-1, find the File object that corresponds to the existing persisted file ...
         File persistedFile = findFile(directory, key, false);
         if (!persistedFile.exists() || !persistedFile.canRead()) {
@@ -260,11 +374,7 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
             // Clean up any empty directories in the trash ...
             pruneEmptyDirectories(trash, trashedFile);
         }
-
-        // We now know that the file (which does exist) is not being written by this process, but another
-        // process might be actively writing to it. So use an InputStream that lazily obtains a shared lock
-        // when the stream is used, and always releases the lock (even in the case of exceptions).
-        return new SharedLockingInputStream(key, persistedFile, locks);
+        return persistedFile;
     }
 
     @SuppressWarnings( "unused" )
@@ -279,7 +389,8 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
         }
         for (BinaryKey key : keys) {
             markAsUnused(key);
-            // mark the corresponding extracted text file as unused
+            // mark the corresponding extracted text files as unused
+            markAsUnused(createKeyFromSourceWithSuffix(key, UTF8_EXTRACTED_TEXT_SUFFIX));
             markAsUnused(createKeyFromSourceWithSuffix(key, EXTRACTED_TEXT_SUFFIX));
             // mark the corresponding stored mime-type file as unused
             markAsUnused(createKeyFromSourceWithSuffix(key, MIME_TYPE_SUFFIX));
@@ -420,8 +531,13 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
         if (!binaryValueExists(source)) {
             throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(source.getKey(), directory));
         }
-        BinaryKey extractedTextKey = createKeyFromSourceWithSuffix(source.getKey(), EXTRACTED_TEXT_SUFFIX);
-        return storedStringAtKey(extractedTextKey);
+        Reader reader = getExtractedTextReader(source);
+        if (reader == null) return null;
+        try {
+            return IoUtil.read(reader);
+        } catch (IOException e) {
+            throw new BinaryStoreException(e);
+        }
     }
 
     private String storedStringAtKey( BinaryKey key ) throws BinaryStoreException {
@@ -434,29 +550,63 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
         }
 
         try {
-            return IoUtil.read(is);
+            return IoUtil.read(is, PLATFORM_ENCODING.name());
         } catch (IOException e) {
             throw new BinaryStoreException(e);
         }
     }
 
+    @Override
+    public Reader getExtractedTextReader( BinaryValue source ) throws BinaryStoreException {
+        if (!binaryValueExists(source)) {
+            throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(source.getKey(), directory));
+        }
+        BinaryKey extractedTextKey = createKeyFromSourceWithSuffix(source.getKey(), UTF8_EXTRACTED_TEXT_SUFFIX);
+        try {
+            return new InputStreamReader(getInputStream(extractedTextKey), TEXT_ENCODING);
+        } catch (BinaryStoreException e) {
+            // means the file wasn't found, so look for the text stored by an earlier version ...
+        }
+        BinaryKey legacyKey = createKeyFromSourceWithSuffix(source.getKey(), EXTRACTED_TEXT_SUFFIX);
+        try {
+            return new InputStreamReader(getInputStream(legacyKey), PLATFORM_ENCODING);
+        } catch (BinaryStoreException e) {
+            // means the file wasn't found (isn't available yet) in the store
+            return null;
+        }
+    }
+
     @Override
     public void storeExtractedText( BinaryValue source,
                                     String extractedText ) throws BinaryStoreException {
-        BinaryKey extractedTextKey = createKeyFromSourceWithSuffix(source.getKey(), EXTRACTED_TEXT_SUFFIX);
-        storeStringAtKey(extractedText, extractedTextKey);
+        storeExtractedText(source, new StringReader(extractedText));
+    }
+
+    @Override
+    public void storeExtractedText( BinaryValue source,
+                                    Reader extractedText ) throws BinaryStoreException {
+        BinaryKey extractedTextKey = createKeyFromSourceWithSuffix(source.getKey(), UTF8_EXTRACTED_TEXT_SUFFIX);
+        storeTextAtKey(extractedText, extractedTextKey, TEXT_ENCODING);
     }
 
     private void storeStringAtKey( String string,
                                    BinaryKey key ) throws BinaryStoreException {
+        storeTextAtKey(new StringReader(string), key, PLATFORM_ENCODING);
+    }
+
+    private void storeTextAtKey( Reader text,
+                                 BinaryKey key,
+                                 Charset encoding ) throws BinaryStoreException {
         File tmpFile = null;
         try {
             tmpFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX + EXTRACTED_TEXT_SUFFIX);
-            IoUtil.write(string, new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            // Copy the text in chunks, so that large text never has to be held in memory ...
+            IoUtil.write(text, new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(tmpFile)), encoding));
             saveTempFileToStore(tmpFile, key, tmpFile.length());
         } catch (IOException e) {
             throw new BinaryStoreException(e);
         } finally {
+            IoUtil.closeQuietly(text);
             if (tmpFile != null) {
                 tmpFile.delete();
             }
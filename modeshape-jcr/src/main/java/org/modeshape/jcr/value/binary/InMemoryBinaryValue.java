@@ -26,6 +26,8 @@ package org.modeshape.jcr.value.binary;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import javax.jcr.RepositoryException;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.util.CheckArg;
@@ -77,6 +79,41 @@ public class InMemoryBinaryValue extends AbstractBinary {
         return new ByteArrayInputStream(this.bytes);
     }
 
+    @Override
+    public InputStream getStream( long offset,
+                                  long length ) {
+        ByteBuffer range = range(offset, length);
+        return new ByteArrayInputStream(bytes, range.position(), range.remaining());
+    }
+
+    @Override
+    public long transferTo( long position,
+                            long count,
+                            WritableByteChannel target ) throws IOException {
+        CheckArg.isNotNull(target, "target");
+        ByteBuffer range = range(position, count);
+        int transferred = range.remaining();
+        while (range.hasRemaining()) {
+            target.write(range);
+        }
+        return transferred;
+    }
+
+    @Override
+    public ByteBuffer map( long position,
+                           long size ) {
+        return range(position, size).slice().asReadOnlyBuffer();
+    }
+
+    private ByteBuffer range( long position,
+                              long size ) {
+        CheckArg.isNonNegative(position, "position");
+        CheckArg.isNonNegative(size, "size");
+        int start = (int)Math.min(position, bytes.length);
+        int length = (int)Math.min(size, bytes.length - start);
+        return ByteBuffer.wrap(bytes, start, length);
+    }
+
     @Override
     public String getMimeType() throws IOException, RepositoryException {
         if (mimeType == null) {
@@ -0,0 +1,94 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.value.binary;
+
+import org.modeshape.jcr.mimetype.MimeTypeDetector;
+import org.modeshape.jcr.value.BinaryKey;
+
+/**
+ * An {@link ExternalBinaryValue} whose {@link #getKey() key} (e.g., the SHA-1 hash of the content) is not known up front, but is
+ * {@link #computeKey() computed} the first time it is needed. Subclasses identify the binary with their own {@link #getId() id}.
+ */
+@SuppressWarnings( "serial" )
+public abstract class LazyKeyExternalBinaryValue extends ExternalBinaryValue {
+
+    private volatile BinaryKey lazyKey;
+
+    /**
+     * Creates a new instance whose key is computed lazily.
+     * 
+     * @param sourceName name of the external source which owns the value, {@code never null}
+     * @param size the length of the binary
+     * @param nameHint optional name which can help with mime-type detection
+     * @param mimeTypeDetector the repository's {@link MimeTypeDetector}
+     */
+    protected LazyKeyExternalBinaryValue( String sourceName,
+                                          long size,
+                                          String nameHint,
+                                          MimeTypeDetector mimeTypeDetector ) {
+        super(sourceName, size, nameHint, mimeTypeDetector);
+    }
+
+    /**
+     * Creates a new instance whose key is already known, and which therefore never {@link #computeKey() computes} it.
+     * 
+     * @param key the binary key; may not be null
+     * @param sourceName name of the external source which owns the value
+     * @param size the length of the binary
+     * @param nameHint optional name which can help with mime-type detection
+     * @param mimeTypeDetector the repository's {@link MimeTypeDetector}
+     */
+    protected LazyKeyExternalBinaryValue( BinaryKey key,
+                                          String sourceName,
+                                          long size,
+                                          String nameHint,
+                                          MimeTypeDetector mimeTypeDetector ) {
+        super(sourceName, size, nameHint, mimeTypeDetector);
+        assert key != null;
+        this.lazyKey = key;
+    }
+
+    @Override
+    public BinaryKey getKey() {
+        BinaryKey key = lazyKey;
+        if (key == null) {
+            // Concurrent callers may both compute the key, but they will compute the same key ...
+            key = computeKey();
+            assert key != null;
+            lazyKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Compute the key of this binary value. This is called only when something actually needs the key, and at most once unless
+     * concurrent callers need it at the same time.
+     * 
+     * @return the binary key; may not be null
+     */
+    protected abstract BinaryKey computeKey();
+
+    @Override
+    public abstract String getId();
+}
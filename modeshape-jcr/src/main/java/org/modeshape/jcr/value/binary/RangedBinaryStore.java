@@ -0,0 +1,91 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.value.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.value.BinaryKey;
+
+/**
+ * An optional extension of {@link BinaryStore} for stores that can read a range of the binary content without reading the
+ * preceding content. {@link StoredBinaryValue Binary values} held in stores that don't implement this interface read their ranges
+ * through {@link BinaryStore#getInputStream(BinaryKey)}.
+ * <p>
+ * All stores that extend {@link AbstractBinaryStore} implement this interface, and the implementations there (which skip over the
+ * preceding bytes) are correct for any store; only stores that can do better need to override them.
+ * </p>
+ */
+@ThreadSafe
+public interface RangedBinaryStore extends BinaryStore {
+
+    /**
+     * Get an {@link InputStream} to a range of the binary content with the supplied key. Stores that support random access
+     * position the stream directly at the offset rather than reading and discarding the preceding content.
+     * 
+     * @param key the key to the binary content; never null
+     * @param offset the zero-based offset of the first byte in the range; must be non-negative
+     * @param length the maximum number of bytes in the range; must be non-negative
+     * @return the input stream through which the range can be read, {@code never null}
+     * @throws BinaryStoreException if there is a problem reading the content from the store or if a valid, non-null
+     *         {@link InputStream} cannot be returned for the given key.
+     */
+    InputStream getInputStream( BinaryKey key,
+                                long offset,
+                                long length ) throws BinaryStoreException;
+
+    /**
+     * Transfer a range of the binary content with the supplied key into the given channel, without closing the channel. Stores
+     * that keep their content in files can use {@link java.nio.channels.FileChannel#transferTo} so that the content is not copied
+     * through the Java heap.
+     * 
+     * @param key the key to the binary content; never null
+     * @param position the zero-based offset of the first byte to transfer; must be non-negative
+     * @param count the maximum number of bytes to transfer; must be non-negative
+     * @param target the channel into which the content is written; may not be null
+     * @return the number of bytes that were transferred
+     * @throws BinaryStoreException if there is a problem reading the content from the store
+     * @throws IOException if there is a problem writing to the channel
+     */
+    long transferTo( BinaryKey key,
+                     long position,
+                     long count,
+                     WritableByteChannel target ) throws BinaryStoreException, IOException;
+
+    /**
+     * Obtain a read-only {@link ByteBuffer} over a range of the binary content with the supplied key. Stores that keep their
+     * content in files return a {@link java.nio.MappedByteBuffer memory-mapped} buffer; others read the range into memory.
+     * 
+     * @param key the key to the binary content; never null
+     * @param position the zero-based offset of the first byte in the range; must be non-negative
+     * @param size the maximum number of bytes in the range; must be non-negative and no larger than {@link Integer#MAX_VALUE}
+     * @return the read-only buffer; never null
+     * @throws BinaryStoreException if there is a problem reading the content from the store
+     */
+    ByteBuffer map( BinaryKey key,
+                    long position,
+                    long size ) throws BinaryStoreException;
+}
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.Callable;
 import java.util.concurrent.locks.Lock;
+import org.modeshape.common.util.BoundedInputStream;
 import org.modeshape.jcr.value.BinaryKey;
 
 /**
@@ -44,6 +45,8 @@ public final class SharedLockingInputStream extends InputStream {
     protected final BinaryKey key;
     protected final File file;
     protected final NamedLocks lockManager;
+    protected final long offset;
+    protected final long length;
     protected InputStream stream;
     protected Lock processLock;
     protected FileLocks.WrappedLock fileLock;
@@ -60,11 +63,33 @@ public final class SharedLockingInputStream extends InputStream {
     public SharedLockingInputStream( BinaryKey key,
                                      File file,
                                      NamedLocks lockManager ) {
+        this(key, file, lockManager, 0L, -1L);
+    }
+
+    /**
+     * Create a self-closing, (shared) locking {@link InputStream} to read a range of the content of the supplied {@link File
+     * file}. The file's channel is positioned directly at the offset, so none of the preceding content is read.
+     * 
+     * @param key the binary key; may not be null
+     * @param file the file that is to be read; may not be null
+     * @param lockManager the manager of the locks, from which a read lock is to be obtained; may be null if no read lock is
+     *        needed
+     * @param offset the zero-based offset of the first byte to be read; must be non-negative
+     * @param length the maximum number of bytes to be read, or a negative number if the stream should read to the end of the file
+     */
+    public SharedLockingInputStream( BinaryKey key,
+                                     File file,
+                                     NamedLocks lockManager,
+                                     long offset,
+                                     long length ) {
         assert key != null;
         assert file != null;
+        assert offset >= 0L;
         this.key = key;
         this.file = file;
         this.lockManager = lockManager;
+        this.offset = offset;
+        this.length = length;
     }
 
     protected void open() throws IOException {
@@ -80,10 +105,17 @@ public final class SharedLockingInputStream extends InputStream {
                     // Also get a shared file lock to prevent other processes from modifying the file ...
                     SharedLockingInputStream.this.fileLock = FileLocks.get().readLock(file);
 
-                    // Now create a buffered stream ...
-                    SharedLockingInputStream.this.stream = new BufferedInputStream(
-                                                                                   new FileInputStream(file),
-                                                                                   AbstractBinaryStore.bestBufferSize(file.length()));
+                    // Now create a buffered stream over the requested range ...
+                    FileInputStream fileStream = new FileInputStream(file);
+                    long size = Math.max(0L, file.length() - offset);
+                    InputStream rangeStream = fileStream;
+                    if (offset > 0L) fileStream.getChannel().position(offset);
+                    if (length >= 0L) {
+                        rangeStream = new BoundedInputStream(fileStream, length);
+                        size = Math.min(size, length);
+                    }
+                    SharedLockingInputStream.this.stream = new BufferedInputStream(rangeStream,
+                                                                                   AbstractBinaryStore.bestBufferSize(size));
                     SharedLockingInputStream.this.eofReached = false;
                 }
                 return null;
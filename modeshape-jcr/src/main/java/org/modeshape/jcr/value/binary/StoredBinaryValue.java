@@ -25,6 +25,8 @@ package org.modeshape.jcr.value.binary;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import javax.jcr.RepositoryException;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.jcr.value.BinaryValue;
@@ -63,6 +65,34 @@ public class StoredBinaryValue extends AbstractBinary {
         return store.getInputStream(getKey());
     }
 
+    @Override
+    public InputStream getStream( long offset,
+                                  long length ) throws RepositoryException {
+        if (store instanceof RangedBinaryStore) {
+            return ((RangedBinaryStore)store).getInputStream(getKey(), offset, length);
+        }
+        return super.getStream(offset, length);
+    }
+
+    @Override
+    public long transferTo( long position,
+                            long count,
+                            WritableByteChannel target ) throws IOException, RepositoryException {
+        if (store instanceof RangedBinaryStore) {
+            return ((RangedBinaryStore)store).transferTo(getKey(), position, count, target);
+        }
+        return super.transferTo(position, count, target);
+    }
+
+    @Override
+    public ByteBuffer map( long position,
+                           long size ) throws IOException, RepositoryException {
+        if (store instanceof RangedBinaryStore) {
+            return ((RangedBinaryStore)store).map(getKey(), position, size);
+        }
+        return super.map(position, size);
+    }
+
     @Override
     public String getMimeType() throws IOException, RepositoryException {
         if (mimeType == null) {
@@ -4,73 +4,99 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.security.NoSuchAlgorithmException;
 import javax.jcr.RepositoryException;
-import org.modeshape.common.logging.Logger;
+import org.modeshape.common.SystemFailureException;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.SecureHash.Algorithm;
 import org.modeshape.jcr.mimetype.MimeTypeDetector;
 import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.BinaryValue;
 
 /**
  * A {@link BinaryValue} implementation used to read the content of a resolvable URL. This class computes the
- * {@link AbstractBinary#getMimeType() MIME type} lazily.
+ * {@link AbstractBinary#getMimeType() MIME type} lazily, and also computes the {@link #getKey() key} (the SHA-1 hash of the
+ * content) only when it is actually needed, since doing so requires reading the entire content.
  */
-public class UrlBinaryValue extends AbstractBinary {
+public class UrlBinaryValue extends LazyKeyExternalBinaryValue {
     private static final long serialVersionUID = 1L;
 
-    private transient MimeTypeDetector mimeTypeDetector;
-    private transient String nameHint; // only needed for MIME type detection; not needed once MIME type is known
-    private String mimeType;
+    private final String id;
     private URL url;
-    private long size;
-    private boolean detectedMimeType = false;
 
+    /**
+     * Creates a new instance.
+     *
+     * @param id the connector-specific identifier of this binary, never {@code null}
+     * @param sourceName name of the external source which owns the value, {@code never null}
+     * @param content the URL of the content; never {@code null}
+     * @param size the length of the binary
+     * @param nameHint optional name which can help with mime-type detection
+     * @param mimeTypeDetector the repository's {@link MimeTypeDetector}
+     */
+    public UrlBinaryValue( String id,
+                           String sourceName,
+                           URL content,
+                           long size,
+                           String nameHint,
+                           MimeTypeDetector mimeTypeDetector ) {
+        super(sourceName, size, nameHint, mimeTypeDetector);
+        this.id = id;
+        this.url = content;
+    }
+
+    /**
+     * Creates a new instance whose key is already known.
+     *
+     * @param binaryKey the key of the binary; never {@code null}
+     * @param content the URL of the content; never {@code null}
+     * @param size the length of the binary
+     * @param nameHint optional name which can help with mime-type detection
+     * @param mimeTypeDetector the repository's {@link MimeTypeDetector}
+     * @deprecated use {@link #UrlBinaryValue(String, String, URL, long, String, MimeTypeDetector)}, which computes the key only
+     *             when it is needed
+     */
+    @Deprecated
     public UrlBinaryValue( BinaryKey binaryKey,
                            URL content,
                            long size,
                            String nameHint,
                            MimeTypeDetector mimeTypeDetector ) {
-        super(binaryKey);
+        super(binaryKey, null, size, nameHint, mimeTypeDetector);
+        this.id = binaryKey.toString();
         this.url = content;
-        this.size = size;
-        this.nameHint = nameHint;
-        this.mimeTypeDetector = mimeTypeDetector;
     }
 
     protected URL toUrl() {
         return url;
     }
 
-    protected void setMimeType( String mimeType ) {
-        this.mimeType = mimeType;
-    }
-
-    protected boolean hasMimeType() {
-        return mimeType != null;
+    @Override
+    public String getId() {
+        return id;
     }
 
     @Override
-    public String getMimeType() {
-        if (!detectedMimeType && mimeTypeDetector != null) {
-            try {
-                mimeType = mimeTypeDetector.mimeTypeOf(nameHint, this);
-            } catch (Throwable t) {
-                Logger.getLogger(getClass()).debug("Unable to compute MIME Type for file at {0}", toUrl());
-                throw new RuntimeException(t);
-            } finally {
-                detectedMimeType = true;
+    protected BinaryKey computeKey() {
+        InputStream stream = null;
+        try {
+            stream = getStream();
+            return new BinaryKey(SecureHash.getHash(Algorithm.SHA_1, stream));
+        } catch (NoSuchAlgorithmException e) {
+            throw new SystemFailureException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (RepositoryException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // ignore
+                }
             }
         }
-        return mimeType;
-    }
-
-    @Override
-    public String getMimeType( String name ) {
-        return getMimeType();
-    }
-
-    @Override
-    public long getSize() {
-        return size;
     }
 
     @Override
@@ -71,7 +71,9 @@ class ChunkInputStream extends InputStream {
             return read(b, off, len);
         }
         if(indexInBuffer >= buffer.length){
-            return -1;
+            // the current chunk was consumed (e.g. by skip), so continue with the next one
+            fillBuffer();
+            return read(b, off, len);
         }
         if (indexInBuffer + len > buffer.length){
             len = buffer.length - indexInBuffer;
@@ -97,16 +99,13 @@ class ChunkInputStream extends InputStream {
         if(n <= 0 || indexInBuffer == -1){
             return 0;
         }
-        if(buffer == null){
+        if(buffer == null || indexInBuffer >= buffer.length){
             fillBuffer();
             return skip(n);
         }
-        if (buffer.length + n > indexInBuffer){
+        if (indexInBuffer + n > buffer.length){
             n = buffer.length - indexInBuffer;
         }
-        if (n < 0){
-            return 0;
-        }
         indexInBuffer += n;
         return n;
     }
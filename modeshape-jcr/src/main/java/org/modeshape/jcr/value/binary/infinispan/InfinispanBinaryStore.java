@@ -30,6 +30,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -455,6 +459,20 @@ public class InfinispanBinaryStore extends AbstractBinaryStore {
 
     @Override
     public String getExtractedText( BinaryValue binary ) throws BinaryStoreException {
+        Reader reader = getExtractedTextReader(binary);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            return IoUtil.read(reader);
+        } catch (IOException ex) {
+            logger.debug(ex, "Error during read of extracted text for {0}", binary.getKey());
+            throw new BinaryStoreException(JcrI18n.errorReadingExtractedText.text(ex.getCause().getMessage()));
+        }
+    }
+
+    @Override
+    public Reader getExtractedTextReader( BinaryValue binary ) throws BinaryStoreException {
         final BinaryKey key = binary.getKey();
         final String metadataKeyStr = metadataKeyFrom(key);
         Metadata metadata = metadataCache.get(metadataKeyStr);
@@ -467,16 +485,22 @@ public class InfinispanBinaryStore extends AbstractBinaryStore {
         }
         try {
             final String textKey = textKeyFrom(key);
-            return IoUtil.read(new ChunkInputStream(blobCache, textKey), "UTF-8");
+            return new InputStreamReader(new ChunkInputStream(blobCache, textKey), "UTF-8");
         } catch (IOException ex) {
             logger.debug(ex, "Error during read of extracted text for {0}", key);
-            throw new BinaryStoreException(JcrI18n.errorReadingExtractedText.text(ex.getCause().getMessage()));
+            throw new BinaryStoreException(JcrI18n.errorReadingExtractedText.text(ex.getMessage()));
         }
     }
 
     @Override
     public void storeExtractedText( final BinaryValue binary,
                                     String extractedText ) throws BinaryStoreException {
+        storeExtractedText(binary, new StringReader(extractedText));
+    }
+
+    @Override
+    public void storeExtractedText( final BinaryValue binary,
+                                    Reader extractedText ) throws BinaryStoreException {
         final BinaryKey key = binary.getKey();
         Lock lock = lockFactory.writeLock(lockKeyFrom(key));
         try {
@@ -488,18 +512,15 @@ public class InfinispanBinaryStore extends AbstractBinaryStore {
             }
             // Note that it's okay if another process intercedes at this point, because it should be idempotent ...
             final String textKey = textKeyFrom(key);
-            ChunkOutputStream chunkOutputStream = null;
-            try {
-                chunkOutputStream = new ChunkOutputStream(blobCache, textKey);
-                chunkOutputStream.write(extractedText.getBytes("UTF-8"));
-            } finally {
-                IoUtil.closeQuietly(chunkOutputStream);
-            }
+            ChunkOutputStream chunkOutputStream = new ChunkOutputStream(blobCache, textKey);
+            // The text is written chunk by chunk as it is read, so it is never held in memory as a whole ...
+            IoUtil.write(extractedText, new OutputStreamWriter(chunkOutputStream, "UTF-8"));
             putMetadata(metadataKey, metadata.withNumberOfTextChunks(chunkOutputStream.getNumberChunks()));
         } catch (IOException ex) {
             logger.debug(ex, "Error during store of extracted text for {0}", key);
-            throw new BinaryStoreException(JcrI18n.errorStoringExtractedText.text(ex.getCause().getMessage()));
+            throw new BinaryStoreException(JcrI18n.errorStoringExtractedText.text(ex.getMessage()));
         } finally {
+            IoUtil.closeQuietly(extractedText);
             lock.unlock();
         }
     }
@@ -0,0 +1,101 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.connector.filesystem;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.SecureHash.Algorithm;
+import org.modeshape.jcr.value.BinaryKey;
+
+public class ContentHashCacheTest {
+
+    private File directory;
+    private File file;
+
+    @Before
+    public void beforeEach() throws Exception {
+        directory = new File("target/federation/content-hashes");
+        if (directory.exists()) FileUtil.delete(directory);
+        directory.mkdirs();
+        file = new File(directory, "file.txt");
+        write("Some text content");
+    }
+
+    @Test
+    public void shouldPersistHashInSidecarFileAndReuseItAfterRestart() throws Exception {
+        ContentHashCache cache = new ContentHashCache(true, ContentHashCache.DEFAULT_CAPACITY);
+        assertThat(cache.keyFor(file), is(keyOf("Some text content")));
+        File sidecar = new File(directory, "file.txt" + ContentHashCache.DEFAULT_EXTENSION);
+        assertThat(sidecar.exists(), is(true));
+
+        // A new cache should trust the persisted hash while the file is unchanged, without reading the file ...
+        ContentHashCache.Entry entry = cache.read(sidecar);
+        cache.write(sidecar, new ContentHashCache.Entry(entry.size, entry.lastModified, keyOf("bogus")));
+        assertThat(new ContentHashCache(true, 10).keyFor(file), is(keyOf("bogus")));
+
+        cache.remove(file);
+        assertThat(sidecar.exists(), is(false));
+    }
+
+    @Test
+    public void shouldNotPersistHashWhenNotPersistent() throws Exception {
+        ContentHashCache cache = new ContentHashCache(false, ContentHashCache.DEFAULT_CAPACITY);
+        assertThat(cache.keyFor(file), is(keyOf("Some text content")));
+        assertThat(new File(directory, "file.txt" + ContentHashCache.DEFAULT_EXTENSION).exists(), is(false));
+    }
+
+    @Test
+    public void shouldExcludeSidecarFilesOnlyWhenPersistent() throws Exception {
+        String pattern = new ContentHashCache(true, ContentHashCache.DEFAULT_CAPACITY).getExclusionPattern();
+        assertThat(("file.txt" + ContentHashCache.DEFAULT_EXTENSION).matches(pattern), is(true));
+        assertThat("file.txt".matches(pattern), is(false));
+        assertThat("file.txt.modeshapeXsha1".matches(pattern), is(false));
+        assertThat(new ContentHashCache(false, ContentHashCache.DEFAULT_CAPACITY).getExclusionPattern(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRecomputeHashWhenFileChanges() throws Exception {
+        ContentHashCache cache = new ContentHashCache(true, ContentHashCache.DEFAULT_CAPACITY);
+        assertThat(cache.keyFor(file), is(keyOf("Some text content")));
+        write("Some other text content");
+        assertThat(cache.keyFor(file), is(keyOf("Some other text content")));
+        assertThat(new ContentHashCache(true, 10).keyFor(file), is(keyOf("Some other text content")));
+    }
+
+    protected void write( String content ) throws Exception {
+        IoUtil.write(content, new FileOutputStream(file));
+    }
+
+    protected BinaryKey keyOf( String content ) throws Exception {
+        return new BinaryKey(SecureHash.getHash(Algorithm.SHA_1, content.getBytes()));
+    }
+}
@@ -27,15 +27,27 @@ package org.modeshape.connector.filesystem;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
+import javax.jcr.Workspace;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.common.util.IoUtil;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.SecureHash.Algorithm;
 import org.modeshape.jcr.SingleUseAbstractTest;
+import org.modeshape.jcr.api.Binary;
 import org.modeshape.jcr.api.Session;
 import org.modeshape.jcr.api.federation.FederationManager;
 import static org.hamcrest.core.Is.is;
@@ -54,6 +66,7 @@ public class FileSystemConnectorTest extends SingleUseAbstractTest {
     private Projection jsonProjection;
     private Projection legacyProjection;
     private Projection noneProjection;
+    private Projection watchedProjection;
     private Projection[] projections;
 
     @Before
@@ -63,8 +76,10 @@ public class FileSystemConnectorTest extends SingleUseAbstractTest {
         jsonProjection = new Projection("mutable-files-json", "target/federation/files-json");
         legacyProjection = new Projection("mutable-files-legacy", "target/federation/files-legacy");
         noneProjection = new Projection("mutable-files-none", "target/federation/files-none");
+        watchedProjection = new Projection("watched-files", "target/federation/files-watched");
 
-        projections = new Projection[] {readOnlyProjection, storeProjection, jsonProjection, legacyProjection, noneProjection};
+        projections = new Projection[] {readOnlyProjection, storeProjection, jsonProjection, legacyProjection, noneProjection,
+            watchedProjection};
 
         // Remove and then make the directory for our federation test ...
         for (Projection projection : projections) {
@@ -86,6 +101,7 @@ public class FileSystemConnectorTest extends SingleUseAbstractTest {
         jsonProjection.create(testRoot, "json");
         legacyProjection.create(testRoot, "legacy");
         noneProjection.create(testRoot, "none");
+        watchedProjection.create(testRoot, "watched");
     }
 
     @Test
@@ -95,6 +111,7 @@ public class FileSystemConnectorTest extends SingleUseAbstractTest {
         jsonProjection.testContent(testRoot, "json");
         legacyProjection.testContent(testRoot, "legacy");
         noneProjection.testContent(testRoot, "none");
+        watchedProjection.testContent(testRoot, "watched");
     }
 
     @Test
@@ -175,6 +192,93 @@ public class FileSystemConnectorTest extends SingleUseAbstractTest {
         }
     }
 
+    @Test
+    public void shouldComputeContentHashOnlyWhenNeededAndCacheItInSidecarFile() throws Exception {
+        Node content = session.getNode("/testRoot/json/dir3/simple.txt/jcr:content");
+        File hashFile = jsonProjection.getTestFile("dir3/simple.txt" + ContentHashCache.DEFAULT_EXTENSION);
+        assertThat(hashFile.exists(), is(false));
+
+        // Reading the content should not require the hash ...
+        Binary binary = (Binary)content.getProperty("jcr:data").getBinary();
+        assertThat(IoUtil.read(binary.getStream()), is(TEXT_CONTENT));
+        assertThat(hashFile.exists(), is(false));
+
+        // But asking for the hash computes it and records it next to the file ...
+        String expectedHash = SecureHash.asHexString(SecureHash.getHash(Algorithm.SHA_1, TEXT_CONTENT.getBytes()));
+        assertThat(binary.getHexHash(), is(expectedHash));
+        assertThat(hashFile.exists(), is(true));
+        try {
+            // Make sure the sidecar file can't be seen via JCR ...
+            session.getNode("/testRoot/json/dir3/simple.txt" + ContentHashCache.DEFAULT_EXTENSION);
+            fail("found content hash sidecar file as JCR node");
+        } catch (PathNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldNotCacheContentHashInSidecarFileInReadOnlyProjection() throws Exception {
+        Node content = session.getNode("/testRoot/readonly/dir3/simple.txt/jcr:content");
+        Binary binary = (Binary)content.getProperty("jcr:data").getBinary();
+        String expectedHash = SecureHash.asHexString(SecureHash.getHash(Algorithm.SHA_1, TEXT_CONTENT.getBytes()));
+        assertThat(binary.getHexHash(), is(expectedHash));
+        assertThat(readOnlyProjection.getTestFile("dir3/simple.txt" + ContentHashCache.DEFAULT_EXTENSION).exists(), is(false));
+    }
+
+    @Test
+    public void shouldReadChildrenOfLargeFolderInPages() throws Exception {
+        // The watched source uses pages of 2 children ...
+        File folder = watchedProjection.getTestFile("dir2");
+        for (int i = 0; i != 7; ++i) {
+            IoUtil.write(TEXT_CONTENT, new FileOutputStream(new File(folder, "file" + i + ".txt")));
+        }
+        Node dir2 = session.getNode("/testRoot/watched/dir2");
+        NodeIterator children = dir2.getNodes();
+        assertThat(children.getSize(), is(7L));
+        for (int i = 0; i != 7; ++i) {
+            assertThat(children.nextNode().getName(), is("file" + i + ".txt"));
+        }
+        assertThat(children.hasNext(), is(false));
+        Node file6 = session.getNode("/testRoot/watched/dir2/file6.txt");
+        assertThat(file6.getPrimaryNodeType().getName(), is("nt:file"));
+    }
+
+    @Test
+    public void shouldNotifyListenersOfFilesRemovedExternallyInWatchedProjection() throws Exception {
+        Node dir3 = session.getNode("/testRoot/watched/dir3");
+        assertThat(dir3.getNodes().getSize(), is(2L));
+        session.getNode("/testRoot/watched/dir3/simple.txt");
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<String> removedPaths = new CopyOnWriteArrayList<String>();
+        Workspace workspace = session.getWorkspace();
+        workspace.getObservationManager().addEventListener(new EventListener() {
+            @Override
+            public void onEvent( EventIterator events ) {
+                while (events.hasNext()) {
+                    try {
+                        removedPaths.add(events.nextEvent().getPath());
+                    } catch (RepositoryException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                latch.countDown();
+            }
+        }, Event.NODE_REMOVED, "/testRoot/watched", true, null, null, false);
+
+        // Remove the file behind ModeShape's back ...
+        assertThat(watchedProjection.getTestFile("dir3/simple.txt").delete(), is(true));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(removedPaths.contains("/testRoot/watched/dir3/simple.txt"), is(true));
+
+        // And the cached folder should no longer be stale ...
+        session.refresh(false);
+        dir3 = session.getNode("/testRoot/watched/dir3");
+        assertThat(dir3.getNodes().getSize(), is(1L));
+        assertThat(session.nodeExists("/testRoot/watched/dir3/simple.txt"), is(false));
+    }
+
     protected void assertNoSidecarFile( Projection projection,
                                         String filePath ) {
         assertThat(projection.getTestFile(filePath + JsonSidecarExtraPropertyStore.DEFAULT_EXTENSION).exists(), is(false));
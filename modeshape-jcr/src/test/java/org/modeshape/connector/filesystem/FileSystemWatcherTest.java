@@ -0,0 +1,90 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.connector.filesystem;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.File;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.jcr.federation.spi.ConnectorChangeSet;
+
+public class FileSystemWatcherTest {
+
+    private File directory;
+    private FileSystemConnector connector;
+    private ConnectorChangeSet changes;
+
+    @Before
+    public void beforeEach() throws Exception {
+        directory = new File("target/federation/watcher");
+        if (directory.exists()) FileUtil.delete(directory);
+        directory.mkdirs();
+        connector = mock(FileSystemConnector.class);
+        changes = mock(ConnectorChangeSet.class);
+        when(connector.changeSet()).thenReturn(changes);
+    }
+
+    @Test
+    public void shouldWatchOnlyMostRecentlyReadDocumentsAndReportEvictedDocumentsAsChanged() throws Exception {
+        FileSystemWatcher watcher = new FileSystemWatcher(connector, 1, 3);
+        for (int i = 0; i != 5; ++i) {
+            watch(watcher, "/file" + i);
+        }
+        assertThat(watcher.watchedCount(), is(3));
+
+        watcher.run();
+        verify(changes).nodeChanged("/file0");
+        verify(changes).nodeChanged("/file1");
+        verify(changes, never()).nodeChanged("/file2");
+        verify(changes).publish();
+    }
+
+    @Test
+    public void shouldNotReportDocumentThatIsReadAgainAfterBeingEvicted() throws Exception {
+        FileSystemWatcher watcher = new FileSystemWatcher(connector, 1, 2);
+        watch(watcher, "/file0");
+        watch(watcher, "/file1");
+        watch(watcher, "/file2");
+        watch(watcher, "/file0");
+        assertThat(watcher.watchedCount(), is(2));
+
+        watcher.run();
+        verify(changes, never()).nodeChanged("/file0");
+        verify(changes).nodeChanged("/file1");
+    }
+
+    protected void watch( FileSystemWatcher watcher,
+                          String id ) throws Exception {
+        File file = new File(directory, id.substring(1));
+        file.createNewFile();
+        when(connector.fileFor(id)).thenReturn(file);
+        watcher.watch(id, file);
+    }
+}
@@ -65,6 +65,7 @@ public abstract class AbstractSchematicDbTest {
                             .enable()
                             .transaction()
                             .transactionManagerLookup(new DummyTransactionManagerLookup());
+        configure(configurationBuilder);
 
         cm = TestCacheManagerFactory.createCacheManager(configurationBuilder);
         // Now create the SchematicDb ...
@@ -72,6 +73,14 @@ public abstract class AbstractSchematicDbTest {
         tm = TestingUtil.getTransactionManager(schematicDb.getCache());
     }
 
+    /**
+     * Adjust the configuration of the cache used by the SchematicDb. By default, this does nothing.
+     * 
+     * @param configurationBuilder the builder for the cache's configuration; never null
+     */
+    protected void configure( ConfigurationBuilder configurationBuilder ) {
+    }
+
     @After
     public void afterEach() {
         try {
@@ -140,6 +140,23 @@ public class ConcurrentWriteTest extends SingleUseAbstractTest {
         verify(new TotalNumberOfNodesExceptSystem(1 + totalOperations * nodesInTree(width, depth), "/"));
     }
 
+    /**
+     * Create a session, add a single node under a shared (non-root) folder, and close the session. Do this 500x using 16 threads.
+     * Then verify that there are 500 children under the folder.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void shouldAllowMultipleThreadsToConcurrentlyAppendChildrenToSharedNode() throws Exception {
+        session.getRootNode().addNode("inbox");
+        session.save();
+
+        final int totalOperations = 500;
+        final int threads = 16;
+        runConcurrently(totalOperations, threads, new CreateChildren("/inbox", "message", 1));
+        verify(new NumberOfChildren(totalOperations, "inbox"));
+    }
+
     @FixFor( "MODE-1739" )
     @Test
     public void shouldAllowMultipleThreadsToConcurrentlyModifySameNodesInDifferentOrder() throws Exception {
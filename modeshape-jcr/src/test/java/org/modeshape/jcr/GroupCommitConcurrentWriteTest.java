@@ -0,0 +1,151 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.Node;
+import javax.jcr.ReferentialIntegrityException;
+import javax.jcr.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.JcrTools;
+import org.modeshape.jcr.cache.document.GroupCommitter;
+
+/**
+ * Runs all of the {@link ConcurrentWriteTest concurrent write tests} against a repository that coalesces concurrent saves into
+ * a single transaction.
+ */
+public class GroupCommitConcurrentWriteTest extends ConcurrentWriteTest {
+
+    @Override
+    @Before
+    public void beforeEach() throws Exception {
+        startRepositoryWithConfiguration(getClass().getClassLoader()
+                                                   .getResourceAsStream("config/repo-config-concurrent-group-commit-tests.json"));
+        tools = new JcrTools();
+
+        // Set the transaction timeout so that we can debug code called within the transaction ...
+        repository.runningState().txnManager().setTransactionTimeout(500);
+    }
+
+    @Test
+    public void shouldUseGroupCommitterForWorkspace() throws Exception {
+        GroupCommitter committer = repository.repositoryCache().getWorkspaceCache("default").groupCommitter();
+        assertThat(committer, is(notNullValue()));
+        assertThat(committer.getWindowInMillis(), is(5L));
+        assertThat(committer.getMaximumNodes(), is(1000));
+    }
+
+    @Test
+    public void shouldCommitConcurrentSavesInFewerTransactions() throws Exception {
+        GroupCommitter committer = repository.repositoryCache().getWorkspaceCache("default").groupCommitter();
+        long groupsBefore = committer.getCommittedGroupCount();
+        long savesBefore = committer.getCommittedSaveCount();
+
+        final int totalOperations = 200;
+        runConcurrently(totalOperations, 16, new CreateChildren("/", "nodeX", 1));
+        verify(new NumberOfChildren(totalOperations, "/"));
+
+        long groups = committer.getCommittedGroupCount() - groupsBefore;
+        long saves = committer.getCommittedSaveCount() - savesBefore;
+        assertThat(saves, is((long)totalOperations));
+        assertTrue("Expected fewer transactions (" + groups + ") than saves (" + saves + ")", groups < saves);
+    }
+
+    @Test
+    public void shouldSaveEachSessionIndividuallyWhenGroupCannotBeCommitted() throws Exception {
+        Node target = session.getRootNode().addNode("target");
+        target.addMixin("mix:referenceable");
+        session.getRootNode().addNode("referrer").setProperty("ref", target);
+        session.save();
+
+        // Use a window long enough for both of the following saves to join the same group ...
+        GroupCommitter committer = new GroupCommitter(1000L, 1000);
+        repository.repositoryCache().getWorkspaceCache("default").setGroupCommitter(committer);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Void> valid = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Session session = repository.login();
+                    try {
+                        session.getRootNode().addNode("valid");
+                        start.await();
+                        session.save();
+                    } finally {
+                        session.logout();
+                    }
+                    return null;
+                }
+            });
+            Future<Void> invalid = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Session session = repository.login();
+                    try {
+                        // The target is still referenced, so this session's changes cannot be persisted ...
+                        session.getNode("/target").remove();
+                        start.await();
+                        session.save();
+                    } finally {
+                        session.logout();
+                    }
+                    return null;
+                }
+            });
+            start.countDown();
+            valid.get(10, TimeUnit.SECONDS);
+            try {
+                invalid.get(10, TimeUnit.SECONDS);
+                fail("Expected the removal of a referenced node to fail");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof ReferentialIntegrityException, is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(committer.getFailedGroupCount(), is(1L));
+        Session session = repository.login();
+        try {
+            assertThat(session.nodeExists("/valid"), is(true));
+            assertThat(session.nodeExists("/target"), is(true));
+        } finally {
+            session.logout();
+        }
+    }
+}
@@ -51,6 +51,7 @@ public class JcrChildNodeIteratorTest {
     private Map<ChildReference, AbstractJcrNode> childNodesByRef;
     private List<AbstractJcrNode> children;
     private List<ChildReference> refs;
+    private List<List<ChildReference>> prefetchedBatches;
     private NodeIterator iter;
     private NodeKey keyTemplate;
 
@@ -61,7 +62,8 @@ public class JcrChildNodeIteratorTest {
         children = new ArrayList<AbstractJcrNode>();
         refs = new ArrayList<ChildReference>();
         childNodesByRef = new HashMap<ChildReference, AbstractJcrNode>();
-        for (int i = 0; i != 10; ++i) {
+        prefetchedBatches = new ArrayList<List<ChildReference>>();
+        for (int i = 0; i != 35; ++i) {
             // Create a child reference ...
             String name = "node" + (i + 1);
             NodeKey key = keyTemplate.withId(name);
@@ -78,6 +80,12 @@ public class JcrChildNodeIteratorTest {
             public Node nodeFrom( ChildReference ref ) {
                 return childNodesByRef.get(ref);
             }
+
+            @SuppressWarnings( "synthetic-access" )
+            @Override
+            public void prefetch( List<ChildReference> refs ) {
+                prefetchedBatches.add(new ArrayList<ChildReference>(refs));
+            }
         };
         iter = new JcrChildNodeIterator(resolver, refs.iterator());
     }
@@ -109,6 +117,24 @@ public class JcrChildNodeIteratorTest {
         assertThat(iter.getSize(), is((long)children.size()));
     }
 
+    @Test
+    public void shouldPrefetchChildrenInGrowingBatches() {
+        while (iter.hasNext()) {
+            iter.next();
+        }
+        assertThat(prefetchedBatches.size(), is(3));
+        assertThat(prefetchedBatches.get(0), is(refs.subList(0, 10)));
+        assertThat(prefetchedBatches.get(1), is(refs.subList(10, 30)));
+        assertThat(prefetchedBatches.get(2), is(refs.subList(30, 35)));
+    }
+
+    @Test
+    public void shouldPrefetchOnlyFirstBatchWhenOnlyFirstChildIsUsed() {
+        iter.next();
+        assertThat(prefetchedBatches.size(), is(1));
+        assertThat(prefetchedBatches.get(0), is(refs.subList(0, 10)));
+    }
+
     @Test( expected = UnsupportedOperationException.class )
     public void shouldNotAllowRemove() {
         iter.remove();
@@ -720,6 +720,36 @@ public class JcrQueryManagerTest extends MultiUseAbstractTest {
         assertRow(result, 10).has("car:model", "DB9").and("car:msrp", "$171,600").and("car:mpgCity", 12);
     }
 
+    @Test
+    public void shouldBeAbleToCreateAndExecuteJcrSql2QueryToFindAllCarNodesOrderedByMsrpWithLimitAndOffset()
+        throws RepositoryException {
+        Query query = session.getWorkspace()
+                             .getQueryManager()
+                             .createQuery("SELECT * FROM [car:Car] ORDER BY [car:msrp] DESC LIMIT 9 OFFSET 1", Query.JCR_SQL2);
+        assertThat(query, is(notNullValue()));
+        QueryResult result = query.execute();
+        assertThat(result, is(notNullValue()));
+        assertResults(query, result, 9);
+        assertResultsHaveColumns(result, carColumnNames("car:Car"));
+        // Results are sorted by lexicographic MSRP (as a string, not as a number)!!!
+        assertRow(result, 1).has("car:model", "IS350").and("car:msrp", "$36,305").and("car:mpgCity", 18);
+        assertRow(result, 9).has("car:model", "DB9").and("car:msrp", "$171,600").and("car:mpgCity", 12);
+    }
+
+    @Test
+    public void shouldBeAbleToCreateAndExecuteJcrSql2QueryToFindAllCarNodesWithLimitAndOffsetBeyondResults()
+        throws RepositoryException {
+        Query query = session.getWorkspace()
+                             .getQueryManager()
+                             .createQuery("SELECT * FROM [car:Car] LIMIT 5 OFFSET 10", Query.JCR_SQL2);
+        assertThat(query, is(notNullValue()));
+        QueryResult result = query.execute();
+        assertThat(result, is(notNullValue()));
+        assertResults(query, result, 3);
+        query = session.getWorkspace().getQueryManager().createQuery("SELECT * FROM [car:Car] LIMIT 5 OFFSET 13", Query.JCR_SQL2);
+        assertResults(query, query.execute(), 0);
+    }
+
     @FixFor( "MODE-1234" )
     @Test
     public void shouldAllowEqualityCriteriaOnPropertyDefinedWithBooleanPropertyDefinition() throws RepositoryException {
@@ -25,19 +25,27 @@ package org.modeshape.jcr;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import javax.jcr.NoSuchWorkspaceException;
 import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.Session;
+import org.infinispan.schematic.Schematic;
+import org.infinispan.schematic.document.EditableDocument;
 import org.junit.Test;
 import org.modeshape.common.FixFor;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.connector.mock.MockConnector;
 import org.modeshape.jcr.api.Workspace;
 import org.modeshape.jcr.api.federation.FederationManager;
+import org.modeshape.jcr.cache.document.DocumentTranslator;
+import org.modeshape.jcr.cache.document.LocalDocumentStore;
+import org.modeshape.jcr.value.Path.Segment;
 
 /**
  * Tests that related to repeatedly starting/stopping repositories (without another repository configured in the @Before and @After
@@ -120,6 +128,68 @@ public class JcrRepositoryStartupTest extends MultiPassAbstractTest {
         }, repositoryConfigFile);
     }
 
+    @Test
+    public void shouldRecordSegmentsOfNodesStoredWithoutThemWhenTheyAreSaved() throws Exception {
+        String repositoryConfigFile = "config/repo-config-persistent-cache.json";
+        final String parentName = "parent_" + UUID.randomUUID().toString();
+        final List<String> keys = new ArrayList<String>();
+
+        startRunStop(new RepositoryOperation() {
+            @Override
+            public Void call() throws Exception {
+                Session session = repository.login();
+                Node parent = session.getRootNode().addNode(parentName);
+                keys.add(((AbstractJcrNode)parent.addNode("child")).key().toString());
+                keys.add(((AbstractJcrNode)parent.addNode("other")).key().toString());
+                keys.add(((AbstractJcrNode)parent.addNode("child")).key().toString());
+                session.save();
+                session.logout();
+
+                // Remove the segments, as if the nodes had been stored by an older version ...
+                LocalDocumentStore store = repository.documentStore().localStore();
+                for (String key : keys) {
+                    EditableDocument doc = Schematic.newDocument(store.get(key).getContentAsDocument());
+                    doc.remove(DocumentTranslator.SEGMENT);
+                    store.put(key, doc);
+                }
+                assertNull(recordedSegment(repository, keys.get(0)));
+                return null;
+            }
+        }, repositoryConfigFile);
+
+        startRunStop(new RepositoryOperation() {
+            @Override
+            public Void call() throws Exception {
+                // The nodes are found without their segments ...
+                Session session = repository.login();
+                Node child = session.getNode("/" + parentName + "/child[2]");
+                assertEquals(keys.get(2), ((AbstractJcrNode)child).key().toString());
+                assertNull(recordedSegment(repository, keys.get(0)));
+
+                // ... and record them the next time they are saved ...
+                session.getNode("/" + parentName + "/child").setProperty("p1", "value");
+                session.getNode("/" + parentName + "/other").setProperty("p1", "value");
+                child.setProperty("p1", "value");
+                session.save();
+                assertEquals("child", recordedSegment(repository, keys.get(0)));
+                assertEquals("other", recordedSegment(repository, keys.get(1)));
+                assertNull(recordedSegment(repository, keys.get(2)));
+
+                session.getNode("/" + parentName).remove();
+                session.save();
+                session.logout();
+                return null;
+            }
+        }, repositoryConfigFile);
+    }
+
+    protected String recordedSegment( JcrRepository repository,
+                                      String key ) {
+        DocumentTranslator translator = repository.repositoryCache().getDocumentTranslator();
+        Segment segment = translator.getSegment(repository.documentStore().get(key).getContentAsDocument());
+        return segment != null ? segment.getString() : null;
+    }
+
     @Test
     public void shouldNotImportInitialContentIfWorkspaceContentsChanged() throws Exception {
         // remove the ISPN local data, so we always start fresh
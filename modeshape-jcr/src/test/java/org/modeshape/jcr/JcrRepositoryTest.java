@@ -30,8 +30,10 @@ import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -43,6 +45,7 @@ import javax.jcr.NamespaceException;
 import javax.jcr.NoSuchWorkspaceException;
 import javax.jcr.Node;
 import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.ValueFormatException;
 import javax.jcr.nodetype.ConstraintViolationException;
@@ -61,6 +64,8 @@ import org.modeshape.jcr.RepositoryStatistics.Statistics;
 import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.api.monitor.Window;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.value.Path;
 
 public class JcrRepositoryTest extends AbstractTransactionalTest {
 
@@ -563,6 +568,49 @@ public class JcrRepositoryTest extends AbstractTransactionalTest {
         assertThat(future.get(), is(true)); // get() blocks until done
     }
 
+    @Test
+    public void shouldAllowParallelReindexingOfWorkspace() throws Exception {
+        session = createSession();
+        List<NodeKey> keys = new ArrayList<NodeKey>();
+        AbstractJcrNode parent = session.getRootNode().addNode("parent");
+        keys.add(parent.key());
+        for (int i = 0; i != 1200; ++i) {
+            AbstractJcrNode child = parent.addNode("child");
+            keys.add(child.key());
+            if (i % 100 == 0) {
+                keys.add(child.addNode("grandchild").key());
+            }
+        }
+        session.save();
+
+        // Remove the content from the indexes, so that only the reindexing can make it found again ...
+        String workspaceName = session.getWorkspace().getName();
+        repository.queryManager().getIndexes().removeFromIndex(workspaceName, keys, RepositoryQueryManager.NO_TRANSACTION);
+        assertThat(countOf("SELECT * FROM [nt:unstructured] WHERE ISDESCENDANTNODE('/parent')"), is(0L));
+
+        Future<Boolean> future = repository.queryManager().reindexContentAsync(session.getWorkspace(),
+                                                                               Path.ROOT_PATH,
+                                                                               Integer.MAX_VALUE,
+                                                                               4);
+        assertThat(future.get(), is(true)); // get() blocks until done
+
+        assertThat(countOf("SELECT * FROM [nt:unstructured] WHERE ISDESCENDANTNODE('/parent')"), is(1212L));
+        assertThat(countOf("SELECT * FROM [nt:unstructured] WHERE ISSAMENODE('/parent/child[1200]')"), is(1L));
+        assertThat(countOf("SELECT * FROM [nt:unstructured] WHERE ISSAMENODE('/parent/child[1101]/grandchild')"), is(1L));
+
+        // The other workers run in their own threads ...
+        boolean foundWorker = false;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("modeshape-reindexer")) foundWorker = true;
+        }
+        assertThat(foundWorker, is(true));
+    }
+
+    private long countOf( String sql ) throws RepositoryException {
+        Query query = session.getWorkspace().getQueryManager().createQuery(sql, Query.JCR_SQL2);
+        return query.execute().getNodes().getSize();
+    }
+
     @FixFor( "MODE-1498" )
     @Test
     public void shouldWorkWithUserDefinedTransactions() throws Exception {
@@ -129,6 +129,123 @@ public class RepositoryRestoreTest extends SingleUseAbstractTest {
         }
     }
 
+    @Test
+    public void shouldRestoreRepositoryFromParallelIncrementalBackup() throws Exception {
+        loadContent();
+        JcrRepositoryManager manager = session().getWorkspace().getRepositoryManager();
+        File fullBackup = new File(backupDirectory, "full");
+        File incrementalBackup = new File(backupDirectory, "incremental");
+        assertNoProblems(manager.backupRepository(fullBackup, null, 3));
+
+        // Change some of the content ...
+        JcrSession session = repository().login("ws2");
+        try {
+            session.getNode("/Cars/Utility/Hummer H3").remove();
+            session.getNode("/Cars").addNode("Electric").addNode("Tesla Model S");
+            session.save();
+        } finally {
+            session.logout();
+        }
+
+        assertNoProblems(manager.backupRepository(incrementalBackup, fullBackup, 3));
+        assertThat(new File(incrementalBackup, BackupService.INCREMENTAL_FILE_NAME).exists(), is(true));
+
+        // Move the backups, which must still find each other ...
+        File movedDirectory = new File(backupDirectory.getParentFile(), "movedBackups");
+        assertThat(backupDirectory.renameTo(movedDirectory), is(true));
+        incrementalBackup = new File(movedDirectory, "incremental");
+
+        // Start up a new repository and restore it from the incremental backup ...
+        ((LocalEnvironment)environment).setShared(true);
+        RepositoryConfiguration config = RepositoryConfiguration.read("config/restore-repo-config.json").with(environment);
+        JcrRepository newRepository = new JcrRepository(config);
+        try {
+            newRepository.start();
+
+            JcrSession newSession = newRepository.login();
+            try {
+                Problems restoreProblems = newSession.getWorkspace().getRepositoryManager().restoreRepository(incrementalBackup, 3);
+                assertNoProblems(restoreProblems);
+            } finally {
+                newSession.logout();
+            }
+
+            assertWorkspaces(newRepository, "default", "ws2", "ws3");
+            assertContentInWorkspace(newRepository, null);
+            assertContentInWorkspace(newRepository, "ws3");
+
+            newSession = newRepository.login("ws2");
+            try {
+                assertThat(newSession.nodeExists("/Cars/Utility/Hummer H3"), is(false));
+                assertThat(newSession.nodeExists("/Cars/Utility/Ford F-150"), is(true));
+                assertThat(newSession.nodeExists("/Cars/Electric/Tesla Model S"), is(true));
+            } finally {
+                newSession.logout();
+            }
+        } finally {
+            newRepository.shutdown().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shouldRestoreRepositoryFromChainOfIncrementalBackups() throws Exception {
+        loadContent();
+        JcrRepositoryManager manager = session().getWorkspace().getRepositoryManager();
+        File fullBackup = new File(backupDirectory, "full");
+        File firstBackup = new File(backupDirectory, "first");
+        File secondBackup = new File(backupDirectory, "second");
+        assertNoProblems(manager.backupRepository(fullBackup, null, 2));
+
+        JcrSession session = repository().login("ws2");
+        try {
+            session.getNode("/Cars/Utility/Hummer H3").remove();
+            session.save();
+            assertNoProblems(manager.backupRepository(firstBackup, fullBackup, 3));
+
+            session.getNode("/Cars/Utility/Ford F-150").remove();
+            session.getNode("/Cars").addNode("Electric").addNode("Tesla Model S");
+            session.save();
+            assertNoProblems(manager.backupRepository(secondBackup, firstBackup, 1));
+        } finally {
+            session.logout();
+        }
+
+        // A stray file in the binary area must not stop the restore ...
+        File binaries = new File(fullBackup, BackupService.BINARY_AREA_DIR_NAME);
+        binaries.mkdirs();
+        assertThat(new File(binaries, "README").createNewFile(), is(true));
+
+        ((LocalEnvironment)environment).setShared(true);
+        RepositoryConfiguration config = RepositoryConfiguration.read("config/restore-repo-config.json").with(environment);
+        JcrRepository newRepository = new JcrRepository(config);
+        try {
+            newRepository.start();
+
+            JcrSession newSession = newRepository.login();
+            try {
+                assertNoProblems(newSession.getWorkspace().getRepositoryManager().restoreRepository(secondBackup, 2));
+            } finally {
+                newSession.logout();
+            }
+
+            assertWorkspaces(newRepository, "default", "ws2", "ws3");
+            assertContentInWorkspace(newRepository, null);
+            assertContentInWorkspace(newRepository, "ws3");
+
+            newSession = newRepository.login("ws2");
+            try {
+                assertThat(newSession.nodeExists("/Cars/Utility/Hummer H3"), is(false));
+                assertThat(newSession.nodeExists("/Cars/Utility/Ford F-150"), is(false));
+                assertThat(newSession.nodeExists("/Cars/Utility/Land Rover LR2"), is(true));
+                assertThat(newSession.nodeExists("/Cars/Electric/Tesla Model S"), is(true));
+            } finally {
+                newSession.logout();
+            }
+        } finally {
+            newRepository.shutdown().get(10, TimeUnit.SECONDS);
+        }
+    }
+
     private void assertWorkspaces( JcrRepository newRepository,
                                    String... workspaceNames ) throws RepositoryException {
         Set<String> expectedNames = new HashSet<String>();
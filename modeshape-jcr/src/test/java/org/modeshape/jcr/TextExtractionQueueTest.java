@@ -0,0 +1,293 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jcr.Binary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.text.TextExtractor;
+import org.modeshape.jcr.mimetype.MimeTypeDetector;
+import org.modeshape.jcr.text.TextExtractorContext;
+import org.modeshape.jcr.value.BinaryValue;
+import org.modeshape.jcr.value.binary.AbstractBinaryStore;
+import org.modeshape.jcr.value.binary.FileSystemBinaryStore;
+
+public class TextExtractionQueueTest {
+
+    private static final Random RANDOM = new Random();
+    private static final String MIME_TYPE = "text/plain";
+
+    private ExecutorService executor;
+    private AbstractBinaryStore store;
+    private MimeTypeDetector detector;
+    private RecordingExtractor extractor;
+    private TextExtractors extractors;
+
+    @Before
+    public void beforeEach() {
+        executor = Executors.newCachedThreadPool();
+        store = FileSystemBinaryStore.create(new File("target/text-extraction-queue"));
+        detector = new MimeTypeDetector() {
+            @Override
+            public String mimeTypeOf( String name,
+                                      Binary binaryValue ) {
+                return MIME_TYPE;
+            }
+        };
+        store.setMimeTypeDetector(detector);
+        extractor = new RecordingExtractor();
+    }
+
+    @After
+    public void afterEach() {
+        extractor.release();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldExtractEachBinaryValueOnlyOnce() throws Exception {
+        startExtractors(1, Collections.<String, Integer>emptyMap(), 100);
+        CountDownLatch blocker = extract(binary(5000), false);
+        extractor.awaitRunning(1);
+
+        BinaryValue binary = binary(6000);
+        CountDownLatch latch = extract(binary, false);
+        assertThat(extract(binary, true), is(sameInstance(latch)));
+        assertThat(extractors.getWorkerLatch(binary.getKey()), is(sameInstance(latch)));
+
+        extractor.release();
+        await(blocker, latch);
+        assertThat(extractor.extractedSizes(), is(Arrays.asList(5000L, 6000L)));
+
+        // The completed extraction is forgotten, but the stored text is not extracted again ...
+        assertThat(extractors.getWorkerLatch(binary.getKey()), is(nullValue()));
+        await(extract(binary, true));
+        assertThat(extractor.extractedSizes().size(), is(2));
+    }
+
+    @Test
+    public void shouldRetryFailedExtraction() throws Exception {
+        startExtractors(1, Collections.<String, Integer>emptyMap(), 100);
+        extractor.release();
+        extractor.failures.set(1);
+        BinaryValue binary = binary(5000);
+        await(extract(binary, true));
+        assertThat(store.getExtractedText(binary), is(nullValue()));
+
+        await(extract(binary, true));
+        assertThat(store.getExtractedText(binary), is("some text"));
+        assertThat(extractor.extractedSizes(), is(Arrays.asList(5000L)));
+    }
+
+    @Test
+    public void shouldEventuallyExtractLargeBinaryValuesQueuedBeforeManySmallerOnes() throws Exception {
+        startExtractors(1, Collections.<String, Integer>emptyMap(), 100);
+        CountDownLatch blocker = extract(binary(5000), false);
+        extractor.awaitRunning(1);
+
+        CountDownLatch large = extract(binary(9000), false);
+        List<CountDownLatch> small = new ArrayList<CountDownLatch>();
+        for (int i = 0; i != 2 * TextExtractionQueue.OLDEST_TASK_INTERVAL; ++i) {
+            small.add(extract(binary(6000 + i), false));
+        }
+
+        extractor.release();
+        await(blocker, large);
+        await(small.toArray(new CountDownLatch[small.size()]));
+        List<Long> sizes = extractor.extractedSizes();
+        assertThat(sizes.indexOf(9000L), is(TextExtractionQueue.OLDEST_TASK_INTERVAL - 1));
+    }
+
+    @Test
+    public void shouldPromoteAwaitedExtractionsDeferredByMimeType() throws Exception {
+        startExtractors(4, Collections.singletonMap(MIME_TYPE, 1), 100);
+        CountDownLatch blocker = extract(binary(5000), false);
+        extractor.awaitRunning(1);
+
+        CountDownLatch first = extract(binary(6000), false);
+        BinaryValue awaitedBinary = binary(7000);
+        CountDownLatch awaited = extract(awaitedBinary, false);
+        // Give both extractions time to be deferred until the running extraction of the same MIME type completes ...
+        Thread.sleep(200L);
+        assertThat(extractor.running.get(), is(1));
+        assertThat(extract(awaitedBinary, true), is(sameInstance(awaited)));
+
+        extractor.release();
+        await(blocker, first, awaited);
+        assertThat(extractor.extractedSizes(), is(Arrays.asList(5000L, 7000L, 6000L)));
+    }
+
+    @Test
+    public void shouldExtractAwaitedAndSmallerBinaryValuesFirst() throws Exception {
+        startExtractors(1, Collections.<String, Integer>emptyMap(), 100);
+        CountDownLatch blocker = extract(binary(5000), false);
+        extractor.awaitRunning(1);
+
+        CountDownLatch large = extract(binary(9000), false);
+        CountDownLatch small = extract(binary(7000), false);
+        CountDownLatch awaited = extract(binary(8000), true);
+
+        extractor.release();
+        await(blocker, large, small, awaited);
+        assertThat(extractor.extractedSizes(), is(Arrays.asList(5000L, 8000L, 7000L, 9000L)));
+    }
+
+    @Test
+    public void shouldLimitConcurrentExtractionsByMimeType() throws Exception {
+        startExtractors(4, Collections.singletonMap(MIME_TYPE, 1), 100);
+        extractor.pauseInMillis = 50L;
+        extractor.release();
+        CountDownLatch first = extract(binary(5000), false);
+        CountDownLatch second = extract(binary(6000), false);
+        CountDownLatch third = extract(binary(7000), false);
+
+        await(first, second, third);
+        assertThat(extractor.extractedSizes().size(), is(3));
+        assertThat(extractor.maxRunning.get(), is(1));
+    }
+
+    @Test
+    public void shouldBlockWhenQueueIsFull() throws Exception {
+        startExtractors(1, Collections.<String, Integer>emptyMap(), 1);
+        CountDownLatch blocker = extract(binary(5000), false);
+        extractor.awaitRunning(1);
+
+        final BinaryValue binary = binary(6000);
+        final CountDownLatch submitted = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                extract(binary, false);
+                submitted.countDown();
+            }
+        });
+        assertThat(submitted.await(200, TimeUnit.MILLISECONDS), is(false));
+
+        // Extractions that are awaited are never blocked ...
+        CountDownLatch awaited = extract(binary(7000), true);
+        assertThat(awaited, is(not(sameInstance(blocker))));
+
+        extractor.release();
+        assertThat(submitted.await(10, TimeUnit.SECONDS), is(true));
+        await(blocker, awaited, extractors.getWorkerLatch(binary.getKey()));
+        assertThat(extractor.extractedSizes().size(), is(3));
+    }
+
+    private void startExtractors( int maxConcurrentExtractions,
+                                  Map<String, Integer> maxConcurrentExtractionsByMimeType,
+                                  int queueCapacity ) {
+        extractors = new TextExtractors(executor, true, new ArrayList<TextExtractor>(Arrays.<TextExtractor>asList(extractor)),
+                                        null, maxConcurrentExtractions,
+                                        new HashMap<String, Integer>(maxConcurrentExtractionsByMimeType), queueCapacity);
+    }
+
+    private CountDownLatch extract( BinaryValue binary,
+                                    boolean awaited ) {
+        return extractors.extract(store, binary, new TextExtractorContext(detector), awaited);
+    }
+
+    private BinaryValue binary( int size ) throws Exception {
+        byte[] data = new byte[size];
+        RANDOM.nextBytes(data);
+        return store.storeValue(new ByteArrayInputStream(data));
+    }
+
+    private static void await( CountDownLatch... latches ) throws InterruptedException {
+        for (CountDownLatch latch : latches) {
+            assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        }
+    }
+
+    protected static final class RecordingExtractor extends TextExtractor {
+        private final List<Long> extractedSizes = Collections.synchronizedList(new ArrayList<Long>());
+        private final CountDownLatch gate = new CountDownLatch(1);
+        protected final AtomicInteger running = new AtomicInteger();
+        protected final AtomicInteger maxRunning = new AtomicInteger();
+        protected final AtomicInteger failures = new AtomicInteger();
+        protected volatile long pauseInMillis;
+
+        @Override
+        public boolean supportsMimeType( String mimeType ) {
+            return true;
+        }
+
+        @Override
+        public void extractFrom( org.modeshape.jcr.api.Binary binary,
+                                 Output output,
+                                 Context context ) throws Exception {
+            int current = running.incrementAndGet();
+            while (true) {
+                int max = maxRunning.get();
+                if (current <= max || maxRunning.compareAndSet(max, current)) break;
+            }
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+                if (pauseInMillis > 0L) Thread.sleep(pauseInMillis);
+                if (failures.getAndDecrement() > 0) throw new Exception("Extraction failed");
+                extractedSizes.add(binary.getSize());
+                output.recordText("some text");
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        protected void release() {
+            gate.countDown();
+        }
+
+        protected void awaitRunning( int count ) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000L;
+            while (running.get() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertThat(running.get(), is(count));
+        }
+
+        protected List<Long> extractedSizes() {
+            synchronized (extractedSizes) {
+                return new ArrayList<Long>(extractedSizes);
+            }
+        }
+    }
+}
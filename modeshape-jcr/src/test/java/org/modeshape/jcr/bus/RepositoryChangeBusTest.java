@@ -56,14 +56,14 @@ public class RepositoryChangeBusTest {
     private static final String WORKSPACE1 = "ws1";
     private static final String WORKSPACE2 = "ws2";
 
-    private RepositoryChangeBus changeBus;
+    private ChangeBus changeBus;
 
     @Before
     public void beforeEach() {
         changeBus = createRepositoryChangeBus();
     }
 
-    protected RepositoryChangeBus createRepositoryChangeBus() {
+    protected ChangeBus createRepositoryChangeBus() {
         return new RepositoryChangeBus(Executors.newCachedThreadPool(), null, false);
     }
 
@@ -317,6 +317,11 @@ public class RepositoryChangeBusTest {
             latch.await(250, TimeUnit.MILLISECONDS);
         }
 
+        public boolean await( long timeout,
+                              TimeUnit unit ) throws InterruptedException {
+            return latch.await(timeout, unit);
+        }
+
         public List<TestChangeSet> getObservedChangeSet() {
             return receivedChangeSet;
         }
@@ -0,0 +1,307 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.bus;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import org.modeshape.jcr.cache.change.ChangeSet;
+
+/**
+ * Unit test for {@link RingBufferChangeBus}, which runs all of the {@link RepositoryChangeBusTest} tests plus tests specific to
+ * the ring buffer.
+ */
+public class RingBufferChangeBusTest extends RepositoryChangeBusTest {
+
+    @Override
+    protected ChangeBus createRepositoryChangeBus() {
+        return new RingBufferChangeBus(Executors.newCachedThreadPool());
+    }
+
+    @Test
+    public void shouldRoundUpBufferSizeToPowerOfTwo() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 100, RingBufferChangeBus.WaitStrategy.BLOCKING, 8, null);
+        try {
+            assertThat(bus.getBufferSize(), is(128));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldDispatchMoreChangeSetsThanBufferSizeInOrderWithBlockingStrategy() throws Exception {
+        assertDispatchesInOrder(RingBufferChangeBus.WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void shouldDispatchMoreChangeSetsThanBufferSizeInOrderWithSleepingStrategy() throws Exception {
+        assertDispatchesInOrder(RingBufferChangeBus.WaitStrategy.SLEEPING);
+    }
+
+    @Test
+    public void shouldDispatchMoreChangeSetsThanBufferSizeInOrderWithYieldingStrategy() throws Exception {
+        assertDispatchesInOrder(RingBufferChangeBus.WaitStrategy.YIELDING);
+    }
+
+    @Test
+    public void shouldContinueDispatchingAfterListenerFailure() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 4, RingBufferChangeBus.WaitStrategy.BLOCKING, 2, null);
+        try {
+            FailingListener failing = new FailingListener(10);
+            bus.register(failing);
+            for (int i = 0; i != 10; ++i) {
+                bus.notify(new TestChangeSet("ws1"));
+            }
+            assertTrue(failing.await(10, TimeUnit.SECONDS));
+            assertThat(failing.getObservedChangeSet().size(), is(10));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotBlockListenerThatPublishesChangeSetsWhenBufferIsFull() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 4, RingBufferChangeBus.WaitStrategy.BLOCKING, 2, null);
+        try {
+            // The listener publishes more change sets than the buffer holds, while it is still processing the first ...
+            PublishingListener listener = new PublishingListener(bus, "ws1", "ws2", 10);
+            bus.register(listener);
+            bus.notify(new TestChangeSet("ws1"));
+            assertTrue(listener.await(10, TimeUnit.SECONDS));
+            assertThat(listener.getObservedChangeSet().size(), is(11));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotifyOtherListenersOnTheirOwnThreadsAndInOrderWhenListenerPublishesChangeSetsWhenBufferIsFull()
+        throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 4, RingBufferChangeBus.WaitStrategy.BLOCKING, 2, null);
+        try {
+            // The slow listener keeps the buffer full while the other listener publishes ...
+            PublishingListener listener = new PublishingListener(bus, "ws1", "ws2", 50);
+            SlowListener slowListener = new SlowListener(51);
+            bus.register(listener);
+            bus.register(slowListener);
+            bus.notify(new TestChangeSet("ws1"));
+            assertTrue(listener.await(10, TimeUnit.SECONDS));
+            assertTrue(slowListener.await(10, TimeUnit.SECONDS));
+            assertThat(slowListener.getThreads().size(), is(1));
+            List<TestChangeSet> expected = listener.getObservedChangeSet();
+            List<TestChangeSet> received = slowListener.getObservedChangeSet();
+            assertThat(received.size(), is(51));
+            for (int i = 0; i != received.size(); ++i) {
+                assertTrue(received.get(i) == expected.get(i));
+            }
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRemoveUndeliveredChangeSetsFromQueueSizeWhenListenerIsUnregistered() throws Exception {
+        final AtomicLong queueSize = new AtomicLong();
+        RingBufferChangeBus.QueueSizeMonitor monitor = new RingBufferChangeBus.QueueSizeMonitor() {
+            @Override
+            public void queueSizeChanged( long delta ) {
+                queueSize.addAndGet(delta);
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 8, RingBufferChangeBus.WaitStrategy.BLOCKING, 1, monitor);
+        try {
+            BlockingListener listener = new BlockingListener();
+            bus.register(listener);
+            for (int i = 0; i != 5; ++i) {
+                bus.notify(new TestChangeSet("ws1"));
+            }
+            assertTrue(listener.awaitBlocked(10, TimeUnit.SECONDS));
+            assertThat(queueSize.get(), is(5L));
+
+            // Unregister the listener while it is blocked, so the rest of its backlog is never delivered ...
+            bus.unregister(listener);
+            listener.unblock();
+            for (int i = 0; i != 100 && queueSize.get() != 0L; ++i) {
+                Thread.sleep(10L);
+            }
+            assertThat(queueSize.get(), is(0L));
+            assertThat(listener.getObservedChangeSet().size(), is(1));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private void assertDispatchesInOrder( RingBufferChangeBus.WaitStrategy strategy ) throws Exception {
+        final AtomicLong queueSize = new AtomicLong();
+        RingBufferChangeBus.QueueSizeMonitor monitor = new RingBufferChangeBus.QueueSizeMonitor() {
+            @Override
+            public void queueSizeChanged( long delta ) {
+                queueSize.addAndGet(delta);
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferChangeBus bus = new RingBufferChangeBus(executor, null, 8, strategy, 3, monitor);
+        try {
+            int count = 500;
+            TestListener listener1 = new TestListener(count);
+            TestListener listener2 = new TestListener(count);
+            bus.register(listener1);
+            bus.register(listener2);
+
+            TestChangeSet[] changeSets = new TestChangeSet[count];
+            for (int i = 0; i != count; ++i) {
+                changeSets[i] = new TestChangeSet(i % 2 == 0 ? "ws1" : "ws2");
+                bus.notify(changeSets[i]);
+            }
+            assertReceivedInOrder(listener1, changeSets);
+            assertReceivedInOrder(listener2, changeSets);
+
+            // The consumer updates the queue size just after notifying the listener ...
+            for (int i = 0; i != 100 && queueSize.get() != 0L; ++i) {
+                Thread.sleep(10L);
+            }
+            assertThat(queueSize.get(), is(0L));
+        } finally {
+            bus.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private void assertReceivedInOrder( TestListener listener,
+                                        TestChangeSet[] expected ) throws InterruptedException {
+        assertTrue(listener.await(10, TimeUnit.SECONDS));
+        List<TestChangeSet> received = listener.getObservedChangeSet();
+        assertThat(received.size(), is(expected.length));
+        for (int i = 0; i != expected.length; ++i) {
+            assertTrue(received.get(i) == expected[i]);
+        }
+    }
+
+    protected static class PublishingListener extends TestListener {
+        private final ChangeBus bus;
+        private final String sourceWorkspaceName;
+        private final String targetWorkspaceName;
+        private final int count;
+
+        protected PublishingListener( ChangeBus bus,
+                                      String sourceWorkspaceName,
+                                      String targetWorkspaceName,
+                                      int count ) {
+            super(count + 1);
+            this.bus = bus;
+            this.sourceWorkspaceName = sourceWorkspaceName;
+            this.targetWorkspaceName = targetWorkspaceName;
+            this.count = count;
+        }
+
+        @Override
+        public void notify( ChangeSet changeSet ) {
+            super.notify(changeSet);
+            if (sourceWorkspaceName.equals(changeSet.getWorkspaceName())) {
+                for (int i = 0; i != count; ++i) {
+                    bus.notify(new TestChangeSet(targetWorkspaceName));
+                }
+            }
+        }
+    }
+
+    protected static class SlowListener extends TestListener {
+        private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        protected SlowListener( int expectedNumberOfChangeSet ) {
+            super(expectedNumberOfChangeSet);
+        }
+
+        @Override
+        public void notify( ChangeSet changeSet ) {
+            threads.add(Thread.currentThread());
+            try {
+                Thread.sleep(1L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.notify(changeSet);
+        }
+
+        protected Set<Thread> getThreads() {
+            return threads;
+        }
+    }
+
+    protected static class BlockingListener extends TestListener {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+
+        protected BlockingListener() {
+            super(1);
+        }
+
+        @Override
+        public void notify( ChangeSet changeSet ) {
+            super.notify(changeSet);
+            blocked.countDown();
+            try {
+                unblocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        protected boolean awaitBlocked( long timeout,
+                                        TimeUnit unit ) throws InterruptedException {
+            return blocked.await(timeout, unit);
+        }
+
+        protected void unblock() {
+            unblocked.countDown();
+        }
+    }
+
+    protected static class FailingListener extends TestListener {
+        protected FailingListener( int expectedNumberOfChangeSet ) {
+            super(expectedNumberOfChangeSet);
+        }
+
+        @Override
+        public void notify( ChangeSet changeSet ) {
+            super.notify(changeSet);
+            throw new RuntimeException("Expected failure");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.infinispan.schematic.Schematic;
+import org.infinispan.schematic.document.Bson;
+import org.infinispan.schematic.document.EditableDocument;
+import org.infinispan.schematic.internal.document.BsonDocument;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+
+public class BoundedNodeCacheTest {
+
+    private long nodeSize;
+
+    @Before
+    public void beforeEach() {
+        nodeSize = new BoundedNodeCache(1000L).sizeOf(node(1));
+    }
+
+    protected NodeKey key( int id ) {
+        // Use identifiers of the same length, so that all nodes have the same size ...
+        return new NodeKey("source1works1-" + String.format("%04d", id));
+    }
+
+    protected CachedNode node( int id ) {
+        EditableDocument doc = Schematic.newDocument();
+        doc.setString("key", key(id).toString());
+        doc.setString("name", "node" + String.format("%04d", id));
+        return new LazyCachedNode(key(id), doc);
+    }
+
+    @Test
+    public void shouldEstimateSizeFromDocument() {
+        BoundedNodeCache cache = new BoundedNodeCache(1000L);
+        assertTrue(nodeSize > BoundedNodeCache.NODE_OVERHEAD);
+        EditableDocument doc = Schematic.newDocument();
+        doc.setString("key", key(1).toString());
+        doc.setString("name", "a much longer name for this node");
+        assertTrue(cache.sizeOf(new LazyCachedNode(key(1), doc)) > nodeSize);
+    }
+
+    @Test
+    public void shouldEstimateSizeOfEncodedDocumentFromItsLength() throws Exception {
+        BoundedNodeCache cache = new BoundedNodeCache(1000L);
+        EditableDocument doc = Schematic.newDocument();
+        doc.setString("key", key(1).toString());
+        doc.setString("name", "node0001");
+        byte[] bytes = Bson.write(doc);
+        long expected = BoundedNodeCache.NODE_OVERHEAD + BoundedNodeCache.VALUE_OVERHEAD + bytes.length;
+        assertThat(cache.sizeOf(new LazyCachedNode(key(1), new BsonDocument(bytes))), is(expected));
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 100, 1, 0.8f);
+        CachedNode node = node(1);
+        assertThat(cache.get(key(1)), is(nullValue()));
+        assertThat(cache.putIfAbsent(key(1), node), is(nullValue()));
+        assertThat(cache.get(key(1)), is(sameInstance(node)));
+        assertThat(cache.get(key(1)), is(sameInstance(node)));
+        assertThat(cache.get(key(2)), is(nullValue()));
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getEvictionCount(), is(0L));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getEstimatedSize(), is(nodeSize));
+    }
+
+    @Test
+    public void shouldNotReplaceExistingNodeWithPutIfAbsent() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 100, 1, 0.8f);
+        CachedNode node = node(1);
+        cache.putIfAbsent(key(1), node);
+        assertThat(cache.putIfAbsent(key(1), node(1)), is(sameInstance(node)));
+        assertThat(cache.get(key(1)), is(sameInstance(node)));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void shouldEvictToStayWithinMaximumSize() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 10, 1, 0.8f);
+        for (int i = 0; i != 100; ++i) {
+            cache.put(key(i), node(i));
+            assertTrue(cache.getEstimatedSize() <= cache.getMaximumSize());
+        }
+        assertThat(cache.size(), is(10));
+        assertThat(cache.getEvictionCount(), is(90L));
+        // The most recently added nodes should remain ...
+        assertThat(cache.get(key(99)), is(notNullValue()));
+        assertThat(cache.get(key(0)), is(nullValue()));
+    }
+
+    @Test
+    public void shouldKeepFrequentlyUsedNodesDuringScan() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 10, 1, 0.5f);
+        for (int i = 0; i != 3; ++i) {
+            cache.put(key(i), node(i));
+            assertThat(cache.get(key(i)), is(notNullValue())); // promotes the node
+        }
+        // Now scan over many nodes that are used only once ...
+        for (int i = 100; i != 200; ++i) {
+            cache.put(key(i), node(i));
+        }
+        for (int i = 0; i != 3; ++i) {
+            assertThat(cache.get(key(i)), is(notNullValue()));
+        }
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWhenThereIsNoProtectedSegment() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 10, 1, 0.0f);
+        for (int i = 0; i != 3; ++i) {
+            cache.put(key(i), node(i));
+            assertThat(cache.get(key(i)), is(notNullValue()));
+        }
+        for (int i = 100; i != 200; ++i) {
+            cache.put(key(i), node(i));
+        }
+        for (int i = 0; i != 3; ++i) {
+            assertThat(cache.get(key(i)), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void shouldRemoveAndClearNodes() {
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 100);
+        for (int i = 0; i != 20; ++i) {
+            cache.put(key(i), node(i));
+        }
+        assertThat(cache.size(), is(20));
+        assertThat(cache.entrySet().size(), is(20));
+        assertThat(cache.remove(key(3)), is(notNullValue()));
+        assertThat(cache.remove(key(3)), is(nullValue()));
+        assertThat(cache.containsKey(key(3)), is(false));
+        assertThat(cache.containsKey(key(4)), is(true));
+        assertThat(cache.size(), is(19));
+        assertThat(cache.getEstimatedSize(), is(nodeSize * 19));
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getEstimatedSize(), is(0L));
+    }
+
+    @Test
+    public void shouldReportHitsMissesAndEvictionsToMonitor() {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        BoundedNodeCache.Monitor monitor = new BoundedNodeCache.Monitor() {
+            @Override
+            public void recordHit() {
+                hits.incrementAndGet();
+            }
+
+            @Override
+            public void recordMiss() {
+                misses.incrementAndGet();
+            }
+
+            @Override
+            public void recordEvictions( long count ) {
+                evictions.addAndGet(count);
+            }
+        };
+        BoundedNodeCache cache = new BoundedNodeCache(nodeSize * 10, 1, 0.8f, monitor);
+        for (int i = 0; i != 20; ++i) {
+            cache.put(key(i), node(i));
+        }
+        assertThat(cache.get(key(19)), is(notNullValue()));
+        assertThat(cache.get(key(0)), is(nullValue()));
+        assertThat(hits.get(), is(cache.getHitCount()));
+        assertThat(misses.get(), is(cache.getMissCount()));
+        assertThat(evictions.get(), is(10L));
+        assertThat(evictions.get(), is(cache.getEvictionCount()));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionMode;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.cache.MutableCachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.SessionCache;
+
+/**
+ * Tests that save {@link WritableSessionCache}s concurrently, using the same pessimistic locking of documents as repositories.
+ */
+public class ConcurrentWritableSessionCacheTest extends AbstractSessionCacheTest {
+
+    @Override
+    protected void configure( ConfigurationBuilder configurationBuilder ) {
+        configurationBuilder.transaction().transactionMode(TransactionMode.TRANSACTIONAL).lockingMode(LockingMode.PESSIMISTIC);
+    }
+
+    @Override
+    protected SessionCache createSessionCache( ExecutionContext context,
+                                               WorkspaceCache cache ) {
+        return new WritableSessionCache(context, workspaceCache, createSessionContext());
+    }
+
+    @Test
+    public void shouldAppendChildrenToSameNodesFromConcurrentSessions() throws Exception {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        final NodeKey inboxAKey = root.createChild(session(), newKey("inboxA"), name("inboxA"), property("p1", "value")).getKey();
+        final NodeKey inboxBKey = root.createChild(session(), newKey("inboxB"), name("inboxB"), property("p1", "value")).getKey();
+        session1.save();
+
+        // Each thread appends to both nodes in every save, but the threads change the nodes in the opposite order ...
+        final int savesPerThread = 50;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Void> first = executor.submit(appendingTask(start, "first", savesPerThread, inboxAKey, inboxBKey));
+            Future<Void> second = executor.submit(appendingTask(start, "second", savesPerThread, inboxBKey, inboxAKey));
+            start.countDown();
+            first.get(60, TimeUnit.SECONDS);
+            second.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SessionCache session = createSessionCache(context, workspaceCache);
+        assertThat(session.getNode(inboxAKey).getChildReferences(session).size(), is(2L * savesPerThread));
+        assertThat(session.getNode(inboxBKey).getChildReferences(session).size(), is(2L * savesPerThread));
+    }
+
+    @Test
+    public void shouldSaveConcurrentSessionsWhoseChangedAndAppendedNodesCross() throws Exception {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        final NodeKey nodeAKey = root.createChild(session(), newKey("nodeA"), name("nodeA"), property("p1", "value")).getKey();
+        final NodeKey nodeBKey = root.createChild(session(), newKey("nodeB"), name("nodeB"), property("p1", "value")).getKey();
+        session1.save();
+
+        // Each thread changes a property of one node and appends a child to the other, so that the nodes locked because they
+        // are changed by one thread are the nodes locked because children are appended by the other thread ...
+        final int savesPerThread = 50;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Void> first = executor.submit(crossingTask(start, "first", savesPerThread, nodeAKey, nodeBKey));
+            Future<Void> second = executor.submit(crossingTask(start, "second", savesPerThread, nodeBKey, nodeAKey));
+            start.countDown();
+            first.get(60, TimeUnit.SECONDS);
+            second.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SessionCache session = createSessionCache(context, workspaceCache);
+        assertThat(session.getNode(nodeAKey).getChildReferences(session).size(), is((long)savesPerThread));
+        assertThat(session.getNode(nodeBKey).getChildReferences(session).size(), is((long)savesPerThread));
+    }
+
+    protected Callable<Void> crossingTask( final CountDownLatch start,
+                                           final String prefix,
+                                           final int saves,
+                                           final NodeKey changedKey,
+                                           final NodeKey appendedKey ) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                start.await();
+                for (int i = 0; i != saves; ++i) {
+                    SessionCache session = createSessionCache(context, workspaceCache);
+                    session.mutable(changedKey).setProperty(session, property(prefix, i));
+                    session.mutable(appendedKey).createChild(session, session.createNodeKey(), name(prefix + i), property("p1", i));
+                    session.save();
+                }
+                return null;
+            }
+        };
+    }
+
+    protected Callable<Void> appendingTask( final CountDownLatch start,
+                                            final String prefix,
+                                            final int saves,
+                                            final NodeKey... parentKeys ) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                start.await();
+                for (int i = 0; i != saves; ++i) {
+                    SessionCache session = createSessionCache(context, workspaceCache);
+                    for (NodeKey parentKey : parentKeys) {
+                        NodeKey childKey = session.createNodeKey();
+                        session.mutable(parentKey).createChild(session, childKey, name(prefix + i), property("p1", i));
+                    }
+                    session.save();
+                }
+                return null;
+            }
+        };
+    }
+}
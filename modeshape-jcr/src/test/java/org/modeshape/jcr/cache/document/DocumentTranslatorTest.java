@@ -24,9 +24,13 @@
 package org.modeshape.jcr.cache.document;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import org.infinispan.schematic.SchematicEntry;
@@ -35,10 +39,13 @@ import org.infinispan.schematic.document.EditableArray;
 import org.infinispan.schematic.document.EditableDocument;
 import org.junit.Test;
 import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.cache.ChildReference;
+import org.modeshape.jcr.cache.ChildReferences;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.cache.document.DocumentTranslator.ChildReferencesInfo;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.Path.Segment;
 
@@ -163,6 +170,234 @@ public class DocumentTranslatorTest extends AbstractSessionCacheTest {
         print(document(key), true);
     }
 
+    @Test
+    public void shouldIndexChildrenWhenSplittingIntoMultipleSegments() throws Exception {
+        MutableCachedNode nodeB = check(session1).mutableNode("/childB");
+        NodeKey key = nodeB.getKey();
+        List<NodeKey> newKeys = new ArrayList<NodeKey>();
+        for (int i = 0; i != 12; ++i) {
+            NodeKey newKey = key.withId("child" + (i + 1));
+            newKeys.add(newKey);
+            nodeB.createChild(session(), newKey, name("newChild"), property("p1a", 344), property("p2", false));
+        }
+        session1.save();
+
+        // Split the children into several blocks, which should also index them ...
+        workspaceCache.translator().optimizeChildrenBlocks(key, null, 5, 2); // will merge into a single block ...
+        workspaceCache.translator().optimizeChildrenBlocks(key, null, 5, 2); // will split into blocks ...
+        session1.save();
+
+        assertIndexedChildren(document(key), name("newChild"), newKeys);
+        assertIndexedChildren(document(key), name("childC"), Arrays.asList(new NodeKey("source1works1-childC")));
+        assertIndexedChildren(document(key), name("childD"), Arrays.asList(new NodeKey("source1works1-childD")));
+    }
+
+    @Test
+    public void shouldMaintainChildrenIndexWhenAppendingAndRemovingChildren() throws Exception {
+        MutableCachedNode nodeB = check(session1).mutableNode("/childB");
+        NodeKey key = nodeB.getKey();
+        List<NodeKey> newKeys = new ArrayList<NodeKey>();
+        for (int i = 0; i != 12; ++i) {
+            NodeKey newKey = key.withId("child" + (i + 1));
+            newKeys.add(newKey);
+            nodeB.createChild(session(), newKey, name("newChild"), property("p1a", 344), property("p2", false));
+        }
+        session1.save();
+        workspaceCache.translator().optimizeChildrenBlocks(key, null, 5, 2); // will merge into a single block ...
+        workspaceCache.translator().optimizeChildrenBlocks(key, null, 5, 2); // will split into blocks ...
+        session1.save();
+
+        // Append more children, which are added to the last block ...
+        nodeB = check(session1).mutableNode("/childB");
+        for (int i = 12; i != 15; ++i) {
+            NodeKey newKey = key.withId("child" + (i + 1));
+            newKeys.add(newKey);
+            nodeB.createChild(session(), newKey, name("newChild"), property("p1a", 344), property("p2", false));
+        }
+        NodeKey otherKey = key.withId("other");
+        nodeB.createChild(session(), otherKey, name("otherChild"), property("p1a", 344), property("p2", false));
+        session1.save();
+        assertIndexedChildren(document(key), name("newChild"), newKeys);
+        assertIndexedChildren(document(key), name("otherChild"), Arrays.asList(otherKey));
+
+        // Remove a child, which rewrites all of the blocks ...
+        nodeB = check(session1).mutableNode("/childB");
+        NodeKey removedKey = newKeys.remove(3);
+        nodeB.removeChild(session(), removedKey);
+        session1.destroy(removedKey);
+        session1.save();
+        assertIndexedChildren(document(key), name("newChild"), newKeys);
+        assertIndexedChildren(document(key), name("otherChild"), Arrays.asList(otherKey));
+    }
+
+    @Test
+    public void shouldSplitLastBlockWhenAppendedChildrenExceedTarget() throws Exception {
+        workspaceCache.translator().setChildCountTargets(5, 1, null);
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        NodeKey key = root.createChild(session(), session1.createNodeKey(), name("parent"), property("p1", "value")).getKey();
+        session1.save();
+
+        List<NodeKey> newKeys = new ArrayList<NodeKey>();
+        for (int j = 0; j != 4; ++j) {
+            MutableCachedNode parent = session1.mutable(key);
+            for (int i = 0; i != 6; ++i) {
+                NodeKey newKey = key.withId("child" + newKeys.size());
+                newKeys.add(newKey);
+                parent.createChild(session(), newKey, name("child"), property("p1a", 344));
+            }
+            session1.save();
+
+            // No block should be larger than the target plus a remainder too small for a block of its own ...
+            for (int size : blockSizes(key)) {
+                assertThat(size < 9, is(true));
+            }
+            if (j != 0) assertIndexedChildren(document(key), name("child"), newKeys);
+        }
+        assertThat(blockSizes(key).size() > 2, is(true));
+        assertThat(document(key).getDocument(DocumentTranslator.CHILDREN_INFO).getLong(DocumentTranslator.COUNT),
+                   is((long)newKeys.size()));
+    }
+
+    @Test
+    public void shouldRebuildChildrenIndexWithMoreBucketsWhenAppendedChildrenOverfillBuckets() throws Exception {
+        workspaceCache.translator().setChildCountTargets(500, 50, null);
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        NodeKey key = root.createChild(session(), session1.createNodeKey(), name("parent"), property("p1", "value")).getKey();
+        session1.save();
+
+        List<NodeKey> newKeys = new ArrayList<NodeKey>();
+        int maxBuckets = 0;
+        for (int j = 0; j != 5; ++j) {
+            MutableCachedNode parent = session1.mutable(key);
+            for (int i = 0; i != 500; ++i) {
+                NodeKey newKey = key.withId("child" + newKeys.size());
+                newKeys.add(newKey);
+                parent.createChild(session(), newKey, name("child"), property("p1a", 344));
+            }
+            session1.save();
+            ChildReferencesInfo info = workspaceCache.translator().getChildReferencesInfo(document(key));
+            if (info.isIndexed()) {
+                assertThat(DocumentTranslator.isOverfull(info, info.totalSize), is(false));
+                maxBuckets = Math.max(maxBuckets, info.indexBuckets);
+            }
+        }
+        assertThat(maxBuckets > 1, is(true));
+        assertIndexedChildren(document(key), name("child"), newKeys);
+    }
+
+    @Test
+    public void shouldRemoveChildrenIndexWhenNodeIsRemoved() throws Exception {
+        workspaceCache.translator().setChildCountTargets(5, 1, null);
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode parent = root.createChild(session(), session1.createNodeKey(), name("parent"), property("p1", "value"));
+        NodeKey key = parent.getKey();
+        for (int i = 0; i != 20; ++i) {
+            parent.createChild(session(), key.withId("child" + i), name("child"), property("p1a", 344));
+        }
+        session1.save();
+        ChildReferencesInfo info = workspaceCache.translator().getChildReferencesInfo(document(key));
+        assertThat(info.isIndexed(), is(true));
+        String bucketKey = workspaceCache.translator().childrenIndexKey(info.parentKey, 0);
+        assertThat(workspaceCache.documentStore().get(bucketKey), is(notNullValue()));
+
+        root = session1.mutable(session1.getRootKey());
+        root.removeChild(session(), key);
+        session1.destroy(key);
+        session1.save();
+        assertThat(workspaceCache.documentStore().get(bucketKey), is(nullValue()));
+    }
+
+    @Test
+    public void shouldMergeBlocksWhenRemovedChildrenLeaveThemTooSmall() throws Exception {
+        workspaceCache.translator().setChildCountTargets(5, 1, null);
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode parent = root.createChild(session(), session1.createNodeKey(), name("parent"), property("p1", "value"));
+        NodeKey key = parent.getKey();
+        List<NodeKey> newKeys = new ArrayList<NodeKey>();
+        for (int i = 0; i != 20; ++i) {
+            NodeKey newKey = key.withId("child" + i);
+            newKeys.add(newKey);
+            parent.createChild(session(), newKey, name("child"), property("p1a", 344));
+        }
+        session1.save();
+        int blocksBefore = blockSizes(key).size();
+        assertThat(blocksBefore, is(4));
+
+        // Remove most of the children in the first blocks ...
+        parent = session1.mutable(key);
+        for (int i = 0; i != 8; ++i) {
+            NodeKey removedKey = newKeys.remove(1);
+            parent.removeChild(session(), removedKey);
+            session1.destroy(removedKey);
+        }
+        session1.save();
+
+        List<Integer> sizes = blockSizes(key);
+        assertThat(sizes.size() < blocksBefore, is(true));
+        int total = 0;
+        for (int size : sizes) {
+            assertThat(size > 0, is(true));
+            total += size;
+        }
+        assertThat(total, is(newKeys.size()));
+        assertIndexedChildren(document(key), name("child"), newKeys);
+    }
+
+    @Test
+    public void shouldUseChildCountTargetOfPrimaryType() throws Exception {
+        workspaceCache.translator().setChildCountTargets(0, 0, Collections.singletonMap("nt:folder", 5));
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode folder = root.createChild(session(), session1.createNodeKey(), name("folder"),
+                                                    property(JcrLexicon.PRIMARY_TYPE, name("nt:folder")));
+        MutableCachedNode other = root.createChild(session(), session1.createNodeKey(), name("other"),
+                                                   property(JcrLexicon.PRIMARY_TYPE, name("nt:unstructured")));
+        for (int i = 0; i != 12; ++i) {
+            folder.createChild(session(), session1.createNodeKey(), name("child"), property("p1a", 344));
+            other.createChild(session(), session1.createNodeKey(), name("child"), property("p1a", 344));
+        }
+        session1.save();
+
+        assertThat(blockSizes(folder.getKey()).size() > 1, is(true));
+        assertThat(blockSizes(other.getKey()).size(), is(1));
+    }
+
+    protected List<Integer> blockSizes( NodeKey key ) {
+        List<Integer> sizes = new ArrayList<Integer>();
+        Document doc = document(key);
+        while (doc != null) {
+            List<?> children = doc.getArray(DocumentTranslator.CHILDREN);
+            sizes.add(children != null ? children.size() : 0);
+            Document info = doc.getDocument(DocumentTranslator.CHILDREN_INFO);
+            String nextKey = info != null ? info.getString(DocumentTranslator.NEXT_BLOCK) : null;
+            doc = nextKey != null ? workspaceCache.documentStore().get(nextKey).getContentAsDocument() : null;
+        }
+        return sizes;
+    }
+
+    protected void assertIndexedChildren( Document doc,
+                                          Name name,
+                                          List<NodeKey> expectedKeys ) {
+        DocumentTranslator translator = workspaceCache.translator();
+        ChildReferencesInfo info = translator.getChildReferencesInfo(doc);
+        assertThat(info.isIndexed(), is(true));
+        assertThat(translator.getChildrenIndexBucket(workspaceCache, info, name), is(notNullValue()));
+
+        ChildReferences references = translator.getChildReferences(workspaceCache, doc);
+        assertThat(references.getChildCount(name), is(expectedKeys.size()));
+        int snsIndex = 0;
+        for (NodeKey expectedKey : expectedKeys) {
+            ++snsIndex;
+            ChildReference byName = references.getChild(name, snsIndex);
+            assertThat(byName.getKey(), is(expectedKey));
+            assertThat(byName.getSnsIndex(), is(snsIndex));
+            assertThat(references.hasChild(expectedKey), is(true));
+            assertThat(references.getChild(expectedKey).getSegment(), is(segment(name, snsIndex)));
+        }
+        assertThat(references.getChild(name, snsIndex + 1), is(nullValue()));
+        assertThat(references.hasChild(new NodeKey("source1works1-noSuchChild")), is(false));
+        assertThat(references.getChild(new NodeKey("source1works1-noSuchChild")), is(nullValue()));
+    }
+
     protected Document document( NodeKey key ) {
         SchematicEntry entry = workspaceCache.documentStore().get(key.toString());
         return entry.getContentAsDocument();
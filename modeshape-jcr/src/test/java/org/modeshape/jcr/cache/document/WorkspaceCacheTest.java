@@ -23,11 +23,30 @@
  */
 package org.modeshape.jcr.cache.document;
 
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.ChildReference;
 import org.modeshape.jcr.cache.NodeCache;
 import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.value.Property;
 
 public class WorkspaceCacheTest extends AbstractNodeCacheTest {
 
@@ -42,4 +61,80 @@ public class WorkspaceCacheTest extends AbstractNodeCacheTest {
         return workspaceCache;
     }
 
+    @Test
+    public void shouldPrefetchNodesThatAreNotYetCached() {
+        WorkspaceCache workspaceCache = (WorkspaceCache)cache;
+        CachedNode root = workspaceCache.getNode(ROOT_KEY_WS1);
+        List<NodeKey> childKeys = new ArrayList<NodeKey>();
+        for (ChildReference ref : root.getChildReferences(workspaceCache)) {
+            childKeys.add(ref.getKey());
+            assertThat(workspaceCache.getCachedNode(ref.getKey()), is(nullValue()));
+        }
+        assertThat(childKeys.size() > 1, is(true));
+
+        workspaceCache.prefetch(childKeys);
+        for (NodeKey childKey : childKeys) {
+            CachedNode child = workspaceCache.getCachedNode(childKey);
+            assertThat(child, is(notNullValue()));
+            assertThat(workspaceCache.getNode(childKey), is(sameInstance(child)));
+        }
+    }
+
+    @Test
+    public void shouldPrefetchAtMostTheRequestedNumberOfKeysFromIterator() {
+        WorkspaceCache workspaceCache = (WorkspaceCache)cache;
+        CachedNode root = workspaceCache.getNode(ROOT_KEY_WS1);
+        Iterator<NodeKey> childKeys = root.getChildReferences(workspaceCache).getAllKeys();
+        assertThat(workspaceCache.prefetch(childKeys, 2), is(2));
+        assertThat(workspaceCache.prefetch(Collections.<NodeKey>emptyList().iterator(), 2), is(0));
+    }
+
+    @Test
+    public void shouldSeeAllPropertiesOfNodesReadConcurrently() throws Exception {
+        final WorkspaceCache workspaceCache = (WorkspaceCache)cache;
+        final List<CachedNode> nodes = new ArrayList<CachedNode>();
+        final List<Integer> propertyCounts = new ArrayList<Integer>();
+        CachedNode root = workspaceCache.getNode(ROOT_KEY_WS1);
+        nodes.add(root);
+        nodes.add(workspaceCache.getNode(root.getChildReferences(workspaceCache).getChild(JcrLexicon.SYSTEM)));
+        for (CachedNode node : nodes) {
+            // Counted from the document, since the properties have not yet been decoded ...
+            propertyCounts.add(node.getPropertyCount(workspaceCache));
+        }
+
+        int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i != threadCount; ++i) {
+                final boolean readPrimaryTypeFirst = i % 2 == 0;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        start.await();
+                        for (int j = 0; j != nodes.size(); ++j) {
+                            CachedNode node = nodes.get(j);
+                            if (readPrimaryTypeFirst && node.getProperty(JcrLexicon.PRIMARY_TYPE, workspaceCache) == null) {
+                                return false;
+                            }
+                            int count = 0;
+                            for (Iterator<Property> iter = node.getProperties(workspaceCache); iter.hasNext(); iter.next()) {
+                                ++count;
+                            }
+                            if (count != propertyCounts.get(j)) return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS), is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
 }
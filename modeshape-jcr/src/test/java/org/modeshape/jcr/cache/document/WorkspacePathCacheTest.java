@@ -0,0 +1,178 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ * 
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.cache.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.cache.MutableCachedNode;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.PathCache;
+import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * Tests that the {@link WorkspacePathCache} shared by all sessions of a workspace is properly invalidated as sessions save
+ * changes.
+ */
+public class WorkspacePathCacheTest extends AbstractSessionCacheTest {
+
+    @Override
+    protected SessionCache createSessionCache( ExecutionContext context,
+                                               WorkspaceCache cache ) {
+        return new WritableSessionCache(context, workspaceCache, createSessionContext());
+    }
+
+    protected Path cachedPath( NodeKey key ) {
+        return workspaceCache.pathCache().getPath(workspaceCache.getNode(key));
+    }
+
+    @Test
+    public void shouldCachePathsOfPersistedNodes() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey childKey = node.createChild(session(), newKey("x-child"), name("child"), property("p1", "value")).getKey();
+        session1.save();
+
+        workspaceCache.pathCache().clear();
+        assertThat(cachedPath(childKey), is(path("/node/child")));
+        assertThat(workspaceCache.pathCache().size(), is(3));
+        assertThat(cachedPath(childKey), is(path("/node/child")));
+        assertThat(workspaceCache.pathCache().size(), is(3));
+    }
+
+    @Test
+    public void shouldInvalidatePathsBelowRenamedNode() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        MutableCachedNode childA = node.createChild(session(), newKey("x-childA"), name("childA"), property("p1", "value"));
+        NodeKey grandchildKey = childA.createChild(session(), newKey("x-grandchild"), name("grandchild"), property("p1", "value")).getKey();
+        session1.save();
+        assertThat(cachedPath(grandchildKey), is(path("/node/childA/grandchild")));
+
+        node = session1.mutable(node.getKey());
+        node.renameChild(session1, childA.getKey(), name("childX"));
+        session1.save();
+        assertThat(cachedPath(grandchildKey), is(path("/node/childX/grandchild")));
+    }
+
+    @Test
+    public void shouldInvalidatePathsBelowMovedNode() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        MutableCachedNode other = root.createChild(session(), newKey("other"), name("other"), property("p1", "value"));
+        MutableCachedNode childA = node.createChild(session(), newKey("x-childA"), name("childA"), property("p1", "value"));
+        NodeKey grandchildKey = childA.createChild(session(), newKey("x-grandchild"), name("grandchild"), property("p1", "value")).getKey();
+        session1.save();
+        assertThat(cachedPath(grandchildKey), is(path("/node/childA/grandchild")));
+
+        node = session1.mutable(node.getKey());
+        other = session1.mutable(other.getKey());
+        node.moveChild(session1, childA.getKey(), other, name("childA"));
+        session1.save();
+        assertThat(cachedPath(grandchildKey), is(path("/other/childA/grandchild")));
+    }
+
+    @Test
+    public void shouldInvalidatePathsOfSameNameSiblingsWhenOneIsRemoved() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey child1 = node.createChild(session(), newKey("x-child1"), name("child"), property("p1", "value")).getKey();
+        node.createChild(session(), newKey("x-child2"), name("child"), property("p1", "value"));
+        MutableCachedNode child3 = node.createChild(session(), newKey("x-child3"), name("child"), property("p1", "value"));
+        NodeKey grandchildKey = child3.createChild(session(), newKey("x-grandchild"), name("grandchild"), property("p1", "value")).getKey();
+        session1.save();
+        assertThat(cachedPath(child3.getKey()), is(path("/node/child[3]")));
+        assertThat(cachedPath(grandchildKey), is(path("/node/child[3]/grandchild")));
+
+        node = session1.mutable(node.getKey());
+        node.removeChild(session1, child1);
+        session1.destroy(child1);
+        session1.save();
+        assertThat(cachedPath(child3.getKey()), is(path("/node/child[2]")));
+        assertThat(cachedPath(grandchildKey), is(path("/node/child[2]/grandchild")));
+    }
+
+    @Test
+    public void shouldInvalidatePathsOfSameNameSiblingsWhenReordered() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey child1 = node.createChild(session(), newKey("x-child1"), name("child"), property("p1", "value")).getKey();
+        NodeKey child2 = node.createChild(session(), newKey("x-child2"), name("child"), property("p1", "value")).getKey();
+        session1.save();
+        assertThat(cachedPath(child1), is(path("/node/child[1]")));
+        assertThat(cachedPath(child2), is(path("/node/child[2]")));
+
+        node = session1.mutable(node.getKey());
+        node.reorderChild(session1, child2, child1);
+        session1.save();
+        assertThat(cachedPath(child1), is(path("/node/child[2]")));
+        assertThat(cachedPath(child2), is(path("/node/child[1]")));
+    }
+
+    @Test
+    public void shouldNotShareThePathsComputedByLocalView() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        NodeKey nodeKey = root.createChild(session(), newKey("node"), name("node"), property("p1", "value")).getKey();
+        session1.save();
+        workspaceCache.pathCache().clear();
+
+        PathCache local = workspaceCache.pathCache().createLocalView();
+        assertThat(local.getPath(workspaceCache.getNode(nodeKey)), is(path("/node")));
+        assertThat(workspaceCache.pathCache().size(), is(0));
+    }
+
+    @Test
+    public void shouldNotCacheMorePathsThanMaximumSize() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey childKey = node.createChild(session(), newKey("x-child"), name("child"), property("p1", "value")).getKey();
+        session1.save();
+
+        WorkspacePathCache paths = new WorkspacePathCache(workspaceCache, 1);
+        assertThat(paths.getPath(workspaceCache.getNode(childKey)), is(path("/node/child")));
+        assertThat(paths.size(), is(1));
+        assertThat(paths.getMaximumSize(), is(1));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPaths() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey childKey = node.createChild(session(), newKey("x-child"), name("child"), property("p1", "value")).getKey();
+        NodeKey otherKey = node.createChild(session(), newKey("x-other"), name("other"), property("p1", "value")).getKey();
+        session1.save();
+
+        WorkspacePathCache paths = new WorkspacePathCache(workspaceCache, 2);
+        assertThat(paths.getPath(workspaceCache.getNode(childKey)), is(path("/node/child")));
+        // Computing the other path uses (and refreshes) the cached path of the parent, so the child's path is evicted ...
+        assertThat(paths.getPath(workspaceCache.getNode(otherKey)), is(path("/node/other")));
+        assertThat(paths.size(), is(2));
+        assertThat(paths.cachedPath(node.getKey()), is(path("/node")));
+        assertThat(paths.cachedPath(otherKey), is(path("/node/other")));
+        assertThat(paths.cachedPath(childKey), is(nullValue()));
+    }
+}
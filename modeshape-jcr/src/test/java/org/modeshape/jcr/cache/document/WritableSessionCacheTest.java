@@ -24,11 +24,15 @@
 package org.modeshape.jcr.cache.document;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import org.infinispan.schematic.document.Document;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.modeshape.common.statistic.Stopwatch;
@@ -37,6 +41,7 @@ import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.value.Path.Segment;
 
 /**
  * Tests that operate against a {@link WritableSessionCache}. Each test method starts with a clean slate of content, which is
@@ -392,6 +397,125 @@ public class WritableSessionCacheTest extends AbstractSessionCacheTest {
         assertEquals(new HashSet<NodeKey>(Arrays.asList(rootKey, childKey)), session1.getChangedNodeKeysAtOrBelow(root));
     }
 
+    @Test
+    public void shouldMergeChildrenAppendedToSameNodeBySessionsWithOverlappingChanges() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        NodeKey inboxKey = root.createChild(session(), newKey("inbox"), name("inbox"), property("p1", "value")).getKey();
+        session1.save();
+
+        // Both sessions append a child to the same node before either saves ...
+        MutableCachedNode inbox1 = session1.mutable(inboxKey);
+        MutableCachedNode inbox2 = session2.mutable(inboxKey);
+        inbox1.createChild(session1, newKey("x-childA"), name("childA"), property("p1", "value A"));
+        inbox2.createChild(session2, newKey("x-childB"), name("childB"), property("p1", "value B"));
+        session1.save();
+        session2.save();
+
+        check(session1).children(inboxKey, "childA", "childB");
+        check(session2).children(inboxKey, "childA", "childB");
+    }
+
+    @Test
+    public void shouldRecordSegmentsOfFirstChildrenWithEachNameInTheirDocuments() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey child1Key = node.createChild(session(), newKey("x-child1"), name("child"), property("p1", "value 1")).getKey();
+        NodeKey child2Key = node.createChild(session(), newKey("x-child2"), name("child"), property("p1", "value 2")).getKey();
+        NodeKey otherKey = node.createChild(session(), newKey("x-other"), name("other"), property("p1", "value")).getKey();
+        NodeKey child3Key = node.createChild(session(), newKey("x-child3"), name("child"), property("p1", "value 3")).getKey();
+        session1.save();
+
+        assertThat(recordedSegment(node.getKey()), is(segment("node")));
+        assertThat(recordedSegment(child1Key), is(segment("child", 1)));
+        assertThat(recordedSegment(child2Key), is(nullValue()));
+        assertThat(recordedSegment(otherKey), is(segment("other", 1)));
+        assertThat(recordedSegment(child3Key), is(nullValue()));
+
+        // Removing the first child changes the SNS indexes of the later children, but their documents don't record them ...
+        node = session1.mutable(node.getKey());
+        node.removeChild(session1, child1Key);
+        session1.destroy(child1Key);
+        session1.save();
+
+        assertThat(recordedSegment(child2Key), is(nullValue()));
+        assertThat(recordedSegment(otherKey), is(segment("other", 1)));
+        assertThat(recordedSegment(child3Key), is(nullValue()));
+        check(session1).node(child2Key, "/node/child");
+        check(session1).node(child3Key, "/node/child[2]");
+
+        // Renaming a child changes its name and the SNS indexes of the other children with the old and new names ...
+        node = session1.mutable(node.getKey());
+        node.renameChild(session1, child2Key, name("other"));
+        session1.save();
+
+        assertThat(recordedSegment(child2Key), is(segment("other", 1)));
+        assertThat(recordedSegment(otherKey), is(nullValue()));
+        check(session1).node(otherKey, "/node/other[2]");
+        check(session1).node(child3Key, "/node/child");
+
+        // Reordering children changes the SNS indexes of the children with the same name ...
+        node = session1.mutable(node.getKey());
+        node.reorderChild(session1, otherKey, child2Key);
+        session1.save();
+
+        assertThat(recordedSegment(otherKey), is(segment("other", 1)));
+        assertThat(recordedSegment(child2Key), is(nullValue()));
+        check(session1).node(child2Key, "/node/other[2]");
+    }
+
+    @Test
+    public void shouldNotRewriteDocumentsOfLaterSiblingsWhenRemovingFirstSameNameSibling() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        MutableCachedNode node = root.createChild(session(), newKey("node"), name("node"), property("p1", "value"));
+        NodeKey firstKey = node.createChild(session(), newKey("x-first"), name("child"), property("p1", "value")).getKey();
+        List<NodeKey> laterKeys = new ArrayList<NodeKey>();
+        for (int i = 0; i != 10; ++i) {
+            laterKeys.add(node.createChild(session(), newKey("x-child" + i), name("child"), property("p1", "value " + i)).getKey());
+        }
+        session1.save();
+        List<Document> laterDocs = new ArrayList<Document>();
+        for (NodeKey key : laterKeys) {
+            laterDocs.add(workspaceCache.documentStore().get(key.toString()).getContentAsDocument());
+        }
+
+        node = session1.mutable(node.getKey());
+        node.removeChild(session1, firstKey);
+        session1.destroy(firstKey);
+        session1.save();
+
+        // The later siblings' indexes all changed, but their documents did not ...
+        for (int i = 0; i != laterKeys.size(); ++i) {
+            assertThat(workspaceCache.documentStore().get(laterKeys.get(i).toString()).getContentAsDocument(),
+                       is(laterDocs.get(i)));
+        }
+        check(session1).node(newKey("x-child0"), "/node/child");
+        check(session1).node(newKey("x-child9"), "/node/child[10]");
+    }
+
+    @Test
+    public void shouldRecordSegmentsOfSameNameChildrenAppendedBySessionsWithOverlappingChanges() {
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        NodeKey inboxKey = root.createChild(session(), newKey("inbox"), name("inbox"), property("p1", "value")).getKey();
+        session1.save();
+
+        // Both sessions append a child with the same name to the same node before either saves ...
+        MutableCachedNode inbox1 = session1.mutable(inboxKey);
+        MutableCachedNode inbox2 = session2.mutable(inboxKey);
+        NodeKey childAKey = inbox1.createChild(session1, newKey("x-childA"), name("child"), property("p1", "value A")).getKey();
+        NodeKey childBKey = inbox2.createChild(session2, newKey("x-childB"), name("child"), property("p1", "value B")).getKey();
+        session1.save();
+        session2.save();
+
+        assertThat(recordedSegment(childAKey), is(segment("child", 1)));
+        assertThat(recordedSegment(childBKey), is(nullValue()));
+        check(session1).node(childBKey, "/inbox/child[2]");
+    }
+
+    protected Segment recordedSegment( NodeKey key ) {
+        Document doc = workspaceCache.documentStore().get(key.toString()).getContentAsDocument();
+        return workspaceCache.translator().getSegment(doc);
+    }
+
     @Test
     public void shouldAllowTransientlyMovingNode() {
 
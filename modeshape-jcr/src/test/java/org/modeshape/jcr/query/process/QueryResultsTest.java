@@ -26,11 +26,14 @@ package org.modeshape.jcr.query.process;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.modeshape.jcr.query.QueryResults.Columns;
+import org.modeshape.jcr.query.QueryResults.Statistics;
 import org.modeshape.jcr.query.model.Column;
 import org.modeshape.jcr.value.PropertyType;
 
@@ -387,4 +390,70 @@ public class QueryResultsTest extends AbstractQueryResultsTest {
         columnsWithScores.toString();
         columnsWithoutScores.toString();
     }
+
+    @Test
+    public void shouldIterateStreamedTuplesMoreThanOnce() {
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        tuples.add(new Object[] {"a"});
+        tuples.add(new Object[] {"b"});
+        QueryResults results = new QueryResults(columnsWithoutScores, new Statistics(), tuples.iterator(), null, null);
+        assertThat(results.isStreaming(), is(true));
+        Iterator<Object[]> iter = results.getTupleIterator();
+        assertThat(iter.next()[0], is((Object)"a"));
+        // A second iterator returns the tuples already computed, and then shares the remaining tuples ...
+        Iterator<Object[]> iter2 = results.getTupleIterator();
+        assertThat(iter2.next()[0], is((Object)"a"));
+        assertThat(iter2.next()[0], is((Object)"b"));
+        assertThat(iter2.hasNext(), is(false));
+        assertThat(iter.next()[0], is((Object)"b"));
+        assertThat(iter.hasNext(), is(false));
+        assertThat(results.isStreaming(), is(false));
+        assertThat(results.getRowCount(), is(2));
+    }
+
+    @Test
+    public void shouldRunTasksOnlyOnceStreamedTuplesHaveAllBeenComputed() {
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        tuples.add(new Object[] {"a"});
+        QueryResults results = new QueryResults(columnsWithoutScores, new Statistics(), tuples.iterator(), null, null);
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        results.whenAllTuplesComputed(task);
+        Iterator<Object[]> iter = results.getTupleIterator();
+        iter.next();
+        assertThat(runs.get(), is(0));
+        assertThat(iter.hasNext(), is(false));
+        assertThat(runs.get(), is(1));
+        results.whenAllTuplesComputed(task);
+        assertThat(runs.get(), is(2));
+    }
+
+    @Test
+    public void shouldMaterializeStreamedTuplesWhenRowCountIsRequested() {
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        tuples.add(new Object[] {"a"});
+        tuples.add(new Object[] {"b"});
+        QueryResults results = new QueryResults(columnsWithoutScores, new Statistics(), tuples.iterator(), null, null);
+        assertThat(results.getRowCount(), is(2));
+        assertThat(results.getTuples().size(), is(2));
+        Iterator<Object[]> iter = results.getTupleIterator();
+        assertThat(iter.next()[0], is((Object)"a"));
+        assertThat(iter.next()[0], is((Object)"b"));
+        assertThat(iter.hasNext(), is(false));
+    }
+
+    @Test
+    public void shouldNotBeStreamingWhenCreatedWithListOfTuples() {
+        List<Object[]> tuples = new ArrayList<Object[]>();
+        tuples.add(new Object[] {"a"});
+        QueryResults results = new QueryResults(columnsWithoutScores, new Statistics(), tuples);
+        assertThat(results.isStreaming(), is(false));
+        assertThat(results.getTupleIterator().next()[0], is((Object)"a"));
+        assertThat(results.getTupleIterator().next()[0], is((Object)"a"));
+    }
 }
@@ -29,8 +29,13 @@ import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -171,6 +176,41 @@ public abstract class AbstractBinaryStoreTest extends AbstractTransactionalTest
         assertEquals(0, keys.size());
     }
 
+    @Test
+    public void shouldReadRangeOfStoredBinary() throws Exception {
+        BinaryValue value = storeAndValidate(MEDIUM_KEY, MEDIUM_DATA);
+        byte[] range = IoUtil.readBytes(((RangedBinaryStore)getBinaryStore()).getInputStream(MEDIUM_KEY, 1000, 2048));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(MEDIUM_DATA, 1000, 3048), range));
+        range = IoUtil.readBytes(value.getStream(MEDIUM_DATA.length - 10, 2048));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(MEDIUM_DATA, MEDIUM_DATA.length - 10, MEDIUM_DATA.length), range));
+        assertEquals(0, IoUtil.readBytes(value.getStream(MEDIUM_DATA.length, 10)).length);
+    }
+
+    @Test
+    public void shouldTransferRangeOfStoredBinaryToChannel() throws Exception {
+        BinaryValue value = storeAndValidate(MEDIUM_KEY, MEDIUM_DATA);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(output);
+        assertEquals(2048L, value.transferTo(1000, 2048, channel));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(MEDIUM_DATA, 1000, 3048), output.toByteArray()));
+
+        output.reset();
+        RangedBinaryStore store = (RangedBinaryStore)getBinaryStore();
+        assertEquals(MEDIUM_DATA.length, store.transferTo(MEDIUM_KEY, 0, Long.MAX_VALUE, channel));
+        assertTrue(Arrays.equals(MEDIUM_DATA, output.toByteArray()));
+    }
+
+    @Test
+    public void shouldMapRangeOfStoredBinary() throws Exception {
+        BinaryValue value = storeAndValidate(MEDIUM_KEY, MEDIUM_DATA);
+        ByteBuffer buffer = value.map(1000, 2048);
+        assertTrue(buffer.isReadOnly());
+        assertEquals(2048, buffer.remaining());
+        byte[] range = new byte[buffer.remaining()];
+        buffer.get(range);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(MEDIUM_DATA, 1000, 3048), range));
+    }
+
     @Test
     public void shouldExtractAndStoreMimeTypeWhenDetectorConfigured() throws RepositoryException, IOException {
         getBinaryStore().setMimeTypeDetector(new DummyMimeTypeDetector());
@@ -198,6 +238,38 @@ public abstract class AbstractBinaryStoreTest extends AbstractTransactionalTest
         assertEquals(DummyTextExtractor.EXTRACTED_TEXT, ((AbstractBinaryStore)binaryStore).getExtractedText(binaryValue));
     }
 
+    @Test
+    public void shouldStreamExtractedTextWhenExtractorConfigured() throws Exception {
+        TextExtractors extractors = new TextExtractors(Executors.newSingleThreadExecutor(), true,
+                                                       Arrays.<TextExtractor>asList(new DummyTextExtractor()));
+        BinaryStore binaryStore = getBinaryStore();
+        binaryStore.setTextExtractors(extractors);
+
+        byte[] randomBinary = new byte[1024];
+        RANDOM.nextBytes(randomBinary);
+
+        BinaryValue binaryValue = getBinaryStore().storeValue(new ByteArrayInputStream(randomBinary));
+        assertEquals(DummyTextExtractor.EXTRACTED_TEXT, IoUtil.read(((AbstractBinaryStore)binaryStore).getTextReader(binaryValue)));
+        assertEquals(DummyTextExtractor.EXTRACTED_TEXT,
+                     IoUtil.read(((AbstractBinaryStore)binaryStore).getExtractedTextReader(binaryValue)));
+    }
+
+    @Test
+    public void shouldStoreExtractedTextFromReader() throws Exception {
+        // Make sure no extractor configured by another test stores its own text ...
+        getBinaryStore().setTextExtractors(new TextExtractors(Executors.newSingleThreadExecutor(), false,
+                                                              new ArrayList<TextExtractor>()));
+        byte[] randomBinary = new byte[1024];
+        RANDOM.nextBytes(randomBinary);
+        BinaryValue binaryValue = getBinaryStore().storeValue(new ByteArrayInputStream(randomBinary));
+
+        AbstractBinaryStore binaryStore = (AbstractBinaryStore)getBinaryStore();
+        assertNull(binaryStore.getExtractedTextReader(binaryValue));
+        binaryStore.storeExtractedText(binaryValue, new StringReader(TEXT_DATA));
+        assertEquals(TEXT_DATA, binaryStore.getExtractedText(binaryValue));
+        assertEquals(TEXT_DATA, IoUtil.read(binaryStore.getExtractedTextReader(binaryValue)));
+    }
+
     protected static final class DummyMimeTypeDetector implements MimeTypeDetector {
 
         public static final String DEFAULT_TYPE = "application/foobar";
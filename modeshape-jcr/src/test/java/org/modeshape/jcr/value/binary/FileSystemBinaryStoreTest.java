@@ -39,6 +39,7 @@ import org.modeshape.common.util.SecureHash;
 import org.modeshape.common.util.SecureHash.Algorithm;
 import org.modeshape.jcr.api.Binary;
 import org.modeshape.jcr.value.BinaryKey;
+import org.modeshape.jcr.value.BinaryValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.BufferedInputStream;
@@ -51,6 +52,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -137,6 +140,32 @@ public class FileSystemBinaryStoreTest extends AbstractBinaryStoreTest {
         super.shouldStoreZeroLengthBinary();
     }
 
+    @Test
+    public void shouldMemoryMapPersistedFiles() throws Exception {
+        BinaryValue value = store.storeValue(new ByteArrayInputStream(MEDIUM_DATA));
+        assertThat(value, is(instanceOf(StoredBinaryValue.class)));
+        ByteBuffer buffer = value.map(0, MEDIUM_DATA.length);
+        assertThat(buffer, is(instanceOf(MappedByteBuffer.class)));
+        assertThat(buffer.isReadOnly(), is(true));
+        assertThat(buffer.remaining(), is(MEDIUM_DATA.length));
+    }
+
+    @Test
+    public void shouldKeepSmallValuesInMemory() throws Exception {
+        byte[] data = Arrays.copyOf(SMALL_DATA, MIN_BINARY_SIZE - 1);
+        BinaryValue value = store.storeValue(new ByteArrayInputStream(data));
+        assertThat(value, is(instanceOf(InMemoryBinaryValue.class)));
+        assertThat(value.getKey(), is(BinaryKey.keyFor(data)));
+        assertThat(((InMemoryBinaryValue)value).getBytes(), is(data));
+
+        // Content of exactly the minimum size is persisted ...
+        data = Arrays.copyOf(SMALL_DATA, MIN_BINARY_SIZE);
+        value = store.storeValue(new ByteArrayInputStream(data));
+        assertThat(value, is(instanceOf(StoredBinaryValue.class)));
+        assertThat(value.getKey(), is(BinaryKey.keyFor(data)));
+        assertThat(IoUtil.readBytes(value.getStream()), is(data));
+    }
+
     @Test
     public void shouldMoveUnusedFilesToTrash() throws Exception {
         Set<String> storedSha1s = new HashSet<String>();
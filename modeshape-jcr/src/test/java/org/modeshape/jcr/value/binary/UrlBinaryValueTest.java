@@ -0,0 +1,71 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors. 
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jcr.value.binary;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.modeshape.jcr.value.basic.BinaryContains.hasContent;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.common.util.IoUtil;
+import org.modeshape.common.util.SecureHash;
+import org.modeshape.common.util.SecureHash.Algorithm;
+import org.modeshape.jcr.value.BinaryKey;
+
+public class UrlBinaryValueTest {
+
+    private byte[] content;
+    private URL url;
+
+    @Before
+    public void beforeEach() throws Exception {
+        content = "Some URL content".getBytes("UTF-8");
+        File file = new File("target/url-binary/content.txt");
+        file.getParentFile().mkdirs();
+        IoUtil.write(new ByteArrayInputStream(content), new FileOutputStream(file));
+        url = file.toURI().toURL();
+    }
+
+    @Test
+    public void shouldComputeKeyFromContentWhenKeyIsNotSupplied() throws Exception {
+        UrlBinaryValue binary = new UrlBinaryValue("some-id", "source", url, content.length, "content.txt", null);
+        assertThat(binary.getId(), is("some-id"));
+        assertThat(binary.getKey(), is(new BinaryKey(SecureHash.getHash(Algorithm.SHA_1, content))));
+        assertThat(binary, hasContent(content));
+    }
+
+    @SuppressWarnings( "deprecation" )
+    @Test
+    public void shouldUseSuppliedKey() throws Exception {
+        BinaryKey key = new BinaryKey("0123456789abcdef0123456789abcdef01234567");
+        UrlBinaryValue binary = new UrlBinaryValue(key, url, content.length, "content.txt", null);
+        assertThat(binary.getKey(), is(key));
+        assertThat(binary.getId(), is(key.toString()));
+        assertThat(binary, hasContent(content));
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Properties;
 import java.util.Set;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
+import javax.jcr.query.QueryResult;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jdbc.DriverInfo;
 import org.modeshape.jdbc.JcrConnection;
@@ -100,6 +101,21 @@ public abstract class AbstractRepositoryDelegate implements RepositoryDelegate {
     public void commit() throws RepositoryException {
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * By default, the fetch size is ignored and the query is {@link #execute(String, String) executed} as usual.
+     * </p>
+     * 
+     * @see org.modeshape.jdbc.delegate.RepositoryDelegate#execute(java.lang.String, java.lang.String, int)
+     */
+    @Override
+    public QueryResult execute( String query,
+                                String language,
+                                int fetchSize ) throws RepositoryException {
+        return execute(query, language);
+    }
+
     /**
      * {@inheritDoc}
      * 
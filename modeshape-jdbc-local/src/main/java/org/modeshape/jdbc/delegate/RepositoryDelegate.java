@@ -87,6 +87,21 @@ public interface RepositoryDelegate {
     QueryResult execute( String query,
                          String language ) throws RepositoryException;
 
+    /**
+     * Call to execute the sql <code>query</code> based on the specified Jcr language, using the given fetch size as a hint for the
+     * number of rows that should be obtained at once.
+     * 
+     * @param query is the sql query to execute
+     * @param language is the JCR language the <code>query</code> should be executed based on.
+     * @param fetchSize the number of rows that should be fetched at once, or 0 if the delegate should decide
+     * @return QueryResult is the JCR query result
+     * @throws RepositoryException
+     * @see java.sql.Statement#setFetchSize(int)
+     */
+    QueryResult execute( String query,
+                         String language,
+                         int fetchSize ) throws RepositoryException;
+
     /**
      * Call to create the connection based on the implementation of this interface.
      * 
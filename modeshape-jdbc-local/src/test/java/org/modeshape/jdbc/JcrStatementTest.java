@@ -248,6 +248,12 @@ public class JcrStatementTest {
     @Test
     public void shouldSetFetchSize() throws SQLException {
         stmt.setFetchSize(100);
+        assertThat(stmt.getFetchSize(), is(100));
+    }
+
+    @Test( expected = SQLException.class )
+    public void shouldNotAllowNegativeFetchSize() throws SQLException {
+        stmt.setFetchSize(-1);
     }
 
     /**
@@ -329,6 +335,13 @@ public class JcrStatementTest {
             return queryResult;
         }
 
+        @Override
+        public QueryResult execute( String query,
+                                    String language,
+                                    int fetchSize ) {
+            return execute(query, language);
+        }
+
         @Override
         public ConnectionInfo getConnectionInfo() {
             return null;
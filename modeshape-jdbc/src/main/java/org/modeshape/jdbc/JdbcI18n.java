@@ -40,6 +40,8 @@ public final class JdbcI18n {
      */
     public static I18n driverErrorRegistering;
 
+    public static I18n unableToLoadQueryResultPage;
+
     static {
         try {
             I18n.initialize(JdbcI18n.class);
@@ -30,17 +30,28 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Value;
 import javax.jcr.query.Row;
 import javax.jcr.query.RowIterator;
 import org.modeshape.jcr.api.query.QueryResult;
+import org.modeshape.jdbc.JdbcI18n;
 import org.modeshape.jdbc.JdbcJcrValueFactory;
 import org.modeshape.web.jcr.rest.client.domain.QueryRow;
 
 /**
  * A simple implementation of the {@link QueryResult} interface used to iterate over list of {@link QueryRow rows}
+ * <p>
+ * When created with a {@link PageLoader}, the rows are only the first page of the result, and the following pages are loaded
+ * as the rows are iterated over. While a page is being iterated over, the next page is already loaded in the background, so
+ * that at most two pages are held in memory.
+ * </p>
  * 
  * @author Horia Chiorean
  */
@@ -48,13 +59,38 @@ public final class HttpQueryResult implements QueryResult {
 
     protected final List<HttpRow> rows = new ArrayList<HttpRow>();
 
+    private final int pageSize;
+    private final PageLoader pageLoader;
+    private final Executor executor;
+
     /**
      * [columnName, columnType] mappings
      */
     protected final Map<String, String> columns = new LinkedHashMap<String, String>();
 
     HttpQueryResult( List<QueryRow> queryRows ) {
+        this(queryRows, 0, null, null);
+    }
+
+    /**
+     * Creates a result which loads its rows in pages.
+     * 
+     * @param firstPage the rows of the first page; may not be null
+     * @param pageSize the number of rows in each page, which is used to detect the last page
+     * @param pageLoader the loader of the following pages; may be null if the result has no other pages
+     * @param executor the executor used to load the next page in the background; may be null if the pages should only be loaded
+     *        when they're needed, in the calling thread
+     */
+    HttpQueryResult( List<QueryRow> firstPage,
+                     int pageSize,
+                     PageLoader pageLoader,
+                     Executor executor ) {
+        List<QueryRow> queryRows = firstPage;
         assert queryRows != null;
+        assert pageLoader == null || pageSize > 0;
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+        this.executor = executor;
 
         if (!queryRows.isEmpty()) {
             QueryRow firstQueryRow = queryRows.get(0);
@@ -81,7 +117,7 @@ public final class HttpQueryResult implements QueryResult {
 
     @Override
     public RowIterator getRows() {
-        return new HttpRowIterator();
+        return pageLoader != null ? new PagedRowIterator() : new HttpRowIterator();
     }
 
     @Override
@@ -153,6 +189,139 @@ public final class HttpQueryResult implements QueryResult {
         }
     }
 
+    private List<HttpRow> toRows( List<QueryRow> queryRows ) {
+        List<HttpRow> result = new ArrayList<HttpRow>(queryRows.size());
+        for (QueryRow queryRow : queryRows) {
+            result.add(new HttpRow(queryRow));
+        }
+        return result;
+    }
+
+    /**
+     * Loads the rows of a query result page by page.
+     */
+    interface PageLoader {
+        /**
+         * Load the rows of a page.
+         * 
+         * @param offset the position of the first row of the page in the whole result
+         * @param limit the maximum number of rows to load
+         * @return the rows; never null but empty if there are no more rows
+         * @throws Exception if the rows cannot be loaded
+         */
+        List<QueryRow> load( long offset,
+                             int limit ) throws Exception;
+    }
+
+    /**
+     * A {@link RowIterator} which iterates over the pages obtained from the {@link PageLoader}. The {@link #getSize() size} is
+     * unknown (-1) until the last page has been reached.
+     */
+    private class PagedRowIterator implements RowIterator {
+
+        private List<HttpRow> page;
+        private long pageOffset;
+        private int index;
+        private boolean lastPage;
+        private FutureTask<List<QueryRow>> nextPage;
+
+        protected PagedRowIterator() {
+            startPage(rows, 0L);
+        }
+
+        private void startPage( List<HttpRow> page,
+                                long pageOffset ) {
+            this.page = page;
+            this.pageOffset = pageOffset;
+            this.index = 0;
+            this.lastPage = page.size() < pageSize;
+            this.nextPage = null;
+            if (!lastPage) {
+                // Load the next page while this one is being consumed ...
+                final long nextOffset = pageOffset + page.size();
+                nextPage = new FutureTask<List<QueryRow>>(new Callable<List<QueryRow>>() {
+                    @Override
+                    public List<QueryRow> call() throws Exception {
+                        return pageLoader.load(nextOffset, pageSize);
+                    }
+                });
+                if (executor != null) {
+                    try {
+                        executor.execute(nextPage);
+                    } catch (RejectedExecutionException e) {
+                        // The connection is being closed, so the page will be loaded only if it's needed ...
+                    }
+                }
+            }
+        }
+
+        private List<QueryRow> awaitNextPage() {
+            // Run the task in this thread if the executor hasn't started it yet (or if there is no executor) ...
+            nextPage.run();
+            try {
+                return nextPage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(JdbcI18n.unableToLoadQueryResultPage.text(pageOffset + page.size(), e.getMessage()), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw new IllegalStateException(JdbcI18n.unableToLoadQueryResultPage.text(pageOffset + page.size(),
+                                                                                          cause.getMessage()), cause);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= page.size()) {
+                if (lastPage) return false;
+                List<HttpRow> next = toRows(awaitNextPage());
+                startPage(next, pageOffset + page.size());
+            }
+            return true;
+        }
+
+        @Override
+        public Row nextRow() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows to iterate over");
+            }
+            return page.get(index++);
+        }
+
+        @Override
+        public void skip( long skipNum ) {
+            if (skipNum < 0) {
+                throw new IllegalArgumentException("skipNum must be a positive value");
+            }
+            for (long i = 0; i < skipNum; i++) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Skip would go past collection end");
+                }
+                index++;
+            }
+        }
+
+        @Override
+        public long getSize() {
+            return lastPage ? pageOffset + page.size() : -1L;
+        }
+
+        @Override
+        public long getPosition() {
+            return pageOffset + index;
+        }
+
+        @Override
+        public Object next() {
+            return nextRow();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Method remove() not supported by this iterator");
+        }
+    }
+
     private class HttpRow implements Row {
         private final Map<String, Value> valuesMap = new LinkedHashMap<String, Value>();
 
@@ -32,6 +32,9 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.jcr.RepositoryException;
@@ -88,6 +91,7 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
     private Map<String, NodeType> nodeTypes;
     private final Lock nodeTypeLock = new ReentrantLock();
     private Repository remoteRepository;
+    private ExecutorService pageLoader;
 
     public HttpRepositoryDelegate( String url,
                                    Properties info ) {
@@ -113,6 +117,55 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When a fetch size is specified, the rows are obtained from the server in pages of that size (using the offset and limit of
+     * the REST query service), and the next page is requested in the background while the rows of the current page are read. Each
+     * page is obtained by executing the query again, so the pages may be inconsistent if the content changes in the meantime.
+     * </p>
+     */
+    @Override
+    public QueryResult execute( final String query,
+                                final String language,
+                                final int fetchSize ) throws RepositoryException {
+        if (fetchSize <= 0) {
+            return execute(query, language);
+        }
+        logger.trace("Executing query with fetch size {1}: {0}", query, fetchSize);
+
+        final JsonRestClient restClient = this.restClient;
+        final Workspace workspace = this.workspace;
+        try {
+            List<QueryRow> firstPage = restClient.query(workspace, language, query, 0, fetchSize);
+            HttpQueryResult.PageLoader loader = new HttpQueryResult.PageLoader() {
+                @Override
+                public List<QueryRow> load( long offset,
+                                            int limit ) throws Exception {
+                    return restClient.query(workspace, language, query, (int)offset, limit);
+                }
+            };
+            return new HttpQueryResult(firstPage, fetchSize, loader, pageLoader());
+        } catch (Exception e) {
+            throw new RepositoryException(e.getMessage(), e);
+        }
+    }
+
+    private synchronized ExecutorService pageLoader() {
+        if (pageLoader == null) {
+            pageLoader = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread( Runnable runnable ) {
+                    // Don't prevent the JVM from exiting if the connection is not closed ...
+                    Thread thread = new Thread(runnable, "modeshape-jdbc-http-page-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return pageLoader;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -236,6 +289,12 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
     @Override
     public void close() {
         super.close();
+        synchronized (this) {
+            if (pageLoader != null) {
+                pageLoader.shutdownNow();
+                pageLoader = null;
+            }
+        }
         restClient = null;
         workspace = null;
         if (nodeTypes != null) nodeTypes.clear();
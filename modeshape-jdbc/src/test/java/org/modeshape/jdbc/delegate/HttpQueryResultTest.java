@@ -0,0 +1,132 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.jdbc.delegate;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.web.jcr.rest.client.domain.QueryRow;
+
+/**
+ * Unit test for the paging of {@link HttpQueryResult}
+ */
+public class HttpQueryResultTest {
+
+    private static final String COLUMN = "jcr:path";
+
+    private ExecutorService executor;
+    private List<Long> loadedOffsets;
+
+    @Before
+    public void beforeEach() {
+        executor = Executors.newSingleThreadExecutor();
+        loadedOffsets = new CopyOnWriteArrayList<Long>();
+    }
+
+    @After
+    public void afterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldIterateOverAllPages() throws Exception {
+        assertRows(newResult(10, 3, executor), 10);
+        assertThat(loadedOffsets, is((List<Long>)list(3L, 6L, 9L)));
+    }
+
+    @Test
+    public void shouldLoadEmptyPageWhenLastPageIsFull() throws Exception {
+        assertRows(newResult(6, 3, null), 6);
+        assertThat(loadedOffsets, is((List<Long>)list(3L, 6L)));
+    }
+
+    @Test
+    public void shouldNotLoadOtherPagesWhenFirstPageIsNotFull() throws Exception {
+        assertRows(newResult(2, 3, executor), 2);
+        assertThat(loadedOffsets.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSkipRowsAcrossPages() throws Exception {
+        RowIterator rows = newResult(10, 3, executor).getRows();
+        rows.skip(7);
+        assertThat(rows.getPosition(), is(7L));
+        assertThat(rows.nextRow().getValue(COLUMN).getString(), is("/node7"));
+    }
+
+    private void assertRows( HttpQueryResult result,
+                             int expectedCount ) throws Exception {
+        RowIterator rows = result.getRows();
+        int count = 0;
+        while (rows.hasNext()) {
+            Row row = rows.nextRow();
+            assertThat(row.getValue(COLUMN).getString(), is("/node" + count));
+            ++count;
+            assertThat(rows.getPosition(), is((long)count));
+        }
+        assertThat(count, is(expectedCount));
+        assertThat(rows.getSize(), is((long)expectedCount));
+    }
+
+    private HttpQueryResult newResult( final int totalRows,
+                                       int pageSize,
+                                       ExecutorService executor ) {
+        HttpQueryResult.PageLoader loader = new HttpQueryResult.PageLoader() {
+            @Override
+            public List<QueryRow> load( long offset,
+                                        int limit ) {
+                loadedOffsets.add(offset);
+                return queryRows(offset, Math.min(offset + limit, totalRows));
+            }
+        };
+        return new HttpQueryResult(queryRows(0, Math.min(pageSize, totalRows)), pageSize, loader, executor);
+    }
+
+    private List<QueryRow> queryRows( long from,
+                                      long to ) {
+        List<QueryRow> rows = new ArrayList<QueryRow>();
+        Map<String, String> types = Collections.singletonMap(COLUMN, "STRING");
+        for (long i = from; i < to; i++) {
+            rows.add(new QueryRow(types, Collections.<String, Object>singletonMap(COLUMN, "/node" + i)));
+        }
+        return rows;
+    }
+
+    private static List<Long> list( Long... values ) {
+        List<Long> result = new ArrayList<Long>();
+        Collections.addAll(result, values);
+        return result;
+    }
+}
@@ -125,6 +125,7 @@ public class Schematic extends DocumentFactory {
         MutableDocument mutable = null;
         if (document instanceof MutableDocument) mutable = (MutableDocument)document;
         else if (document instanceof DocumentEditor) mutable = ((DocumentEditor)document).asMutableDocument();
+        else mutable = (MutableDocument)document.clone(); // the document is read-only, so edit a mutable copy
         return new EditorImpl(mutable, observer, operations);
     }
 
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -34,6 +35,7 @@ import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.SimpleTimeZone;
 import java.util.regex.Pattern;
+import org.infinispan.schematic.internal.document.BsonDocument;
 import org.infinispan.schematic.internal.document.BsonReader;
 import org.infinispan.schematic.internal.document.BsonWriter;
 
@@ -208,6 +210,31 @@ public class Bson {
         return SHARED_READER.read(input);
     }
 
+    /**
+     * Read the binary BSON representation from supplied data input and construct a read-only {@link Document} view over those
+     * bytes, which decodes the fields only when they are accessed. Use {@link Document#clone()} to obtain a modifiable copy.
+     * 
+     * @param input the data input; may not be null
+     * @return the read-only {@link Document} representation
+     * @throws IOException if there was a problem reading from the stream
+     */
+    public static Document readLazily( DataInput input ) throws IOException {
+        return SHARED_READER.readLazily(input);
+    }
+
+    /**
+     * Construct a read-only {@link Document} view over the binary BSON representation that starts at the current position of the
+     * supplied buffer, which may be a heap or a direct buffer. The fields are decoded only when they are accessed, and the bytes
+     * must not be changed while the document is in use. Use {@link Document#clone()} to obtain a modifiable copy.
+     * 
+     * @param buffer the buffer; may not be null
+     * @return the read-only {@link Document} representation
+     * @throws IllegalArgumentException if the buffer does not contain a complete BSON document
+     */
+    public static Document readLazily( ByteBuffer buffer ) {
+        return new BsonDocument(buffer);
+    }
+
     /**
      * Get the {@link Type} constant that describes the type of value for the given field name.
      * 
@@ -144,7 +144,34 @@ public class SchematicEntryLiteral implements SchematicEntry, DeltaAware {
 
     protected void setDocument( Document document ) {
         assert this.value != null;
-        this.value = (MutableDocument)document;
+        this.value = mutable(document);
+    }
+
+    /**
+     * Get the mutable form of the supplied top-level document of an entry. A read-only document (such as one that was just read
+     * from BSON) is copied only at the top level, so the metadata and content documents remain as they are until they are
+     * edited.
+     * 
+     * @param document the entry's document; may not be null
+     * @return the mutable document; never null
+     */
+    static MutableDocument mutable( Document document ) {
+        if (document instanceof MutableDocument) return (MutableDocument)document;
+        return new BasicDocument(document);
+    }
+
+    /**
+     * Get the nested document with the supplied name, replacing it with a mutable copy if it is read-only.
+     * 
+     * @param fieldName the name of the nested document (e.g., {@link FieldName#CONTENT} or {@link FieldName#METADATA})
+     * @return the mutable nested document, or null if there is no such nested document
+     */
+    protected MutableDocument mutableDocument( String fieldName ) {
+        Document doc = value.getDocument(fieldName);
+        if (doc == null || doc instanceof MutableDocument) return (MutableDocument)doc;
+        MutableDocument copy = (MutableDocument)doc.clone();
+        value.put(fieldName, copy);
+        return copy;
     }
 
     @Override
@@ -210,7 +237,7 @@ public class SchematicEntryLiteral implements SchematicEntry, DeltaAware {
     }
 
     protected MutableDocument mutableMetadata() {
-        return (MutableDocument)getMetadata();
+        return mutableDocument(FieldName.METADATA);
     }
 
     protected String getKey() {
@@ -366,8 +393,8 @@ public class SchematicEntryLiteral implements SchematicEntry, DeltaAware {
 
         @Override
         public SchematicEntryLiteral readObject( ObjectInput input ) throws IOException, ClassNotFoundException {
-            MutableDocument doc = (MutableDocument)input.readObject();
-            return new SchematicEntryLiteral(doc);
+            Document doc = (Document)input.readObject();
+            return new SchematicEntryLiteral(mutable(doc));
         }
 
         @Override
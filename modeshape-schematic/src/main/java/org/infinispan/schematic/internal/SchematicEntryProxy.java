@@ -285,14 +285,14 @@ public class SchematicEntryProxy extends AutoBatchSupport implements SchematicEn
     @Override
     public EditableDocument editDocumentContent() {
         SchematicEntryLiteral writable = getDeltaValueForWrite();
-        Document content = writable.data().getDocument(FieldName.CONTENT);
+        Document content = writable.mutableDocument(FieldName.CONTENT);
         return editorFor(content, FieldPath.CONTENT, writable.getDelta());
     }
 
     @Override
     public EditableDocument editMetadata() {
         SchematicEntryLiteral writable = getDeltaValueForWrite();
-        Document metadata = writable.data().getDocument(FieldName.METADATA);
+        Document metadata = writable.mutableDocument(FieldName.METADATA);
         return editorFor(metadata, FieldPath.METADATA, writable.getDelta());
     }
 
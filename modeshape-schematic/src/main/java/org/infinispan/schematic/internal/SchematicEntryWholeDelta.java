@@ -31,7 +31,6 @@ import org.infinispan.marshall.SerializeWith;
 import org.infinispan.schematic.SchematicEntry;
 import org.infinispan.schematic.document.Document;
 import org.infinispan.schematic.internal.delta.Operation;
-import org.infinispan.schematic.internal.document.MutableDocument;
 import org.infinispan.schematic.internal.marshall.Ids;
 import org.infinispan.util.Util;
 import org.infinispan.util.logging.Log;
@@ -64,7 +63,7 @@ public class SchematicEntryWholeDelta implements SchematicDelta {
                 other.setDocument(document);
                 LOG.trace("Merging whole doc delta into existing literal, resulting in " + other);
             } else {
-                other = new SchematicEntryLiteral((MutableDocument)document);
+                other = new SchematicEntryLiteral(SchematicEntryLiteral.mutable(document));
                 LOG.trace("Merging whole doc delta into new " + other);
             }
         } catch (RuntimeException e) {
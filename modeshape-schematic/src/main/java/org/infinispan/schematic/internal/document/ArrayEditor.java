@@ -591,6 +591,11 @@ public class ArrayEditor implements EditableArray {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, index, factory);
         }
+        if (!(doc instanceof MutableDocument)) {
+            // The nested document is read-only (e.g., a BsonDocument), so replace it with a mutable copy ...
+            doc = doc.clone();
+            array.setValue(index, doc);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, index, factory);
     }
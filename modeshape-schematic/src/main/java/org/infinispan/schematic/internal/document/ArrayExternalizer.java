@@ -26,7 +26,6 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Set;
 import org.infinispan.schematic.document.Array;
-import org.infinispan.schematic.document.Bson;
 import org.infinispan.schematic.internal.SchematicExternalizer;
 import org.infinispan.schematic.internal.marshall.Ids;
 import org.infinispan.util.Util;
@@ -34,6 +33,7 @@ import org.infinispan.util.Util;
 public class ArrayExternalizer extends SchematicExternalizer<Array> {
 
     private static final BsonReader SHARED_READER = new BsonReader();
+    private static final BsonWriter WRITER = new BsonWriter(true);
 
     /** The serialVersionUID */
     private static final long serialVersionUID = 1L;
@@ -45,7 +45,7 @@ public class ArrayExternalizer extends SchematicExternalizer<Array> {
         output.writeByte(1);
 
         // Write the BSON ...
-        Bson.write(array, output);
+        WRITER.write(array, output);
     }
 
     @Override
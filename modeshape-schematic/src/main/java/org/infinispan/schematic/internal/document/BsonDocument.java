@@ -0,0 +1,736 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.schematic.internal.document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.infinispan.marshall.SerializeWith;
+import org.infinispan.schematic.document.Binary;
+import org.infinispan.schematic.document.Bson;
+import org.infinispan.schematic.document.Bson.BinaryType;
+import org.infinispan.schematic.document.Bson.Type;
+import org.infinispan.schematic.document.Code;
+import org.infinispan.schematic.document.CodeWithScope;
+import org.infinispan.schematic.document.Document;
+import org.infinispan.schematic.document.Immutable;
+import org.infinispan.schematic.document.Json;
+import org.infinispan.schematic.document.MaxKey;
+import org.infinispan.schematic.document.MinKey;
+import org.infinispan.schematic.document.Null;
+import org.infinispan.schematic.document.ObjectId;
+import org.infinispan.schematic.document.Symbol;
+import org.infinispan.schematic.internal.io.BsonDataOutput;
+
+/**
+ * A read-only {@link Document} that is backed by the serialized BSON representation of the document, held in either a heap or a
+ * direct {@link ByteBuffer}. Nothing is decoded up front: the offsets of the elements are found by scanning the bytes the first
+ * time a field is needed, and a value is decoded only when its field is accessed. Nested documents are themselves views over a
+ * slice of the same bytes, so they are not decoded until they are accessed either. Arrays are decoded in full when accessed. Field
+ * names may be written either as C-strings or as identifiers in the {@link FieldNameDictionary}, and are returned as their
+ * canonical instances.
+ * <p>
+ * Instances cannot be modified. The {@link #clone()} method decodes the whole document into a {@link MutableDocument}, and the
+ * editors use this to replace a {@link BsonDocument} with a mutable copy the first time it is edited.
+ * </p>
+ */
+@Immutable
+@SerializeWith( DocumentExternalizer.class )
+public class BsonDocument implements Document {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Charset UTF_8 = BsonReader.UTF_8;
+    private static final BsonReader READER = new BsonReader();
+    private static final DocumentValueFactory VALUE_FACTORY = BsonReader.VALUE_FACTORY;
+    private static final int[] NO_ELEMENTS = new int[0];
+
+    private final transient ByteBuffer buffer;
+    private transient volatile int[] elements;
+
+    /**
+     * Create a view of the BSON document that starts at the current position of the supplied buffer. The buffer's position and
+     * limit are not changed, and the bytes of the document must not be changed while this view is in use.
+     * 
+     * @param buffer the buffer containing the BSON representation of the document; may not be null
+     * @throws IllegalArgumentException if the buffer does not contain a complete BSON document
+     */
+    public BsonDocument( ByteBuffer buffer ) {
+        ByteBuffer bytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = bytes.remaining() < 4 ? -1 : bytes.getInt(0);
+        if (length < 5 || length > bytes.remaining()) {
+            throw new IllegalArgumentException("The buffer does not contain a complete BSON document");
+        }
+        bytes.limit(length);
+        this.buffer = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Create a view of the BSON document in the supplied bytes.
+     * 
+     * @param bytes the BSON representation of the document; may not be null
+     * @throws IllegalArgumentException if the bytes do not contain a complete BSON document
+     */
+    public BsonDocument( byte[] bytes ) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Get the number of bytes in the BSON representation of this document.
+     * 
+     * @return the number of bytes
+     */
+    public int getLength() {
+        return buffer.limit();
+    }
+
+    /**
+     * Write the BSON representation of this document to the supplied output, without decoding or re-encoding any of its values.
+     * 
+     * @param output the output; may not be null
+     */
+    protected void writeTo( BsonDataOutput output ) {
+        if (buffer.hasArray()) {
+            output.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else {
+            output.write(bytes(0, buffer.limit()));
+        }
+    }
+
+    /**
+     * Get the offsets of the elements in this document, scanning the bytes the first time this method is called. Each offset
+     * points to the type byte of the element, which is followed by the element's name and value.
+     * 
+     * @return the offsets of the elements; never null
+     */
+    protected final int[] elements() {
+        int[] elements = this.elements;
+        if (elements == null) {
+            // Scan the elements without decoding any of the names or values ...
+            int[] offsets = new int[16];
+            int count = 0;
+            int position = 4;
+            int end = buffer.limit() - 1;
+            while (position < end) {
+                byte type = buffer.get(position);
+                if (type == Bson.END_OF_DOCUMENT) break;
+                if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+                offsets[count++] = position;
+                int valuePosition = skipCString(position + 1);
+                position = valuePosition + valueLength(type, valuePosition);
+            }
+            elements = count == 0 ? NO_ELEMENTS : Arrays.copyOf(offsets, count);
+            // Benign race: all threads compute the same offsets ...
+            this.elements = elements;
+        }
+        return elements;
+    }
+
+    protected final int elementFor( String name ) {
+        for (int element : elements()) {
+            if (nameEquals(element + 1, name)) return element;
+        }
+        return -1;
+    }
+
+    protected final String nameOf( int element ) {
+        int position = element + 1;
+        if (buffer.get(position) == FieldNameDictionary.MARKER) {
+            return FieldNameDictionary.nameOf(buffer.get(position + 1) & 0xFF);
+        }
+        return FieldNameDictionary.intern(readCString(position));
+    }
+
+    protected final Object valueOf( int element ) {
+        byte type = buffer.get(element);
+        int position = skipCString(element + 1);
+        switch (type) {
+            case Type.ARRAY:
+                return decode(slice(position), true);
+            case Type.BINARY:
+                int length = buffer.getInt(position);
+                byte subtype = buffer.get(position + 4);
+                if (subtype == BinaryType.UUID) {
+                    return new UUID(buffer.getLong(position + 5), buffer.getLong(position + 13));
+                }
+                return VALUE_FACTORY.createBinary(subtype, bytes(position + 5, length));
+            case Type.BOOLEAN:
+                return VALUE_FACTORY.createBoolean(buffer.get(position) != 0);
+            case Type.DATETIME:
+                return VALUE_FACTORY.createDate(buffer.getLong(position));
+            case Type.DOCUMENT:
+                return new BsonDocument(slice(position));
+            case Type.DOUBLE:
+                return VALUE_FACTORY.createDouble(buffer.getDouble(position));
+            case Type.INT32:
+                return VALUE_FACTORY.createInt(buffer.getInt(position));
+            case Type.INT64:
+                return VALUE_FACTORY.createLong(buffer.getLong(position));
+            case Type.JAVASCRIPT:
+                return VALUE_FACTORY.createCode(readString(position));
+            case Type.JAVASCRIPT_WITH_SCOPE:
+                // Skip the total length, which we don't use ...
+                int codePosition = position + 4;
+                String code = readString(codePosition);
+                Document scope = new BsonDocument(slice(codePosition + 4 + buffer.getInt(codePosition)));
+                return VALUE_FACTORY.createCode(code, scope);
+            case Type.MAXKEY:
+                return MaxKey.getInstance();
+            case Type.MINKEY:
+                return MinKey.getInstance();
+            case Type.NULL:
+                return VALUE_FACTORY.createNull();
+            case Type.OBJECTID:
+                return VALUE_FACTORY.createObjectId(bytes(position, 12));
+            case Type.REGEX:
+                return VALUE_FACTORY.createRegex(readCString(position), readCString(skipCString(position)));
+            case Type.STRING:
+            case Type.SYMBOL:
+                return readString(position);
+            case Type.TIMESTAMP:
+                int inc = buffer.getInt(position);
+                int time = buffer.getInt(position + 4);
+                return VALUE_FACTORY.createTimestamp(time, inc);
+        }
+        // DBPOINTER is deprecated and UNDEFINED has no value, so both are ignored (as the BsonReader does) ...
+        return null;
+    }
+
+    private int valueLength( byte type,
+                             int position ) {
+        switch (type) {
+            case Type.DOUBLE:
+            case Type.DATETIME:
+            case Type.INT64:
+            case Type.TIMESTAMP:
+                return 8;
+            case Type.INT32:
+                return 4;
+            case Type.BOOLEAN:
+                return 1;
+            case Type.STRING:
+            case Type.JAVASCRIPT:
+            case Type.SYMBOL:
+                return 4 + buffer.getInt(position);
+            case Type.DOCUMENT:
+            case Type.ARRAY:
+            case Type.JAVASCRIPT_WITH_SCOPE:
+                return buffer.getInt(position);
+            case Type.BINARY:
+                return 5 + buffer.getInt(position);
+            case Type.OBJECTID:
+                return 12;
+            case Type.DBPOINTER:
+                return 4 + buffer.getInt(position) + 12;
+            case Type.REGEX:
+                return skipCString(skipCString(position)) - position;
+            case Type.NULL:
+            case Type.UNDEFINED:
+            case Type.MINKEY:
+            case Type.MAXKEY:
+                return 0;
+        }
+        throw new IllegalStateException("Unexpected BSON type " + type + " at position " + position);
+    }
+
+    private int skipCString( int position ) {
+        while (buffer.get(position) != Bson.END_OF_STRING) {
+            ++position;
+        }
+        return position + 1;
+    }
+
+    private boolean nameEquals( int position,
+                                String name ) {
+        if (buffer.get(position) == FieldNameDictionary.MARKER) {
+            // The name was written as its identifier in the dictionary ...
+            return FieldNameDictionary.idOf(name) == (buffer.get(position + 1) & 0xFF);
+        }
+        int length = name.length();
+        for (int i = 0; i != length; ++i) {
+            char c = name.charAt(i);
+            // Compare ASCII characters directly to the UTF-8 bytes, but decode the name if it has any other characters ...
+            if (c >= 0x80) return name.equals(readCString(position));
+            if (buffer.get(position + i) != c) return false;
+        }
+        return buffer.get(position + length) == Bson.END_OF_STRING;
+    }
+
+    private String readCString( int position ) {
+        return decodeString(position, skipCString(position) - position - 1);
+    }
+
+    private String readString( int position ) {
+        // The length includes the zero-byte terminator ...
+        return VALUE_FACTORY.createString(decodeString(position + 4, buffer.getInt(position) - 1));
+    }
+
+    private String decodeString( int position,
+                                 int length ) {
+        if (buffer.hasArray()) return new String(buffer.array(), buffer.arrayOffset() + position, length, UTF_8);
+        return new String(bytes(position, length), UTF_8);
+    }
+
+    private byte[] bytes( int position,
+                          int length ) {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(bytes);
+        return bytes;
+    }
+
+    private ByteBuffer slice( int position ) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + buffer.getInt(position));
+        return slice.slice();
+    }
+
+    private static Document decode( ByteBuffer bytes,
+                                    boolean array ) {
+        try {
+            InputStream stream = new ByteBufferInputStream(bytes);
+            return array ? READER.readArray(stream) : READER.read(stream);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decode the BSON " + (array ? "array" : "document"), e);
+        }
+    }
+
+    @Override
+    public Object get( String name ) {
+        int element = elementFor(name);
+        return element < 0 ? null : valueOf(element);
+    }
+
+    @Override
+    public boolean containsField( String name ) {
+        return elementFor(name) >= 0;
+    }
+
+    @Override
+    public boolean containsAll( Document document ) {
+        if (document == null) {
+            return true;
+        }
+        for (Field field : document.fields()) {
+            Object thisValue = this.get(field.getName());
+            Object thatValue = field.getValue();
+            if (!BsonUtils.valuesAreEqual(thisValue, thatValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, ?> toMap() {
+        int[] elements = elements();
+        Map<String, Object> map = new LinkedHashMap<String, Object>(elements.length * 2);
+        for (int element : elements) {
+            map.put(nameOf(element), valueOf(element));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public Iterable<Field> fields() {
+        return new Iterable<Field>() {
+            @Override
+            public Iterator<Field> iterator() {
+                final int[] elements = elements();
+                return new Iterator<Field>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < elements.length;
+                    }
+
+                    @Override
+                    public Field next() {
+                        if (index >= elements.length) throw new NoSuchElementException();
+                        int element = elements[index++];
+                        return new ImmutableField(nameOf(element), valueOf(element));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        int[] elements = elements();
+        Set<String> names = new LinkedHashSet<String>(elements.length * 2);
+        for (int element : elements) {
+            names.add(nameOf(element));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public int size() {
+        return elements().length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements().length == 0;
+    }
+
+    @Override
+    public Boolean getBoolean( String name ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? (Boolean)value : null;
+    }
+
+    @Override
+    public boolean getBoolean( String name,
+                               boolean defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? ((Boolean)value).booleanValue() : defaultValue;
+    }
+
+    @Override
+    public Integer getInteger( String name ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? (Integer)value : null;
+    }
+
+    @Override
+    public int getInteger( String name,
+                           int defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? ((Integer)value).intValue() : defaultValue;
+    }
+
+    @Override
+    public Long getLong( String name ) {
+        Object value = get(name);
+        if (value instanceof Long) return (Long)value;
+        if (value instanceof Integer) return new Long(((Integer)value).longValue());
+        return null;
+    }
+
+    @Override
+    public long getLong( String name,
+                         long defaultValue ) {
+        Object value = get(name);
+        if (value instanceof Long) return ((Long)value).longValue();
+        if (value instanceof Integer) return ((Integer)value).longValue();
+        return defaultValue;
+    }
+
+    @Override
+    public Double getDouble( String name ) {
+        Object value = get(name);
+        return (value instanceof Double) ? (Double)value : null;
+    }
+
+    @Override
+    public double getDouble( String name,
+                             double defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Double) ? ((Double)value).doubleValue() : defaultValue;
+    }
+
+    @Override
+    public Number getNumber( String name ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : null;
+    }
+
+    @Override
+    public Number getNumber( String name,
+                             Number defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : defaultValue;
+    }
+
+    @Override
+    public String getString( String name ) {
+        return getString(name, null);
+    }
+
+    @Override
+    public String getString( String name,
+                             String defaultValue ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof String) {
+                return (String)value;
+            }
+            if (value instanceof Symbol) {
+                return ((Symbol)value).getSymbol();
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public List<?> getArray( String name ) {
+        Object value = get(name);
+        return (value instanceof List) ? (List<?>)value : null;
+    }
+
+    @Override
+    public Document getDocument( String name ) {
+        Object value = get(name);
+        return (value instanceof Document) ? (Document)value : null;
+    }
+
+    @Override
+    public boolean isNull( String name ) {
+        return get(name) instanceof Null;
+    }
+
+    @Override
+    public boolean isNullOrMissing( String name ) {
+        return Null.matches(get(name));
+    }
+
+    @Override
+    public MaxKey getMaxKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MaxKey) ? (MaxKey)value : null;
+    }
+
+    @Override
+    public MinKey getMinKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MinKey) ? (MinKey)value : null;
+    }
+
+    @Override
+    public Code getCode( String name ) {
+        Object value = get(name);
+        return (value instanceof Code) ? (Code)value : null;
+    }
+
+    @Override
+    public CodeWithScope getCodeWithScope( String name ) {
+        Object value = get(name);
+        return (value instanceof CodeWithScope) ? (CodeWithScope)value : null;
+    }
+
+    @Override
+    public ObjectId getObjectId( String name ) {
+        Object value = get(name);
+        return (value instanceof ObjectId) ? (ObjectId)value : null;
+    }
+
+    @Override
+    public Binary getBinary( String name ) {
+        Object value = get(name);
+        return (value instanceof Binary) ? (Binary)value : null;
+    }
+
+    @Override
+    public Symbol getSymbol( String name ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof Symbol) {
+                return (Symbol)value;
+            }
+            if (value instanceof String) {
+                return new Symbol((String)value);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Pattern getPattern( String name ) {
+        Object value = get(name);
+        return (value instanceof Pattern) ? (Pattern)value : null;
+    }
+
+    @Override
+    public UUID getUuid( String name ) {
+        return getUuid(name, null);
+    }
+
+    @Override
+    public UUID getUuid( String name,
+                         UUID defaultValue ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof UUID) {
+                return (UUID)value;
+            }
+            if (value instanceof String) {
+                try {
+                    return UUID.fromString((String)value);
+                } catch (IllegalArgumentException e) {
+                    // do nothing ...
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getType( String name ) {
+        return Bson.getTypeForValue(get(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This method decodes the whole document (including all nested documents) into a {@link MutableDocument}.
+     * </p>
+     */
+    @Override
+    public Document clone() {
+        return decode(buffer.duplicate(), false);
+    }
+
+    @Override
+    public Document with( Map<String, Object> changedFields ) {
+        return new BasicDocument(this).with(changedFields);
+    }
+
+    @Override
+    public Document with( String fieldName,
+                          Object newValue ) {
+        return new BasicDocument(this).with(fieldName, newValue);
+    }
+
+    @Override
+    public Document with( ValueTransformer transformer ) {
+        BasicDocument copy = new BasicDocument(this);
+        Document transformed = copy.with(transformer);
+        return transformed == copy ? this : transformed;
+    }
+
+    @Override
+    public Document withVariablesReplaced( Properties properties ) {
+        return new BasicDocument(this).withVariablesReplaced(properties);
+    }
+
+    @Override
+    public Document withVariablesReplacedWithSystemProperties() {
+        return new BasicDocument(this).withVariablesReplacedWithSystemProperties();
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as the hash code of a BasicDocument with the same fields ...
+        int hashCode = 0;
+        for (int element : elements()) {
+            Object value = valueOf(element);
+            hashCode += nameOf(element).hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof Iterable) {
+            // Probably an array
+            return false;
+        }
+        if (obj instanceof Document) {
+            Document that = (Document)obj;
+            if (this.size() != that.size()) {
+                return false;
+            }
+            for (Field thisField : fields()) {
+                Object thisValue = thisField.getValue();
+                Object thatValue = that.get(thisField.getName());
+                if (!BsonUtils.valuesAreEqual(thisValue, thatValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return Json.write(this);
+    }
+
+    /**
+     * Serialize this document as a decoded {@link BasicDocument}, since the buffer itself is not serializable.
+     * 
+     * @return the decoded document
+     */
+    protected Object writeReplace() {
+        return clone();
+    }
+
+    /**
+     * An {@link InputStream} that reads the remaining bytes of a {@link ByteBuffer}.
+     */
+    protected static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        protected ByteBufferInputStream( ByteBuffer buffer ) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b,
+                         int off,
+                         int len ) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -25,6 +25,8 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.UUID;
 import org.infinispan.schematic.document.Array;
 import org.infinispan.schematic.document.Bson;
@@ -44,6 +46,7 @@ import org.infinispan.schematic.internal.io.BsonDataInput;
 public class BsonReader {
 
     protected static final DocumentValueFactory VALUE_FACTORY = new DefaultDocumentValueFactory();
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
 
     /**
      * Read the binary BSON representation from supplied input stream and construct the {@link Document} representation.
@@ -75,6 +78,26 @@ public class BsonReader {
         return reader.endDocument();
     }
 
+    /**
+     * Read the binary BSON representation from supplied input and construct a read-only {@link Document} view over those bytes.
+     * None of the fields are decoded until they are accessed; see {@link BsonDocument}.
+     * 
+     * @param input the input; may not be null
+     * @return the read-only {@link Document} representation
+     * @throws IOException if there was a problem reading from the input
+     */
+    public Document readLazily( DataInput input ) throws IOException {
+        // Read the size int32 (in little-endian order), which includes the 4 bytes of the size itself ...
+        byte[] size = new byte[4];
+        input.readFully(size);
+        int length = (size[3] & 0xFF) << 24 | (size[2] & 0xFF) << 16 | (size[1] & 0xFF) << 8 | (size[0] & 0xFF);
+        if (length < 5) throw new IOException("Invalid length of BSON document: " + length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(size, 0, bytes, 0, size.length);
+        input.readFully(bytes, size.length, length - size.length);
+        return new BsonDocument(bytes);
+    }
+
     /**
      * Read the binary BSON representation from supplied input stream and construct the {@link Array} representation.
      * 
@@ -109,6 +132,7 @@ public class BsonReader {
         private final BsonDataInput data;
         private MutableDocument object;
         private DocumentValueFactory values;
+        private byte[] nameBytes = new byte[64];
 
         // private final BsonEditor editor;
 
@@ -143,7 +167,8 @@ public class BsonReader {
 
         protected void readElement( byte type,
                                     MutableDocument bson ) throws IOException {
-            String name = readCString();
+            // The names of the elements in an array are just the indexes, so don't bother interning them ...
+            String name = readFieldName(!(bson instanceof Array));
             Object value = null;
             switch (type) {
                 case Bson.Type.ARRAY:
@@ -227,6 +252,33 @@ public class BsonReader {
             bson.put(name, value);
         }
 
+        /**
+         * Read the name of an element, which is either a C-string or the {@link FieldNameDictionary#MARKER marker} followed by
+         * the identifier of a name in the {@link FieldNameDictionary}.
+         * 
+         * @param intern true if the name should be {@link FieldNameDictionary#intern(String) interned}
+         * @return the name; never null
+         * @throws IOException if there was a problem reading from the input
+         */
+        protected String readFieldName( boolean intern ) throws IOException {
+            byte b = data.readByte();
+            if (b == FieldNameDictionary.MARKER) {
+                int id = data.readUnsignedByte();
+                data.readByte(); // reads the zero-byte terminator
+                return FieldNameDictionary.nameOf(id);
+            }
+            // Names are short, so just collect the bytes up to the zero-byte terminator ...
+            byte[] bytes = nameBytes;
+            int length = 0;
+            while (b != Bson.END_OF_STRING) {
+                if (length == bytes.length) bytes = nameBytes = Arrays.copyOf(bytes, length * 2);
+                bytes[length++] = b;
+                b = data.readByte();
+            }
+            String name = new String(bytes, 0, length, UTF_8);
+            return intern ? FieldNameDictionary.intern(name) : name;
+        }
+
         protected String readCString() throws IOException {
             return data.readUTF(-1); // this reads the zero-byte terminator
         }
@@ -49,13 +49,34 @@ import org.infinispan.schematic.document.Timestamp;
 import org.infinispan.schematic.internal.io.BsonDataOutput;
 
 /**
- * A component that writes BSON representations from the in-memory {@link Document} representation.
+ * A component that writes BSON representations from the in-memory {@link Document} representation. A writer that uses
+ * {@link #BsonWriter(boolean) compact field names} writes the names in the {@link FieldNameDictionary} as their identifiers, which
+ * only the {@link BsonReader} can read; otherwise the standard BSON binary format is written.
  * 
  * @author Randall Hauch <rhauch@redhat.com> (C) 2011 Red Hat Inc.
  */
 @ThreadSafe
 public class BsonWriter {
 
+    private final boolean compactFieldNames;
+
+    /**
+     * Create a writer of the standard BSON binary format.
+     */
+    public BsonWriter() {
+        this(false);
+    }
+
+    /**
+     * Create a writer.
+     * 
+     * @param compactFieldNames true if the field names in the {@link FieldNameDictionary} should be written as their identifiers,
+     *        or false if the standard BSON binary format should be written
+     */
+    public BsonWriter( boolean compactFieldNames ) {
+        this.compactFieldNames = compactFieldNames;
+    }
+
     /**
      * Write the supplied in-memory {@link Document} in standard BSON binary format to the supplied stream.
      * 
@@ -157,6 +178,20 @@ public class BsonWriter {
         }
     }
 
+    protected void writeName( String name,
+                              BsonDataOutput output ) {
+        if (compactFieldNames) {
+            int id = FieldNameDictionary.idOf(name);
+            if (id > 0) {
+                output.writeByte(FieldNameDictionary.MARKER);
+                output.writeByte(id);
+                output.writeByte(END_OF_STRING);
+                return;
+            }
+        }
+        writeCString(name, output);
+    }
+
     protected void writeCString( String value,
                                  BsonDataOutput output ) {
         output.writeUTFString(value);
@@ -178,14 +213,14 @@ public class BsonWriter {
     protected void writeNull( String name,
                               BsonDataOutput output ) {
         output.writeByte(Type.NULL);
-        writeCString(name, output);
+        writeName(name, output);
     }
 
     protected void write( String name,
                           String value,
                           BsonDataOutput output ) {
         output.writeByte(Type.STRING);
-        writeCString(name, output);
+        writeName(name, output);
         writeString(value, output);
     }
 
@@ -193,7 +228,7 @@ public class BsonWriter {
                           boolean value,
                           BsonDataOutput output ) {
         output.writeByte(Type.BOOLEAN);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeByte(value ? (byte)0x01 : (byte)0x00);
     }
 
@@ -201,7 +236,7 @@ public class BsonWriter {
                           int value,
                           BsonDataOutput output ) {
         output.writeByte(Type.INT32);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeInt(value);
     }
 
@@ -209,7 +244,7 @@ public class BsonWriter {
                           long value,
                           BsonDataOutput output ) {
         output.writeByte(Type.INT64);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeLong(value);
     }
 
@@ -217,7 +252,7 @@ public class BsonWriter {
                           float value,
                           BsonDataOutput output ) {
         output.writeByte(Type.DOUBLE);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeDouble(value);
     }
 
@@ -225,7 +260,7 @@ public class BsonWriter {
                           double value,
                           BsonDataOutput output ) {
         output.writeByte(Type.DOUBLE);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeDouble(value);
     }
 
@@ -234,7 +269,7 @@ public class BsonWriter {
                                BsonDataOutput output ) {
         if (name != null) {
             output.writeByte(Type.ARRAY);
-            writeCString(name, output);
+            writeName(name, output);
         }
         // Write the size for the array; we'll come back to this after we write the array ...
         int arraySizePosition = output.size();
@@ -260,7 +295,7 @@ public class BsonWriter {
                           BsonDataOutput output ) {
         if (name != null) {
             output.writeByte(Type.ARRAY);
-            writeCString(name, output);
+            writeName(name, output);
         }
         // Write the size for the array; we'll come back to this after we write the array ...
         int arraySizePosition = output.size();
@@ -285,7 +320,12 @@ public class BsonWriter {
                           BsonDataOutput output ) {
         if (name != null) {
             output.writeByte(Type.DOCUMENT);
-            writeCString(name, output);
+            writeName(name, output);
+        }
+        if (compactFieldNames && document instanceof BsonDocument) {
+            // The document is already in BSON form (perhaps with compact field names), so just copy the bytes ...
+            ((BsonDocument)document).writeTo(output);
+            return;
         }
         // Write the size for the document; we'll come back to this after we write the array ...
         int arraySizePosition = output.size();
@@ -305,7 +345,7 @@ public class BsonWriter {
                           Binary value,
                           BsonDataOutput output ) {
         output.writeByte(Type.BINARY);
-        writeCString(name, output);
+        writeName(name, output);
         byte[] bytes = value.getBytes();
         output.writeInt(bytes.length);
         output.writeByte(value.getType());
@@ -316,7 +356,7 @@ public class BsonWriter {
                           Symbol value,
                           BsonDataOutput output ) {
         output.writeByte(Type.SYMBOL);
-        writeCString(name, output);
+        writeName(name, output);
         writeString(value.getSymbol(), output);
     }
 
@@ -324,7 +364,7 @@ public class BsonWriter {
                           Pattern value,
                           BsonDataOutput output ) {
         output.writeByte(Type.REGEX);
-        writeCString(name, output);
+        writeName(name, output);
         writeCString(value.pattern(), output);
         writeCString(BsonUtils.regexFlagsFor(value), output);
     }
@@ -333,7 +373,7 @@ public class BsonWriter {
                           Date value,
                           BsonDataOutput output ) {
         output.writeByte(Type.DATETIME);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeLong(value.getTime());
     }
 
@@ -341,7 +381,7 @@ public class BsonWriter {
                           UUID value,
                           BsonDataOutput output ) {
         output.writeByte(Type.BINARY);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeInt(16);
         output.writeByte(BinaryType.UUID);
         output.writeLong(value.getMostSignificantBits());
@@ -352,7 +392,7 @@ public class BsonWriter {
                           CodeWithScope value,
                           BsonDataOutput output ) {
         output.writeByte(Type.JAVASCRIPT_WITH_SCOPE);
-        writeCString(name, output);
+        writeName(name, output);
         // Write the size for the CodeWithScope; we'll come back to this after we write the object ...
         int arraySizePosition = output.size();
         output.writeInt(0);
@@ -370,7 +410,7 @@ public class BsonWriter {
                           Code value,
                           BsonDataOutput output ) {
         output.writeByte(Type.JAVASCRIPT);
-        writeCString(name, output);
+        writeName(name, output);
         writeString(value.getCode(), output);
     }
 
@@ -378,7 +418,7 @@ public class BsonWriter {
                           Timestamp value,
                           BsonDataOutput output ) {
         output.writeByte(Type.TIMESTAMP);
-        writeCString(name, output);
+        writeName(name, output);
         output.writeInt(value.getInc());
         output.writeInt(value.getTime());
     }
@@ -387,7 +427,7 @@ public class BsonWriter {
                           ObjectId value,
                           BsonDataOutput output ) {
         output.writeByte(Type.OBJECTID);
-        writeCString(name, output);
+        writeName(name, output);
         output.write(value.getBytes());
     }
 
@@ -395,13 +435,13 @@ public class BsonWriter {
                           MaxKey value,
                           BsonDataOutput output ) {
         output.writeByte(Type.MAXKEY);
-        writeCString(name, output);
+        writeName(name, output);
     }
 
     protected void write( String name,
                           MinKey value,
                           BsonDataOutput output ) {
         output.writeByte(Type.MINKEY);
-        writeCString(name, output);
+        writeName(name, output);
     }
 }
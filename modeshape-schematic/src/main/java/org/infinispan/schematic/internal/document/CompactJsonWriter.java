@@ -41,7 +41,6 @@ import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.UUID;
 import java.util.regex.Pattern;
 import org.infinispan.schematic.document.Binary;
@@ -91,7 +90,7 @@ public class CompactJsonWriter implements JsonWriter {
             write(((DocumentEditor)object).unwrap(), writer);
         } else if (object instanceof Iterable) { // must check before 'BsonObject' because of inheritance
             write((Iterable<?>)object, writer);
-        } else if (object instanceof Map) {
+        } else if (object instanceof Document) {
             write((Document)object, writer);
         } else if (object instanceof Binary) {
             write((Binary)object, writer);
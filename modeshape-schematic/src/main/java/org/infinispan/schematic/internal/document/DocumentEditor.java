@@ -577,6 +577,11 @@ public class DocumentEditor implements EditableDocument {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, fieldName, factory);
         }
+        if (!(doc instanceof MutableDocument)) {
+            // The nested document is read-only (e.g., a BsonDocument), so replace it with a mutable copy ...
+            doc = doc.clone();
+            document.put(fieldName, doc);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, fieldName, factory);
     }
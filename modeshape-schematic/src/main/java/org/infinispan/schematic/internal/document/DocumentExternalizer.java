@@ -35,14 +35,16 @@ public class DocumentExternalizer extends SchematicExternalizer<Document> {
     /** The serialVersionUID */
     private static final long serialVersionUID = 1L;
 
+    private static final BsonWriter WRITER = new BsonWriter(true);
+
     @Override
     public void writeObject( ObjectOutput output,
                              Document doc ) throws IOException {
         // Write the type byte ...
         output.writeByte(1);
 
-        // Write the BSON ...
-        Bson.write(doc, output);
+        // Write the BSON, using the compact form of the well-known field names ...
+        WRITER.write(doc, output);
     }
 
     @Override
@@ -51,8 +53,8 @@ public class DocumentExternalizer extends SchematicExternalizer<Document> {
         int type = input.readByte();
         assert type == 1;
 
-        // Read the BSON ...
-        return Bson.read(input);
+        // Read the BSON, but don't decode the fields until they're used ...
+        return Bson.readLazily(input);
     }
 
     @Override
@@ -63,6 +65,6 @@ public class DocumentExternalizer extends SchematicExternalizer<Document> {
     @SuppressWarnings( "unchecked" )
     @Override
     public Set<Class<? extends Document>> getTypeClasses() {
-        return Util.<Class<? extends Document>>asSet(BasicDocument.class);
+        return Util.<Class<? extends Document>>asSet(BasicDocument.class, BsonDocument.class);
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.schematic.internal.document;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.infinispan.schematic.document.ThreadSafe;
+
+/**
+ * A dictionary of the field names that appear in most stored documents (the fields of schematic entries and of ModeShape's node
+ * documents, the URIs of the built-in namespaces, and the most common property names), each of which has a fixed identifier.
+ * A {@link BsonWriter} that uses compact field names writes each of these names as a {@link #MARKER marker byte} followed by a
+ * single byte containing the identifier, rather than as the UTF-8 encoded name. The marker byte never appears in UTF-8, so
+ * names written either way can be read by {@link BsonReader} and {@link BsonDocument}.
+ * <p>
+ * Because the identifiers are stored, names may only ever be appended to the dictionary, and never reordered or removed.
+ * </p>
+ * <p>
+ * The dictionary also {@link #intern(String) interns} the other field names that are read, so that documents read from the
+ * store share the same String instances rather than each holding its own copies.
+ * </p>
+ */
+@ThreadSafe
+public final class FieldNameDictionary {
+
+    /**
+     * The byte that precedes the identifier of a field name in the dictionary. This byte is never used in UTF-8.
+     */
+    public static final byte MARKER = (byte)0xFE;
+
+    /**
+     * The maximum number of field names (other than those in the dictionary) that will be interned.
+     */
+    protected static final int MAXIMUM_INTERNED_COUNT = 10000;
+
+    // Append only! The identifier of each name is its (1-based) position, and these identifiers are persisted ...
+    private static final String[] NAMES = {
+        // Fields of the schematic entries ...
+        "metadata", "content", "id", "contentType", "$schema",
+        // Fields of ModeShape's node documents ...
+        "key", "parent", "properties", "children", "childrenInfo", "count", "blockSize", "nextBlock", "lastBlock",
+        "childrenIndex", "names", "keys", "block", "buckets", "name", "referrers", "weak", "strong", "refCount",
+        "federatedSegments", "embeddedDocuments", "cacheTtlSeconds", "sha1", "len", "value", "$sha1", "$len",
+        "$externalBinaryId", "$sourceName", "$queryable", "$uuid", "$ref", "$wref", "$foreign", "$path", "$name", "$uri",
+        "$date", "$dec", "$relative",
+        // URIs of the built-in namespaces ...
+        "http://www.jcp.org/jcr/1.0", "http://www.jcp.org/jcr/nt/1.0", "http://www.jcp.org/jcr/mix/1.0",
+        "http://www.jcp.org/jcr/sv/1.0", "http://www.modeshape.org/1.0", "http://www.w3.org/XML/1998/namespace",
+        "http://www.w3.org/2000/xmlns/",
+        // Names of the most common properties ...
+        "primaryType", "mixinTypes", "uuid", "created", "createdBy", "lastModified", "lastModifiedBy", "data", "mimeType",
+        "encoding", "title", "description", "language", "etag", "isCheckedOut", "versionHistory", "baseVersion",
+        "predecessors", "successors", "frozenPrimaryType", "frozenMixinTypes", "frozenUuid", "versionableUuid",
+        "lockOwner", "lockIsDeep", "derivedFrom", "originalOutputPath", "sequencedNodeName", "sequencedNodePath",
+        "nodeTypeName", "supertypes", "isAbstract", "isMixin", "isQueryable", "hasOrderableChildNodes",
+        "primaryItemName", "autoCreated", "mandatory", "onParentVersion", "protected", "requiredType",
+        "valueConstraints", "defaultValues", "multiple", "availableQueryOperators", "isFullTextSearchable",
+        "isQueryOrderable", "requiredPrimaryTypes", "defaultPrimaryType", "sameNameSiblings", "workspace",
+        "statement", "prefix", "uri", "generated",
+        // Fields of ModeShape's node documents added later ...
+        "segment", "snsIndex"};
+
+    private static final Map<String, Integer> IDS;
+
+    static {
+        assert NAMES.length < 256 : "The identifiers must fit in a single byte";
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for (int i = 0; i != NAMES.length; ++i) {
+            Integer existing = ids.put(NAMES[i], i + 1);
+            assert existing == null : "Duplicate name in the dictionary: " + NAMES[i];
+        }
+        IDS = ids;
+    }
+
+    private static final ConcurrentMap<String, String> INTERNED = new ConcurrentHashMap<String, String>();
+
+    private FieldNameDictionary() {
+    }
+
+    /**
+     * Get the identifier of the supplied field name.
+     * 
+     * @param name the field name; may not be null
+     * @return the identifier (from 1 to 255), or -1 if the name is not in the dictionary
+     */
+    public static int idOf( String name ) {
+        Integer id = IDS.get(name);
+        return id != null ? id.intValue() : -1;
+    }
+
+    /**
+     * Get the field name with the supplied identifier.
+     * 
+     * @param id the identifier, as read from the BSON
+     * @return the canonical instance of the field name; never null
+     * @throws IllegalArgumentException if there is no name with the supplied identifier, which means the document was written
+     *         with a newer version of this dictionary
+     */
+    public static String nameOf( int id ) {
+        if (id < 1 || id > NAMES.length) throw new IllegalArgumentException("Unknown field name identifier: " + id);
+        return NAMES[id - 1];
+    }
+
+    /**
+     * Get the canonical instance of the supplied field name. Names in the dictionary are always canonicalized, while other names
+     * are canonicalized only until a {@link #MAXIMUM_INTERNED_COUNT maximum number} of names have been interned.
+     * 
+     * @param name the field name; may not be null
+     * @return the canonical instance of the name; never null
+     */
+    public static String intern( String name ) {
+        Integer id = IDS.get(name);
+        if (id != null) return NAMES[id.intValue() - 1];
+        String interned = INTERNED.get(name);
+        if (interned != null) return interned;
+        if (INTERNED.size() >= MAXIMUM_INTERNED_COUNT) return name;
+        interned = INTERNED.putIfAbsent(name, name);
+        return interned != null ? interned : name;
+    }
+}
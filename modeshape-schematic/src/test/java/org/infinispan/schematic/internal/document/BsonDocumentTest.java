@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.schematic.internal.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.infinispan.schematic.document.Binary;
+import org.infinispan.schematic.document.Bson;
+import org.infinispan.schematic.document.Code;
+import org.infinispan.schematic.document.CodeWithScope;
+import org.infinispan.schematic.document.Document;
+import org.infinispan.schematic.document.EditableDocument;
+import org.infinispan.schematic.document.Json;
+import org.infinispan.schematic.document.MaxKey;
+import org.infinispan.schematic.document.MinKey;
+import org.infinispan.schematic.document.Null;
+import org.infinispan.schematic.document.ObjectId;
+import org.infinispan.schematic.document.Symbol;
+import org.infinispan.schematic.document.Timestamp;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BsonDocumentTest {
+
+    private BsonWriter writer;
+    private BasicDocument original;
+
+    @Before
+    public void beforeTest() {
+        writer = new BsonWriter();
+        BasicDocument nested = new BasicDocument("name", "nested", "count", 2);
+        nested.put("deeper", new BasicDocument("value", 3L));
+        original = new BasicDocument();
+        original.put("string", "value");
+        original.put("int", 1);
+        original.put("long", 1L << 40);
+        original.put("double", 2.5d);
+        original.put("boolean", true);
+        original.put("date", new Date(1000L));
+        original.put("uuid", UUID.randomUUID());
+        original.put("binary", new Binary(new byte[] {1, 2, 3}));
+        original.put("objectId", new ObjectId(300, 200, 9, 15));
+        original.put("code", new Code("i = 0"));
+        original.put("codeWithScope", new CodeWithScope("i = x", new BasicDocument("x", 3)));
+        original.put("symbol", new Symbol("sym"));
+        original.put("pattern", Pattern.compile("[CH]at\\s+", Pattern.CASE_INSENSITIVE));
+        original.put("timestamp", new Timestamp(100, 4));
+        original.put("maxKey", MaxKey.getInstance());
+        original.put("minKey", MinKey.getInstance());
+        original.put("null", Null.getInstance());
+        original.put("nested", nested);
+        original.put("array", new BasicArray("a", 2, new BasicDocument("c", "d")));
+        original.put("n\u00e4me", "non-ASCII name");
+    }
+
+    protected BsonDocument lazy( Document document ) throws Exception {
+        return new BsonDocument(writer.write(document));
+    }
+
+    @Test
+    public void shouldReadSameFieldsAsEagerReader() throws Exception {
+        Document doc = lazy(original);
+        assertThat(doc.size(), is(original.size()));
+        assertThat(doc.keySet(), is(original.keySet()));
+        assertThat(doc.getString("string"), is("value"));
+        assertThat(doc.getInteger("int"), is(1));
+        assertThat(doc.getLong("long"), is(1L << 40));
+        assertThat(doc.getLong("int"), is(1L));
+        assertThat(doc.getDouble("double"), is(2.5d));
+        assertThat(doc.getBoolean("boolean"), is(true));
+        assertThat(doc.getUuid("uuid"), is(original.getUuid("uuid")));
+        assertThat(doc.getString("symbol"), is("sym"));
+        assertThat(doc.getString("n\u00e4me"), is("non-ASCII name"));
+        assertThat(doc.getCodeWithScope("codeWithScope").getScope().getInteger("x"), is(3));
+        assertThat(doc.isNull("null"), is(true));
+        assertThat(doc.get("missing"), is(nullValue()));
+        assertThat(doc.containsField("missing"), is(false));
+        assertThat(doc.containsField("nam"), is(false));
+        assertThat(doc.getArray("array").size(), is(3));
+        Document eager = Bson.read(new ByteArrayInputStream(writer.write(original)));
+        for (String name : original.keySet()) {
+            assertThat(doc.getType(name), is(eager.getType(name)));
+        }
+        assertThat(doc, is(eager));
+        assertThat(eager, is((Document)doc));
+        assertThat(doc, is((Document)original));
+    }
+
+    @Test
+    public void shouldReturnNestedDocumentsAsViews() throws Exception {
+        Document doc = lazy(original);
+        Document nested = doc.getDocument("nested");
+        assertThat(nested, is(instanceOf(BsonDocument.class)));
+        assertThat(nested.getString("name"), is("nested"));
+        assertThat(nested.getDocument("deeper").getLong("value"), is(3L));
+        assertThat(nested, is((Document)original.getDocument("nested")));
+    }
+
+    @Test
+    public void shouldReadFromDirectBuffer() throws Exception {
+        byte[] bytes = writer.write(original);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 3);
+        buffer.put(new byte[] {9, 9, 9});
+        buffer.put(bytes);
+        buffer.position(3);
+        Document doc = Bson.readLazily(buffer);
+        assertThat(doc, is((Document)original));
+        assertThat(doc.getString("n\u00e4me"), is("non-ASCII name"));
+        assertThat(doc.getBinary("binary").getBytes(), is(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void shouldHaveSameHashCodeAsBasicDocument() throws Exception {
+        Document doc = lazy(Json.read(resource("json/sample-large-modeshape-doc.json")));
+        Document eager = Json.read(resource("json/sample-large-modeshape-doc.json"));
+        assertThat(doc, is(eager));
+        assertThat(doc.hashCode(), is(eager.hashCode()));
+    }
+
+    @Test
+    public void shouldCloneIntoMutableDocument() throws Exception {
+        Document clone = lazy(original).clone();
+        assertThat(clone, is(instanceOf(MutableDocument.class)));
+        assertThat(clone.getDocument("nested"), is(instanceOf(MutableDocument.class)));
+        assertThat(clone, is((Document)original));
+    }
+
+    @Test
+    public void shouldWriteWithoutReencoding() throws Exception {
+        // Only the writer used for marshalling copies the bytes, since it writes the same compact form ...
+        BsonWriter compactWriter = new BsonWriter(true);
+        byte[] bytes = compactWriter.write(original);
+        assertThat(compactWriter.write(new BsonDocument(bytes)), is(bytes));
+        assertThat(compactWriter.write(new BasicDocument("wrapper", new BsonDocument(bytes))),
+                   is(compactWriter.write(new BasicDocument("wrapper", original))));
+    }
+
+    @Test
+    public void shouldCopyNestedDocumentWhenFirstEdited() throws Exception {
+        BsonDocument doc = lazy(original);
+        BasicDocument top = new BasicDocument(doc);
+        EditableDocument editor = new DocumentEditor(top);
+        editor.getDocument("nested").getDocument("deeper").setNumber("value", 4L);
+        assertThat(top.getDocument("nested"), is(instanceOf(MutableDocument.class)));
+        assertThat(top.getDocument("nested").getDocument("deeper").getLong("value"), is(4L));
+        assertThat(doc.getDocument("nested").getDocument("deeper").getLong("value"), is(3L));
+    }
+
+    protected InputStream resource( String path ) {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream(path);
+        assertThat(stream, is(notNullValue()));
+        return stream;
+    }
+}
@@ -24,6 +24,7 @@
 package org.infinispan.schematic.internal.document;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 import java.io.InputStream;
@@ -48,6 +49,16 @@ public class DocumentExternalizerTest extends AbstractExternalizerTest {
         assertRoundTripJsonDocument("json/empty.json");
     }
 
+    @Test
+    public void shouldUnmarshallDocumentWithoutDecodingFields() throws Exception {
+        Document doc = new BasicDocument("name", "value", "nested", new BasicDocument("count", 3));
+        Document newDoc = (Document)unmarshall(marshall(doc));
+        assertThat(newDoc, is(instanceOf(BsonDocument.class)));
+        assertThat(newDoc, is(doc));
+        // Marshalling the unmarshalled document should simply copy the bytes ...
+        assertThat((Document)unmarshall(marshall(newDoc)), is(doc));
+    }
+
     protected void assertRoundTripJsonDocument( String resourcePath ) throws Exception {
         InputStream stream = getClass().getClassLoader().getResourceAsStream(resourcePath);
         assertThat(stream, is(notNullValue()));
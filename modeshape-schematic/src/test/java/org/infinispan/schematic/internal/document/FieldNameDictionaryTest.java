@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.schematic.internal.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import org.infinispan.schematic.document.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FieldNameDictionaryTest {
+
+    private BsonWriter writer;
+    private BsonWriter compactWriter;
+    private BsonReader reader;
+    private BasicDocument original;
+
+    @Before
+    public void beforeTest() {
+        writer = new BsonWriter();
+        compactWriter = new BsonWriter(true);
+        reader = new BsonReader();
+        BasicDocument properties = new BasicDocument();
+        properties.put("http://www.jcp.org/jcr/1.0", new BasicDocument("primaryType", "nt:unstructured"));
+        original = new BasicDocument();
+        original.put("key", "source1workspace1/node1");
+        original.put("parent", "source1workspace1/root");
+        original.put("properties", properties);
+        original.put("children", new BasicArray(new BasicDocument("key", "source1workspace1/node2", "name", "child")));
+        original.put("someCustomField", "value");
+    }
+
+    @Test
+    public void shouldHaveIdentifiersForWellKnownNames() {
+        for (String name : new String[] {"key", "parent", "properties", "children", "http://www.jcp.org/jcr/1.0", "content",
+            "metadata"}) {
+            int id = FieldNameDictionary.idOf(name);
+            assertTrue(id > 0 && id < 256);
+            assertThat(FieldNameDictionary.nameOf(id), is(name));
+        }
+        assertThat(FieldNameDictionary.idOf("someCustomField"), is(-1));
+    }
+
+    @Test
+    public void shouldInternNames() {
+        String name = new String("someOtherCustomField");
+        assertSame(name, FieldNameDictionary.intern(name));
+        assertSame(name, FieldNameDictionary.intern(new String("someOtherCustomField")));
+        assertSame("properties", FieldNameDictionary.intern(new String("properties")));
+    }
+
+    @Test
+    public void shouldWriteWellKnownNamesCompactly() throws Exception {
+        byte[] standard = writer.write(original);
+        byte[] compact = compactWriter.write(original);
+        assertTrue(compact.length < standard.length);
+        assertThat(reader.read(new ByteArrayInputStream(standard)), is((Document)original));
+    }
+
+    @Test
+    public void shouldReadCompactNamesEagerly() throws Exception {
+        Document doc = reader.read(new ByteArrayInputStream(compactWriter.write(original)));
+        assertThat(doc, is((Document)original));
+        assertSameNames(doc);
+    }
+
+    @Test
+    public void shouldReadCompactNamesLazily() throws Exception {
+        BsonDocument doc = new BsonDocument(compactWriter.write(original));
+        assertThat(doc.getString("key"), is("source1workspace1/node1"));
+        assertThat(doc.getDocument("properties").getDocument("http://www.jcp.org/jcr/1.0").getString("primaryType"),
+                   is("nt:unstructured"));
+        assertThat((Document)doc, is((Document)original));
+        assertSameNames(doc);
+    }
+
+    @Test
+    public void shouldReadStandardNamesAsCanonicalInstances() throws Exception {
+        byte[] standard = writer.write(original);
+        assertSameNames(reader.read(new ByteArrayInputStream(standard)));
+        assertSameNames(new BsonDocument(standard));
+    }
+
+    @Test
+    public void shouldCopyCompactBytesWithoutReencoding() throws Exception {
+        byte[] compact = compactWriter.write(original);
+        assertThat(compactWriter.write(new BsonDocument(compact)), is(compact));
+        assertThat(writer.write(new BsonDocument(compact)), is(writer.write(original)));
+    }
+
+    protected void assertSameNames( Document doc ) {
+        for (Document.Field field : doc.fields()) {
+            String name = field.getName();
+            if (FieldNameDictionary.idOf(name) > 0) {
+                assertSame(FieldNameDictionary.nameOf(FieldNameDictionary.idOf(name)), name);
+            } else {
+                assertSame(FieldNameDictionary.intern(name), name);
+            }
+            if (field.getValue() instanceof Document && !(field.getValue() instanceof BasicArray)) {
+                assertSameNames((Document)field.getValue());
+            }
+        }
+    }
+}
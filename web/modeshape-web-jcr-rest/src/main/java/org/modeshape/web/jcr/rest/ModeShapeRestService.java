@@ -24,7 +24,6 @@
 
 package org.modeshape.web.jcr.rest;
 
-import java.io.IOException;
 import java.io.InputStream;
 import javax.jcr.Binary;
 import javax.jcr.Property;
@@ -215,23 +214,7 @@ public final class ModeShapeRestService {
         if (StringUtil.isBlank(contentDisposition)) {
             contentDisposition = binaryHandler.getDefaultContentDisposition(binaryProperty);
         }
-        /**
-         * TODO author=Horia Chiorean date=8/15/12 description=There is nasty RestEASY bug:
-         * https://issues.jboss.org/browse/RESTEASY-741 so we need to be aware that with the current version the stream won't be
-         * closed.
-         */
-        InputStream stream = binary.getStream();
-        try {
-            Response.ResponseBuilder responseBuilder = Response.ok(stream, mimeType);
-            responseBuilder.header("Content-Disposition", contentDisposition);
-            return responseBuilder.build();
-        } finally {
-            try {
-                stream.close();
-            } catch (IOException e) {
-                throw new RepositoryException(e);
-            }
-        }
+        return binaryHandler.getBinaryContent(request, binary, mimeType, contentDisposition);
     }
 
     /**
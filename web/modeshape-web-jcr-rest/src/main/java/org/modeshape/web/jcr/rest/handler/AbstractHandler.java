@@ -3,6 +3,7 @@ package org.modeshape.web.jcr.rest.handler;
 import static org.modeshape.web.jcr.rest.RestHelper.BINARY_METHOD_NAME;
 import static org.modeshape.web.jcr.rest.RestHelper.ITEMS_METHOD_NAME;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import javax.jcr.Item;
 import javax.jcr.Node;
@@ -14,6 +15,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.servlet.http.HttpServletRequest;
+import org.modeshape.common.SystemFailureException;
 import org.modeshape.jcr.api.JcrConstants;
 import org.modeshape.jcr.api.Logger;
 import org.modeshape.web.jcr.RepositoryManager;
@@ -48,7 +50,9 @@ public abstract class AbstractHandler {
     protected final Logger logger = WebLogger.getLogger(getClass());
 
     /**
-     * Returns an active session for the given workspace name in the named repository.
+     * Returns an active session for the given workspace name in the named repository. Requests which cannot modify content (
+     * {@code GET} and {@code HEAD}) are served with a {@link #getReadOnlySession read-only session}. Either way, the session is
+     * released when the request completes.
      * 
      * @param request the servlet request; may not be null or unauthenticated
      * @param rawRepositoryName the URL-encoded name of the repository in which the session is created
@@ -60,7 +64,37 @@ public abstract class AbstractHandler {
                                   String rawRepositoryName,
                                   String rawWorkspaceName ) throws RepositoryException {
         assert request != null;
-        return RepositoryManager.getSession(request, repositoryNameFor(rawRepositoryName), workspaceNameFor(rawWorkspaceName));
+        if (isReadOnly(request)) {
+            return getReadOnlySession(request, rawRepositoryName, rawWorkspaceName);
+        }
+        return RepositoryManager.getRequestSession(request,
+                                                   repositoryNameFor(rawRepositoryName),
+                                                   workspaceNameFor(rawWorkspaceName));
+    }
+
+    /**
+     * Returns an active session for the given workspace name in the named repository, which is only used to read content. Such
+     * sessions are pooled and reused across requests, and are released when the request completes.
+     * 
+     * @param request the servlet request; may not be null or unauthenticated
+     * @param rawRepositoryName the URL-encoded name of the repository in which the session is created
+     * @param rawWorkspaceName the URL-encoded name of the workspace to which the session should be connected
+     * @return an active session with the given workspace in the named repository
+     * @throws RepositoryException if any other error occurs
+     * @see RepositoryManager#getReadOnlySession(HttpServletRequest, String, String)
+     */
+    protected Session getReadOnlySession( HttpServletRequest request,
+                                          String rawRepositoryName,
+                                          String rawWorkspaceName ) throws RepositoryException {
+        assert request != null;
+        return RepositoryManager.getReadOnlySession(request,
+                                                    repositoryNameFor(rawRepositoryName),
+                                                    workspaceNameFor(rawWorkspaceName));
+    }
+
+    private boolean isReadOnly( HttpServletRequest request ) {
+        String method = request.getMethod();
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
     }
 
     private String workspaceNameFor( String rawWorkspaceName ) {
@@ -191,9 +225,11 @@ public abstract class AbstractHandler {
                                        Session session,
                                        Item item ) throws RepositoryException {
         String baseUrl = RestHelper.repositoryUrl(request);
-        return item instanceof Node ? createRestNode(session, (Node)item, baseUrl, depth) : createRestProperty(session,
-                                                                                                               (Property)item,
-                                                                                                               baseUrl);
+        if (item instanceof Node) {
+            Node node = (Node)item;
+            return createRestNode(session, node, node.getName(), baseUrl, depth);
+        }
+        return createRestProperty(session, (Property)item, baseUrl);
     }
 
     protected String parentPath( String path ) {
@@ -218,6 +254,7 @@ public abstract class AbstractHandler {
 
     private RestNode createRestNode( Session session,
                                      Node node,
+                                     String name,
                                      String baseUrl,
                                      int depth ) throws RepositoryException {
         String nodeUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, node.getPath());
@@ -226,7 +263,7 @@ public abstract class AbstractHandler {
                                                                                                                     ITEMS_METHOD_NAME,
                                                                                                                     node.getParent()
                                                                                                                         .getPath());
-        RestNode restNode = new RestNode(node.getName(), node.getIdentifier(), nodeUrl, parentUrl);
+        RestNode restNode = new RestNode(name, node.getIdentifier(), nodeUrl, parentUrl);
 
         // add the properties
         for (PropertyIterator propertyIterator = node.getProperties(); propertyIterator.hasNext();) {
@@ -235,16 +272,15 @@ public abstract class AbstractHandler {
         }
 
         // add the children
-        for (NodeIterator nodeIterator = node.getNodes(); nodeIterator.hasNext();) {
-            Node childNode = nodeIterator.nextNode();
-            RestNode restChild = null;
-            if (depth != 0) {
-                restChild = createRestNode(session, childNode, baseUrl, depth - 1);
-            } else {
+        if (depth != 0) {
+            // the subgraph is only read while the node is being written, so that it doesn't have to be held in memory ...
+            restNode.setChildren(new RestNodeChildren(session, node, baseUrl, depth - 1));
+        } else {
+            for (NodeIterator nodeIterator = node.getNodes(); nodeIterator.hasNext();) {
+                Node childNode = nodeIterator.nextNode();
                 String childUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, childNode.getPath());
-                restChild = new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl);
+                restNode.addChild(new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl));
             }
-            restNode.addChild(restChild);
         }
         return restNode;
     }
@@ -257,4 +293,55 @@ public abstract class AbstractHandler {
         String parentUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, property.getParent().getPath());
         return new RestProperty(property.getName(), url, parentUrl, values);
     }
+
+    /**
+     * The rest representations of the children of a node, which are created as they are iterated over.
+     */
+    private final class RestNodeChildren implements Iterable<RestNode> {
+        private final Session session;
+        private final Node node;
+        private final String baseUrl;
+        private final int depth;
+
+        protected RestNodeChildren( Session session,
+                                    Node node,
+                                    String baseUrl,
+                                    int depth ) {
+            this.session = session;
+            this.node = node;
+            this.baseUrl = baseUrl;
+            this.depth = depth;
+        }
+
+        @Override
+        public Iterator<RestNode> iterator() {
+            final NodeIterator nodeIterator;
+            try {
+                nodeIterator = node.getNodes();
+            } catch (RepositoryException e) {
+                throw new SystemFailureException(e);
+            }
+            return new Iterator<RestNode>() {
+                @Override
+                public boolean hasNext() {
+                    return nodeIterator.hasNext();
+                }
+
+                @Override
+                public RestNode next() {
+                    Node childNode = nodeIterator.nextNode();
+                    try {
+                        return createRestNode(session, childNode, nodeName(childNode), baseUrl, depth);
+                    } catch (RepositoryException e) {
+                        throw new SystemFailureException(e);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
 }
@@ -31,13 +31,19 @@ import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.modeshape.common.util.ByteRange;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.StringUtil;
+import org.modeshape.jcr.api.RangedBinary;
 import org.modeshape.web.jcr.rest.model.RestProperty;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 
 /**
  * Class which handles incoming requests related to {@link Binary binary values}
@@ -105,6 +111,71 @@ public final class RestBinaryHandler extends AbstractHandler {
         }
     }
 
+    /**
+     * Creates the response which serves the content of a binary value. If the request contains a single-range HTTP
+     * <code>Range</code> header and the binary is a {@link RangedBinary}, only that range is served (with a
+     * <code>206 Partial Content</code> status). The content of such binaries is written by
+     * {@link RangedBinary#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so binaries stored in files are
+     * transferred by their channels rather than streamed through a buffer.
+     * 
+     * @param request a non-null {@link HttpServletRequest} request
+     * @param binary a non-null {@link Binary} value
+     * @param mimeType the mime-type of the response; may not be null
+     * @param contentDisposition the content disposition of the response; may not be null
+     * @return a {@link Response} object which serves the content, or the whole content if the range is not satisfiable
+     * @throws RepositoryException if any JCR related operation involving the binary fails
+     */
+    public Response getBinaryContent( HttpServletRequest request,
+                                      final Binary binary,
+                                      String mimeType,
+                                      String contentDisposition ) throws RepositoryException {
+        final long size = binary.getSize();
+        ByteRange range = binary instanceof RangedBinary ? ByteRange.parse(request.getHeader("Range"), size) : null;
+        if (range == ByteRange.UNSATISFIABLE) {
+            return Response.status(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+                           .header("Content-Range", ByteRange.unsatisfiableContentRange(size))
+                           .build();
+        }
+        final long offset = range != null ? range.getFirst() : 0L;
+        final long length = range != null ? range.getLength() : size;
+
+        StreamingOutput content = new StreamingOutput() {
+            @Override
+            public void write( OutputStream output ) throws IOException {
+                try {
+                    if (binary instanceof RangedBinary) {
+                        ((RangedBinary)binary).transferTo(offset, length, Channels.newChannel(output));
+                    } else {
+                        InputStream stream = binary.getStream();
+                        try {
+                            byte[] buffer = new byte[8192];
+                            int numRead = 0;
+                            while ((numRead = stream.read(buffer)) != -1) {
+                                output.write(buffer, 0, numRead);
+                            }
+                        } finally {
+                            stream.close();
+                        }
+                    }
+                } catch (RepositoryException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        int status = range != null ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK;
+        Response.ResponseBuilder responseBuilder = Response.status(status);
+        responseBuilder.entity(content).type(mimeType);
+        responseBuilder.header("Content-Disposition", contentDisposition);
+        responseBuilder.header("Content-Length", length);
+        if (binary instanceof RangedBinary) {
+            responseBuilder.header("Accept-Ranges", ByteRange.UNIT);
+        }
+        if (range != null) {
+            responseBuilder.header("Content-Range", range.getContentRange(size));
+        }
+        return responseBuilder.build();
+    }
+
     /**
      * Updates the {@link Property property} at the given path with the content from the given {@link InputStream}.
      *
@@ -24,8 +24,11 @@
 
 package org.modeshape.web.jcr.rest.handler;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
@@ -39,6 +42,7 @@ import javax.jcr.query.Row;
 import javax.jcr.query.RowIterator;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.UriInfo;
+import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.web.jcr.rest.RestHelper;
 import org.modeshape.web.jcr.rest.model.RestQueryResult;
@@ -85,7 +89,7 @@ public final class RestQueryHandler extends QueryHandler {
         assert language != null;
         assert statement != null;
 
-        Session session = getSession(request, repositoryName, workspaceName);
+        Session session = getReadOnlySession(request, repositoryName, workspaceName);
         Query query = createQuery(language, statement, session);
         bindExtraVariables(uriInfo, session.getValueFactory(), query);
 
@@ -102,30 +106,63 @@ public final class RestQueryHandler extends QueryHandler {
         return restQueryResult;
     }
 
-    private void setRows( long offset,
-                          long limit,
-                          Session session,
-                          QueryResult result,
-                          RestQueryResult restQueryResult,
-                          String[] columnNames,
-                          String baseUrl ) throws RepositoryException {
-        RowIterator resultRows = result.getRows();
-        if (offset > 0) {
-            resultRows.skip(offset);
-        }
-        if (limit < 0) {
-            limit = Long.MAX_VALUE;
-        }
+    private void setRows( final long offset,
+                          final long limit,
+                          final Session session,
+                          final QueryResult result,
+                          final RestQueryResult restQueryResult,
+                          final String[] columnNames,
+                          final String baseUrl ) {
+        // the rows are only converted while the result is being written, so that they don't have to be held in memory ...
+        restQueryResult.setRows(new Iterable<RestQueryResult.RestRow>() {
+            @Override
+            public Iterator<RestQueryResult.RestRow> iterator() {
+                final RowIterator resultRows;
+                try {
+                    resultRows = result.getRows();
+                } catch (RepositoryException e) {
+                    throw new SystemFailureException(e);
+                }
+                if (offset > 0) {
+                    try {
+                        resultRows.skip(offset);
+                    } catch (NoSuchElementException e) {
+                        // the offset is past the end of the result, so there are no rows ...
+                        return Collections.<RestQueryResult.RestRow>emptyList().iterator();
+                    }
+                }
+                return new Iterator<RestQueryResult.RestRow>() {
+                    private long remaining = limit < 0 ? Long.MAX_VALUE : limit;
 
-        while (resultRows.hasNext() && limit > 0) {
-            limit--;
-            Row resultRow = resultRows.nextRow();
+                    @Override
+                    public boolean hasNext() {
+                        return remaining > 0 && resultRows.hasNext();
+                    }
 
-            RestQueryResult.RestRow restRow = createRestRow(session, result, restQueryResult, columnNames, baseUrl, resultRow);
-            createLinksFromNodePaths(result, baseUrl, resultRow, restRow);
+                    @Override
+                    public RestQueryResult.RestRow next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        remaining--;
+                        Row resultRow = resultRows.nextRow();
+                        try {
+                            RestQueryResult.RestRow restRow = createRestRow(session, result, restQueryResult, columnNames, baseUrl,
+                                                                            resultRow);
+                            createLinksFromNodePaths(result, baseUrl, resultRow, restRow);
+                            return restRow;
+                        } catch (RepositoryException e) {
+                            throw new SystemFailureException(e);
+                        }
+                    }
 
-            restQueryResult.addRow(restRow);
-        }
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        });
     }
 
     private void createLinksFromNodePaths( QueryResult result,
@@ -29,7 +29,7 @@ package org.modeshape.web.jcr.rest.model;
  *
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public abstract class RestItem implements JSONAble {
+public abstract class RestItem implements JSONStreamable {
 
     protected final String url;
     protected final String parentUrl;
@@ -24,7 +24,9 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +34,7 @@ import java.util.TreeMap;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.modeshape.common.collection.Collections;
+import org.modeshape.web.jcr.rest.output.JSONStreamWriter;
 
 /**
  * A REST representation of a {@link javax.jcr.Node}
@@ -52,6 +55,7 @@ public final class RestNode extends RestItem {
 
     private final List<RestProperty> jcrProperties;
     private final List<RestNode> children;
+    private Iterable<RestNode> lazyChildren;
     private final Map<String, String> customProperties;
     protected final String id;
 
@@ -81,10 +85,27 @@ public final class RestNode extends RestItem {
      * @return this rest node.
      */
     public RestNode addChild( RestNode child ) {
+        if (lazyChildren != null) {
+            throw new IllegalStateException("The children of " + url + " have already been set");
+        }
         children.add(child);
         return this;
     }
 
+    /**
+     * Sets the children of this node to the given iterable, replacing any children {@link #addChild(RestNode) added} so far. The
+     * iterable is only consumed when this node is converted to JSON, which allows large subtrees to be written while they are
+     * being read, instead of being fully loaded in memory first.
+     * 
+     * @param children a {@code non-null} {@link Iterable}, which may be iterated more than once
+     * @return this rest node.
+     */
+    public RestNode setChildren( Iterable<RestNode> children ) {
+        this.children.clear();
+        this.lazyChildren = children;
+        return this;
+    }
+
     /**
      * Adds a new jcr property to this node.
      * 
@@ -125,15 +146,64 @@ public final class RestNode extends RestItem {
         return node;
     }
 
+    @Override
+    public void writeJSON( JSONStreamWriter writer ) throws IOException {
+        writer.beginObject();
+
+        // do these first so that they appear first in the JSON ...
+        if (url != null) {
+            writer.key(SELF_FIELD_NAME).value(url);
+        }
+        if (parentUrl != null) {
+            writer.key(UP_FIELD_NAME).value(parentUrl);
+        }
+        if (id != null) {
+            writer.key(ID_FIELD_NAME).value(id);
+        }
+
+        for (String customPropertyName : customProperties.keySet()) {
+            if (isReservedField(customPropertyName)) continue; // skip
+            writer.key(customPropertyName).value(customProperties.get(customPropertyName));
+        }
+        for (RestProperty restProperty : jcrProperties) {
+            if (isReservedField(restProperty.name)) continue; // skip
+            if (restProperty.isMultiValue()) {
+                writer.key(restProperty.name).value(restProperty.getValues());
+            } else if (restProperty.getValue() != null) {
+                writer.key(restProperty.name).value(restProperty.getValue());
+            }
+        }
+
+        // each child is written (and can be garbage collected) before the next one is created ...
+        Iterator<RestNode> childIterator = children().iterator();
+        if (childIterator.hasNext()) {
+            writer.key(CHILDREN_FIELD_NAME).beginObject();
+            while (childIterator.hasNext()) {
+                RestNode child = childIterator.next();
+                writer.key(child.name);
+                child.writeJSON(writer);
+            }
+            writer.endObject();
+        }
+
+        writer.endObject();
+    }
+
+    private Iterable<RestNode> children() {
+        return lazyChildren != null ? lazyChildren : children;
+    }
+
     private boolean isReservedField( String fieldName ) {
         return RESERVED_FIELD_NAMES.contains(fieldName);
     }
 
     private void addChildren( JSONObject node ) throws JSONException {
         // children
-        if (!children.isEmpty()) {
+        Iterator<RestNode> childIterator = children().iterator();
+        if (childIterator.hasNext()) {
             JSONObject children = new JSONObject();
-            for (RestNode child : this.children) {
+            while (childIterator.hasNext()) {
+                RestNode child = childIterator.next();
                 children.put(child.name, child.toJSON());
             }
             node.put(CHILDREN_FIELD_NAME, children);
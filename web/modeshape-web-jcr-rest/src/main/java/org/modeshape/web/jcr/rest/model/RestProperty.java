@@ -26,6 +26,8 @@ package org.modeshape.web.jcr.rest.model;
 
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.modeshape.web.jcr.rest.output.JSONStreamWriter;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -78,4 +80,21 @@ public final class RestProperty extends RestItem {
         object.put("up", parentUrl);
         return object;
     }
+
+    @Override
+    public void writeJSON( JSONStreamWriter writer ) throws IOException {
+        writer.beginObject();
+        if (isMultiValue()) {
+            writer.key("values").value(values);
+        } else if (getValue() != null) {
+            writer.key(name).value(getValue());
+        }
+        if (url != null) {
+            writer.key("self").value(url);
+        }
+        if (parentUrl != null) {
+            writer.key("up").value(parentUrl);
+        }
+        writer.endObject();
+    }
 }
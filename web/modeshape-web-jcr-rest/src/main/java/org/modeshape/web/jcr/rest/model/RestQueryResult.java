@@ -24,7 +24,9 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,15 +34,17 @@ import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.modeshape.common.util.StringUtil;
+import org.modeshape.web.jcr.rest.output.JSONStreamWriter;
 
 /**
  * A REST representation of a {@link javax.jcr.query.QueryResult}
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RestQueryResult implements JSONAble {
+public final class RestQueryResult implements JSONStreamable {
     private final Map<String, String> columns;
     private final List<RestRow> rows;
+    private Iterable<RestRow> lazyRows;
 
     /**
      * Creates an empty instance
@@ -72,27 +76,65 @@ public final class RestQueryResult implements JSONAble {
      * @return this instance
      */
     public RestQueryResult addRow( RestRow row ) {
+        if (lazyRows != null) {
+            throw new IllegalStateException("The rows of this result have already been set");
+        }
         rows.add(row);
         return this;
     }
 
+    /**
+     * Sets the rows of this result to the given iterable, replacing any rows {@link #addRow(RestRow) added} so far. The iterable
+     * is only consumed when this result is converted to JSON, so that large results can be written while the rows are read.
+     * 
+     * @param rows a {@code non-null} {@link Iterable}
+     * @return this instance
+     */
+    public RestQueryResult setRows( Iterable<RestRow> rows ) {
+        this.rows.clear();
+        this.lazyRows = rows;
+        return this;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
         JSONObject result = new JSONObject();
         if (!columns.isEmpty()) {
             result.put("columns", columns);
         }
-        if (!rows.isEmpty()) {
+        Iterator<RestRow> rowIterator = rows().iterator();
+        if (rowIterator.hasNext()) {
             JSONArray rows = new JSONArray();
-            for (RestRow row : this.rows) {
-                rows.put(row.toJSON());
+            while (rowIterator.hasNext()) {
+                rows.put(rowIterator.next().toJSON());
             }
             result.put("rows", rows);
         }
         return result;
     }
 
-    public class RestRow implements JSONAble {
+    @Override
+    public void writeJSON( JSONStreamWriter writer ) throws IOException {
+        writer.beginObject();
+        if (!columns.isEmpty()) {
+            writer.key("columns").value(columns);
+        }
+        Iterator<RestRow> rowIterator = rows().iterator();
+        if (rowIterator.hasNext()) {
+            writer.key("rows").beginArray();
+            while (rowIterator.hasNext()) {
+                rowIterator.next().writeJSON(writer);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private Iterable<RestRow> rows() {
+        return lazyRows != null ? lazyRows : rows;
+    }
+
+    public class RestRow implements JSONStreamable {
         private final Map<String, String> values;
 
         public RestRow() {
@@ -110,5 +152,10 @@ public final class RestQueryResult implements JSONAble {
         public JSONObject toJSON() {
             return new JSONObject(values);
         }
+
+        @Override
+        public void writeJSON( JSONStreamWriter writer ) throws IOException {
+            writer.value(values);
+        }
     }
 }
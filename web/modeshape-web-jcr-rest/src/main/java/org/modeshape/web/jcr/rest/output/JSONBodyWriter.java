@@ -35,8 +35,12 @@ import org.codehaus.jettison.json.JSONException;
 import org.jboss.resteasy.spi.WriterException;
 import org.jboss.resteasy.util.Types;
 import org.modeshape.web.jcr.rest.model.JSONAble;
+import org.modeshape.web.jcr.rest.model.JSONStreamable;
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -45,6 +49,11 @@ import java.util.Collection;
 /**
  * Implementation of {@link MessageBodyWriter} which writes a {@link JSONAble} or a {@link Collection Collection<JSONAble>} instances to
  * a response, producing {@link MediaType#APPLICATION_JSON}.
+ * <p>
+ * {@link JSONStreamable} instances are written directly to the response stream as they are converted, so the memory used does
+ * not depend on the size of the response. Since the length of the content is not known in advance, {@link #getSize} always
+ * returns {@code -1} and the response is sent using chunked transfer encoding.
+ * </p>
  *
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
@@ -53,22 +62,13 @@ import java.util.Collection;
 public class JSONBodyWriter implements MessageBodyWriter<Object> {
 
     @Override
-    @SuppressWarnings( "unchecked" )
     public long getSize( Object object,
                          Class<?> type,
                          Type genericType,
                          Annotation[] annotations,
                          MediaType mediaType ) {
-        try {
-            if (isJSONAble(type)) {
-                return getString((JSONAble)object).getBytes().length;
-            } else if (isJSONAbleCollection(type, genericType)) {
-                return getString((Collection<JSONAble>)object).getBytes().length;
-            }
-            return 0;
-        } catch (JSONException e) {
-            throw new WriterException(e);
-        }
+        // computing the size would require serializing the object twice ...
+        return -1;
     }
 
     @Override
@@ -100,7 +100,17 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
                          Annotation[] annotations,
                          MediaType mediaType,
                          MultivaluedMap<String, Object> httpHeaders,
-                         OutputStream entityStream ) throws WebApplicationException {
+                         OutputStream entityStream ) throws IOException, WebApplicationException {
+        if (isStreaming()) {
+            if (isJSONAble(type)) {
+                stream((JSONAble)object, entityStream);
+                return;
+            } else if (isJSONAbleCollection(type, genericType)) {
+                stream((Collection<JSONAble>)object, entityStream);
+                return;
+            }
+        }
+
         String content;
         try {
             if (isJSONAble(type)) {
@@ -119,6 +129,51 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
         printWriter.flush();
     }
 
+    /**
+     * Returns whether this writer can write {@link JSONStreamable} instances directly to the response stream. Subclasses which
+     * post-process the JSON text returned by {@link #getString(JSONAble)} should return {@code false}.
+     *
+     * @return true if the objects should be streamed, false otherwise
+     */
+    protected boolean isStreaming() {
+        return true;
+    }
+
+    private void stream( JSONAble jsonAble,
+                         OutputStream entityStream ) throws IOException {
+        JSONStreamWriter writer = newStreamWriter(entityStream);
+        write(jsonAble, writer);
+        writer.flush();
+    }
+
+    private void stream( Collection<JSONAble> collection,
+                         OutputStream entityStream ) throws IOException {
+        JSONStreamWriter writer = newStreamWriter(entityStream);
+        writer.beginArray();
+        for (JSONAble jsonAble : collection) {
+            write(jsonAble, writer);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    private JSONStreamWriter newStreamWriter( OutputStream entityStream ) throws IOException {
+        return new JSONStreamWriter(new BufferedWriter(new OutputStreamWriter(entityStream, "UTF-8")));
+    }
+
+    private void write( JSONAble jsonAble,
+                        JSONStreamWriter writer ) throws IOException {
+        if (jsonAble instanceof JSONStreamable) {
+            ((JSONStreamable)jsonAble).writeJSON(writer);
+        } else {
+            try {
+                writer.rawValue(jsonAble.toJSON().toString());
+            } catch (JSONException e) {
+                throw new WriterException(e);
+            }
+        }
+    }
+
     protected String getString( JSONAble jsonAble ) throws JSONException {
         return jsonAble.toJSON().toString();
     }
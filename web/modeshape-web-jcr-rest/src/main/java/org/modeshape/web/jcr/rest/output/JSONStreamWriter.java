@@ -0,0 +1,194 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.modeshape.web.jcr.rest.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * A minimal writer which produces JSON text directly onto a {@link Writer}, without building an in-memory object graph first.
+ * Unlike Jettison's {@link org.codehaus.jettison.json.JSONWriter}, it does not limit the nesting depth, so it can be used to
+ * write node subtrees of any depth.
+ * <p>
+ * The writer does not validate the structure of the output, so callers are responsible for balancing the begin/end calls and for
+ * calling {@link #key(String)} before each value of an object.
+ * </p>
+ */
+public final class JSONStreamWriter {
+
+    private final Writer writer;
+    private boolean needsComma = false;
+
+    /**
+     * Creates a new writer
+     *
+     * @param writer a {@code non-null} {@link Writer} to which the JSON text is written.
+     */
+    public JSONStreamWriter( Writer writer ) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter beginObject() throws IOException {
+        separate();
+        writer.write('{');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter endObject() throws IOException {
+        writer.write('}');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter beginArray() throws IOException {
+        separate();
+        writer.write('[');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter endArray() throws IOException {
+        writer.write(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name a {@code non-null} string
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter key( String name ) throws IOException {
+        separate();
+        writer.write(JSONObject.quote(name));
+        writer.write(':');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or {@code null}.
+     *
+     * @param value the value; may be {@code null}
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter value( String value ) throws IOException {
+        separate();
+        writer.write(value != null ? JSONObject.quote(value) : "null");
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes an array of string values.
+     *
+     * @param values a {@code non-null} collection
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter value( Collection<String> values ) throws IOException {
+        beginArray();
+        for (String value : values) {
+            value(value);
+        }
+        return endArray();
+    }
+
+    /**
+     * Writes an object which has the entries of the given map as members.
+     *
+     * @param values a {@code non-null} map
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter value( Map<String, String> values ) throws IOException {
+        beginObject();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            key(entry.getKey()).value(entry.getValue());
+        }
+        return endObject();
+    }
+
+    /**
+     * Writes a value which is already JSON text, as is.
+     *
+     * @param json a {@code non-null} string containing a valid JSON value
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JSONStreamWriter rawValue( String json ) throws IOException {
+        separate();
+        writer.write(json);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if the output cannot be flushed
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void separate() throws IOException {
+        if (needsComma) {
+            writer.write(',');
+            needsComma = false;
+        }
+    }
+}
@@ -42,6 +42,11 @@ public class TextBodyWriter extends JSONBodyWriter {
 
     private static final int TEXT_INDENT_FACTOR = 2;
 
+    @Override
+    protected boolean isStreaming() {
+        return false;
+    }
+
     @Override
     protected String getString( JSONAble jsonAble ) throws JSONException {
         return jsonAble.toJSON().toString(TEXT_INDENT_FACTOR);
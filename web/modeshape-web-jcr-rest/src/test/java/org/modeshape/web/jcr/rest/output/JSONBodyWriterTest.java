@@ -0,0 +1,96 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.web.jcr.rest.output;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.ws.rs.core.MediaType;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+import org.modeshape.web.jcr.rest.model.JSONAble;
+import org.modeshape.web.jcr.rest.model.RestNode;
+import org.modeshape.web.jcr.rest.model.RestProperty;
+import org.modeshape.web.jcr.rest.model.RestQueryResult;
+
+/**
+ * Unit test for {@link JSONBodyWriter}
+ */
+public class JSONBodyWriterTest {
+
+    private final JSONBodyWriter writer = new JSONBodyWriter();
+
+    @Test
+    public void shouldStreamNodesLikeTheirJSONRepresentation() throws Exception {
+        RestNode node = new RestNode("node", "id1", "http://host/items/node", "http://host/items");
+        node.addJcrProperty(new RestProperty("jcr:primaryType", "http://host/items/node/jcr:primaryType",
+                                             "http://host/items/node", Arrays.asList("nt:unstructured")));
+        node.addJcrProperty(new RestProperty("multi", "http://host/items/node/multi", "http://host/items/node",
+                                             Arrays.asList("a", "b\"c")));
+        final RestNode child = new RestNode("child", "id2", "http://host/items/node/child", "http://host/items/node");
+        child.addChild(new RestNode("grandChild[2]", "id3", "http://host/items/node/child/grandChild[2]",
+                                    "http://host/items/node/child"));
+        node.setChildren(new Iterable<RestNode>() {
+            @Override
+            public Iterator<RestNode> iterator() {
+                return Arrays.asList(child).iterator();
+            }
+        });
+
+        assertStreamedLikeJSON(node);
+    }
+
+    @Test
+    public void shouldStreamQueryResultsLikeTheirJSONRepresentation() throws Exception {
+        RestQueryResult result = new RestQueryResult();
+        result.addColumn("jcr:path", "STRING");
+        result.addColumn("jcr:score", "DOUBLE");
+        RestQueryResult.RestRow row = result.new RestRow();
+        row.addValue("jcr:path", "/a");
+        row.addValue("jcr:score", "1.0");
+        result.addRow(row);
+        result.addRow(result.new RestRow());
+
+        assertStreamedLikeJSON(result);
+        assertStreamedLikeJSON(new RestQueryResult());
+    }
+
+    @Test
+    public void shouldNotComputeTheSize() throws Exception {
+        RestNode node = new RestNode("node", "id1", "http://host/items/node", "http://host/items");
+        assertThat(writer.getSize(node, RestNode.class, RestNode.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE),
+                   is(-1L));
+    }
+
+    private void assertStreamedLikeJSON( JSONAble jsonAble ) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeTo(jsonAble, jsonAble.getClass(), jsonAble.getClass(), new Annotation[0], MediaType.APPLICATION_JSON_TYPE,
+                       null, stream);
+        String streamed = stream.toString("UTF-8");
+        assertThat(new JSONObject(streamed).toString(), is(jsonAble.toJSON().toString()));
+    }
+}
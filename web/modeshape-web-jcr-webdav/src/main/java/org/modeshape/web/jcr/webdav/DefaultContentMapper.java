@@ -8,15 +8,18 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.servlet.ServletContext;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.BoundedInputStream;
+import org.modeshape.jcr.api.RangedBinary;
 
 /**
  * Implementation of the {@link ContentMapper} interface that maps webdav requests to JCR operations.
  */
-public class DefaultContentMapper implements ContentMapper {
+public class DefaultContentMapper implements RangedContentMapper {
 
     public static final String INIT_CONTENT_PRIMARY_TYPE_NAMES = "org.modeshape.web.jcr.webdav.CONTENT_PRIMARY_TYPE_NAMES";
     public static final String INIT_RESOURCE_PRIMARY_TYPES_NAMES = "org.modeshape.web.jcr.webdav.RESOURCE_PRIMARY_TYPE_NAMES";
@@ -101,6 +104,25 @@ public class DefaultContentMapper implements ContentMapper {
         return node.getProperty(CONTENT_NODE_NAME + "/" + DATA_PROP_NAME).getBinary().getStream();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * ModeShape binaries position the returned stream directly at the offset; for other binaries the preceding content is
+     * skipped.
+     * </p>
+     */
+    @Override
+    public InputStream getResourceContent( Node node,
+                                           long offset,
+                                           long length ) throws RepositoryException, IOException {
+        if (!node.hasNode(CONTENT_NODE_NAME)) return null;
+        Binary binary = node.getProperty(CONTENT_NODE_NAME + "/" + DATA_PROP_NAME).getBinary();
+        if (binary instanceof RangedBinary) {
+            return ((RangedBinary)binary).getStream(offset, length);
+        }
+        return BoundedInputStream.range(binary.getStream(), offset, length);
+    }
+
     @Override
     public long getResourceLength( Node node ) throws RepositoryException {
         if (!node.hasNode(CONTENT_NODE_NAME)) {
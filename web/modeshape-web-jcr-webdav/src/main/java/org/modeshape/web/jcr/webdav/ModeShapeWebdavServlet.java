@@ -29,6 +29,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.web.jcr.RepositoryManager;
 import org.modeshape.webdav.IWebdavStore;
 import org.modeshape.webdav.WebdavServlet;
 
@@ -110,7 +111,8 @@ public class ModeShapeWebdavServlet extends WebdavServlet {
 
     /**
      * <p>
-     * This method also sets and clears a thread-local reference to the incoming {@link HttpServletRequest request}.
+     * This method also sets and clears a thread-local reference to the incoming {@link HttpServletRequest request}, and
+     * {@link RepositoryManager#releaseSessions(HttpServletRequest) releases} the read-only sessions used by the request.
      * </p>
      */
     @Override
@@ -121,6 +123,7 @@ public class ModeShapeWebdavServlet extends WebdavServlet {
             super.service(req, resp);
         } finally {
             ModeShapeWebdavStore.setRequest(null);
+            RepositoryManager.releaseSessions(req);
         }
     }
 }
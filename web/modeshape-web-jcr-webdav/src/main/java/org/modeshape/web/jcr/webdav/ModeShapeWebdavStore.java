@@ -30,9 +30,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Item;
@@ -47,12 +49,13 @@ import javax.jcr.Session;
 import javax.servlet.http.HttpServletRequest;
 import org.modeshape.common.i18n.I18n;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.BoundedInputStream;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.common.util.IoUtil;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.web.jcr.RepositoryManager;
+import org.modeshape.webdav.IRangedWebdavStore;
 import org.modeshape.webdav.ITransaction;
-import org.modeshape.webdav.IWebdavStore;
 import org.modeshape.webdav.StoredObject;
 import org.modeshape.webdav.exceptions.ObjectNotFoundException;
 import org.modeshape.webdav.exceptions.WebdavException;
@@ -63,7 +66,7 @@ import org.modeshape.webdav.exceptions.WebdavException;
  * This implementation takes several OSX-specific WebDAV workarounds from the WebDAVImpl class in Drools Guvnor.
  * </p>
  */
-public class ModeShapeWebdavStore implements IWebdavStore {
+public class ModeShapeWebdavStore implements IRangedWebdavStore {
 
     /**
      * OS X attempts to create ".DS_Store" files to store a folder's icon positions and background image. We choose not to store
@@ -273,6 +276,32 @@ public class ModeShapeWebdavStore implements IWebdavStore {
         }
     }
 
+    @Override
+    public InputStream getResourceContent( ITransaction transaction,
+                                           String resourceUri,
+                                           long offset,
+                                           long length ) {
+        try {
+            ResolvedRequest resolved = resolveRequest(transaction, resourceUri);
+            if (resolved.getPath() == null) {
+                // Not a node, so there's no content ...
+                return null;
+            }
+            Node node = nodeFor(transaction, resolved); // throws exception if not found
+            if (!isFile(node)) return null;
+            if (contentMapper instanceof RangedContentMapper) {
+                return ((RangedContentMapper)contentMapper).getResourceContent(node, offset, length);
+            }
+            InputStream stream = contentMapper.getResourceContent(node);
+            return stream != null ? BoundedInputStream.range(stream, offset, length) : null;
+
+        } catch (IOException ioe) {
+            throw new WebdavException(ioe);
+        } catch (RepositoryException re) {
+            throw translate(re);
+        }
+    }
+
     @Override
     public long getResourceLength( ITransaction transaction,
                                    String resourceUri ) {
@@ -538,6 +567,7 @@ public class ModeShapeWebdavStore implements IWebdavStore {
     class JcrSessionTransaction implements ITransaction {
 
         private final Map<SessionKey, Session> sessions = new HashMap<SessionKey, Session>();
+        private final Set<SessionKey> readOnlySessionKeys = new HashSet<SessionKey>();
         private final Principal principal;
 
         JcrSessionTransaction( Principal principal ) {
@@ -561,12 +591,32 @@ public class ModeShapeWebdavStore implements IWebdavStore {
             SessionKey key = new SessionKey(repositoryName, workspaceName);
             Session result = sessions.get(key);
             if (result == null) {
-                result = RepositoryManager.getSession(request.getRequest(), repositoryName, workspaceName);
+                if (isReadOnly(request)) {
+                    result = RepositoryManager.getReadOnlySession(request.getRequest(), repositoryName, workspaceName);
+                    readOnlySessionKeys.add(key);
+                } else {
+                    result = RepositoryManager.getSession(request.getRequest(), repositoryName, workspaceName);
+                }
                 sessions.put(key, result);
             }
             return result;
         }
 
+        /**
+         * Determine whether the request can only read content, in which case it is served with pooled
+         * {@link RepositoryManager#getReadOnlySession read-only sessions} that are released when the request completes.
+         * 
+         * @param request the resolved request; may not be null
+         * @return true if the request does not modify content, or false otherwise
+         */
+        private boolean isReadOnly( ResolvedRequest request ) {
+            HttpServletRequest httpRequest = request.getRequest();
+            if (httpRequest == null) return false;
+            String method = httpRequest.getMethod();
+            return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method) || "PROPFIND".equalsIgnoreCase(method)
+                   || "OPTIONS".equalsIgnoreCase(method);
+        }
+
         Node nodeFor( ResolvedRequest request ) throws RepositoryException {
             Session session = session(request);
             Item item = session.getItem(request.getPath());
@@ -623,6 +673,11 @@ public class ModeShapeWebdavStore implements IWebdavStore {
                         }
                     }
                     // Didn't have an existing session for that repository, so create one ...
+                    if (isReadOnly(request)) {
+                        // this session is released when the request completes ...
+                        Session session = RepositoryManager.getReadOnlySession(request.getRequest(), repositoryName, null);
+                        return session.getWorkspace().getAccessibleWorkspaceNames();
+                    }
                     Session session = null;
                     try {
                         session = RepositoryManager.getSession(request.getRequest(), repositoryName, null);
@@ -656,14 +711,17 @@ public class ModeShapeWebdavStore implements IWebdavStore {
             } catch (RepositoryException re) {
                 throw new WebdavException(re);
             } finally {
-                for (Session session : sessions.values()) {
+                for (Map.Entry<SessionKey, Session> entry : sessions.entrySet()) {
+                    // the read-only sessions are released when the request completes ...
+                    if (readOnlySessionKeys.contains(entry.getKey())) continue;
                     try {
-                        session.logout();
+                        entry.getValue().logout();
                     } catch (Throwable t) {
                         // do nothing
                     }
                 }
                 sessions.clear();
+                readOnlySessionKeys.clear();
             }
         }
     }
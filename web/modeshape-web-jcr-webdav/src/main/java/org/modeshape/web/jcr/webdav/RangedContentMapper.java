@@ -0,0 +1,30 @@
+package org.modeshape.web.jcr.webdav;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+/**
+ * An extension of {@link ContentMapper} for mappers that can read a range of a node's content without reading all of the
+ * preceding content. For other mappers, ranges are served by skipping over the content returned by
+ * {@link ContentMapper#getResourceContent(Node)}.
+ * 
+ * @see DefaultContentMapper
+ */
+public interface RangedContentMapper extends ContentMapper {
+
+    /**
+     * Get a range of the content of the supplied node.
+     * 
+     * @param node the node; may not be null
+     * @param offset the zero-based offset of the first byte of the range
+     * @param length the maximum number of bytes in the range
+     * @return the range of the contents for the node; null if the node maps to a WebDAV folder
+     * @throws RepositoryException if the node cannot be accessed
+     * @throws IOException if the content of the node cannot be accessed
+     */
+    InputStream getResourceContent( Node node,
+                                    long offset,
+                                    long length ) throws RepositoryException, IOException;
+}
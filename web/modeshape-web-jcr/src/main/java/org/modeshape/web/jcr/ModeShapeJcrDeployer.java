@@ -25,10 +25,14 @@ package org.modeshape.web.jcr;
 
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.http.HttpServletRequest;
 
 /**
  * Servlet context listener that is responsible for {@link RepositoryManager#initialize(javax.servlet.ServletContext)
- * initializing} the {@link RepositoryManager repository factory}.
+ * initializing} the {@link RepositoryManager repository factory}, and for {@link RepositoryManager#releaseSessions releasing} the
+ * sessions used by each request once the request has completed.
  * <p>
  * This class is not thread safe, but in practice this does not matter as the servlet container must ensure that only a single
  * instance of this exists per web context and that it is only called in a single-threaded manner.
@@ -39,7 +43,7 @@ import javax.servlet.ServletContextListener;
  * 
  * @see RepositoryManager
  */
-public class ModeShapeJcrDeployer implements ServletContextListener {
+public class ModeShapeJcrDeployer implements ServletContextListener, ServletRequestListener {
 
     /**
      * Alerts the repository factory that the web application is shutting down
@@ -62,4 +66,22 @@ public class ModeShapeJcrDeployer implements ServletContextListener {
     public void contextInitialized( ServletContextEvent event ) {
         RepositoryManager.initialize(event.getServletContext());
     }
+
+    @Override
+    public void requestInitialized( ServletRequestEvent event ) {
+        // nothing to do
+    }
+
+    /**
+     * Releases the sessions used by the request
+     * 
+     * @param event the servlet request event
+     * @see RepositoryManager#releaseSessions(HttpServletRequest)
+     */
+    @Override
+    public void requestDestroyed( ServletRequestEvent event ) {
+        if (event.getServletRequest() instanceof HttpServletRequest) {
+            RepositoryManager.releaseSessions((HttpServletRequest)event.getServletRequest());
+        }
+    }
 }
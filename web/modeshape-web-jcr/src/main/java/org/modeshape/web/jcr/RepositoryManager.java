@@ -25,14 +25,17 @@ package org.modeshape.web.jcr;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -57,9 +60,33 @@ public class RepositoryManager {
 
     private static final Logger LOGGER = WebLogger.getLogger(RepositoryManager.class);
 
+    /**
+     * The name of the servlet context parameter which specifies the maximum number of idle read-only sessions which are pooled for
+     * each repository, workspace and user. A value of {@code 0} disables the pooling. Defaults to
+     * {@value #DEFAULT_SESSION_POOL_MAX_IDLE}.
+     * 
+     * @see #getReadOnlySession(HttpServletRequest, String, String)
+     */
+    public static final String SESSION_POOL_MAX_IDLE = "org.modeshape.web.jcr.SESSION_POOL_MAX_IDLE";
+
+    /**
+     * The name of the servlet context parameter which specifies the number of seconds after which an unused pooled session is
+     * logged out. Defaults to {@value #DEFAULT_SESSION_POOL_IDLE_TIMEOUT_SECONDS}.
+     * 
+     * @see #getReadOnlySession(HttpServletRequest, String, String)
+     */
+    public static final String SESSION_POOL_IDLE_TIMEOUT_SECONDS = "org.modeshape.web.jcr.SESSION_POOL_IDLE_TIMEOUT_SECONDS";
+
+    public static final int DEFAULT_SESSION_POOL_MAX_IDLE = 8;
+    public static final int DEFAULT_SESSION_POOL_IDLE_TIMEOUT_SECONDS = 60;
+
+    private static final String REQUEST_SESSIONS_ATTRIBUTE = RepositoryManager.class.getName() + ".SESSIONS";
+
     private static final Map<String, Object> factoryParams = new HashMap<String, Object>();
     private static final Map<String, Object> immutableFactoryParams = Collections.unmodifiableMap(factoryParams);
 
+    private static volatile SessionPool sessionPool;
+
     private RepositoryManager() {
     }
 
@@ -71,6 +98,7 @@ public class RepositoryManager {
      */
     static synchronized void initialize( ServletContext context ) {
         CheckArg.isNotNull(context, "context");
+        closeSessionPool();
         factoryParams.clear();
         Enumeration<?> names = context.getInitParameterNames();
         if (names == null) {
@@ -84,6 +112,25 @@ public class RepositoryManager {
                 addParameter(name, context);
             }
         }
+
+        int maxIdleSessions = intParameter(context, SESSION_POOL_MAX_IDLE, DEFAULT_SESSION_POOL_MAX_IDLE);
+        int idleTimeoutSeconds = intParameter(context, SESSION_POOL_IDLE_TIMEOUT_SECONDS, DEFAULT_SESSION_POOL_IDLE_TIMEOUT_SECONDS);
+        if (maxIdleSessions > 0) {
+            sessionPool = new SessionPool(maxIdleSessions, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds));
+        }
+    }
+
+    private static int intParameter( ServletContext context,
+                                     String name,
+                                     int defaultValue ) {
+        String value = context.getInitParameter(name);
+        if (value == null || value.trim().length() == 0) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid value '{0}' for the '{1}' parameter; using {2} instead", value, name, defaultValue);
+            return defaultValue;
+        }
     }
 
     private static void addParameter( String name,
@@ -107,13 +154,130 @@ public class RepositoryManager {
                                       String workspaceName ) throws RepositoryException {
         // Go through all the RepositoryFactory instances and try to create one ...
         Repository repository = getRepository(repositoryName);
+        return login(repository, request, isAuthenticated(request) ? new ServletCredentials(request) : null, workspaceName);
+    }
+
+    /**
+     * Get a JCR Session for the named workspace in the named repository, using the supplied HTTP servlet request for
+     * authentication information. The session is logged out when the request completes (see
+     * {@link #releaseSessions(HttpServletRequest)}).
+     * 
+     * @param request the servlet request; may not be null or unauthenticated
+     * @param repositoryName the name of the repository in which the session is created
+     * @param workspaceName the name of the workspace to which the session should be connected
+     * @return an active session with the given workspace in the named repository
+     * @throws RepositoryException if the named repository does not exist or there was a problem obtaining the named repository
+     */
+    public static Session getRequestSession( HttpServletRequest request,
+                                             String repositoryName,
+                                             String workspaceName ) throws RepositoryException {
+        CheckArg.isNotNull(request, "request");
+        Session session = getSession(request, repositoryName, workspaceName);
+        addRequestSession(request, session);
+        return session;
+    }
 
+    /**
+     * Log into the repository on behalf of the supplied request. This is used to create both the pooled and the non-pooled
+     * sessions, so that they are always authenticated in the same way.
+     * 
+     * @param repository the repository; may not be null
+     * @param request the servlet request; may be null
+     * @param credentials the credentials used when the request has an {@link #isAuthenticated(HttpServletRequest) authenticated}
+     *        user; may be null otherwise
+     * @param workspaceName the name of the workspace to which the session should be connected
+     * @return the new session; never null
+     * @throws RepositoryException if the session could not be created
+     */
+    static Session login( Repository repository,
+                          HttpServletRequest request,
+                          ServletCredentials credentials,
+                          String workspaceName ) throws RepositoryException {
         // If there's no authenticated user, try an anonymous login
-        if (request == null || request.getUserPrincipal() == null) {
+        if (!isAuthenticated(request)) {
             return repository.login(workspaceName);
         }
+        assert credentials != null;
+        return repository.login(credentials, workspaceName);
+    }
 
-        return repository.login(new ServletCredentials(request), workspaceName);
+    static boolean isAuthenticated( HttpServletRequest request ) {
+        return request != null && request.getUserPrincipal() != null;
+    }
+
+    /**
+     * Get a JCR Session that will only be used to read content of the named workspace in the named repository, using the supplied
+     * HTTP servlet request for authentication information.
+     * <p>
+     * Such sessions are reused across requests: they are taken from a pool of idle sessions of the same user (see
+     * {@link #SESSION_POOL_MAX_IDLE}), and are {@link Session#refresh(boolean) refreshed} rather than created from scratch. The
+     * session is returned to the pool when the request completes, or earlier if it is passed to {@link #releaseSession(Session)}.
+     * Any unsaved changes made with the session are discarded when it is returned.
+     * </p>
+     * 
+     * @param request the servlet request; may not be null or unauthenticated
+     * @param repositoryName the name of the repository in which the session is created
+     * @param workspaceName the name of the workspace to which the session should be connected
+     * @return an active session with the given workspace in the named repository
+     * @throws RepositoryException if the named repository does not exist or there was a problem obtaining the named repository
+     */
+    public static Session getReadOnlySession( HttpServletRequest request,
+                                              String repositoryName,
+                                              String workspaceName ) throws RepositoryException {
+        SessionPool pool = sessionPool;
+        Session session = pool != null ? pool.borrow(request, repositoryName, workspaceName) : getSession(request,
+                                                                                                           repositoryName,
+                                                                                                           workspaceName);
+        if (request != null) addRequestSession(request, session);
+        return session;
+    }
+
+    private static void addRequestSession( HttpServletRequest request,
+                                           Session session ) {
+        @SuppressWarnings( "unchecked" )
+        List<Session> sessions = (List<Session>)request.getAttribute(REQUEST_SESSIONS_ATTRIBUTE);
+        if (sessions == null) {
+            sessions = new ArrayList<Session>();
+            request.setAttribute(REQUEST_SESSIONS_ATTRIBUTE, sessions);
+        }
+        sessions.add(session);
+    }
+
+    /**
+     * Release a session obtained from {@link #getReadOnlySession(HttpServletRequest, String, String)}, returning it to the pool.
+     * Any other session is simply logged out.
+     * 
+     * @param session the session; may not be null
+     */
+    public static void releaseSession( Session session ) {
+        CheckArg.isNotNull(session, "session");
+        SessionPool pool = sessionPool;
+        if (pool == null || !pool.release(session)) {
+            if (session.isLive()) session.logout();
+        }
+    }
+
+    /**
+     * Release all of the sessions obtained from {@link #getReadOnlySession(HttpServletRequest, String, String)} or
+     * {@link #getRequestSession(HttpServletRequest, String, String)} for the supplied request which have not yet been released:
+     * the read-only sessions are returned to the pool, and the others are logged out. This is done automatically by the
+     * {@link ModeShapeJcrDeployer} when the request is destroyed, and calling it more than once for the same request has no
+     * effect.
+     * 
+     * @param request the servlet request which has completed; may not be null
+     */
+    public static void releaseSessions( HttpServletRequest request ) {
+        @SuppressWarnings( "unchecked" )
+        List<Session> sessions = (List<Session>)request.getAttribute(REQUEST_SESSIONS_ATTRIBUTE);
+        if (sessions == null) return;
+        request.removeAttribute(REQUEST_SESSIONS_ATTRIBUTE);
+        for (Session session : sessions) {
+            try {
+                releaseSession(session);
+            } catch (RuntimeException e) {
+                LOGGER.debug(e, "Error while releasing a session at the end of a request");
+            }
+        }
     }
 
     public static Repository getRepository( String repositoryName ) throws NoSuchRepositoryException {
@@ -251,6 +415,8 @@ public class RepositoryManager {
     }
 
     static void shutdown() {
+        closeSessionPool();
+
         // Go through all the RepositoryFactory instances and see if any can be shutdown ...
         for (javax.jcr.RepositoryFactory factory : ServiceLoader.load(javax.jcr.RepositoryFactory.class)) {
             if (factory instanceof org.modeshape.jcr.api.RepositoryFactory) {
@@ -259,4 +425,11 @@ public class RepositoryManager {
             }
         }
     }
+
+    private static synchronized void closeSessionPool() {
+        if (sessionPool != null) {
+            sessionPool.close();
+            sessionPool = null;
+        }
+    }
 }
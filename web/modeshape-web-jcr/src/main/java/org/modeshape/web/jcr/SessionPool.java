@@ -0,0 +1,293 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of
+ * individual contributors.
+ *
+ * ModeShape is free software. Unless otherwise indicated, all code in ModeShape
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * ModeShape is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.web.jcr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.servlet.http.HttpServletRequest;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.util.HashCode;
+import org.modeshape.jcr.api.Logger;
+import org.modeshape.jcr.api.ServletCredentials;
+
+/**
+ * A pool of the sessions used to serve read-only requests, kept per repository, workspace and user. Reusing a session (after
+ * {@link Session#refresh(boolean) discarding} any transient state) avoids the cost of logging in on every request and keeps the
+ * session-level state warm.
+ * <p>
+ * At most {@code maxIdleSessions} idle sessions are kept for each combination of repository, workspace and user, and idle
+ * sessions are logged out once they have not been used for {@code maxIdleTimeInMillis}. The most recently released sessions are
+ * reused first, so that the others can expire when the load decreases.
+ * </p>
+ * <p>
+ * Sessions are created exactly as {@link RepositoryManager#getSession non-pooled sessions} are, except that the sessions of
+ * authenticated users are created with {@link ServletCredentials} which always return the request currently served by the
+ * session, so role checks are never made against the request of a previous borrower.
+ * </p>
+ */
+@ThreadSafe
+final class SessionPool {
+
+    private static final Logger LOGGER = WebLogger.getLogger(SessionPool.class);
+
+    private final int maxIdleSessions;
+    private final long maxIdleTimeInMillis;
+    private final Map<Key, LinkedList<PooledSession>> idleSessions = new HashMap<Key, LinkedList<PooledSession>>();
+    private final Map<Session, PooledSession> borrowedSessions = new IdentityHashMap<Session, PooledSession>();
+    private long lastEviction = System.currentTimeMillis();
+
+    SessionPool( int maxIdleSessions,
+                 long maxIdleTimeInMillis ) {
+        assert maxIdleSessions > 0;
+        this.maxIdleSessions = maxIdleSessions;
+        this.maxIdleTimeInMillis = maxIdleTimeInMillis;
+    }
+
+    /**
+     * Obtain a session for the given request, reusing an idle session of the same user if there is one.
+     * 
+     * @param request the servlet request; may be null or unauthenticated
+     * @param repositoryName the name of the repository
+     * @param workspaceName the name of the workspace; may be null for the default workspace
+     * @return a live session; never null
+     * @throws RepositoryException if the named repository does not exist or a new session could not be created
+     */
+    Session borrow( HttpServletRequest request,
+                    String repositoryName,
+                    String workspaceName ) throws RepositoryException {
+        Key key = new Key(repositoryName, workspaceName, userName(request));
+        PooledSession pooled = null;
+        while ((pooled = takeIdle(key)) != null) {
+            if (pooled.activate(request)) break;
+        }
+        if (pooled == null) {
+            Repository repository = RepositoryManager.getRepository(repositoryName);
+            PooledCredentials credentials = RepositoryManager.isAuthenticated(request) ? new PooledCredentials(request) : null;
+            Session session = RepositoryManager.login(repository, request, credentials, workspaceName);
+            pooled = new PooledSession(key, session, credentials);
+        }
+        synchronized (this) {
+            borrowedSessions.put(pooled.session, pooled);
+        }
+        return pooled.session;
+    }
+
+    /**
+     * Return a session obtained from {@link #borrow} to the pool. The session is logged out if the pool is full for its user.
+     * 
+     * @param session the session; may not be null
+     * @return true if the session was borrowed from this pool, or false if it was not (in which case the caller is responsible for
+     *         logging it out)
+     */
+    boolean release( Session session ) {
+        PooledSession pooled = null;
+        synchronized (this) {
+            pooled = borrowedSessions.remove(session);
+        }
+        if (pooled == null) return false;
+
+        if (pooled.passivate()) {
+            boolean added = false;
+            synchronized (this) {
+                LinkedList<PooledSession> sessions = idleSessions.get(pooled.key);
+                if (sessions == null) {
+                    sessions = new LinkedList<PooledSession>();
+                    idleSessions.put(pooled.key, sessions);
+                }
+                if (sessions.size() < maxIdleSessions) {
+                    pooled.idleSince = System.currentTimeMillis();
+                    sessions.addFirst(pooled);
+                    added = true;
+                }
+            }
+            if (!added) pooled.logout();
+        }
+        evictExpiredSessions(false);
+        return true;
+    }
+
+    /**
+     * Log out all of the idle sessions. Borrowed sessions are logged out when they are released.
+     */
+    void close() {
+        evictExpiredSessions(true);
+    }
+
+    private synchronized PooledSession takeIdle( Key key ) {
+        LinkedList<PooledSession> sessions = idleSessions.get(key);
+        if (sessions == null) return null;
+        PooledSession pooled = sessions.poll();
+        if (sessions.isEmpty()) idleSessions.remove(key);
+        return pooled;
+    }
+
+    private void evictExpiredSessions( boolean all ) {
+        List<PooledSession> expired = new ArrayList<PooledSession>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (!all && now - lastEviction < maxIdleTimeInMillis) return;
+            lastEviction = now;
+            for (Iterator<LinkedList<PooledSession>> iter = idleSessions.values().iterator(); iter.hasNext();) {
+                LinkedList<PooledSession> sessions = iter.next();
+                // The sessions are ordered from the most to the least recently released ...
+                while (!sessions.isEmpty() && (all || now - sessions.getLast().idleSince >= maxIdleTimeInMillis)) {
+                    expired.add(sessions.removeLast());
+                }
+                if (sessions.isEmpty()) iter.remove();
+            }
+        }
+        for (PooledSession pooled : expired) {
+            pooled.logout();
+        }
+    }
+
+    private static String userName( HttpServletRequest request ) {
+        // Sessions of authenticated users are never shared with anonymous requests ...
+        return RepositoryManager.isAuthenticated(request) ? String.valueOf(request.getUserPrincipal().getName()) : null;
+    }
+
+    /**
+     * Credentials which reference the request being served by the session, rather than the request for which the session was
+     * created.
+     */
+    protected static final class PooledCredentials extends ServletCredentials {
+        private static final long serialVersionUID = 1L;
+
+        private transient volatile HttpServletRequest request;
+
+        protected PooledCredentials( HttpServletRequest request ) {
+            super(request);
+            this.request = request;
+        }
+
+        protected void setRequest( HttpServletRequest request ) {
+            this.request = request;
+        }
+
+        @Override
+        public HttpServletRequest getRequest() {
+            return request;
+        }
+    }
+
+    protected static final class PooledSession {
+        protected final Key key;
+        protected final Session session;
+        protected final PooledCredentials credentials;
+        protected long idleSince;
+
+        protected PooledSession( Key key,
+                                 Session session,
+                                 PooledCredentials credentials ) {
+            this.key = key;
+            this.session = session;
+            this.credentials = credentials;
+        }
+
+        protected boolean activate( HttpServletRequest request ) {
+            if (!session.isLive()) return false;
+            if (credentials != null) credentials.setRequest(request);
+            try {
+                session.refresh(false);
+                return true;
+            } catch (RepositoryException e) {
+                LOGGER.debug(e, "Unable to refresh the pooled session for {0}; creating a new one", key);
+                logout();
+                return false;
+            }
+        }
+
+        protected boolean passivate() {
+            if (credentials != null) credentials.setRequest(null);
+            if (!session.isLive()) return false;
+            try {
+                // Discard anything the borrower may have changed ...
+                if (session.hasPendingChanges()) session.refresh(false);
+                return true;
+            } catch (RepositoryException e) {
+                LOGGER.debug(e, "Unable to return the session for {0} to the pool", key);
+                logout();
+                return false;
+            }
+        }
+
+        protected void logout() {
+            try {
+                if (session.isLive()) session.logout();
+            } catch (RuntimeException e) {
+                LOGGER.debug(e, "Error while logging out the pooled session for {0}", key);
+            }
+        }
+    }
+
+    protected static final class Key {
+        protected final String repositoryName;
+        protected final String workspaceName;
+        protected final String userName;
+        private final int hc;
+
+        protected Key( String repositoryName,
+                       String workspaceName,
+                       String userName ) {
+            this.repositoryName = repositoryName;
+            this.workspaceName = workspaceName;
+            this.userName = userName;
+            this.hc = HashCode.compute(repositoryName, workspaceName, userName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hc;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (obj == this) return true;
+            if (obj instanceof Key) {
+                Key that = (Key)obj;
+                return equal(this.repositoryName, that.repositoryName) && equal(this.workspaceName, that.workspaceName)
+                       && equal(this.userName, that.userName);
+            }
+            return false;
+        }
+
+        private static boolean equal( String s1,
+                                      String s2 ) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+
+        @Override
+        public String toString() {
+            return (userName != null ? userName : "<anonymous>") + "@" + repositoryName + "/" + workspaceName;
+        }
+    }
+}
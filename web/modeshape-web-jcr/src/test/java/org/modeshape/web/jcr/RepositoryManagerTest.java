@@ -1,18 +1,26 @@
 package org.modeshape.web.jcr;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 import javax.jcr.Session;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
@@ -60,4 +68,84 @@ public class RepositoryManagerTest {
 
         RepositoryManager.shutdown();
     }
+
+    @Test
+    public void shouldReuseReleasedReadOnlySessions() throws Exception {
+        RepositoryManager.initialize(context);
+
+        Session session = RepositoryManager.getReadOnlySession(null, "Test Repository", "default");
+        Session other = null;
+        try {
+            session.getRootNode().addNode("transient");
+            RepositoryManager.releaseSession(session);
+
+            // The released session should be reused, without the changes of the previous borrower ...
+            Session reused = RepositoryManager.getReadOnlySession(null, "Test Repository", "default");
+            assertThat(reused, is(sameInstance(session)));
+            assertThat(reused.isLive(), is(true));
+            assertThat(reused.hasPendingChanges(), is(false));
+            assertThat(reused.getRootNode().hasNode("transient"), is(false));
+
+            // Sessions in use are never shared ...
+            other = RepositoryManager.getReadOnlySession(null, "Test Repository", "default");
+            assertThat(other, is(not(sameInstance(reused))));
+
+            RepositoryManager.releaseSession(reused);
+            RepositoryManager.releaseSession(other);
+        } finally {
+            RepositoryManager.shutdown();
+        }
+
+        // Shutting down logs out the idle sessions ...
+        assertThat(session.isLive(), is(false));
+        assertThat(other.isLive(), is(false));
+    }
+
+    @Test
+    public void shouldLogOutRequestSessionsAndReleaseReadOnlySessionsWhenRequestCompletes() throws Exception {
+        RepositoryManager.initialize(context);
+
+        HttpServletRequest request = mockRequest();
+        try {
+            Session session = RepositoryManager.getRequestSession(request, "Test Repository", "default");
+            Session readOnly = RepositoryManager.getReadOnlySession(request, "Test Repository", "default");
+            assertThat(session.isLive(), is(true));
+            assertThat(readOnly.isLive(), is(true));
+
+            RepositoryManager.releaseSessions(request);
+            assertThat(session.isLive(), is(false));
+            // The read-only session is returned to the pool ...
+            assertThat(readOnly.isLive(), is(true));
+            assertThat(RepositoryManager.getReadOnlySession(null, "Test Repository", "default"), is(sameInstance(readOnly)));
+            RepositoryManager.releaseSession(readOnly);
+        } finally {
+            RepositoryManager.shutdown();
+        }
+    }
+
+    private HttpServletRequest mockRequest() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer( InvocationOnMock invocation ) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer( InvocationOnMock invocation ) {
+                attributes.put((String)invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(request).setAttribute(anyString(), any());
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer( InvocationOnMock invocation ) {
+                attributes.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(request).removeAttribute(anyString());
+        return request;
+    }
 }
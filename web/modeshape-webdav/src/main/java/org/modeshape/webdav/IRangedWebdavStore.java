@@ -0,0 +1,29 @@
+package org.modeshape.webdav;
+
+import java.io.InputStream;
+import org.modeshape.webdav.exceptions.WebdavException;
+
+/**
+ * An extension of {@link IWebdavStore} for stores that can read a range of a resource's content without reading all of the
+ * preceding content. For other stores, ranges are served by skipping over the content returned by
+ * {@link IWebdavStore#getResourceContent(ITransaction, String)}.
+ */
+public interface IRangedWebdavStore extends IWebdavStore {
+
+    /**
+     * Gets a range of the content of the resource specified by <code>resourceUri</code>. Stores should position the returned
+     * stream directly at the offset (rather than reading and discarding the preceding content) whenever possible.
+     *
+     * @param transaction indicates that the method is within the scope of a WebDAV
+     * transaction
+     * @param resourceUri URI of the content resource
+     * @param offset the zero-based offset of the first byte of the range
+     * @param length the maximum number of bytes in the range
+     * @return input stream you can read the range of the content from
+     * @throws WebdavException if something goes wrong on the store level
+     */
+    InputStream getResourceContent( ITransaction transaction,
+                                    String resourceUri,
+                                    long offset,
+                                    long length );
+}
@@ -17,6 +17,7 @@ package org.modeshape.webdav;
 
 import org.modeshape.common.i18n.TextI18n;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.BoundedInputStream;
 import org.modeshape.webdav.exceptions.WebdavException;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -37,7 +38,7 @@ import java.util.List;
  * @author joa
  * @author re
  */
-public class LocalFileSystemStore implements IWebdavStore {
+public class LocalFileSystemStore implements IRangedWebdavStore {
 
     private static Logger LOG = Logger.getLogger(LocalFileSystemStore.class);
 
@@ -198,6 +199,26 @@ public class LocalFileSystemStore implements IWebdavStore {
         return in;
     }
 
+    @Override
+    public InputStream getResourceContent( ITransaction transaction,
+                                           String uri,
+                                           long offset,
+                                           long length ) throws WebdavException {
+        LOG.trace("LocalFileSystemStore.getResourceContent(" + uri + ", " + offset + ", " + length + ")");
+        File file = new File(root, uri);
+
+        InputStream in;
+        try {
+            FileInputStream fileStream = new FileInputStream(file);
+            fileStream.getChannel().position(offset);
+            in = new BufferedInputStream(new BoundedInputStream(fileStream, length));
+        } catch (IOException e) {
+            LOG.error(new TextI18n("LocalFileSystemStore.getResourceContent(" + uri + ") failed"));
+            throw new WebdavException(e);
+        }
+        return in;
+    }
+
     @Override
     public long getResourceLength( ITransaction transaction,
                                    String resourceUri ) throws WebdavException {
@@ -26,7 +26,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.modeshape.common.i18n.TextI18n;
 import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.BoundedInputStream;
+import org.modeshape.common.util.ByteRange;
 import org.modeshape.webdav.IMimeTyper;
+import org.modeshape.webdav.IRangedWebdavStore;
 import org.modeshape.webdav.ITransaction;
 import org.modeshape.webdav.IWebdavStore;
 import org.modeshape.webdav.StoredObject;
@@ -51,6 +54,14 @@ public class DoGet extends DoHead {
     protected void doBody( ITransaction transaction,
                            HttpServletResponse resp,
                            String path ) {
+        doBody(transaction, null, resp, path);
+    }
+
+    @Override
+    protected void doBody( ITransaction transaction,
+                           HttpServletRequest req,
+                           HttpServletResponse resp,
+                           String path ) {
 
         try {
             StoredObject so = store.getStoredObject(transaction, path);
@@ -64,8 +75,27 @@ public class DoGet extends DoHead {
                 resp.sendError(WebdavStatus.SC_METHOD_NOT_ALLOWED);
                 return;
             }
+            long resourceLength = so.getResourceLength();
+            ByteRange range = null;
+            if (req != null) {
+                resp.setHeader("Accept-Ranges", ByteRange.UNIT);
+                range = ByteRange.parse(req.getHeader("Range"), resourceLength);
+                if (range == ByteRange.UNSATISFIABLE) {
+                    resp.setHeader("Content-Range", ByteRange.unsatisfiableContentRange(resourceLength));
+                    resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+            }
+            InputStream in = null;
+            if (range != null) {
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", range.getContentRange(resourceLength));
+                resp.setHeader("Content-Length", Long.toString(range.getLength()));
+                in = getResourceContent(transaction, path, range);
+            } else {
+                in = store.getResourceContent(transaction, path);
+            }
             OutputStream out = resp.getOutputStream();
-            InputStream in = store.getResourceContent(transaction, path);
             try {
                 int read = -1;
                 byte[] copyBuffer = new byte[BUF_SIZE];
@@ -93,6 +123,25 @@ public class DoGet extends DoHead {
         }
     }
 
+    /**
+     * Get the requested range of the resource's content. Stores that support it position the content directly at the start of
+     * the range; for other stores the preceding content is skipped.
+     * 
+     * @param transaction the transaction; never null
+     * @param path the path of the resource; never null
+     * @param range the range of the content; never null
+     * @return the stream over the range of the content
+     * @throws IOException if the preceding content cannot be skipped
+     */
+    protected InputStream getResourceContent( ITransaction transaction,
+                                              String path,
+                                              ByteRange range ) throws IOException {
+        if (store instanceof IRangedWebdavStore) {
+            return ((IRangedWebdavStore)store).getResourceContent(transaction, path, range.getFirst(), range.getLength());
+        }
+        return BoundedInputStream.range(store.getResourceContent(transaction, path), range.getFirst(), range.getLength());
+    }
+
     @Override
     protected void folderBody( ITransaction transaction,
                                String path,
@@ -141,7 +141,7 @@ public class DoHead extends AbstractMethod {
                                 }
                             }
 
-                            doBody(transaction, resp, path);
+                            doBody(transaction, req, resp, path);
                         }
                     } else {
                         folderBody(transaction, path, resp, req);
@@ -182,4 +182,22 @@ public class DoHead extends AbstractMethod {
                            String path ) throws IOException {
         // no body for HEAD
     }
+
+    /**
+     * Write the body of the response for a resource. By default this delegates to
+     * {@link #doBody(ITransaction, HttpServletResponse, String)}; subclasses that need the request (e.g., to honor its headers)
+     * can override this method instead.
+     * 
+     * @param transaction the transaction; never null
+     * @param req the request; never null
+     * @param resp the response; never null
+     * @param path the path of the resource; never null
+     * @throws IOException if the body cannot be written
+     */
+    protected void doBody( ITransaction transaction,
+                           HttpServletRequest req,
+                           HttpServletResponse resp,
+                           String path ) throws IOException {
+        doBody(transaction, resp, path);
+    }
 }
@@ -1,9 +1,12 @@
 package org.modeshape.webdav.methods;
 
+import java.io.ByteArrayInputStream;
 import java.util.Locale;
+import javax.servlet.http.HttpServletResponse;
 import org.jmock.Expectations;
 import org.junit.Test;
 import org.modeshape.webdav.AbstractWebDAVTest;
+import org.modeshape.webdav.IRangedWebdavStore;
 import org.modeshape.webdav.StoredObject;
 import org.modeshape.webdav.WebdavStatus;
 import org.modeshape.webdav.locking.ResourceLocks;
@@ -75,6 +78,11 @@ public class DoGetTest extends AbstractWebDAVTest {
                 one(mockStore).getStoredObject(mockTransaction, "/index.html");
                 will(returnValue(so));
 
+                one(mockRes).setHeader("Accept-Ranges", "bytes");
+
+                one(mockReq).getHeader("Range");
+                will(returnValue(null));
+
                 one(mockRes).getOutputStream();
                 will(returnValue(testingOutputStream));
 
@@ -90,6 +98,113 @@ public class DoGetTest extends AbstractWebDAVTest {
         mockery.assertIsSatisfied();
     }
 
+    @Test
+    public void testAccessOfaRangeOfPageResultsInPartialContent() throws Exception {
+        final TestingOutputStream testingOutputStream = new TestingOutputStream();
+        final IRangedWebdavStore rangedStore = mockery.mock(IRangedWebdavStore.class, "rangedStore");
+
+        mockery.checking(new Expectations() {
+            {
+                one(mockReq).getAttribute(INCLUDE_REQUEST_URI_ATTRIBUTE);
+                will(returnValue(null));
+
+                one(mockReq).getPathInfo();
+                will(returnValue("/index.html"));
+
+                StoredObject indexSo = initFileStoredObject(RESOURCE_CONTENT);
+
+                exactly(2).of(rangedStore).getStoredObject(mockTransaction, "/index.html");
+                will(returnValue(indexSo));
+
+                one(mockReq).getHeader("If-None-Match");
+                will(returnValue(null));
+
+                one(mockRes).setDateHeader("last-modified", indexSo.getLastModified().getTime());
+
+                one(mockRes).addHeader(with(any(String.class)), with(any(String.class)));
+
+                one(mockMimeTyper).getMimeType(mockTransaction, "/index.html");
+                will(returnValue("text/foo"));
+
+                one(mockRes).setContentType("text/foo");
+
+                one(mockRes).setHeader("Accept-Ranges", "bytes");
+
+                one(mockReq).getHeader("Range");
+                will(returnValue("bytes=1-5"));
+
+                one(mockRes).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                one(mockRes).setHeader("Content-Range", "bytes 1-5/" + RESOURCE_LENGTH);
+                one(mockRes).setHeader("Content-Length", "5");
+
+                one(mockRes).getOutputStream();
+                will(returnValue(testingOutputStream));
+
+                one(rangedStore).getResourceContent(mockTransaction, "/index.html", 1L, 5L);
+                will(returnValue(new ByteArrayInputStream(RESOURCE_CONTENT, 1, 5)));
+            }
+        });
+
+        DoGet doGet = new DoGet(rangedStore, null, null, new ResourceLocks(), mockMimeTyper, 0);
+        doGet.execute(mockTransaction, mockReq, mockRes);
+        assertEquals("hello", testingOutputStream.toString());
+
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testAccessOfaRangeOfPageInStoreWithoutRangesSkipsContent() throws Exception {
+        final TestingOutputStream testingOutputStream = new TestingOutputStream();
+
+        mockery.checking(new Expectations() {
+            {
+                one(mockReq).getAttribute(INCLUDE_REQUEST_URI_ATTRIBUTE);
+                will(returnValue(null));
+
+                one(mockReq).getPathInfo();
+                will(returnValue("/index.html"));
+
+                StoredObject indexSo = initFileStoredObject(RESOURCE_CONTENT);
+
+                exactly(2).of(mockStore).getStoredObject(mockTransaction, "/index.html");
+                will(returnValue(indexSo));
+
+                one(mockReq).getHeader("If-None-Match");
+                will(returnValue(null));
+
+                one(mockRes).setDateHeader("last-modified", indexSo.getLastModified().getTime());
+
+                one(mockRes).addHeader(with(any(String.class)), with(any(String.class)));
+
+                one(mockMimeTyper).getMimeType(mockTransaction, "/index.html");
+                will(returnValue("text/foo"));
+
+                one(mockRes).setContentType("text/foo");
+
+                one(mockRes).setHeader("Accept-Ranges", "bytes");
+
+                one(mockReq).getHeader("Range");
+                will(returnValue("bytes=1-5"));
+
+                one(mockRes).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                one(mockRes).setHeader("Content-Range", "bytes 1-5/" + RESOURCE_LENGTH);
+                one(mockRes).setHeader("Content-Length", "5");
+
+                one(mockRes).getOutputStream();
+                will(returnValue(testingOutputStream));
+
+                one(mockStore).getResourceContent(mockTransaction, "/index.html");
+                will(returnValue(new ByteArrayInputStream(RESOURCE_CONTENT)));
+            }
+        });
+
+        DoGet doGet = new DoGet(mockStore, null, null, new ResourceLocks(), mockMimeTyper, 0);
+        doGet.execute(mockTransaction, mockReq, mockRes);
+        assertEquals("hello", testingOutputStream.toString());
+
+        mockery.assertIsSatisfied();
+    }
+
     @Test
     public void testAccessOfaDirectoryResultsInRudimentaryChildList() throws Exception {
         final TestingOutputStream testingOutputStream = new TestingOutputStream();
@@ -208,6 +323,11 @@ public class DoGetTest extends AbstractWebDAVTest {
                 one(mockStore).getStoredObject(mockTransaction, "/alternative");
                 will(returnValue(alternativeSo));
 
+                one(mockRes).setHeader("Accept-Ranges", "bytes");
+
+                one(mockReq).getHeader("Range");
+                will(returnValue(null));
+
                 one(mockRes).getOutputStream();
                 will(returnValue(testingOutputStream));
                 one(mockStore).getResourceContent(mockTransaction, "/alternative");